@@ -34,9 +34,33 @@ CREATE TABLE IF NOT EXISTS `transaction` (
   CONSTRAINT `chk_transaction_type` CHECK (`type` IN ('IN', 'OUT')),
   CONSTRAINT `chk_transaction_quantity` CHECK (`quantity` > 0),
   INDEX `idx_product_id` (`product_id`),
+  INDEX `idx_product_id_timestamp_id` (`product_id`, `timestamp`, `id`),
   INDEX `idx_timestamp` (`timestamp`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='交易記錄';
 
+-- ========================================
+-- 產品每日統計 (Product Daily Stats Table)
+-- 由交易記錄彙總而來，可隨時由交易記錄重建
+-- ========================================
+CREATE TABLE IF NOT EXISTS `product_daily_stats` (
+  `product_id` BIGINT NOT NULL COMMENT '產品ID',
+  `stats_date` DATE NOT NULL COMMENT '交易日期',
+  `in_quantity` BIGINT NOT NULL DEFAULT 0 COMMENT '進貨數量合計',
+  `out_quantity` BIGINT NOT NULL DEFAULT 0 COMMENT '出貨數量合計',
+  `in_count` BIGINT NOT NULL DEFAULT 0 COMMENT '進貨筆數',
+  `out_count` BIGINT NOT NULL DEFAULT 0 COMMENT '出貨筆數',
+  PRIMARY KEY (`product_id`, `stats_date`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='產品每日統計';
+
+-- ========================================
+-- 彙總進度 (Stats Watermark Table)
+-- ========================================
+CREATE TABLE IF NOT EXISTS `stats_watermark` (
+  `name` VARCHAR(50) NOT NULL COMMENT '彙總名稱',
+  `last_transaction_id` BIGINT NOT NULL COMMENT '已彙總的最大交易記錄ID',
+  PRIMARY KEY (`name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='彙總進度';
+
 -- ========================================
 -- 測試資料 (可選)
 -- ========================================
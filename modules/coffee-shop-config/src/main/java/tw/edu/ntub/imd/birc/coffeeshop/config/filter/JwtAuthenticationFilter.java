@@ -1,9 +1,7 @@
 package tw.edu.ntub.imd.birc.coffeeshop.config.filter;
 
-import io.jsonwebtoken.ExpiredJwtException;
-import io.jsonwebtoken.MalformedJwtException;
-import io.jsonwebtoken.SignatureException;
-import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,6 +11,8 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import tw.edu.ntub.imd.birc.coffeeshop.config.security.RejectedTokenTracker;
+import tw.edu.ntub.imd.birc.coffeeshop.config.security.VerifiedTokenCache;
 import tw.edu.ntub.imd.birc.coffeeshop.config.util.JwtUtils;
 
 import javax.servlet.FilterChain;
@@ -25,25 +25,34 @@ import java.io.IOException;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final Logger log = LogManager.getLogger(JwtAuthenticationFilter.class);
     private final JwtUtils jwtUtils;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final RejectedTokenTracker rejectedTokenTracker;
 
     @Autowired
-    public JwtAuthenticationFilter(JwtUtils jwtUtils) {
+    public JwtAuthenticationFilter(JwtUtils jwtUtils,
+                                   VerifiedTokenCache verifiedTokenCache,
+                                   RejectedTokenTracker rejectedTokenTracker) {
         this.jwtUtils = jwtUtils;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.rejectedTokenTracker = rejectedTokenTracker;
     }
 
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain chain) throws IOException, ServletException {
         if (isContainsToken(request)) {
             String token = request.getHeader("Authorization").replaceFirst("Bearer ", "");
-            try {
-                Authentication authentication = jwtUtils.getAuthentication(token);
-                SecurityContextHolder.getContext().setAuthentication(authentication);
-            } catch (ExpiredJwtException |
-                     UnsupportedJwtException |
-                     MalformedJwtException |
-                     SignatureException |
-                     IllegalArgumentException e) {
-                e.printStackTrace();
+            String tokenHash = JwtUtils.hashToken(token);
+            if (rejectedTokenTracker.isRejected(tokenHash)) {
+                log.debug("略過最近驗證失敗的JWT");
+            } else if (!isWellFormed(token)) {
+                rejectedTokenTracker.reject(tokenHash, RejectedTokenTracker.Reason.MALFORMED);
+            } else {
+                try {
+                    Authentication authentication = getAuthentication(token, tokenHash);
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                } catch (JwtException | IllegalArgumentException e) {
+                    rejectedTokenTracker.reject(tokenHash, RejectedTokenTracker.Reason.of(e));
+                }
             }
         }
         try {
@@ -54,6 +63,36 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
     }
 
+    private Authentication getAuthentication(String token, String tokenHash) {
+        if (!verifiedTokenCache.isEnabled()) {
+            return jwtUtils.getAuthentication(token);
+        }
+        Authentication authentication = verifiedTokenCache.get(tokenHash);
+        if (authentication == null) {
+            Claims claims = jwtUtils.parseClaims(token);
+            authentication = jwtUtils.getAuthentication(claims);
+            verifiedTokenCache.put(tokenHash, authentication, claims.getExpiration());
+        }
+        return authentication;
+    }
+
+    /**
+     * 不符合header.payload.signature且只含Base64URL字元的字串不需交給jjwt解析，直接視為格式錯誤
+     */
+    private boolean isWellFormed(String token) {
+        int periodCount = 0;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c == '.') {
+                periodCount++;
+            } else if (!(c >= 'A' && c <= 'Z') && !(c >= 'a' && c <= 'z') && !(c >= '0' && c <= '9') &&
+                    c != '-' && c != '_' && c != '=') {
+                return false;
+            }
+        }
+        return periodCount == 2;
+    }
+
     private boolean isContainsToken(HttpServletRequest request) {
         return request.getHeader("Authorization") != null && request.getHeader("Authorization").startsWith("Bearer ");
     }
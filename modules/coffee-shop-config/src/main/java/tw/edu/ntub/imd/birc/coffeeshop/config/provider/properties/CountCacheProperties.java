@@ -0,0 +1,57 @@
+package tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 分頁資訊的筆數快取設定
+ */
+@Component
+@ConfigurationProperties(prefix = "coffee-shop.count-cache")
+public class CountCacheProperties {
+    private boolean enabled = true;
+    /**
+     * 存活時間(毫秒)，限制進貨/出貨寫入交易記錄等不經過BaseServiceImpl的異動造成的誤差
+     */
+    private long ttlMillis = 10000;
+    /**
+     * 最多快取的筆數(實體與查詢條件的組合)，超過時先清除已過期的，仍不足再任意淘汰一部分
+     */
+    private int maxSize = 1000;
+    /**
+     * 交易記錄的估計筆數達到此值時，不帶條件的筆數直接使用資料庫統計資訊的估計值，0代表一律精確計算
+     */
+    private long approximateThreshold = 1000000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    public void setTtlMillis(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public long getApproximateThreshold() {
+        return approximateThreshold;
+    }
+
+    public void setApproximateThreshold(long approximateThreshold) {
+        this.approximateThreshold = approximateThreshold;
+    }
+}
@@ -0,0 +1,49 @@
+package tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 連線池補充設定，池的大小與存活時間使用spring.datasource.hikari
+ */
+@Component
+@ConfigurationProperties(prefix = "coffee-shop.datasource.pool")
+public class DataSourcePoolProperties {
+    /**
+     * 連線在此時間(毫秒)內使用過就不在借出時驗證，閒置連線改由keepalive-time定期驗證
+     * HikariCP只在JVM中第一次載入連線池時讀取，執行中修改不會生效
+     */
+    private long aliveBypassWindowMillis = 60000;
+    /**
+     * MySQL驅動每個連線快取的預編譯SQL數量，0表示不啟用伺服器端預編譯
+     */
+    private int preparedStatementCacheSize = 250;
+    /**
+     * 超過此長度的SQL不快取
+     */
+    private int preparedStatementCacheSqlLimit = 2048;
+
+    public long getAliveBypassWindowMillis() {
+        return aliveBypassWindowMillis;
+    }
+
+    public void setAliveBypassWindowMillis(long aliveBypassWindowMillis) {
+        this.aliveBypassWindowMillis = aliveBypassWindowMillis;
+    }
+
+    public int getPreparedStatementCacheSize() {
+        return preparedStatementCacheSize;
+    }
+
+    public void setPreparedStatementCacheSize(int preparedStatementCacheSize) {
+        this.preparedStatementCacheSize = preparedStatementCacheSize;
+    }
+
+    public int getPreparedStatementCacheSqlLimit() {
+        return preparedStatementCacheSqlLimit;
+    }
+
+    public void setPreparedStatementCacheSqlLimit(int preparedStatementCacheSqlLimit) {
+        this.preparedStatementCacheSqlLimit = preparedStatementCacheSqlLimit;
+    }
+}
@@ -0,0 +1,86 @@
+package tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 讀寫分離設定，預設關閉
+ * 啟用後交易設定為唯讀(find*、get*、search*)的呼叫改用副本資料庫，其餘使用主資料庫；
+ * 副本連線池沿用spring.datasource.hikari的設定
+ */
+@Component
+@ConfigurationProperties(prefix = "coffee-shop.datasource.routing")
+public class DataSourceRoutingProperties {
+    private boolean enabled = false;
+    private String replicaUrl;
+    private String replicaUsername;
+    private String replicaPassword;
+    /**
+     * 副本落後超過此時間(毫秒)時，讀取改回主資料庫
+     */
+    private long maxLagMillis = 1000;
+    /**
+     * 檢查副本落後的間隔(毫秒)
+     */
+    private long lagCheckIntervalMillis = 1000;
+    /**
+     * 在副本上查詢落後時間的SQL，結果欄位為lag_millis(毫秒)或Seconds_Behind_Master/Seconds_Behind_Source(秒)
+     */
+    private String lagQuery = "SHOW SLAVE STATUS";
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getReplicaUrl() {
+        return replicaUrl;
+    }
+
+    public void setReplicaUrl(String replicaUrl) {
+        this.replicaUrl = replicaUrl;
+    }
+
+    public String getReplicaUsername() {
+        return replicaUsername;
+    }
+
+    public void setReplicaUsername(String replicaUsername) {
+        this.replicaUsername = replicaUsername;
+    }
+
+    public String getReplicaPassword() {
+        return replicaPassword;
+    }
+
+    public void setReplicaPassword(String replicaPassword) {
+        this.replicaPassword = replicaPassword;
+    }
+
+    public long getMaxLagMillis() {
+        return maxLagMillis;
+    }
+
+    public void setMaxLagMillis(long maxLagMillis) {
+        this.maxLagMillis = maxLagMillis;
+    }
+
+    public long getLagCheckIntervalMillis() {
+        return lagCheckIntervalMillis;
+    }
+
+    public void setLagCheckIntervalMillis(long lagCheckIntervalMillis) {
+        this.lagCheckIntervalMillis = lagCheckIntervalMillis;
+    }
+
+    public String getLagQuery() {
+        return lagQuery;
+    }
+
+    public void setLagQuery(String lagQuery) {
+        this.lagQuery = lagQuery;
+    }
+}
@@ -0,0 +1,36 @@
+package tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 庫存與交易記錄匯出(XLSX)設定
+ */
+@Component
+@ConfigurationProperties(prefix = "coffee-shop.export")
+public class ExportProperties {
+    /**
+     * SXSSF在記憶體中保留的列數，超過時較早的列寫入暫存檔
+     */
+    private int rowAccessWindowSize = 100;
+    /**
+     * 是否以gzip壓縮暫存檔，匯出較慢但暫存檔約只有原本的十分之一
+     */
+    private boolean compressTempFiles = true;
+
+    public int getRowAccessWindowSize() {
+        return rowAccessWindowSize;
+    }
+
+    public void setRowAccessWindowSize(int rowAccessWindowSize) {
+        this.rowAccessWindowSize = rowAccessWindowSize;
+    }
+
+    public boolean isCompressTempFiles() {
+        return compressTempFiles;
+    }
+
+    public void setCompressTempFiles(boolean compressTempFiles) {
+        this.compressTempFiles = compressTempFiles;
+    }
+}
@@ -0,0 +1,69 @@
+package tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 熱門產品庫存設定，列入productIds的產品庫存改由記憶體計數器扣減，再延遲寫回資料庫
+ */
+@Component
+@ConfigurationProperties(prefix = "coffee-shop.stock.hot")
+public class HotStockProperties {
+    private boolean enabled = false;
+    private List<Long> productIds = new ArrayList<>();
+    /**
+     * 每個產品拆成幾個子計數器
+     */
+    private int stripes = 8;
+    /**
+     * 寫回資料庫的間隔(毫秒)
+     */
+    private long flushIntervalMillis = 200;
+    /**
+     * 單次寫回最多處理的交易記錄筆數
+     */
+    private int maxFlushSize = 1000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<Long> getProductIds() {
+        return productIds;
+    }
+
+    public void setProductIds(List<Long> productIds) {
+        this.productIds = productIds;
+    }
+
+    public int getStripes() {
+        return stripes;
+    }
+
+    public void setStripes(int stripes) {
+        this.stripes = stripes;
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public void setFlushIntervalMillis(long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public int getMaxFlushSize() {
+        return maxFlushSize;
+    }
+
+    public void setMaxFlushSize(int maxFlushSize) {
+        this.maxFlushSize = maxFlushSize;
+    }
+}
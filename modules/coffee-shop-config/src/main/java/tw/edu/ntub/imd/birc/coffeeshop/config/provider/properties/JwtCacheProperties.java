@@ -0,0 +1,33 @@
+package tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 已驗證JWT快取設定，同一個token在到期前只需驗證一次簽章
+ */
+@Component
+@ConfigurationProperties(prefix = "coffee-shop.security.jwt-cache")
+public class JwtCacheProperties {
+    private boolean enabled = true;
+    /**
+     * 最多快取的token數量，超過時先清除已過期的，仍不足再任意淘汰一部分
+     */
+    private int maxSize = 10000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+}
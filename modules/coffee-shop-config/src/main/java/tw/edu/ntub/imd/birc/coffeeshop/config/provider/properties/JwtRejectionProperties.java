@@ -0,0 +1,48 @@
+package tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * JWT驗證失敗處理設定，失敗過的token在短時間內直接略過，不再重新解析
+ */
+@Component
+@ConfigurationProperties(prefix = "coffee-shop.security.jwt-rejection")
+public class JwtRejectionProperties {
+    /**
+     * 失敗token的保留時間(毫秒)，0代表不使用負向快取
+     */
+    private long negativeCacheTtlMillis = 30000;
+    /**
+     * 最多保留的失敗token數量
+     */
+    private int negativeCacheMaxSize = 10000;
+    /**
+     * 失敗統計的記錄間隔(毫秒)，間隔內最多只輸出一筆
+     */
+    private long summaryIntervalMillis = 60000;
+
+    public long getNegativeCacheTtlMillis() {
+        return negativeCacheTtlMillis;
+    }
+
+    public void setNegativeCacheTtlMillis(long negativeCacheTtlMillis) {
+        this.negativeCacheTtlMillis = negativeCacheTtlMillis;
+    }
+
+    public int getNegativeCacheMaxSize() {
+        return negativeCacheMaxSize;
+    }
+
+    public void setNegativeCacheMaxSize(int negativeCacheMaxSize) {
+        this.negativeCacheMaxSize = negativeCacheMaxSize;
+    }
+
+    public long getSummaryIntervalMillis() {
+        return summaryIntervalMillis;
+    }
+
+    public void setSummaryIntervalMillis(long summaryIntervalMillis) {
+        this.summaryIntervalMillis = summaryIntervalMillis;
+    }
+}
@@ -0,0 +1,36 @@
+package tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 不分頁查詢(Pager.infinity())的上限與串流設定
+ */
+@Component
+@ConfigurationProperties(prefix = "coffee-shop.pager")
+public class PagerProperties {
+    /**
+     * 不分頁查詢回傳List時最多的筆數，超過時只回傳第一頁，需要全部資料時應改用串流
+     */
+    private int maxListSize = 10000;
+    /**
+     * 串流時每次以鍵集分頁讀取的筆數，每批讀完後移出persistence context
+     */
+    private int streamChunkSize = 1000;
+
+    public int getMaxListSize() {
+        return maxListSize;
+    }
+
+    public void setMaxListSize(int maxListSize) {
+        this.maxListSize = maxListSize;
+    }
+
+    public int getStreamChunkSize() {
+        return streamChunkSize;
+    }
+
+    public void setStreamChunkSize(int streamChunkSize) {
+        this.streamChunkSize = streamChunkSize;
+    }
+}
@@ -0,0 +1,69 @@
+package tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 產品快取設定，名稱、類型、單價等少變動的欄位長時間快取，庫存只短暫快取並由進貨/出貨直接更新
+ */
+@Component
+@ConfigurationProperties(prefix = "coffee-shop.product-cache")
+public class ProductCacheProperties {
+    private boolean enabled = true;
+    /**
+     * 最多快取的產品數量，超過時先清除已過期的，仍不足再任意淘汰一部分；產品總數超過此值時列表不快取
+     */
+    private int maxSize = 10000;
+    /**
+     * 名稱、類型、單價的存活時間(毫秒)
+     */
+    private long catalogTtlMillis = 600000;
+    /**
+     * 庫存的存活時間(毫秒)，限制其他節點或直接修改資料庫造成的誤差
+     */
+    private long stockTtlMillis = 1000;
+    /**
+     * 產品列表回應除了原始內容外，另外保存一份gzip壓縮的版本
+     */
+    private boolean gzipResponse = true;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public long getCatalogTtlMillis() {
+        return catalogTtlMillis;
+    }
+
+    public void setCatalogTtlMillis(long catalogTtlMillis) {
+        this.catalogTtlMillis = catalogTtlMillis;
+    }
+
+    public long getStockTtlMillis() {
+        return stockTtlMillis;
+    }
+
+    public void setStockTtlMillis(long stockTtlMillis) {
+        this.stockTtlMillis = stockTtlMillis;
+    }
+
+    public boolean isGzipResponse() {
+        return gzipResponse;
+    }
+
+    public void setGzipResponse(boolean gzipResponse) {
+        this.gzipResponse = gzipResponse;
+    }
+}
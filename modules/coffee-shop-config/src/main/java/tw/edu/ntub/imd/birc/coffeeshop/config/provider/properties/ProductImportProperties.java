@@ -0,0 +1,48 @@
+package tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 產品匯入(CSV/NDJSON)設定
+ */
+@Component
+@ConfigurationProperties(prefix = "coffee-shop.product-import")
+public class ProductImportProperties {
+    /**
+     * 上傳檔案與錯誤檔存放在server.file.path下的子目錄
+     */
+    private String directory = "import";
+    /**
+     * 每個交易新增的筆數，同時也是記憶體中最多保留的列數
+     */
+    private int chunkSize = 1000;
+    /**
+     * 保留在記憶體中供查詢進度的匯入工作數量，超過時移除最早建立的工作並刪除其錯誤檔
+     */
+    private int maxRetainedJobs = 100;
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public int getMaxRetainedJobs() {
+        return maxRetainedJobs;
+    }
+
+    public void setMaxRetainedJobs(int maxRetainedJobs) {
+        this.maxRetainedJobs = maxRetainedJobs;
+    }
+}
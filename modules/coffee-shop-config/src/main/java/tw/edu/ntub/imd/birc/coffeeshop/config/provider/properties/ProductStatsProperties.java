@@ -0,0 +1,82 @@
+package tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 產品每日統計設定，背景執行緒依交易記錄ID遞增彙總新的交易記錄
+ */
+@Component
+@ConfigurationProperties(prefix = "coffee-shop.product-stats")
+public class ProductStatsProperties {
+    private boolean enabled = true;
+    /**
+     * 檢查新交易記錄的間隔(毫秒)，統計最多落後這段時間
+     */
+    private long tailIntervalMillis = 1000;
+    /**
+     * 每次彙總最多讀取的交易記錄筆數，有更多時立即繼續下一批
+     */
+    private int tailBatchSize = 10000;
+    /**
+     * ID出現缺號時等待的時間(毫秒)，逾時仍未出現視為已回滾而略過
+     * 應大於最長的庫存異動交易時間，否則較晚提交的交易記錄不會被計入
+     */
+    private long gapTimeoutMillis = 10000;
+    /**
+     * 重建時每個工作處理的交易記錄ID範圍
+     */
+    private int rebuildChunkSize = 100000;
+    /**
+     * 重建時同時執行的工作數
+     */
+    private int rebuildParallelism = 4;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getTailIntervalMillis() {
+        return tailIntervalMillis;
+    }
+
+    public void setTailIntervalMillis(long tailIntervalMillis) {
+        this.tailIntervalMillis = tailIntervalMillis;
+    }
+
+    public int getTailBatchSize() {
+        return tailBatchSize;
+    }
+
+    public void setTailBatchSize(int tailBatchSize) {
+        this.tailBatchSize = tailBatchSize;
+    }
+
+    public long getGapTimeoutMillis() {
+        return gapTimeoutMillis;
+    }
+
+    public void setGapTimeoutMillis(long gapTimeoutMillis) {
+        this.gapTimeoutMillis = gapTimeoutMillis;
+    }
+
+    public int getRebuildChunkSize() {
+        return rebuildChunkSize;
+    }
+
+    public void setRebuildChunkSize(int rebuildChunkSize) {
+        this.rebuildChunkSize = rebuildChunkSize;
+    }
+
+    public int getRebuildParallelism() {
+        return rebuildParallelism;
+    }
+
+    public void setRebuildParallelism(int rebuildParallelism) {
+        this.rebuildParallelism = rebuildParallelism;
+    }
+}
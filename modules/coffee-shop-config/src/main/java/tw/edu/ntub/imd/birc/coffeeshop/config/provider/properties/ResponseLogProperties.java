@@ -0,0 +1,45 @@
+package tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 回應記錄設定，只記錄errorCode、HTTP狀態與回應大小，不記錄完整內容
+ */
+@Component
+@ConfigurationProperties(prefix = "coffee-shop.response-log")
+public class ResponseLogProperties {
+    private boolean enabled = false;
+    /**
+     * 抽樣比例，0~1
+     */
+    private double sampleRate = 0.01;
+    /**
+     * 附帶回應開頭的最大位元組數，0代表不附帶
+     */
+    private int maxBodyBytes = 0;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public int getMaxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    public void setMaxBodyBytes(int maxBodyBytes) {
+        this.maxBodyBytes = maxBodyBytes;
+    }
+}
@@ -0,0 +1,46 @@
+package tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * SQL計時設定，預設關閉；啟用後記錄每個SQL的耗時分布與筆數，不會帶入參數值
+ * 執行期間可透過/api/v1/admin/sql-probe切換
+ */
+@Component
+@ConfigurationProperties(prefix = "coffee-shop.sql-probe")
+public class SqlProbeProperties {
+    private boolean enabled = false;
+    /**
+     * 超過此耗時(毫秒)的SQL寫入慢查詢記錄
+     */
+    private long slowQueryMillis = 200;
+    /**
+     * 最多分別統計的SQL數量，超過的歸入同一筆
+     */
+    private int maxStatements = 500;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getSlowQueryMillis() {
+        return slowQueryMillis;
+    }
+
+    public void setSlowQueryMillis(long slowQueryMillis) {
+        this.slowQueryMillis = slowQueryMillis;
+    }
+
+    public int getMaxStatements() {
+        return maxStatements;
+    }
+
+    public void setMaxStatements(int maxStatements) {
+        this.maxStatements = maxStatements;
+    }
+}
@@ -0,0 +1,81 @@
+package tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 進貨/出貨批次提交設定，enabled為false時維持每筆請求各自提交
+ */
+@Component
+@ConfigurationProperties(prefix = "coffee-shop.stock.batch")
+public class StockBatchProperties {
+    private boolean enabled = false;
+    /**
+     * 單次批次最多合併的請求數
+     */
+    private int maxSize = 200;
+    /**
+     * 收到第一筆請求後最多等待多久就提交(毫秒)
+     */
+    private long flushIntervalMillis = 10;
+    /**
+     * 等待提交的請求佇列上限
+     */
+    private int queueCapacity = 10000;
+    /**
+     * 佇列已滿時最多等待多久(毫秒)，逾時則拒絕該請求
+     */
+    private long enqueueTimeoutMillis = 1000;
+    /**
+     * 已排入佇列的請求最多等待多久取得結果(毫秒)，逾時則回應失敗，但該請求仍可能在之後被提交
+     */
+    private long resultTimeoutMillis = 30000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public void setFlushIntervalMillis(long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public long getEnqueueTimeoutMillis() {
+        return enqueueTimeoutMillis;
+    }
+
+    public void setEnqueueTimeoutMillis(long enqueueTimeoutMillis) {
+        this.enqueueTimeoutMillis = enqueueTimeoutMillis;
+    }
+
+    public long getResultTimeoutMillis() {
+        return resultTimeoutMillis;
+    }
+
+    public void setResultTimeoutMillis(long resultTimeoutMillis) {
+        this.resultTimeoutMillis = resultTimeoutMillis;
+    }
+}
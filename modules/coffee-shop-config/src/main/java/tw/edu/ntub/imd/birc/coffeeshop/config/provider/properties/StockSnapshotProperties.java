@@ -0,0 +1,58 @@
+package tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 庫存快照設定，背景執行緒定期記錄每個產品的庫存與當下的最大交易記錄ID，供查詢過去某個時間點的庫存
+ */
+@Component
+@ConfigurationProperties(prefix = "coffee-shop.stock-snapshot")
+public class StockSnapshotProperties {
+    private boolean enabled = true;
+    /**
+     * 快照的間隔(毫秒)，查詢時最多需要重播這段時間內的交易記錄
+     */
+    private long intervalMillis = 3600000;
+    /**
+     * 每個交易鎖定並快照的產品數，鎖定期間這些產品的庫存異動會等待
+     */
+    private int chunkSize = 1000;
+    /**
+     * 交易記錄的交易時間到提交之間最多相差的時間(毫秒)，應大於熱門產品寫回與批次提交的延遲
+     * 查詢時只重播到這段時間之後的下一筆快照為止，超過此延遲才提交的交易記錄不會被計入
+     */
+    private long maxCommitDelayMillis = 60000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    public void setIntervalMillis(long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public long getMaxCommitDelayMillis() {
+        return maxCommitDelayMillis;
+    }
+
+    public void setMaxCommitDelayMillis(long maxCommitDelayMillis) {
+        this.maxCommitDelayMillis = maxCommitDelayMillis;
+    }
+}
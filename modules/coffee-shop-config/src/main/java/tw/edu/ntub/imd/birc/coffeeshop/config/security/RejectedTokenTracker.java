@@ -0,0 +1,151 @@
+package tw.edu.ntub.imd.birc.coffeeshop.config.security;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.UnsupportedJwtException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Component;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.JwtRejectionProperties;
+
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 記錄JWT驗證失敗的原因
+ * 依原因累計次數，失敗過的token雜湊在短時間內直接判定失敗，不再重新解析；
+ * 不輸出個別的堆疊，而是每隔一段時間輸出一筆統計
+ */
+@Component
+public class RejectedTokenTracker {
+    private final Logger log = LogManager.getLogger(RejectedTokenTracker.class);
+    private final Map<String, Long> negativeCacheMap = new ConcurrentHashMap<>();
+    private final Map<Reason, LongAdder> countMap = new EnumMap<>(Reason.class);
+    private final Map<Reason, Long> reportedCountMap = new EnumMap<>(Reason.class);
+    private final LongAdder negativeCacheHitCount = new LongAdder();
+    private final AtomicBoolean evicting = new AtomicBoolean(false);
+    private final AtomicLong nextSummaryAt = new AtomicLong(0);
+    private final long negativeCacheTtlMillis;
+    private final int negativeCacheMaxSize;
+    private final long summaryIntervalMillis;
+    private long reportedNegativeCacheHitCount;
+
+    public RejectedTokenTracker(JwtRejectionProperties properties) {
+        this.negativeCacheTtlMillis = properties.getNegativeCacheTtlMillis();
+        this.negativeCacheMaxSize = properties.getNegativeCacheMaxSize();
+        this.summaryIntervalMillis = properties.getSummaryIntervalMillis();
+        for (Reason reason : Reason.values()) {
+            countMap.put(reason, new LongAdder());
+            reportedCountMap.put(reason, 0L);
+        }
+    }
+
+    /**
+     * @return 該token最近已驗證失敗過
+     */
+    public boolean isRejected(String tokenHash) {
+        Long expiresAt = negativeCacheMap.get(tokenHash);
+        if (expiresAt == null) {
+            return false;
+        } else if (expiresAt <= System.currentTimeMillis()) {
+            negativeCacheMap.remove(tokenHash, expiresAt);
+            return false;
+        }
+        negativeCacheHitCount.increment();
+        summarizeIfDue();
+        return true;
+    }
+
+    public void reject(String tokenHash, Reason reason) {
+        countMap.get(reason).increment();
+        if (negativeCacheTtlMillis > 0 && negativeCacheMaxSize > 0) {
+            if (negativeCacheMap.size() >= negativeCacheMaxSize) {
+                evict();
+            }
+            negativeCacheMap.put(tokenHash, System.currentTimeMillis() + negativeCacheTtlMillis);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("JWT驗證失敗：" + reason);
+        }
+        summarizeIfDue();
+    }
+
+    public long getCount(Reason reason) {
+        return countMap.get(reason).sum();
+    }
+
+    public long getNegativeCacheHitCount() {
+        return negativeCacheHitCount.sum();
+    }
+
+    public int getNegativeCacheSize() {
+        return negativeCacheMap.size();
+    }
+
+    /**
+     * 先清除已過期的項目，仍超過上限九成時依迭代順序淘汰
+     */
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            int target = negativeCacheMaxSize - Math.max(1, negativeCacheMaxSize / 10);
+            negativeCacheMap.values().removeIf(expiresAt -> expiresAt <= now);
+            Iterator<Long> iterator = negativeCacheMap.values().iterator();
+            while (negativeCacheMap.size() > target && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * 每個間隔只有一個執行緒能取得輸出權，輸出自上次統計以來各原因的次數
+     */
+    private void summarizeIfDue() {
+        long now = System.currentTimeMillis();
+        long summaryAt = nextSummaryAt.get();
+        if (now < summaryAt || !nextSummaryAt.compareAndSet(summaryAt, now + summaryIntervalMillis)) {
+            return;
+        }
+        synchronized (reportedCountMap) {
+            StringJoiner joiner = new StringJoiner(", ", "JWT驗證失敗統計：", "");
+            for (Reason reason : Reason.values()) {
+                long count = countMap.get(reason).sum();
+                joiner.add(reason + "=" + (count - reportedCountMap.put(reason, count)));
+            }
+            long hitCount = negativeCacheHitCount.sum();
+            joiner.add("NEGATIVE_CACHE_HIT=" + (hitCount - reportedNegativeCacheHitCount));
+            reportedNegativeCacheHitCount = hitCount;
+            log.warn(joiner.toString());
+        }
+    }
+
+    public enum Reason {
+        EXPIRED, MALFORMED, BAD_SIGNATURE, UNSUPPORTED, OTHER;
+
+        public static Reason of(RuntimeException e) {
+            if (e instanceof ExpiredJwtException) {
+                return EXPIRED;
+            } else if (e instanceof MalformedJwtException || e instanceof IllegalArgumentException) {
+                return MALFORMED;
+            } else if (e instanceof SignatureException) {
+                return BAD_SIGNATURE;
+            } else if (e instanceof UnsupportedJwtException) {
+                return UNSUPPORTED;
+            }
+            return OTHER;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package tw.edu.ntub.imd.birc.coffeeshop.config.security;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.JwtCacheProperties;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 已驗證JWT的快取，以token的雜湊為鍵，保存解析後的Authentication直到token的exp
+ * 同一台POS終端會重複送出相同token，命中時可省去HS512驗證與解析JSON
+ * 每次命中都回傳新的Authentication，避免不同請求共用同一個可變物件
+ */
+@Component
+public class VerifiedTokenCache {
+    private final Map<String, Entry> entryMap = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean(false);
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final boolean enabled;
+    private final int maxSize;
+
+    public VerifiedTokenCache(JwtCacheProperties properties) {
+        this.enabled = properties.isEnabled() && properties.getMaxSize() > 0;
+        this.maxSize = properties.getMaxSize();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return 未命中或已過期時回傳null
+     */
+    public Authentication get(String tokenHash) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = entryMap.get(tokenHash);
+        if (entry == null) {
+            missCount.increment();
+            return null;
+        } else if (entry.expiresAt <= System.currentTimeMillis()) {
+            entryMap.remove(tokenHash, entry);
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        return new UsernamePasswordAuthenticationToken(
+                entry.authentication.getPrincipal(),
+                null,
+                entry.authentication.getAuthorities()
+        );
+    }
+
+    /**
+     * 沒有exp的token不快取
+     */
+    public void put(String tokenHash, Authentication authentication, Date expiration) {
+        if (!enabled || expiration == null || expiration.getTime() <= System.currentTimeMillis()) {
+            return;
+        }
+        if (entryMap.size() >= maxSize) {
+            evict();
+        }
+        entryMap.put(tokenHash, new Entry(authentication, expiration.getTime()));
+    }
+
+    /**
+     * 先清除已過期的項目，仍超過上限九成時依迭代順序淘汰，同一時間只有一個執行緒進行
+     */
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            int target = maxSize - Math.max(1, maxSize / 10);
+            Iterator<Entry> iterator = entryMap.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().expiresAt <= now) {
+                    iterator.remove();
+                    evictionCount.increment();
+                }
+            }
+            iterator = entryMap.values().iterator();
+            while (entryMap.size() > target && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+                evictionCount.increment();
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    public void clear() {
+        entryMap.clear();
+    }
+
+    public int size() {
+        return entryMap.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public double getHitRate() {
+        long hit = getHitCount();
+        long total = hit + getMissCount();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    private static class Entry {
+        private final Authentication authentication;
+        private final long expiresAt;
+
+        private Entry(Authentication authentication, long expiresAt) {
+            this.authentication = authentication;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -11,14 +11,25 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.Base64;
 import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Component
 public final class JwtUtils {
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
     @Value("spring.security.jwt.secret")
     private String secret;
 
@@ -36,16 +47,35 @@ public final class JwtUtils {
                 .compact();
     }
 
+    /**
+     * 以SHA-256雜湊token作為快取的鍵，避免在記憶體中保留完整的token
+     */
+    public static String hashToken(String token) {
+        MessageDigest messageDigest = SHA_256.get();
+        byte[] digest = messageDigest.digest(token.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    }
+
     private Integer hoursToMs(Integer hours) {
         return hours * 3600 * 1000;
     }
 
-    @SuppressWarnings("unchecked")
     public Authentication getAuthentication(String token) {
-        Claims body = Jwts.parser()
+        return getAuthentication(parseClaims(token));
+    }
+
+    /**
+     * 驗證簽章與到期時間後取得內容
+     */
+    public Claims parseClaims(String token) {
+        return Jwts.parser()
                 .setSigningKey(secret)
                 .parseClaimsJws(token)
                 .getBody();
+    }
+
+    @SuppressWarnings("unchecked")
+    public Authentication getAuthentication(Claims body) {
         List<String> roles = (List<String>) body.get("roles");
         return new UsernamePasswordAuthenticationToken(
                 body.getIssuer(),
@@ -1,6 +1,8 @@
 package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig;
 
+import org.hibernate.cfg.AvailableSettings;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
@@ -8,17 +10,37 @@ import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.TransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.transaction.interceptor.*;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.support.ProjectionJpaRepository;
 
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 @Configuration("databaseConfig")
-@EnableJpaRepositories(basePackages = "tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao")
+@EnableJpaRepositories(
+        basePackages = "tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao",
+        repositoryBaseClass = ProjectionJpaRepository.class
+)
 @EnableTransactionManagement
 @EntityScan(basePackages = "tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity")
 public class Config {
     public static final String DATABASE_NAME = "portal";
+    private static final int JDBC_BATCH_SIZE = 50;
+
+    /**
+     * 啟用Hibernate的JDBC batch並依實體排序新增與修改，讓同一交易中的多筆寫入合併送出；
+     * 使用IDENTITY產生ID的實體新增時仍會逐筆執行，批次新增交易記錄請使用StockBatchDAO。
+     * 已在spring.jpa.properties設定的值優先
+     */
+    @Bean
+    public HibernatePropertiesCustomizer batchHibernatePropertiesCustomizer() {
+        return hibernateProperties -> {
+            hibernateProperties.putIfAbsent(AvailableSettings.STATEMENT_BATCH_SIZE, JDBC_BATCH_SIZE);
+            hibernateProperties.putIfAbsent(AvailableSettings.ORDER_INSERTS, true);
+            hibernateProperties.putIfAbsent(AvailableSettings.ORDER_UPDATES, true);
+            hibernateProperties.putIfAbsent(AvailableSettings.BATCH_VERSIONED_DATA, true);
+        };
+    }
 
     @Bean
     public TransactionInterceptor transactionInterceptor(TransactionManager transactionManager) {
@@ -0,0 +1,105 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.DataSourcePoolProperties;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.DataSourceRoutingProperties;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.pool.PoolMetrics;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.routing.ReplicaLagMonitor;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.routing.RoutingDataSource;
+
+import javax.sql.DataSource;
+
+/**
+ * HikariCP連線池設定，取代原本的c3p0
+ * 借出連線時不再每次驗證(由HikariSystemPropertyInitializer在容器啟動前設定)，閒置連線由keepalive-time定期驗證；連線到MySQL時啟用伺服器端預編譯與快取，
+ * 並讓驅動將JDBC batch改寫為多列INSERT或多個敘述一次送出
+ * 啟用讀寫分離時另建副本的連線池，並以RoutingDataSource依交易設定分流；
+ * 外層的LazyConnectionDataSourceProxy讓連線延到第一個SQL才取得，此時交易的唯讀設定已經生效，
+ * 沒有執行SQL的交易(例如交給群組提交器或熱門產品處理的進貨/出貨)也不會佔用連線
+ * 讀寫分離時Hibernate改為交易結束即歸還連線，未啟用時維持預設的連線處理方式
+ */
+@Configuration
+public class DataSourceConfig {
+    private static final String HIKARI_PREFIX = "spring.datasource.hikari";
+    private static final String MYSQL_URL_PREFIX = "jdbc:mysql:";
+
+    @Bean
+    public DataSource dataSource(Environment environment,
+                                 DataSourceProperties dataSourceProperties,
+                                 DataSourcePoolProperties poolProperties,
+                                 DataSourceRoutingProperties routingProperties,
+                                 PoolMetrics poolMetrics) {
+        HikariDataSource primaryDataSource = createDataSource(
+                environment,
+                dataSourceProperties.initializeDataSourceBuilder(),
+                poolProperties,
+                poolMetrics
+        );
+        if (!routingProperties.isEnabled()) {
+            return new LazyConnectionDataSourceProxy(primaryDataSource);
+        }
+        HikariDataSource replicaDataSource = createDataSource(
+                environment,
+                DataSourceBuilder.create()
+                        .driverClassName(dataSourceProperties.determineDriverClassName())
+                        .url(routingProperties.getReplicaUrl())
+                        .username(routingProperties.getReplicaUsername())
+                        .password(routingProperties.getReplicaPassword()),
+                poolProperties,
+                poolMetrics
+        );
+        replicaDataSource.setPoolName(primaryDataSource.getPoolName() + "-replica");
+        replicaDataSource.setReadOnly(true);
+        RoutingDataSource routingDataSource = new RoutingDataSource(
+                primaryDataSource,
+                replicaDataSource,
+                new ReplicaLagMonitor(replicaDataSource, routingProperties)
+        );
+        routingDataSource.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    /**
+     * 非交易的查詢用完即歸還連線，同一個EntityManager才能分別取得副本與主資料庫的連線
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "coffee-shop.datasource.routing", name = "enabled", havingValue = "true")
+    public HibernatePropertiesCustomizer routingConnectionHandlingCustomizer() {
+        return hibernateProperties -> hibernateProperties.put(
+                AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION
+        );
+    }
+
+    private HikariDataSource createDataSource(Environment environment,
+                                              DataSourceBuilder<?> builder,
+                                              DataSourcePoolProperties poolProperties,
+                                              PoolMetrics poolMetrics) {
+        HikariDataSource dataSource = builder.type(HikariDataSource.class).build();
+        Binder.get(environment).bind(HIKARI_PREFIX, Bindable.ofInstance(dataSource));
+        dataSource.setMetricsTrackerFactory(poolMetrics);
+        String url = dataSource.getJdbcUrl();
+        if (url != null && url.startsWith(MYSQL_URL_PREFIX)) {
+            dataSource.addDataSourceProperty("rewriteBatchedStatements", "true");
+        }
+        if (url != null && url.startsWith(MYSQL_URL_PREFIX) && poolProperties.getPreparedStatementCacheSize() > 0) {
+            dataSource.addDataSourceProperty("useServerPrepStmts", "true");
+            dataSource.addDataSourceProperty("cachePrepStmts", "true");
+            dataSource.addDataSourceProperty("prepStmtCacheSize", poolProperties.getPreparedStatementCacheSize());
+            dataSource.addDataSourceProperty("prepStmtCacheSqlLimit", poolProperties.getPreparedStatementCacheSqlLimit());
+        }
+        return dataSource;
+    }
+}
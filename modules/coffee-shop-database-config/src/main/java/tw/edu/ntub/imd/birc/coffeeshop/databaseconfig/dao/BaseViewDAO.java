@@ -7,6 +7,8 @@ import org.springframework.data.domain.Sort;
 import org.springframework.data.repository.NoRepositoryBean;
 import org.springframework.data.repository.Repository;
 import org.springframework.data.repository.query.QueryByExampleExecutor;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.support.ProjectionJpaRepository;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto.Pager;
 
 import javax.annotation.Nonnull;
 import java.io.Serializable;
@@ -50,6 +52,50 @@ public interface BaseViewDAO<E, ID extends Serializable> extends Repository<E, I
     boolean existsById(ID id);
 
     long count();
+
+    /**
+     * 以投影型別查詢，類別投影與封閉的介面投影不會載入實體
+     *
+     * @param type 建構子參數名稱與實體屬性相同的類別，或getter與實體屬性相同的介面
+     * @see ProjectionJpaRepository
+     */
+    @Nonnull
+    <T> Optional<T> findById(@Nonnull ID id, @Nonnull Class<T> type);
+
+    @Nonnull
+    <T> List<T> findAll(@Nonnull Class<T> type);
+
+    @Nonnull
+    <T> List<T> findAll(@Nonnull Class<T> type, @Nonnull Sort sort);
+
+    @Nonnull
+    <T> Page<T> findAll(@Nonnull Class<T> type, @Nonnull Pageable pageable);
+
+    @Nonnull
+    <S extends E, T> List<T> findAll(@Nonnull Example<S> example, @Nonnull Class<T> type);
+
+    /**
+     * 鍵集分頁，不使用OFFSET
+     *
+     * @param pager 以Pager.keyset或Pager.after建立
+     * @see ProjectionJpaRepository#findAllAfter(Pager, Class)
+     */
+    @Nonnull
+    List<E> findAllAfter(@Nonnull Pager pager);
+
+    @Nonnull
+    <T> List<T> findAllAfter(@Nonnull Pager pager, @Nonnull Class<T> type);
+
+    /**
+     * @see ProjectionJpaRepository#findAllAfter(Example, Pager, Class)
+     */
+    @Nonnull
+    <S extends E, T> List<T> findAllAfter(@Nonnull Example<S> example, @Nonnull Pager pager, @Nonnull Class<T> type);
+
+    /**
+     * @see ProjectionJpaRepository#detach(Iterable)
+     */
+    void detach(@Nonnull Iterable<? extends E> entities);
 }
 
 
@@ -0,0 +1,49 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity.Product;
+
+import java.util.List;
+
+/**
+ * 大量匯入產品用的JDBC存取，不經過Hibernate與PersistableAspect，必須在交易中呼叫
+ */
+@Repository
+public class ProductBatchDAO {
+    private static final String INSERT_SQL = "INSERT INTO product (name, type, price, stock) " +
+            "VALUES (:name, :type, :price, :stock)";
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public ProductBatchDAO(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 以一次JDBC batch新增，MySQL連線啟用rewriteBatchedStatements時由驅動改寫為多列INSERT
+     */
+    public void insertProducts(List<Product> productList) {
+        if (productList.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, productList.stream()
+                .map(ProductBatchDAO::toParameterSource)
+                .toArray(MapSqlParameterSource[]::new));
+    }
+
+    /**
+     * 只新增一筆，用於batch失敗時找出是哪一筆造成
+     */
+    public void insertProduct(Product product) {
+        jdbcTemplate.update(INSERT_SQL, toParameterSource(product));
+    }
+
+    private static MapSqlParameterSource toParameterSource(Product product) {
+        return new MapSqlParameterSource()
+                .addValue("name", product.getName())
+                .addValue("type", product.getType().name())
+                .addValue("price", product.getPrice())
+                .addValue("stock", product.getStock());
+    }
+}
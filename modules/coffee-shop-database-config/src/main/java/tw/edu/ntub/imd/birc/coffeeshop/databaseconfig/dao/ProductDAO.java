@@ -0,0 +1,39 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto.ProductStock;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity.Product;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ProductDAO extends BaseDAO<Product, Long> {
+    @Query("SELECT p.stock FROM Product p WHERE p.id = :id")
+    Optional<Integer> findStockById(@Param("id") Long id);
+
+    /**
+     * 只查詢所有產品的庫存，用於更新快取中已過期的庫存
+     */
+    @Query("SELECT p.id AS id, p.stock AS stock FROM Product p")
+    List<ProductStock> findAllStock();
+
+    /**
+     * 以單一條件式UPDATE扣除庫存，庫存不足時不會更新任何資料
+     *
+     * @return 受影響的筆數，0代表產品不存在或庫存不足
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.stock = p.stock - :quantity WHERE p.id = :id AND p.stock >= :quantity")
+    int decreaseStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    /**
+     * @return 受影響的筆數，0代表產品不存在
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.stock = p.stock + :quantity WHERE p.id = :id")
+    int increaseStock(@Param("id") Long id, @Param("quantity") int quantity);
+}
@@ -0,0 +1,162 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity.ProductDailyStats;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 產品每日統計的JDBC存取
+ * 彙總以GROUP BY在資料庫完成，寫入使用ON DUPLICATE KEY UPDATE累加，同一組(產品, 日期)可由多個交易並行累加
+ */
+@Repository
+public class ProductDailyStatsDAO {
+    private static final RowMapper<ProductDailyStats> ROW_MAPPER = (resultSet, rowNum) -> {
+        ProductDailyStats stats = new ProductDailyStats();
+        stats.setProductId(resultSet.getLong("product_id"));
+        stats.setStatsDate(resultSet.getDate("stats_date").toLocalDate());
+        stats.setInQuantity(resultSet.getLong("in_quantity"));
+        stats.setOutQuantity(resultSet.getLong("out_quantity"));
+        stats.setInCount(resultSet.getLong("in_count"));
+        stats.setOutCount(resultSet.getLong("out_count"));
+        return stats;
+    };
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public ProductDailyStatsDAO(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 依ID遞增取得afterId之後的交易記錄ID，只讀取主鍵索引
+     */
+    public List<Long> findTransactionIdsAfter(long afterId, int limit) {
+        return jdbcTemplate.queryForList(
+                "SELECT id FROM transaction WHERE id > :afterId ORDER BY id LIMIT :limit",
+                new MapSqlParameterSource()
+                        .addValue("afterId", afterId)
+                        .addValue("limit", limit),
+                Long.class
+        );
+    }
+
+    /**
+     * fromId到toId(皆含)之間已存在的交易記錄ID
+     */
+    public List<Long> findTransactionIdsBetween(long fromId, long toId) {
+        return jdbcTemplate.queryForList(
+                "SELECT id FROM transaction WHERE id BETWEEN :fromId AND :toId ORDER BY id",
+                new MapSqlParameterSource()
+                        .addValue("fromId", fromId)
+                        .addValue("toId", toId),
+                Long.class
+        );
+    }
+
+    public Optional<Long> findMinTransactionId() {
+        return Optional.ofNullable(jdbcTemplate.getJdbcTemplate().queryForObject("SELECT MIN(id) FROM transaction", Long.class));
+    }
+
+    public Optional<Long> findMaxTransactionId() {
+        return Optional.ofNullable(jdbcTemplate.getJdbcTemplate().queryForObject("SELECT MAX(id) FROM transaction", Long.class));
+    }
+
+    /**
+     * 依產品與日期彙總afterId(不含)到toId(含)之間的交易記錄，結果依(產品, 日期)排序，
+     * 並行寫入時各交易以相同順序上鎖，不會互相死結
+     */
+    public List<ProductDailyStats> aggregateTransactions(long afterId, long toId) {
+        return jdbcTemplate.query(
+                "SELECT product_id, CAST(timestamp AS DATE) AS stats_date, " +
+                        "SUM(CASE WHEN type = 'IN' THEN quantity ELSE 0 END) AS in_quantity, " +
+                        "SUM(CASE WHEN type = 'OUT' THEN quantity ELSE 0 END) AS out_quantity, " +
+                        "SUM(CASE WHEN type = 'IN' THEN 1 ELSE 0 END) AS in_count, " +
+                        "SUM(CASE WHEN type = 'OUT' THEN 1 ELSE 0 END) AS out_count " +
+                        "FROM transaction WHERE id > :afterId AND id <= :toId " +
+                        "GROUP BY product_id, CAST(timestamp AS DATE) " +
+                        "ORDER BY product_id, stats_date",
+                new MapSqlParameterSource()
+                        .addValue("afterId", afterId)
+                        .addValue("toId", toId),
+                ROW_MAPPER
+        );
+    }
+
+    /**
+     * 將彙總結果累加到既有的每日統計，不存在時新增
+     */
+    public void addStats(List<ProductDailyStats> statsList) {
+        if (statsList.isEmpty()) {
+            return;
+        }
+        MapSqlParameterSource[] parameterArray = statsList.stream()
+                .map(stats -> new MapSqlParameterSource()
+                        .addValue("productId", stats.getProductId())
+                        .addValue("statsDate", Date.valueOf(stats.getStatsDate()))
+                        .addValue("inQuantity", stats.getInQuantity())
+                        .addValue("outQuantity", stats.getOutQuantity())
+                        .addValue("inCount", stats.getInCount())
+                        .addValue("outCount", stats.getOutCount()))
+                .toArray(MapSqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO product_daily_stats " +
+                        "(product_id, stats_date, in_quantity, out_quantity, in_count, out_count) " +
+                        "VALUES (:productId, :statsDate, :inQuantity, :outQuantity, :inCount, :outCount) " +
+                        "ON DUPLICATE KEY UPDATE " +
+                        "in_quantity = in_quantity + VALUES(in_quantity), " +
+                        "out_quantity = out_quantity + VALUES(out_quantity), " +
+                        "in_count = in_count + VALUES(in_count), " +
+                        "out_count = out_count + VALUES(out_count)",
+                parameterArray
+        );
+    }
+
+    /**
+     * 以主鍵範圍查詢，筆數最多為日期區間的天數，與交易記錄筆數無關
+     */
+    public List<ProductDailyStats> findByProductIdAndStatsDateBetween(Long productId, LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(
+                "SELECT product_id, stats_date, in_quantity, out_quantity, in_count, out_count " +
+                        "FROM product_daily_stats " +
+                        "WHERE product_id = :productId AND stats_date BETWEEN :from AND :to " +
+                        "ORDER BY stats_date",
+                new MapSqlParameterSource()
+                        .addValue("productId", productId)
+                        .addValue("from", Date.valueOf(from))
+                        .addValue("to", Date.valueOf(to)),
+                ROW_MAPPER
+        );
+    }
+
+    public void deleteAll() {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM product_daily_stats");
+    }
+
+    /**
+     * @return 尚未彙總過時為0
+     */
+    public long findWatermark(String name) {
+        List<Long> resultList = jdbcTemplate.queryForList(
+                "SELECT last_transaction_id FROM stats_watermark WHERE name = :name",
+                new MapSqlParameterSource("name", name),
+                Long.class
+        );
+        return resultList.isEmpty() ? 0 : resultList.get(0);
+    }
+
+    public void updateWatermark(String name, long lastTransactionId) {
+        jdbcTemplate.update(
+                "INSERT INTO stats_watermark (name, last_transaction_id) VALUES (:name, :lastTransactionId) " +
+                        "ON DUPLICATE KEY UPDATE last_transaction_id = VALUES(last_transaction_id)",
+                new MapSqlParameterSource()
+                        .addValue("name", name)
+                        .addValue("lastTransactionId", lastTransactionId)
+        );
+    }
+}
@@ -0,0 +1,80 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity.Transaction;
+
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * 批次提交庫存異動用的JDBC存取，必須在交易中呼叫
+ */
+@Repository
+public class StockBatchDAO {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public StockBatchDAO(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 鎖定並取得產品目前庫存，呼叫端應傳入排序過的ID以固定上鎖順序
+     *
+     * @return key為產品ID，不存在的產品不會出現在結果中
+     */
+    public Map<Long, Integer> lockStockByIdIn(Collection<Long> idCollection) {
+        Map<Long, Integer> result = new HashMap<>();
+        if (idCollection.isEmpty()) {
+            return result;
+        }
+        jdbcTemplate.query(
+                "SELECT id, stock FROM product WHERE id IN (:idList) ORDER BY id FOR UPDATE",
+                new MapSqlParameterSource("idList", idCollection),
+                resultSet -> {
+                    result.put(resultSet.getLong("id"), resultSet.getInt("stock"));
+                }
+        );
+        return result;
+    }
+
+    /**
+     * 以JDBC batch一次送出每個產品的淨增減量
+     */
+    public void updateStockByDelta(Map<Long, Integer> deltaMap) {
+        MapSqlParameterSource[] parameterArray = deltaMap.entrySet()
+                .stream()
+                .filter(entry -> entry.getValue() != 0)
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("id", entry.getKey())
+                        .addValue("delta", entry.getValue()))
+                .toArray(MapSqlParameterSource[]::new);
+        if (parameterArray.length > 0) {
+            jdbcTemplate.batchUpdate("UPDATE product SET stock = stock + :delta WHERE id = :id", parameterArray);
+        }
+    }
+
+    /**
+     * 以單一多列INSERT寫入交易記錄，寫入順序即為ID遞增順序
+     */
+    public void insertTransactions(List<Transaction> transactionList) {
+        if (transactionList.isEmpty()) {
+            return;
+        }
+        StringJoiner valuesJoiner = new StringJoiner(", ");
+        MapSqlParameterSource parameterSource = new MapSqlParameterSource();
+        for (int i = 0; i < transactionList.size(); i++) {
+            Transaction transaction = transactionList.get(i);
+            valuesJoiner.add("(:productId" + i + ", :type" + i + ", :quantity" + i + ", :timestamp" + i + ")");
+            parameterSource.addValue("productId" + i, transaction.getProductId())
+                    .addValue("type" + i, transaction.getType().name())
+                    .addValue("quantity" + i, transaction.getQuantity())
+                    .addValue("timestamp" + i, Timestamp.valueOf(transaction.getTimestamp()));
+        }
+        jdbcTemplate.update(
+                "INSERT INTO transaction (product_id, type, quantity, timestamp) VALUES " + valuesJoiner,
+                parameterSource
+        );
+    }
+}
@@ -0,0 +1,201 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto.StockSnapshot;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 產品庫存快照的JDBC存取
+ * stock_snapshot由此類別自行建立與維護，不屬於coffee-shop.sql的資料表；交易記錄的加總以帶正負號的數量計算(IN為正、OUT為負)
+ */
+@Repository
+public class StockSnapshotDAO {
+    private static final String SIGNED_QUANTITY_SUM =
+            "SELECT COALESCE(SUM(CASE WHEN type = 'IN' THEN quantity ELSE -quantity END), 0) FROM transaction ";
+    private static final RowMapper<StockSnapshot> ROW_MAPPER = (resultSet, rowNum) -> {
+        StockSnapshot snapshot = new StockSnapshot();
+        snapshot.setProductId(resultSet.getLong("product_id"));
+        snapshot.setStock(resultSet.getInt("stock"));
+        snapshot.setLastTransactionId(resultSet.getLong("last_transaction_id"));
+        snapshot.setAt(resultSet.getTimestamp("at").toLocalDateTime());
+        return snapshot;
+    };
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public StockSnapshotDAO(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 主鍵為(產品, 快照時間)，依產品查詢最接近某個時間的快照只需讀取一筆索引
+     * 快照時間精確到毫秒，定期快照與手動快照在同一秒內先後執行也不會互相覆寫
+     */
+    public void createTableIfNotExists() {
+        jdbcTemplate.getJdbcTemplate().execute(
+                "CREATE TABLE IF NOT EXISTS stock_snapshot (" +
+                        "product_id BIGINT NOT NULL, " +
+                        "at DATETIME(3) NOT NULL, " +
+                        "stock INT NOT NULL, " +
+                        "last_transaction_id BIGINT NOT NULL, " +
+                        "PRIMARY KEY (product_id, at))"
+        );
+    }
+
+    /**
+     * 依ID遞增鎖定afterId之後的limit個產品並取得目前庫存，必須在交易中呼叫
+     *
+     * @return key為產品ID，依ID排序
+     */
+    public Map<Long, Integer> lockStockAfter(long afterId, int limit) {
+        Map<Long, Integer> result = new LinkedHashMap<>();
+        jdbcTemplate.query(
+                "SELECT id, stock FROM product WHERE id > :afterId ORDER BY id LIMIT :limit FOR UPDATE",
+                new MapSqlParameterSource()
+                        .addValue("afterId", afterId)
+                        .addValue("limit", limit),
+                resultSet -> {
+                    result.put(resultSet.getLong("id"), resultSet.getInt("stock"));
+                }
+        );
+        return result;
+    }
+
+    /**
+     * 鎖定並取得單一產品目前的庫存，必須在交易中呼叫
+     */
+    public Optional<Integer> lockStockById(Long productId) {
+        List<Integer> resultList = jdbcTemplate.queryForList(
+                "SELECT stock FROM product WHERE id = :id FOR UPDATE",
+                new MapSqlParameterSource("id", productId),
+                Integer.class
+        );
+        return resultList.isEmpty() ? Optional.empty() : Optional.of(resultList.get(0));
+    }
+
+    /**
+     * @return 沒有交易記錄時為0
+     */
+    public long findMaxTransactionId() {
+        Long maxId = jdbcTemplate.getJdbcTemplate().queryForObject("SELECT MAX(id) FROM transaction", Long.class);
+        return maxId != null ? maxId : 0;
+    }
+
+    /**
+     * 取得ID介於fromId到toId(皆含)之間的產品最新一筆快照的庫存
+     *
+     * @return key為產品ID，沒有快照的產品不會出現在結果中
+     */
+    public Map<Long, Integer> findLatestStockByProductIdBetween(long fromId, long toId) {
+        Map<Long, Integer> result = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT s.product_id, s.stock FROM stock_snapshot s " +
+                        "WHERE s.product_id BETWEEN :fromId AND :toId " +
+                        "AND s.at = (SELECT MAX(at) FROM stock_snapshot WHERE product_id = s.product_id)",
+                new MapSqlParameterSource()
+                        .addValue("fromId", fromId)
+                        .addValue("toId", toId),
+                resultSet -> {
+                    result.put(resultSet.getLong("product_id"), resultSet.getInt("stock"));
+                }
+        );
+        return result;
+    }
+
+    /**
+     * 同一產品在同一毫秒有兩次快照時保留較新的一次
+     */
+    public void insertSnapshots(List<StockSnapshot> snapshotList) {
+        if (snapshotList.isEmpty()) {
+            return;
+        }
+        MapSqlParameterSource[] parameterArray = snapshotList.stream()
+                .map(snapshot -> new MapSqlParameterSource()
+                        .addValue("productId", snapshot.getProductId())
+                        .addValue("at", Timestamp.valueOf(snapshot.getAt()))
+                        .addValue("stock", snapshot.getStock())
+                        .addValue("lastTransactionId", snapshot.getLastTransactionId()))
+                .toArray(MapSqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO stock_snapshot (product_id, at, stock, last_transaction_id) " +
+                        "VALUES (:productId, :at, :stock, :lastTransactionId) " +
+                        "ON DUPLICATE KEY UPDATE stock = VALUES(stock), last_transaction_id = VALUES(last_transaction_id)",
+                parameterArray
+        );
+    }
+
+    /**
+     * 快照時間不晚於at的最後一筆快照
+     */
+    public Optional<StockSnapshot> findLatestByProductIdAndAtNotAfter(Long productId, LocalDateTime at) {
+        return findFirst(
+                "SELECT product_id, stock, last_transaction_id, at FROM stock_snapshot " +
+                        "WHERE product_id = :productId AND at <= :at ORDER BY at DESC LIMIT 1",
+                productId,
+                at
+        );
+    }
+
+    /**
+     * 快照時間晚於at的第一筆快照
+     */
+    public Optional<StockSnapshot> findEarliestByProductIdAndAtAfter(Long productId, LocalDateTime at) {
+        return findFirst(
+                "SELECT product_id, stock, last_transaction_id, at FROM stock_snapshot " +
+                        "WHERE product_id = :productId AND at > :at ORDER BY at LIMIT 1",
+                productId,
+                at
+        );
+    }
+
+    private Optional<StockSnapshot> findFirst(String sql, Long productId, LocalDateTime at) {
+        List<StockSnapshot> resultList = jdbcTemplate.query(
+                sql,
+                new MapSqlParameterSource()
+                        .addValue("productId", productId)
+                        .addValue("at", Timestamp.valueOf(at)),
+                ROW_MAPPER
+        );
+        return resultList.isEmpty() ? Optional.empty() : Optional.of(resultList.get(0));
+    }
+
+    /**
+     * ID大於afterId、小於等於toId且交易時間不晚於to的交易記錄淨增減量，即快照之後、to之前的異動
+     * 以(product_id, id)範圍讀取，InnoDB的idx_product_id本身帶有主鍵，只讀取範圍內該產品的索引
+     */
+    public long sumQuantityByProductIdAndIdBetweenAndTimestampNotAfter(Long productId,
+                                                                      long afterId,
+                                                                      long toId,
+                                                                      LocalDateTime to) {
+        Long sum = jdbcTemplate.queryForObject(
+                SIGNED_QUANTITY_SUM + "WHERE product_id = :productId AND id > :afterId AND id <= :toId AND timestamp <= :timestamp",
+                new MapSqlParameterSource()
+                        .addValue("productId", productId)
+                        .addValue("afterId", afterId)
+                        .addValue("toId", toId)
+                        .addValue("timestamp", Timestamp.valueOf(to)),
+                Long.class
+        );
+        return sum != null ? sum : 0;
+    }
+
+    /**
+     * ID小於等於toId且交易時間晚於from的交易記錄淨增減量，即from之後、快照之前的異動
+     */
+    public long sumQuantityByProductIdAndIdNotAfterAndTimestampAfter(Long productId, long toId, LocalDateTime from) {
+        Long sum = jdbcTemplate.queryForObject(
+                SIGNED_QUANTITY_SUM + "WHERE product_id = :productId AND id <= :toId AND timestamp > :timestamp",
+                new MapSqlParameterSource()
+                        .addValue("productId", productId)
+                        .addValue("toId", toId)
+                        .addValue("timestamp", Timestamp.valueOf(from)),
+                Long.class
+        );
+        return sum != null ? sum : 0;
+    }
+}
@@ -0,0 +1,63 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.util.Optional;
+
+/**
+ * 由資料庫的統計資訊取得資料表的估計筆數，不需掃描資料表
+ * InnoDB的TABLE_ROWS是抽樣估計，誤差可能達數十個百分比，只適合顯示大約的總筆數與頁數；
+ * H2使用ROW_COUNT_ESTIMATE，其他資料庫不支援
+ */
+@Repository
+public class TableStatisticsDAO {
+    private static final String MYSQL_SQL = "SELECT TABLE_ROWS FROM information_schema.TABLES " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+    private static final String H2_SQL = "SELECT ROW_COUNT_ESTIMATE FROM INFORMATION_SCHEMA.TABLES " +
+            "WHERE TABLE_SCHEMA = SCHEMA() AND UPPER(TABLE_NAME) = UPPER(?)";
+    private final JdbcTemplate jdbcTemplate;
+    private volatile String estimateSql;
+
+    public TableStatisticsDAO(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return 資料庫不支援或查無資料表時為empty
+     */
+    public Optional<Long> estimateRowCount(String tableName) {
+        String sql = getEstimateSql();
+        if (sql.isEmpty()) {
+            return Optional.empty();
+        }
+        ResultSetExtractor<Optional<Long>> extractor = resultSet -> {
+            if (resultSet.next()) {
+                long rowCount = resultSet.getLong(1);
+                return resultSet.wasNull() ? Optional.empty() : Optional.of(rowCount);
+            }
+            return Optional.empty();
+        };
+        return jdbcTemplate.query(sql, extractor, tableName);
+    }
+
+    private String getEstimateSql() {
+        String sql = estimateSql;
+        if (sql == null) {
+            String productName = jdbcTemplate.execute(
+                    (Connection connection) -> connection.getMetaData().getDatabaseProductName()
+            );
+            if ("MySQL".equalsIgnoreCase(productName) || "MariaDB".equalsIgnoreCase(productName)) {
+                sql = MYSQL_SQL;
+            } else if ("H2".equalsIgnoreCase(productName)) {
+                sql = H2_SQL;
+            } else {
+                sql = "";
+            }
+            estimateSql = sql;
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,22 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao;
+
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity.Transaction;
+
+import javax.persistence.QueryHint;
+
+import java.util.List;
+
+@Repository
+public interface TransactionDAO extends BaseDAO<Transaction, Long> {
+    List<Transaction> findByProductIdOrderByTimestampDesc(Long productId);
+
+    List<Transaction> findByProductIdOrderByTimestampDescIdDesc(Long productId);
+
+    /**
+     * 以投影型別查詢，類別投影以建構子運算式建立，不會載入實體
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true"))
+    <T> List<T> findByProductIdOrderByTimestampDescIdDesc(Long productId, Class<T> type);
+}
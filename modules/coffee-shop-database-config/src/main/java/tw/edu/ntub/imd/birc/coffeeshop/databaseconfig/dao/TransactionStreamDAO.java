@@ -0,0 +1,60 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity.Transaction;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.enumerate.TransactionType;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.Consumer;
+
+/**
+ * 以forward-only的JDBC游標逐筆讀取交易記錄，資料不經過persistence context，
+ * 無論歷史多長記憶體用量都維持固定
+ */
+@Repository
+public class TransactionStreamDAO {
+    private static final String SELECT_BY_PRODUCT_ID = "SELECT id, product_id, type, quantity, timestamp " +
+            "FROM transaction WHERE product_id = ? ORDER BY timestamp DESC, id DESC";
+    private static final int DEFAULT_FETCH_SIZE = 500;
+    private final JdbcTemplate jdbcTemplate;
+
+    public TransactionStreamDAO(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void streamByProductId(Long productId, Consumer<Transaction> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    SELECT_BY_PRODUCT_ID,
+                    ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY
+            );
+            statement.setFetchSize(resolveFetchSize(connection));
+            statement.setLong(1, productId);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> consumer.accept(mapRow(resultSet)));
+    }
+
+    /**
+     * MySQL Connector/J只有在fetchSize為Integer.MIN_VALUE時才會逐列串流，其他值仍會一次讀入全部結果
+     */
+    private int resolveFetchSize(Connection connection) throws SQLException {
+        String productName = connection.getMetaData().getDatabaseProductName();
+        return "MySQL".equalsIgnoreCase(productName) ? Integer.MIN_VALUE : DEFAULT_FETCH_SIZE;
+    }
+
+    private Transaction mapRow(ResultSet resultSet) throws SQLException {
+        Transaction transaction = new Transaction();
+        transaction.setId(resultSet.getLong("id"));
+        transaction.setProductId(resultSet.getLong("product_id"));
+        transaction.setType(TransactionType.valueOf(resultSet.getString("type")));
+        transaction.setQuantity(resultSet.getInt("quantity"));
+        transaction.setTimestamp(resultSet.getTimestamp("timestamp").toLocalDateTime());
+        return transaction;
+    }
+}
@@ -0,0 +1,339 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.support;
+
+import org.hibernate.jpa.QueryHints;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.convert.QueryByExamplePredicateBuilder;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.EscapeCharacter;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+import org.springframework.data.mapping.PreferredConstructor;
+import org.springframework.data.mapping.model.PreferredConstructorDiscoverer;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.ProjectionInformation;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto.Pager;
+
+import javax.annotation.Nonnull;
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.TupleElement;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.*;
+import java.beans.PropertyDescriptor;
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 所有DAO的實作基底，在SimpleJpaRepository之外提供依投影型別查詢的方法
+ * 類別投影以建構子運算式(SELECT NEW)建立，封閉的介面投影只查詢getter對應的欄位，
+ * 兩者查到的都不是受管理的實體，不會放進persistence context，也不需要保存dirty checking的快照
+ * 投影型別為實體本身或開放的介面投影(使用@Value)時仍查詢實體，但加上唯讀的查詢提示
+ * 另提供鍵集分頁，以WHERE (sort, id) > (lastValue, lastId)取代OFFSET
+ */
+public class ProjectionJpaRepository<E, ID extends Serializable> extends SimpleJpaRepository<E, ID> {
+    private static final ProjectionFactory PROJECTION_FACTORY = new SpelAwareProxyProjectionFactory();
+    /**
+     * 投影型別對應要查詢的屬性，類別投影依建構子參數順序，介面投影依getter
+     */
+    private static final Map<Class<?>, List<String>> INPUT_PROPERTIES_MAP = new ConcurrentHashMap<>();
+    private static final String LAST_VALUE_PARAMETER = "lastValue";
+    private static final String LAST_ID_PARAMETER = "lastId";
+    private final JpaEntityInformation<E, ?> entityInformation;
+    private final EntityManager entityManager;
+    private EscapeCharacter escapeCharacter = EscapeCharacter.DEFAULT;
+
+    public ProjectionJpaRepository(JpaEntityInformation<E, ?> entityInformation, EntityManager entityManager) {
+        super(entityInformation, entityManager);
+        this.entityInformation = entityInformation;
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public void setEscapeCharacter(EscapeCharacter escapeCharacter) {
+        super.setEscapeCharacter(escapeCharacter);
+        this.escapeCharacter = escapeCharacter;
+    }
+
+    @Nonnull
+    public <T> Optional<T> findById(@Nonnull ID id, @Nonnull Class<T> type) {
+        Assert.notNull(id, "id不能為null");
+        String idAttributeName = entityInformation.getRequiredIdAttribute().getName();
+        List<T> resultList = getResultList(
+                type,
+                (root, query, builder) -> builder.equal(root.get(idAttributeName), id),
+                Sort.unsorted(),
+                Pageable.ofSize(1)
+        );
+        return resultList.isEmpty() ? Optional.empty() : Optional.of(resultList.get(0));
+    }
+
+    @Nonnull
+    public <T> List<T> findAll(@Nonnull Class<T> type) {
+        return getResultList(type, null, Sort.unsorted(), Pageable.unpaged());
+    }
+
+    @Nonnull
+    public <T> List<T> findAll(@Nonnull Class<T> type, @Nonnull Sort sort) {
+        return getResultList(type, null, sort, Pageable.unpaged());
+    }
+
+    @Nonnull
+    public <T> Page<T> findAll(@Nonnull Class<T> type, @Nonnull Pageable pageable) {
+        List<T> content = getResultList(type, null, pageable.getSort(), pageable);
+        return pageable.isUnpaged() ?
+                PageableExecutionUtils.getPage(content, pageable, content::size) :
+                PageableExecutionUtils.getPage(content, pageable, this::count);
+    }
+
+    @Nonnull
+    public <S extends E, T> List<T> findAll(@Nonnull Example<S> example, @Nonnull Class<T> type) {
+        return getResultList(type, toSpecification(example), Sort.unsorted(), Pageable.unpaged());
+    }
+
+    @Nonnull
+    public List<E> findAllAfter(@Nonnull Pager pager) {
+        return findAllAfter(pager, getDomainClass());
+    }
+
+    /**
+     * 依排序屬性與id排序，取得(lastValue, lastId)之後的count筆
+     * 排序屬性需有索引，InnoDB的次要索引本身就帶有主鍵，(sort, id)的排序與條件都能由索引完成
+     * lastValue與lastId以參數綁定，每一頁的SQL都相同，不會因Criteria將數值內嵌為常數而每頁重新解析
+     */
+    @Nonnull
+    public <T> List<T> findAllAfter(@Nonnull Pager pager, @Nonnull Class<T> type) {
+        return getResultListAfter(null, pager, type);
+    }
+
+    /**
+     * 只在符合example的資料中鍵集分頁，條件欄位與排序屬性需有複合索引，或條件欄位的索引已足夠縮小範圍
+     */
+    @Nonnull
+    public <S extends E, T> List<T> findAllAfter(@Nonnull Example<S> example,
+                                                 @Nonnull Pager pager,
+                                                 @Nonnull Class<T> type) {
+        Assert.notNull(example, "example不能為null");
+        return getResultListAfter(toSpecification(example), pager, type);
+    }
+
+    private <T> List<T> getResultListAfter(@Nullable Specification<E> filter, Pager pager, Class<T> type) {
+        Assert.isTrue(pager.isKeyset() && !pager.isInfinity(), "pager必須是鍵集分頁");
+        String idAttributeName = entityInformation.getRequiredIdAttribute().getName();
+        Sort sort = Sort.by(pager.getDirection(), pager.getSortProperty());
+        if (!pager.getSortProperty().equals(idAttributeName)) {
+            sort = sort.and(Sort.by(pager.getDirection(), idAttributeName));
+        }
+        if (pager.getLastId() == null) {
+            return getResultList(type, filter, sort, Pageable.ofSize(pager.getCount()));
+        }
+        Map<String, Object> parameterMap = new HashMap<>();
+        parameterMap.put(LAST_ID_PARAMETER, pager.getLastId());
+        if (!pager.getSortProperty().equals(idAttributeName)) {
+            parameterMap.put(LAST_VALUE_PARAMETER, pager.getLastValue());
+        }
+        return getResultList(
+                type,
+                (root, query, builder) -> {
+                    Predicate after = createAfterPredicate(root, builder, pager, idAttributeName);
+                    Predicate predicate = filter != null ? filter.toPredicate(root, query, builder) : null;
+                    return predicate != null ? builder.and(predicate, after) : after;
+                },
+                sort,
+                Pageable.ofSize(pager.getCount()),
+                parameterMap
+        );
+    }
+
+    /**
+     * 將實體移出persistence context，在同一個交易中分批處理大量實體時，處理完一批就移出，避免全部累積在記憶體中
+     */
+    public void detach(@Nonnull Iterable<? extends E> entities) {
+        for (E entity : entities) {
+            if (entityManager.contains(entity)) {
+                entityManager.detach(entity);
+            }
+        }
+    }
+
+    private <S extends E> Specification<E> toSpecification(Example<S> example) {
+        @SuppressWarnings("unchecked")
+        Example<E> entityExample = (Example<E>) example;
+        return (root, query, builder) -> QueryByExamplePredicateBuilder.getPredicate(
+                root,
+                builder,
+                entityExample,
+                escapeCharacter
+        );
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate createAfterPredicate(Root<E> root, CriteriaBuilder builder, Pager pager, String idAttributeName) {
+        boolean ascending = pager.getDirection().isAscending();
+        Path<Comparable> idPath = root.get(idAttributeName);
+        ParameterExpression<Comparable> lastId = builder.parameter(
+                (Class<Comparable>) idPath.getJavaType(),
+                LAST_ID_PARAMETER
+        );
+        Predicate idAfter = ascending ? builder.greaterThan(idPath, lastId) : builder.lessThan(idPath, lastId);
+        if (pager.getSortProperty().equals(idAttributeName)) {
+            return idAfter;
+        }
+        Path<Comparable> sortPath = root.get(pager.getSortProperty());
+        ParameterExpression<Comparable> lastValue = builder.parameter(
+                (Class<Comparable>) sortPath.getJavaType(),
+                LAST_VALUE_PARAMETER
+        );
+        Predicate valueAfter = ascending ?
+                builder.greaterThan(sortPath, lastValue) :
+                builder.lessThan(sortPath, lastValue);
+        Predicate valueNotBefore = ascending ?
+                builder.greaterThanOrEqualTo(sortPath, lastValue) :
+                builder.lessThanOrEqualTo(sortPath, lastValue);
+        // 單獨的OR無法使用索引的範圍掃描，先以sort >= lastValue縮小範圍，同值時再比較id
+        return builder.and(valueNotBefore, builder.or(valueAfter, idAfter));
+    }
+
+    private <T> List<T> getResultList(Class<T> type,
+                                      @Nullable Specification<E> specification,
+                                      Sort sort,
+                                      Pageable pageable) {
+        return getResultList(type, specification, sort, pageable, Collections.emptyMap());
+    }
+
+    /**
+     * @param parameterMap specification中以CriteriaBuilder.parameter建立的參數與其值
+     */
+    private <T> List<T> getResultList(Class<T> type,
+                                      @Nullable Specification<E> specification,
+                                      Sort sort,
+                                      Pageable pageable,
+                                      Map<String, Object> parameterMap) {
+        Assert.notNull(type, "type不能為null");
+        if (type.isAssignableFrom(getDomainClass())) {
+            @SuppressWarnings("unchecked")
+            List<T> entityList = (List<T>) getEntityResultList(specification, sort, pageable, parameterMap);
+            return entityList;
+        } else if (type.isInterface()) {
+            ProjectionInformation projectionInformation = PROJECTION_FACTORY.getProjectionInformation(type);
+            if (!projectionInformation.isClosed()) {
+                List<E> entityList = getEntityResultList(specification, sort, pageable, parameterMap);
+                List<T> result = new ArrayList<>(entityList.size());
+                for (E entity : entityList) {
+                    result.add(PROJECTION_FACTORY.createProjection(type, entity));
+                }
+                return result;
+            }
+            return getInterfaceResultList(type, specification, sort, pageable, parameterMap);
+        }
+        return getConstructorResultList(type, specification, sort, pageable, parameterMap);
+    }
+
+    private List<E> getEntityResultList(@Nullable Specification<E> specification,
+                                        Sort sort,
+                                        Pageable pageable,
+                                        Map<String, Object> parameterMap) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<E> query = builder.createQuery(getDomainClass());
+        Root<E> root = query.from(getDomainClass());
+        query.select(root);
+        return execute(query, root, builder, specification, sort, pageable, parameterMap);
+    }
+
+    private <T> List<T> getInterfaceResultList(Class<T> type,
+                                               @Nullable Specification<E> specification,
+                                               Sort sort,
+                                               Pageable pageable,
+                                               Map<String, Object> parameterMap) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<E> root = query.from(getDomainClass());
+        query.multiselect(createSelectionList(type, root));
+        List<Tuple> tupleList = execute(query, root, builder, specification, sort, pageable, parameterMap);
+        List<T> result = new ArrayList<>(tupleList.size());
+        for (Tuple tuple : tupleList) {
+            Map<String, Object> valueMap = new HashMap<>();
+            for (TupleElement<?> element : tuple.getElements()) {
+                valueMap.put(element.getAlias(), tuple.get(element));
+            }
+            result.add(PROJECTION_FACTORY.createProjection(type, valueMap));
+        }
+        return result;
+    }
+
+    private <T> List<T> getConstructorResultList(Class<T> type,
+                                                 @Nullable Specification<E> specification,
+                                                 Sort sort,
+                                                 Pageable pageable,
+                                                 Map<String, Object> parameterMap) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = builder.createQuery(type);
+        Root<E> root = query.from(getDomainClass());
+        query.select(builder.construct(type, createSelectionList(type, root).toArray(new Selection<?>[0])));
+        return execute(query, root, builder, specification, sort, pageable, parameterMap);
+    }
+
+    private <R> List<R> execute(CriteriaQuery<R> query,
+                                Root<E> root,
+                                CriteriaBuilder builder,
+                                @Nullable Specification<E> specification,
+                                Sort sort,
+                                Pageable pageable,
+                                Map<String, Object> parameterMap) {
+        if (specification != null) {
+            Predicate predicate = specification.toPredicate(root, query, builder);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, builder));
+        }
+        TypedQuery<R> typedQuery = entityManager.createQuery(query);
+        typedQuery.setHint(QueryHints.HINT_READONLY, true);
+        parameterMap.forEach(typedQuery::setParameter);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        return typedQuery.getResultList();
+    }
+
+    private List<Selection<?>> createSelectionList(Class<?> type, Root<E> root) {
+        List<Selection<?>> selectionList = new ArrayList<>();
+        for (String property : INPUT_PROPERTIES_MAP.computeIfAbsent(type, this::resolveInputProperties)) {
+            selectionList.add(root.get(property).alias(property));
+        }
+        return selectionList;
+    }
+
+    /**
+     * 類別投影的建構子參數名稱需與實體屬性相同，編譯時需保留參數名稱(-g或-parameters)
+     */
+    private List<String> resolveInputProperties(Class<?> type) {
+        if (type.isInterface()) {
+            return PROJECTION_FACTORY.getProjectionInformation(type)
+                    .getInputProperties()
+                    .stream()
+                    .map(PropertyDescriptor::getName)
+                    .collect(Collectors.toUnmodifiableList());
+        }
+        PreferredConstructor<?, ?> constructor = PreferredConstructorDiscoverer.discover(type);
+        Assert.state(constructor != null && constructor.hasParameters(), type.getName() + "沒有可用於投影的建構子");
+        List<String> propertyList = new ArrayList<>();
+        for (PreferredConstructor.Parameter<Object, ?> parameter : constructor.getParameters()) {
+            Assert.state(parameter.getName() != null, type.getName() + "的建構子參數名稱無法取得");
+            propertyList.add(parameter.getName());
+        }
+        return Collections.unmodifiableList(propertyList);
+    }
+}
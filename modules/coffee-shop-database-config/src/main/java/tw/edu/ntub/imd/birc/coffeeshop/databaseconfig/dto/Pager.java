@@ -4,21 +4,63 @@ import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
 import tw.edu.ntub.birc.common.util.MathUtils;
 
+/**
+ * 分頁條件
+ * 一般分頁以(page - 1) * count為OFFSET，資料庫需掃過並捨棄前面所有的資料，越後面的頁數越慢；
+ * 鍵集(keyset)分頁以上一頁最後一筆的(排序屬性值, id)為起點，由索引直接定位，不論第幾頁都一樣快，但只能逐頁往後讀
+ */
 @NoArgsConstructor
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
 @Data
 public class Pager {
     private int page;
     private int count;
+    /**
+     * 鍵集分頁的排序屬性，null代表一般分頁
+     */
+    private String sortProperty;
+    private Sort.Direction direction;
+    /**
+     * 上一頁最後一筆的排序屬性值與id，都為null代表第一頁
+     */
+    private Object lastValue;
+    private Object lastId;
 
     public static Pager getInstance(int page, int count) {
-        return new Pager(page, count);
+        return new Pager(page, count, null, null, null, null);
     }
 
     public static Pager infinity() {
-        return new Pager(-1, -1);
+        return new Pager(-1, -1, null, null, null, null);
+    }
+
+    /**
+     * 鍵集分頁的第一頁
+     *
+     * @param sortProperty 有索引且不為null的屬性，同值時再依id排序
+     */
+    public static Pager keyset(String sortProperty, Sort.Direction direction, int count) {
+        return after(sortProperty, direction, null, null, count);
+    }
+
+    /**
+     * 鍵集分頁中(lastValue, lastId)之後的下一頁
+     */
+    public static Pager after(String sortProperty,
+                              Sort.Direction direction,
+                              @Nullable Object lastValue,
+                              @Nullable Object lastId,
+                              int count) {
+        Assert.hasText(sortProperty, "sortProperty不能為空");
+        Assert.notNull(direction, "direction不能為null");
+        Assert.isTrue(count > 0, "count必須大於0");
+        Assert.isTrue((lastValue == null) == (lastId == null), "lastValue與lastId必須同時有值或同時為null");
+        return new Pager(1, count, sortProperty, direction, lastValue, lastId);
     }
 
     public int getFirstResultIndex() {
@@ -29,9 +71,11 @@ public class Pager {
         return page <= 0 || count <= 0;
     }
 
+    public boolean isKeyset() {
+        return sortProperty != null;
+    }
+
     public int getZeroBasedPage() {
         return MathUtils.translateOneBasedToZeroBased(page);
     }
 }
-
-
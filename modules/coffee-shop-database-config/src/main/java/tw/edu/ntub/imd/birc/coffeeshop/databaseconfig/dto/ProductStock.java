@@ -0,0 +1,10 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto;
+
+/**
+ * 只含產品ID與庫存的查詢結果
+ */
+public interface ProductStock {
+    Long getId();
+
+    Integer getStock();
+}
@@ -0,0 +1,18 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.enumerate.ProductType;
+
+/**
+ * 產品列表用的建構子投影，欄位與產品主檔相同，但不是受管理的實體
+ */
+@Getter
+@AllArgsConstructor
+public class ProductView {
+    private final Long id;
+    private final String name;
+    private final ProductType type;
+    private final Integer price;
+    private final Integer stock;
+}
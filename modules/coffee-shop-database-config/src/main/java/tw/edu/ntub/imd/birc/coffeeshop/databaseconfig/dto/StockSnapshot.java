@@ -0,0 +1,32 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 產品庫存快照，小於等於lastTransactionId的交易記錄都已反映在stock中，較大的都尚未反映
+ * stock_snapshot的資料列，資料表由StockSnapshotDAO在啟動時建立，不在coffee-shop.sql中
+ */
+@Data
+public class StockSnapshot {
+    /**
+     * 產品ID
+     */
+    private Long productId;
+
+    /**
+     * 快照當下的庫存
+     */
+    private int stock;
+
+    /**
+     * 快照當下已提交的最大交易記錄ID
+     */
+    private long lastTransactionId;
+
+    /**
+     * 快照時間，不早於任何ID小於等於lastTransactionId的交易記錄時間
+     */
+    private LocalDateTime at;
+}
@@ -0,0 +1,20 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.enumerate.TransactionType;
+
+import java.time.LocalDateTime;
+
+/**
+ * 交易記錄查詢用的建構子投影，欄位與交易記錄相同，但不是受管理的實體
+ */
+@Getter
+@AllArgsConstructor
+public class TransactionView {
+    private final Long id;
+    private final Long productId;
+    private final TransactionType type;
+    private final Integer quantity;
+    private final LocalDateTime timestamp;
+}
@@ -0,0 +1,53 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.converter.ProductTypeConverter;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.enumerate.ProductType;
+
+import javax.persistence.*;
+
+/**
+ * 產品主檔
+ */
+@Data
+@EqualsAndHashCode(exclude = "save")
+@Entity
+@Table(name = "product")
+public class Product implements Persistable<Long> {
+    @Transient
+    private Boolean save;
+
+    /**
+     * 產品ID
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    /**
+     * 產品名稱
+     */
+    @Column(name = "name", length = 50, nullable = false)
+    private String name;
+
+    /**
+     * 產品類型: BEAN或DESSERT
+     */
+    @Convert(converter = ProductTypeConverter.class)
+    @Column(name = "type", length = 20, nullable = false)
+    private ProductType type;
+
+    /**
+     * 單價
+     */
+    @Column(name = "price", nullable = false)
+    private Integer price;
+
+    /**
+     * 庫存數量
+     */
+    @Column(name = "stock", nullable = false)
+    private Integer stock;
+}
@@ -0,0 +1,53 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * 每個產品每日的進貨/出貨合計，由交易記錄彙總而來，不直接寫入
+ */
+@Data
+@Entity
+@IdClass(ProductDailyStatsId.class)
+@Table(name = "product_daily_stats")
+public class ProductDailyStats {
+    /**
+     * 產品ID
+     */
+    @Id
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    /**
+     * 交易日期，以交易時間的日期部分計算
+     */
+    @Id
+    @Column(name = "stats_date", nullable = false)
+    private LocalDate statsDate;
+
+    /**
+     * 進貨數量合計
+     */
+    @Column(name = "in_quantity", nullable = false)
+    private long inQuantity;
+
+    /**
+     * 出貨數量合計
+     */
+    @Column(name = "out_quantity", nullable = false)
+    private long outQuantity;
+
+    /**
+     * 進貨筆數
+     */
+    @Column(name = "in_count", nullable = false)
+    private long inCount;
+
+    /**
+     * 出貨筆數
+     */
+    @Column(name = "out_count", nullable = false)
+    private long outCount;
+}
@@ -0,0 +1,20 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * ProductDailyStats的複合主鍵
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductDailyStatsId implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private Long productId;
+    private LocalDate statsDate;
+}
@@ -0,0 +1,29 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity;
+
+import lombok.Data;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * 彙總資料已處理到的交易記錄ID，與彙總結果在同一個交易中更新
+ */
+@Data
+@Entity
+@Table(name = "stats_watermark")
+public class StatsWatermark {
+    /**
+     * 彙總名稱
+     */
+    @Id
+    @Column(name = "name", length = 50, nullable = false)
+    private String name;
+
+    /**
+     * 已彙總的最大交易記錄ID，小於等於此ID的交易記錄都已計入
+     */
+    @Column(name = "last_transaction_id", nullable = false)
+    private long lastTransactionId;
+}
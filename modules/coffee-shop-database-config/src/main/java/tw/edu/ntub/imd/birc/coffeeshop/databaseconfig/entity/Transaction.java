@@ -0,0 +1,65 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.converter.TransactionTypeConverter;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.enumerate.TransactionType;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 交易記錄
+ */
+@Data
+@EqualsAndHashCode(exclude = "save")
+@Entity
+@Table(name = "transaction", indexes = {
+        @Index(name = "idx_product_id", columnList = "product_id"),
+        @Index(name = "idx_product_id_timestamp_id", columnList = "product_id, timestamp, id"),
+        @Index(name = "idx_timestamp", columnList = "timestamp")
+})
+public class Transaction implements Persistable<Long> {
+    @Transient
+    private Boolean save;
+
+    /**
+     * 交易ID
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    /**
+     * 產品ID
+     */
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    /**
+     * 交易類型: IN或OUT
+     */
+    @Convert(converter = TransactionTypeConverter.class)
+    @Column(name = "type", length = 10, nullable = false)
+    private TransactionType type;
+
+    /**
+     * 數量
+     */
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+
+    /**
+     * 交易時間
+     */
+    @Column(name = "timestamp", nullable = false)
+    private LocalDateTime timestamp;
+
+    @PrePersist
+    public void prePersist() {
+        if (timestamp == null) {
+            timestamp = LocalDateTime.now();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.pool;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.DataSourcePoolProperties;
+
+/**
+ * 在Spring容器啟動前，依coffee-shop.datasource.pool.alive-bypass-window-millis設定HikariCP的系統屬性
+ * HikariCP只在PoolBase類別載入時讀取一次com.zaxxer.hikari.aliveBypassWindowMs，之後建立的連線池(包含副本的連線池)都使用同一個值，
+ * 因此必須在任何連線池建立前設定；同一個JVM中已有連線池載入過時，之後的設定與修改都不會生效
+ * 啟動參數已以-D指定時以啟動參數為準
+ */
+public class HikariSystemPropertyInitializer implements EnvironmentPostProcessor {
+    public static final String ALIVE_BYPASS_WINDOW_PROPERTY = "com.zaxxer.hikari.aliveBypassWindowMs";
+    private static final String POOL_PREFIX = "coffee-shop.datasource.pool";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (System.getProperty(ALIVE_BYPASS_WINDOW_PROPERTY) != null) {
+            return;
+        }
+        DataSourcePoolProperties poolProperties = Binder.get(environment)
+                .bind(POOL_PREFIX, DataSourcePoolProperties.class)
+                .orElseGet(DataSourcePoolProperties::new);
+        System.setProperty(ALIVE_BYPASS_WINDOW_PROPERTY, String.valueOf(poolProperties.getAliveBypassWindowMillis()));
+    }
+}
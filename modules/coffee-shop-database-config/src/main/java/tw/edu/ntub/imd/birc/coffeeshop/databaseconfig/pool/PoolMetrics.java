@@ -0,0 +1,191 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.pool;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * HikariCP連線池的統計，由池在借出連線時回報等待時間
+ * 取得連線的耗時以固定的微秒區間計數，百分位數取所在區間的上限
+ */
+@Component
+public class PoolMetrics implements MetricsTrackerFactory {
+    /**
+     * 各區間的上限(微秒)，最後一個區間為超過最大上限者
+     */
+    public static final long[] BUCKET_UPPER_BOUND_MICROS = {
+            10, 50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000, 1_000_000
+    };
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final AtomicLong maxAcquireNanos = new AtomicLong();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder usageCount = new LongAdder();
+    private final LongAdder usageMillis = new LongAdder();
+    private final LongAdder[] buckets = new LongAdder[BUCKET_UPPER_BOUND_MICROS.length + 1];
+    private final Map<String, PoolStats> poolStatsMap = new ConcurrentHashMap<>();
+
+    public PoolMetrics() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        poolStatsMap.put(poolName, poolStats);
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                recordAcquire(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageCount.increment();
+                usageMillis.add(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeoutCount.increment();
+            }
+        };
+    }
+
+    void recordAcquire(long elapsedNanos) {
+        acquireCount.increment();
+        acquireNanos.add(elapsedNanos);
+        buckets[indexOf(TimeUnit.NANOSECONDS.toMicros(elapsedNanos))].increment();
+        long max = maxAcquireNanos.get();
+        while (elapsedNanos > max && !maxAcquireNanos.compareAndSet(max, elapsedNanos)) {
+            max = maxAcquireNanos.get();
+        }
+    }
+
+    private static int indexOf(long elapsedMicros) {
+        for (int i = 0; i < BUCKET_UPPER_BOUND_MICROS.length; i++) {
+            if (elapsedMicros <= BUCKET_UPPER_BOUND_MICROS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_UPPER_BOUND_MICROS.length;
+    }
+
+    /**
+     * @return 連線池尚未建立時回傳false，此時連線數都為0
+     */
+    public boolean isAvailable() {
+        return !poolStatsMap.isEmpty();
+    }
+
+    /**
+     * 有多個連線池(例如讀寫分離)時，連線數為各池的合計
+     */
+    private int sum(ToIntFunction<PoolStats> getter) {
+        int total = 0;
+        for (PoolStats poolStats : poolStatsMap.values()) {
+            total += getter.applyAsInt(poolStats);
+        }
+        return total;
+    }
+
+    public int getActiveConnections() {
+        return sum(PoolStats::getActiveConnections);
+    }
+
+    public int getIdleConnections() {
+        return sum(PoolStats::getIdleConnections);
+    }
+
+    public int getTotalConnections() {
+        return sum(PoolStats::getTotalConnections);
+    }
+
+    /**
+     * @return 正在等待連線的執行緒數
+     */
+    public int getPendingThreads() {
+        return sum(PoolStats::getPendingThreads);
+    }
+
+    public int getMaxConnections() {
+        return sum(PoolStats::getMaxConnections);
+    }
+
+    public long getAcquireCount() {
+        return acquireCount.sum();
+    }
+
+    public long getAcquireNanos() {
+        return acquireNanos.sum();
+    }
+
+    public long getMaxAcquireNanos() {
+        return maxAcquireNanos.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    public double getAverageUsageMillis() {
+        long count = usageCount.sum();
+        return count == 0 ? 0 : (double) usageMillis.sum() / count;
+    }
+
+    /**
+     * @return 長度為{@link #BUCKET_UPPER_BOUND_MICROS}加一，最後一個為超過最大上限的次數
+     */
+    public long[] getBucketCounts() {
+        long[] result = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            result[i] = buckets[i].sum();
+        }
+        return result;
+    }
+
+    /**
+     * @param percentile 0到100
+     * @return 取得連線耗時的百分位數(微秒)，落在最後一個區間時回傳最大值
+     */
+    public long getAcquirePercentileMicros(double percentile) {
+        long[] bucketCounts = getBucketCounts();
+        long total = 0;
+        for (long count : bucketCounts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long accumulated = 0;
+        for (int i = 0; i < BUCKET_UPPER_BOUND_MICROS.length; i++) {
+            accumulated += bucketCounts[i];
+            if (accumulated >= rank) {
+                return BUCKET_UPPER_BOUND_MICROS[i];
+            }
+        }
+        return TimeUnit.NANOSECONDS.toMicros(getMaxAcquireNanos());
+    }
+
+    public void reset() {
+        acquireCount.reset();
+        acquireNanos.reset();
+        maxAcquireNanos.set(0);
+        timeoutCount.reset();
+        usageCount.reset();
+        usageMillis.reset();
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.probe;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+
+/**
+ * 在取得Connection時決定是否計時：探針關閉時回傳原本的Connection，之後的Statement與ResultSet都不經過任何包裝
+ * 啟用時才以動態代理包裝Connection、Statement與ResultSet，只攔截execute系列方法與ResultSet的next/close
+ */
+public class ProbeDataSource extends DelegatingDataSource implements AutoCloseable {
+    private static final String BATCH_STATEMENT = "(batch)";
+    private static final Constructor<?> CONNECTION_PROXY = getProxyConstructor(Connection.class);
+    private static final Constructor<?> STATEMENT_PROXY = getProxyConstructor(Statement.class);
+    private static final Constructor<?> PREPARED_STATEMENT_PROXY = getProxyConstructor(PreparedStatement.class);
+    private static final Constructor<?> CALLABLE_STATEMENT_PROXY = getProxyConstructor(CallableStatement.class);
+    private static final Constructor<?> RESULT_SET_PROXY = getProxyConstructor(ResultSet.class);
+    private final SqlProbe sqlProbe;
+
+    public ProbeDataSource(DataSource targetDataSource, SqlProbe sqlProbe) {
+        super(targetDataSource);
+        this.sqlProbe = sqlProbe;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    /**
+     * 包裝後的Bean由Spring推斷關閉方法，因此由這裡關閉原本的連線池(可能還包在其他DataSource代理之中)
+     */
+    @Override
+    public void close() throws SQLException {
+        DataSource targetDataSource = getTargetDataSource();
+        if (targetDataSource != null && targetDataSource.isWrapperFor(AutoCloseable.class)) {
+            try {
+                targetDataSource.unwrap(AutoCloseable.class).close();
+            } catch (SQLException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new SQLException("關閉連線池失敗", e);
+            }
+        }
+    }
+
+    private Connection wrap(Connection connection) {
+        if (!sqlProbe.isEnabled()) {
+            return connection;
+        }
+        return newProxy(CONNECTION_PROXY, Connection.class, new ConnectionHandler(connection, sqlProbe));
+    }
+
+    /**
+     * 先取得代理類別的建構子，每次包裝時直接建立實例，省去Proxy.newProxyInstance的類別查找
+     */
+    private static Constructor<?> getProxyConstructor(Class<?> type) {
+        Object proxy = Proxy.newProxyInstance(
+                ProbeDataSource.class.getClassLoader(),
+                new Class<?>[]{type},
+                (target, method, args) -> null
+        );
+        try {
+            return proxy.getClass().getConstructor(InvocationHandler.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static <T> T newProxy(Constructor<?> constructor, Class<T> type, InvocationHandler handler) {
+        try {
+            return type.cast(constructor.newInstance(handler));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private static class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+        private final SqlProbe sqlProbe;
+
+        private ConnectionHandler(Connection target, SqlProbe sqlProbe) {
+            this.target = target;
+            this.sqlProbe = sqlProbe;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = ProbeDataSource.invoke(target, method, args);
+            switch (method.getName()) {
+                case "createStatement":
+                    return newProxy(STATEMENT_PROXY, Statement.class, new StatementHandler(
+                            (Statement) result, (Connection) proxy, null, sqlProbe
+                    ));
+                case "prepareStatement":
+                    return newProxy(PREPARED_STATEMENT_PROXY, PreparedStatement.class, new StatementHandler(
+                            (Statement) result, (Connection) proxy, (String) args[0], sqlProbe
+                    ));
+                case "prepareCall":
+                    return newProxy(CALLABLE_STATEMENT_PROXY, CallableStatement.class, new StatementHandler(
+                            (Statement) result, (Connection) proxy, (String) args[0], sqlProbe
+                    ));
+                default:
+                    return result;
+            }
+        }
+    }
+
+    private static class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final Connection connection;
+        private final String preparedSql;
+        private final SqlProbe sqlProbe;
+        private String lastSql;
+        private ResultSetHandler lastResultSetHandler;
+
+        private StatementHandler(Statement target, Connection connection, String preparedSql, SqlProbe sqlProbe) {
+            this.target = target;
+            this.connection = connection;
+            this.preparedSql = preparedSql;
+            this.sqlProbe = sqlProbe;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (!name.startsWith("execute")) {
+                switch (name) {
+                    case "getConnection":
+                        return connection;
+                    case "getResultSet":
+                        return wrapResultSet((ResultSet) ProbeDataSource.invoke(target, method, args), proxy);
+                    case "close":
+                        flushRows();
+                        return ProbeDataSource.invoke(target, method, args);
+                    default:
+                        return ProbeDataSource.invoke(target, method, args);
+                }
+            }
+            flushRows();
+            lastSql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+            if (lastSql == null) {
+                lastSql = BATCH_STATEMENT;
+            }
+            Object result = null;
+            long start = System.nanoTime();
+            try {
+                result = ProbeDataSource.invoke(target, method, args);
+            } finally {
+                sqlProbe.record(lastSql, System.nanoTime() - start, countRows(result));
+            }
+            return name.equals("executeQuery") ? wrapResultSet((ResultSet) result, proxy) : result;
+        }
+
+        private ResultSet wrapResultSet(ResultSet resultSet, Object statement) {
+            if (resultSet == null || lastSql == null) {
+                return resultSet;
+            }
+            flushRows();
+            lastResultSetHandler = new ResultSetHandler(resultSet, (Statement) statement, lastSql, sqlProbe);
+            return newProxy(RESULT_SET_PROXY, ResultSet.class, lastResultSetHandler);
+        }
+
+        /**
+         * 關閉Statement時JDBC會一併關閉ResultSet，但不會經過代理，因此由Statement補回報筆數
+         */
+        private void flushRows() {
+            if (lastResultSetHandler != null) {
+                lastResultSetHandler.flushRows();
+                lastResultSetHandler = null;
+            }
+        }
+
+        private static long countRows(Object result) {
+            if (result instanceof Integer || result instanceof Long) {
+                return Math.max(0, ((Number) result).longValue());
+            } else if (result instanceof int[]) {
+                long rows = 0;
+                for (int count : (int[]) result) {
+                    rows += Math.max(0, count);
+                }
+                return rows;
+            } else if (result instanceof long[]) {
+                long rows = 0;
+                for (long count : (long[]) result) {
+                    rows += Math.max(0, count);
+                }
+                return rows;
+            }
+            return 0;
+        }
+    }
+
+    private static class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final Statement statement;
+        private final String sql;
+        private final SqlProbe sqlProbe;
+        private long rows;
+        private boolean flushed;
+
+        private ResultSetHandler(ResultSet target, Statement statement, String sql, SqlProbe sqlProbe) {
+            this.target = target;
+            this.statement = statement;
+            this.sql = sql;
+            this.sqlProbe = sqlProbe;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next":
+                    Object hasNext = ProbeDataSource.invoke(target, method, args);
+                    if (Boolean.TRUE.equals(hasNext)) {
+                        rows++;
+                    }
+                    return hasNext;
+                case "getStatement":
+                    return statement;
+                case "close":
+                    flushRows();
+                    return ProbeDataSource.invoke(target, method, args);
+                default:
+                    return ProbeDataSource.invoke(target, method, args);
+            }
+        }
+
+        private void flushRows() {
+            if (!flushed) {
+                flushed = true;
+                sqlProbe.recordRows(sql, rows);
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.probe;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Component;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.SqlProbeProperties;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQL計時探針，由ProbeDataSource在每次執行SQL後回報耗時與筆數
+ * 以預編譯的SQL文字(含?佔位符)為鍵統計，不會產生帶入參數後的SQL；關閉時ProbeDataSource直接回傳原本的Connection
+ */
+@Component
+public class SqlProbe {
+    public static final String OTHER_STATEMENT = "(other)";
+    private final Logger slowQueryLog = LogManager.getLogger("SqlSlowQuery");
+    private final Map<String, SqlStatistics> statisticsMap = new ConcurrentHashMap<>();
+    private final int maxStatements;
+    private volatile boolean enabled;
+    private volatile long slowQueryNanos;
+
+    public SqlProbe(SqlProbeProperties properties) {
+        this.enabled = properties.isEnabled();
+        this.slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(properties.getSlowQueryMillis());
+        this.maxStatements = properties.getMaxStatements();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getSlowQueryMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowQueryNanos);
+    }
+
+    public void setSlowQueryMillis(long slowQueryMillis) {
+        this.slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryMillis);
+    }
+
+    /**
+     * @param rows 更新筆數，查詢的筆數在ResultSet關閉時另外由{@link #recordRows(String, long)}回報，未知時傳入0
+     */
+    public void record(String sql, long elapsedNanos, long rows) {
+        getStatistics(sql).record(elapsedNanos, rows);
+        if (elapsedNanos >= slowQueryNanos && slowQueryLog.isWarnEnabled()) {
+            slowQueryLog.warn("慢查詢 {}ms：{}", TimeUnit.NANOSECONDS.toMillis(elapsedNanos), sql);
+        }
+    }
+
+    public void recordRows(String sql, long rows) {
+        getStatistics(sql).addRows(rows);
+    }
+
+    /**
+     * 超過maxStatements後新出現的SQL都歸入{@link #OTHER_STATEMENT}，避免動態組出的SQL讓統計無限成長
+     */
+    private SqlStatistics getStatistics(String sql) {
+        SqlStatistics statistics = statisticsMap.get(sql);
+        if (statistics != null) {
+            return statistics;
+        } else if (statisticsMap.size() >= maxStatements) {
+            return statisticsMap.computeIfAbsent(OTHER_STATEMENT, SqlStatistics::new);
+        }
+        return statisticsMap.computeIfAbsent(sql, SqlStatistics::new);
+    }
+
+    /**
+     * @return 依總耗時由高到低排序
+     */
+    public List<SqlStatistics> getStatisticsList() {
+        List<SqlStatistics> statisticsList = new ArrayList<>(statisticsMap.values());
+        statisticsList.sort(Comparator.comparingLong(SqlStatistics::getTotalNanos).reversed());
+        return statisticsList;
+    }
+
+    public void reset() {
+        statisticsMap.clear();
+    }
+}
@@ -0,0 +1,27 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.probe;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * 將所有DataSource包裝成ProbeDataSource，探針本身延後到包裝時才取得，避免SqlProbe提早初始化
+ */
+@Component
+public class SqlProbeBeanPostProcessor implements BeanPostProcessor {
+    private final ObjectProvider<SqlProbe> sqlProbeProvider;
+
+    public SqlProbeBeanPostProcessor(ObjectProvider<SqlProbe> sqlProbeProvider) {
+        this.sqlProbeProvider = sqlProbeProvider;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource && !(bean instanceof ProbeDataSource)) {
+            return new ProbeDataSource((DataSource) bean, sqlProbeProvider.getObject());
+        }
+        return bean;
+    }
+}
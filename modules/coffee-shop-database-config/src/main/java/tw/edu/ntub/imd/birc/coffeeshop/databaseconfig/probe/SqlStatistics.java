@@ -0,0 +1,96 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.probe;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 單一SQL的執行次數、耗時與筆數統計
+ * 耗時分布以固定的毫秒區間計數，各欄位獨立累加，讀取時不保證是同一時間點的快照
+ */
+public class SqlStatistics {
+    /**
+     * 各區間的上限(毫秒)，最後一個區間為超過最大上限者
+     */
+    public static final long[] BUCKET_UPPER_BOUND_MILLIS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000};
+    private static final long[] BUCKET_UPPER_BOUND_NANOS = new long[BUCKET_UPPER_BOUND_MILLIS.length];
+
+    static {
+        for (int i = 0; i < BUCKET_UPPER_BOUND_MILLIS.length; i++) {
+            BUCKET_UPPER_BOUND_NANOS[i] = TimeUnit.MILLISECONDS.toNanos(BUCKET_UPPER_BOUND_MILLIS[i]);
+        }
+    }
+
+    private final String sql;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final LongAdder[] buckets = new LongAdder[BUCKET_UPPER_BOUND_MILLIS.length + 1];
+
+    SqlStatistics(String sql) {
+        this.sql = sql;
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    void record(long elapsedNanos, long rows) {
+        count.increment();
+        totalNanos.add(elapsedNanos);
+        if (rows > 0) {
+            this.rows.add(rows);
+        }
+        buckets[indexOf(elapsedNanos)].increment();
+        long max = maxNanos.get();
+        while (elapsedNanos > max && !maxNanos.compareAndSet(max, elapsedNanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    void addRows(long rows) {
+        if (rows > 0) {
+            this.rows.add(rows);
+        }
+    }
+
+    private static int indexOf(long elapsedNanos) {
+        for (int i = 0; i < BUCKET_UPPER_BOUND_NANOS.length; i++) {
+            if (elapsedNanos <= BUCKET_UPPER_BOUND_NANOS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_UPPER_BOUND_NANOS.length;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    /**
+     * @return 長度為{@link #BUCKET_UPPER_BOUND_MILLIS}加一，最後一個為超過最大上限的次數
+     */
+    public long[] getBucketCounts() {
+        long[] result = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            result[i] = buckets[i].sum();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,16 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.routing;
+
+/**
+ * 讀寫分離的資料庫類型
+ */
+public enum DataSourceType {
+    /**
+     * 主資料庫，所有寫入與未標示唯讀的查詢
+     */
+    PRIMARY,
+
+    /**
+     * 副本資料庫，唯讀查詢
+     */
+    REPLICA
+}
@@ -0,0 +1,109 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.routing;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.DataSourceRoutingProperties;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定期查詢副本的落後時間，超過容許值、查詢失敗或副本未設定複寫時，讀取改回主資料庫
+ */
+public class ReplicaLagMonitor {
+    private static final String LAG_MILLIS_COLUMN = "lag_millis";
+    private static final String[] LAG_SECONDS_COLUMNS = {"Seconds_Behind_Source", "Seconds_Behind_Master"};
+    private final Logger log = LogManager.getLogger(ReplicaLagMonitor.class);
+    private final DataSource replicaDataSource;
+    private final String lagQuery;
+    private final long maxLagMillis;
+    private final long checkIntervalMillis;
+    private volatile boolean available;
+    private volatile long lagMillis = -1;
+    private ScheduledExecutorService executorService;
+
+    public ReplicaLagMonitor(DataSource replicaDataSource, DataSourceRoutingProperties properties) {
+        this.replicaDataSource = replicaDataSource;
+        this.lagQuery = properties.getLagQuery();
+        this.maxLagMillis = properties.getMaxLagMillis();
+        this.checkIntervalMillis = properties.getLagCheckIntervalMillis();
+    }
+
+    public void start() {
+        checkLag();
+        executorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executorService.scheduleWithFixedDelay(this::checkLag, checkIntervalMillis, checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    public void checkLag() {
+        long currentLagMillis;
+        try {
+            currentLagMillis = queryLagMillis();
+        } catch (SQLException e) {
+            log.warn("無法取得副本落後時間：" + e.getMessage());
+            currentLagMillis = -1;
+        }
+        boolean currentAvailable = currentLagMillis >= 0 && currentLagMillis <= maxLagMillis;
+        if (currentAvailable != available) {
+            if (currentAvailable) {
+                log.info("副本落後" + currentLagMillis + "ms，唯讀查詢改用副本");
+            } else {
+                log.warn("副本落後" + currentLagMillis + "ms，超過" + maxLagMillis + "ms或無法取得，唯讀查詢改用主資料庫");
+            }
+        }
+        lagMillis = currentLagMillis;
+        available = currentAvailable;
+    }
+
+    /**
+     * @return 沒有結果、找不到落後欄位或落後欄位為null(複寫停止)時回傳-1
+     */
+    private long queryLagMillis() throws SQLException {
+        try (Connection connection = replicaDataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(lagQuery)) {
+            if (!resultSet.next()) {
+                return -1;
+            }
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                String label = metaData.getColumnLabel(i);
+                if (label.equalsIgnoreCase(LAG_MILLIS_COLUMN)) {
+                    long value = resultSet.getLong(i);
+                    return resultSet.wasNull() ? -1 : value;
+                }
+                for (String secondsColumn : LAG_SECONDS_COLUMNS) {
+                    if (label.equalsIgnoreCase(secondsColumn)) {
+                        long value = resultSet.getLong(i);
+                        return resultSet.wasNull() ? -1 : TimeUnit.SECONDS.toMillis(value);
+                    }
+                }
+            }
+            return -1;
+        }
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * @return 最近一次檢查的落後時間，無法取得時為-1
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+}
@@ -0,0 +1,41 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.routing;
+
+/**
+ * 以執行緒保存目前請求的讀寫分離狀態
+ * 請求中一旦使用主資料庫寫入，之後的讀取都固定使用主資料庫，避免讀不到自己剛寫入的資料；
+ * 只在beginRequest與endRequest之間有效，背景執行緒不受影響
+ */
+public final class RoutingContext {
+    private static final ThreadLocal<RequestState> STATE = new ThreadLocal<>();
+
+    private RoutingContext() {
+
+    }
+
+    public static void beginRequest() {
+        STATE.set(new RequestState());
+    }
+
+    public static void endRequest() {
+        STATE.remove();
+    }
+
+    static void pinToPrimary() {
+        RequestState state = STATE.get();
+        if (state != null) {
+            state.pinned = true;
+        }
+    }
+
+    /**
+     * @return 目前請求已寫入過主資料庫
+     */
+    public static boolean isPinned() {
+        RequestState state = STATE.get();
+        return state != null && state.pinned;
+    }
+
+    private static class RequestState {
+        private boolean pinned;
+    }
+}
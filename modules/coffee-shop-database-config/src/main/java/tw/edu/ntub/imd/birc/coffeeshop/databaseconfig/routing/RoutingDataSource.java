@@ -0,0 +1,93 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.routing;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 依Config.transactionInterceptor的交易設定決定連線來源
+ * 唯讀的呼叫(Service的PROPAGATION_NOT_SUPPORTED + readOnly，與其中DAO的唯讀交易)使用副本；其餘都使用主資料庫，並將目前請求固定在主資料庫
+ * 副本落後超過容許值時，唯讀呼叫也改用主資料庫
+ */
+public class RoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+    private final DataSource primaryDataSource;
+    private final DataSource replicaDataSource;
+    private final ReplicaLagMonitor lagMonitor;
+    private final Map<DataSourceType, LongAdder> routeCountMap = new EnumMap<>(DataSourceType.class);
+
+    public RoutingDataSource(DataSource primaryDataSource, DataSource replicaDataSource, ReplicaLagMonitor lagMonitor) {
+        this.primaryDataSource = primaryDataSource;
+        this.replicaDataSource = replicaDataSource;
+        this.lagMonitor = lagMonitor;
+        Map<Object, Object> targetDataSourceMap = new HashMap<>();
+        targetDataSourceMap.put(DataSourceType.PRIMARY, primaryDataSource);
+        targetDataSourceMap.put(DataSourceType.REPLICA, replicaDataSource);
+        setTargetDataSources(targetDataSourceMap);
+        setDefaultTargetDataSource(primaryDataSource);
+        for (DataSourceType type : DataSourceType.values()) {
+            routeCountMap.put(type, new LongAdder());
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        lagMonitor.start();
+    }
+
+    /**
+     * 需包在LazyConnectionDataSourceProxy之中，否則開始交易時連線比唯讀設定先取得，唯讀交易也會使用主資料庫
+     */
+    @Override
+    protected Object determineCurrentLookupKey() {
+        DataSourceType type = resolveType();
+        routeCountMap.get(type).increment();
+        return type;
+    }
+
+    private DataSourceType resolveType() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            RoutingContext.pinToPrimary();
+            return DataSourceType.PRIMARY;
+        } else if (RoutingContext.isPinned() || !lagMonitor.isAvailable()) {
+            return DataSourceType.PRIMARY;
+        }
+        return DataSourceType.REPLICA;
+    }
+
+    public ReplicaLagMonitor getLagMonitor() {
+        return lagMonitor;
+    }
+
+    public long getRouteCount(DataSourceType type) {
+        return routeCountMap.get(type).sum();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        lagMonitor.stop();
+        try {
+            close(replicaDataSource);
+        } finally {
+            close(primaryDataSource);
+        }
+    }
+
+    private void close(DataSource dataSource) throws SQLException {
+        if (dataSource instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) dataSource).close();
+            } catch (SQLException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new SQLException("關閉連線池失敗", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package tw.edu.ntub.imd.birc.coffeeshop.bean;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.enumerate.ProductType;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
+import javax.validation.constraints.Size;
+
+@Data
+@Schema(name = "產品", description = "產品")
+public class ProductBean {
+    @Schema(description = "產品ID", accessMode = Schema.AccessMode.READ_ONLY, example = "1")
+    private Long id;
+
+    @NotBlank(message = "缺少必要欄位：name")
+    @Size(max = 50, message = "產品名稱 - 輸入字數大於{max}個字")
+    @Schema(description = "產品名稱", example = "巴拿馬藝妓")
+    private String name;
+
+    @NotNull(message = "缺少必要欄位：type")
+    @Schema(description = "產品類型", example = "BEAN")
+    private ProductType type;
+
+    @NotNull(message = "缺少必要欄位：price")
+    @Positive(message = "價格和庫存必須大於0")
+    @Schema(description = "單價", example = "680")
+    private Integer price;
+
+    @NotNull(message = "缺少必要欄位：stock")
+    @PositiveOrZero(message = "價格和庫存必須大於0")
+    @Schema(description = "庫存數量", example = "50")
+    private Integer stock;
+}
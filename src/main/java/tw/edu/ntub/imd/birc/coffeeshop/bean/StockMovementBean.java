@@ -0,0 +1,16 @@
+package tw.edu.ntub.imd.birc.coffeeshop.bean;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.enumerate.TransactionType;
+
+@Data
+@Schema(name = "庫存異動", description = "批次進貨/出貨的其中一筆，欄位錯誤時只有該筆失敗")
+public class StockMovementBean {
+    @Schema(description = "產品ID", example = "1")
+    private Long productId;
+    @Schema(description = "異動類型", example = "OUT")
+    private TransactionType type;
+    @Schema(description = "數量", example = "3")
+    private Integer quantity;
+}
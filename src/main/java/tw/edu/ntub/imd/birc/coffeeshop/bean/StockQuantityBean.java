@@ -0,0 +1,16 @@
+package tw.edu.ntub.imd.birc.coffeeshop.bean;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@Data
+@Schema(name = "庫存異動數量", description = "進貨/出貨的數量")
+public class StockQuantityBean {
+    @NotNull(message = "缺少必要欄位: quantity")
+    @Min(value = 1, message = "數量必須大於0")
+    @Schema(description = "數量", example = "30")
+    private Integer quantity;
+}
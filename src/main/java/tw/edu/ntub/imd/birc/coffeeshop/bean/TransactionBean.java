@@ -0,0 +1,26 @@
+package tw.edu.ntub.imd.birc.coffeeshop.bean;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.enumerate.TransactionType;
+
+import java.time.LocalDateTime;
+
+@Data
+@Schema(name = "交易記錄", description = "交易記錄")
+public class TransactionBean {
+    @Schema(description = "交易ID", example = "1")
+    private Long id;
+
+    @Schema(description = "產品ID", example = "1")
+    private Long productId;
+
+    @Schema(description = "交易類型", example = "IN")
+    private TransactionType type;
+
+    @Schema(description = "數量", example = "30")
+    private Integer quantity;
+
+    @Schema(description = "交易時間", example = "2026/01/11 23:30:37")
+    private LocalDateTime timestamp;
+}
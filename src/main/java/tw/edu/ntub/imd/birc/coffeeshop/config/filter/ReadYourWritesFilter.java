@@ -0,0 +1,28 @@
+package tw.edu.ntub.imd.birc.coffeeshop.config.filter;
+
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.routing.RoutingContext;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 標示讀寫分離的請求範圍，請求中寫入過主資料庫後，剩下的讀取都使用主資料庫
+ */
+@Component
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain chain) throws IOException, ServletException {
+        RoutingContext.beginRequest();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RoutingContext.endRequest();
+        }
+    }
+}
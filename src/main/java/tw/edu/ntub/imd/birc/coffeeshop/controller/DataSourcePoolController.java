@@ -0,0 +1,69 @@
+package tw.edu.ntub.imd.birc.coffeeshop.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.pool.PoolMetrics;
+import tw.edu.ntub.imd.birc.coffeeshop.util.http.ResponseEntityBuilder;
+import tw.edu.ntub.imd.birc.coffeeshop.util.json.object.ObjectData;
+
+import java.util.concurrent.TimeUnit;
+
+@Tag(name = "連線池", description = "咖啡廳庫存管理系統 - 資料庫連線池狀態API")
+@RestController
+@RequestMapping("/api/v1/admin/pool")
+public class DataSourcePoolController {
+    private final PoolMetrics poolMetrics;
+
+    public DataSourcePoolController(PoolMetrics poolMetrics) {
+        this.poolMetrics = poolMetrics;
+    }
+
+    /**
+     * 目前的連線數與等待中的執行緒，以及取得連線的耗時分布
+     */
+    @Operation(summary = "查詢連線池狀態", description = "使用中、閒置、等待中的連線數與取得連線的耗時")
+    @GetMapping
+    public ResponseEntity<String> getPoolMetrics() {
+        long acquireCount = poolMetrics.getAcquireCount();
+        ObjectData data = new ObjectData()
+                .add("active", poolMetrics.getActiveConnections())
+                .add("idle", poolMetrics.getIdleConnections())
+                .add("total", poolMetrics.getTotalConnections())
+                .add("max", poolMetrics.getMaxConnections())
+                .add("pending", poolMetrics.getPendingThreads())
+                .add("acquireCount", acquireCount)
+                .add("timeoutCount", poolMetrics.getTimeoutCount())
+                .add("averageUsageMillis", poolMetrics.getAverageUsageMillis());
+        data.addObject("acquireMicros")
+                .add("average", acquireCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(poolMetrics.getAcquireNanos()) / acquireCount)
+                .add("p50", poolMetrics.getAcquirePercentileMicros(50))
+                .add("p95", poolMetrics.getAcquirePercentileMicros(95))
+                .add("p99", poolMetrics.getAcquirePercentileMicros(99))
+                .add("max", TimeUnit.NANOSECONDS.toMicros(poolMetrics.getMaxAcquireNanos()));
+        ObjectData histogram = data.addObject("acquireHistogram");
+        long[] bucketCounts = poolMetrics.getBucketCounts();
+        for (int i = 0; i < PoolMetrics.BUCKET_UPPER_BOUND_MICROS.length; i++) {
+            histogram.add("<=" + PoolMetrics.BUCKET_UPPER_BOUND_MICROS[i] + "us", bucketCounts[i]);
+        }
+        long maxBound = PoolMetrics.BUCKET_UPPER_BOUND_MICROS[PoolMetrics.BUCKET_UPPER_BOUND_MICROS.length - 1];
+        histogram.add(">" + maxBound + "us", bucketCounts[bucketCounts.length - 1]);
+        return ResponseEntityBuilder.success()
+                .message("查詢成功")
+                .data(data)
+                .build();
+    }
+
+    @Operation(summary = "清除連線池統計", description = "只清除累計的耗時與次數，不影響連線")
+    @DeleteMapping
+    public ResponseEntity<String> reset() {
+        poolMetrics.reset();
+        return ResponseEntityBuilder.success()
+                .message("清除成功")
+                .build();
+    }
+}
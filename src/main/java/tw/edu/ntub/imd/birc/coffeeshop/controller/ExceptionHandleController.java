@@ -20,9 +20,15 @@ import tw.edu.ntub.birc.common.exception.ProjectException;
 import tw.edu.ntub.birc.common.exception.UnknownException;
 import tw.edu.ntub.birc.common.exception.date.ParseDateException;
 import tw.edu.ntub.imd.birc.coffeeshop.exception.ConvertPropertyException;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.InsufficientStockException;
 import tw.edu.ntub.imd.birc.coffeeshop.exception.MethodNotSupportedException;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.NotFoundException;
 import tw.edu.ntub.imd.birc.coffeeshop.exception.NullRequestBodyException;
 import tw.edu.ntub.imd.birc.coffeeshop.exception.RequiredParameterException;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.StockBatchRejectedException;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.file.EmptyFileException;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.file.FileExtensionIllegalException;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.file.FileExtensionNotFoundException;
 import tw.edu.ntub.imd.birc.coffeeshop.exception.file.FileNotExistException;
 import tw.edu.ntub.imd.birc.coffeeshop.exception.file.UploadFileTooLargeException;
 import tw.edu.ntub.imd.birc.coffeeshop.exception.form.InvalidFormDateFormatException;
@@ -43,7 +49,26 @@ import java.lang.reflect.Field;
 public class ExceptionHandleController {
     @ExceptionHandler(ProjectException.class)
     public ResponseEntity<String> handleProjectException(ProjectException e) {
-        return ResponseEntityBuilder.error(e).build();
+        return ResponseEntityBuilder.error(e).status(resolveStatus(e)).build();
+    }
+
+    /**
+     * 依例外類型決定HTTP狀態碼，未列出的維持200並由errorCode區分
+     */
+    private HttpStatus resolveStatus(ProjectException e) {
+        if (e instanceof NotFoundException) {
+            return HttpStatus.NOT_FOUND;
+        } else if (e instanceof InvalidFormException ||
+                e instanceof InvalidRequestFormatException ||
+                e instanceof InsufficientStockException ||
+                e instanceof EmptyFileException ||
+                e instanceof FileExtensionIllegalException ||
+                e instanceof FileExtensionNotFoundException) {
+            return HttpStatus.BAD_REQUEST;
+        } else if (e instanceof StockBatchRejectedException) {
+            return HttpStatus.SERVICE_UNAVAILABLE;
+        }
+        return HttpStatus.OK;
     }
 
     @ExceptionHandler(HttpMessageNotReadableException.class)
@@ -52,10 +77,14 @@ public class ExceptionHandleController {
 
         // 1. 處理基礎類型轉換錯誤 (如 String 轉 int 失敗) - 保持 Snippet 2 的簡潔
         if (rootCause instanceof NumberFormatException) {
-            return ResponseEntityBuilder.error(new InvalidFormNumberFormatException((NumberFormatException) rootCause)).build();
+            return ResponseEntityBuilder.error(new InvalidFormNumberFormatException((NumberFormatException) rootCause))
+                    .status(HttpStatus.BAD_REQUEST)
+                    .build();
         }
         if (rootCause instanceof ParseDateException) {
-            return ResponseEntityBuilder.error(new InvalidFormDateFormatException((ParseDateException) rootCause)).build();
+            return ResponseEntityBuilder.error(new InvalidFormDateFormatException((ParseDateException) rootCause))
+                    .status(HttpStatus.BAD_REQUEST)
+                    .build();
         }
 
         // 2. 處理 Jackson 解析錯誤 (主要邏輯)
@@ -86,7 +115,9 @@ public class ExceptionHandleController {
             // 情況一：數字錯誤
             if (isNumberTarget) {
                 String message = displayName + " - \"" + ex.getValue() + "\"輸入的文字中包含非數字文字";
-                return ResponseEntityBuilder.error(new InvalidRequestFormatException(message)).build();
+                return ResponseEntityBuilder.error(new InvalidRequestFormatException(message))
+                        .status(HttpStatus.BAD_REQUEST)
+                        .build();
             }
 
             // 情況二：Enum 錯誤
@@ -97,15 +128,21 @@ public class ExceptionHandleController {
                         .collect(java.util.stream.Collectors.joining(", "));
                 String message = displayName + " - \"" + ex.getValue() +
                         "\"不是有效的值，有效值為：[" + validValues + "]";
-                return ResponseEntityBuilder.error(new InvalidRequestFormatException(message)).build();
+                return ResponseEntityBuilder.error(new InvalidRequestFormatException(message))
+                        .status(HttpStatus.BAD_REQUEST)
+                        .build();
             }
 
             // 情況三：其他類型錯誤 (兜底)
-            return ResponseEntityBuilder.error(new InvalidRequestFormatException(ex.getOriginalMessage())).build();
+            return ResponseEntityBuilder.error(new InvalidRequestFormatException(ex.getOriginalMessage()))
+                    .status(HttpStatus.BAD_REQUEST)
+                    .build();
         }
 
         // 3. 未知或 Body 為空
-        return ResponseEntityBuilder.error(new NullRequestBodyException(e)).build();
+        return ResponseEntityBuilder.error(new NullRequestBodyException(e))
+                .status(HttpStatus.BAD_REQUEST)
+                .build();
     }
 
     private String getFieldDescription(Class<?> clazz, String fieldName) {
@@ -169,7 +206,9 @@ public class ExceptionHandleController {
     public ResponseEntity<String> handleConstraintViolationException(ConstraintViolationException e) {
         Set<ConstraintViolation<?>> constraintViolations = e.getConstraintViolations();
         ConstraintViolation<?> constraintViolation = constraintViolations.stream().findAny().orElseThrow();
-        return ResponseEntityBuilder.error(new InvalidFormException(constraintViolation.getMessage())).build();
+        return ResponseEntityBuilder.error(new InvalidFormException(constraintViolation.getMessage()))
+                .status(HttpStatus.BAD_REQUEST)
+                .build();
     }
 
     @ExceptionHandler(MissingServletRequestParameterException.class)
@@ -0,0 +1,54 @@
+package tw.edu.ntub.imd.birc.coffeeshop.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tw.edu.ntub.imd.birc.coffeeshop.service.export.InventoryExporter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+@Tag(name = "匯出", description = "咖啡廳庫存管理系統 - 匯出庫存與交易記錄")
+@RestController
+@RequestMapping("/api/v1/exports")
+public class ExportController {
+    private static final MediaType XLSX_MEDIA_TYPE =
+                    MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+    private final InventoryExporter inventoryExporter;
+
+    public ExportController(InventoryExporter inventoryExporter) {
+        this.inventoryExporter = inventoryExporter;
+    }
+
+    /**
+     * A. 匯出庫存與交易記錄
+     * 邊從資料庫分批讀取邊寫入回應，開始寫出後發生錯誤只能中斷下載
+     */
+    @Operation(summary = "匯出庫存與交易記錄", description = "下載XLSX，包含庫存與交易記錄兩個工作表，交易記錄超過單一工作表上限時分成多個工作表")
+    @ApiResponses(value = {
+                    @ApiResponse(responseCode = "200", description = "下載成功",
+                                    content = @Content(mediaType = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+    })
+    @GetMapping("/inventory")
+    public ResponseEntity<StreamingResponseBody> exportInventory() {
+            String fileName = "inventory-" + LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE) + ".xlsx";
+            return ResponseEntity.ok()
+                            .contentType(XLSX_MEDIA_TYPE)
+                            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                                            .filename(fileName, StandardCharsets.UTF_8)
+                                            .build()
+                                            .toString())
+                            .body(inventoryExporter::export);
+    }
+}
@@ -0,0 +1,58 @@
+package tw.edu.ntub.imd.birc.coffeeshop.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import tw.edu.ntub.imd.birc.coffeeshop.service.cache.ProductCatalogCache;
+import tw.edu.ntub.imd.birc.coffeeshop.util.http.ResponseEntityBuilder;
+import tw.edu.ntub.imd.birc.coffeeshop.util.json.object.ObjectData;
+
+@Tag(name = "產品快取", description = "咖啡廳庫存管理系統 - 產品快取狀態API")
+@RestController
+@RequestMapping("/api/v1/admin/product-cache")
+public class ProductCacheController {
+    private final ProductCatalogCache productCatalogCache;
+
+    public ProductCacheController(ProductCatalogCache productCatalogCache) {
+        this.productCatalogCache = productCatalogCache;
+    }
+
+    /**
+     * 產品資料與庫存兩層快取各自的筆數與命中率
+     */
+    @Operation(summary = "查詢產品快取狀態", description = "產品資料與庫存兩層快取的筆數、命中次數與命中率")
+    @GetMapping
+    public ResponseEntity<String> getStatistics() {
+        ObjectData data = new ObjectData()
+                .add("enabled", productCatalogCache.isEnabled())
+                .add("evictionCount", productCatalogCache.getEvictionCount());
+        data.addObject("catalog")
+                .add("size", productCatalogCache.getCatalogSize())
+                .add("hitCount", productCatalogCache.getCatalogHitCount())
+                .add("missCount", productCatalogCache.getCatalogMissCount())
+                .add("hitRate", productCatalogCache.getCatalogHitRate());
+        data.addObject("stock")
+                .add("size", productCatalogCache.getStockSize())
+                .add("hitCount", productCatalogCache.getStockHitCount())
+                .add("missCount", productCatalogCache.getStockMissCount())
+                .add("hitRate", productCatalogCache.getStockHitRate());
+        return ResponseEntityBuilder.success()
+                .message("查詢成功")
+                .data(data)
+                .build();
+    }
+
+    @Operation(summary = "清除產品快取", description = "清除所有快取的產品與統計，下次查詢重新由資料庫載入")
+    @DeleteMapping
+    public ResponseEntity<String> clear() {
+        productCatalogCache.clear();
+        productCatalogCache.resetStatistics();
+        return ResponseEntityBuilder.success()
+                .message("清除成功")
+                .build();
+    }
+}
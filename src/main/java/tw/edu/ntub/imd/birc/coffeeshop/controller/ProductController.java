@@ -1,31 +1,277 @@
 package tw.edu.ntub.imd.birc.coffeeshop.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BindingResult;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tw.edu.ntub.imd.birc.coffeeshop.bean.ProductBean;
+import tw.edu.ntub.imd.birc.coffeeshop.bean.StockQuantityBean;
+import tw.edu.ntub.imd.birc.coffeeshop.bean.TransactionBean;
+import tw.edu.ntub.imd.birc.coffeeshop.dto.CursorPage;
+import tw.edu.ntub.imd.birc.coffeeshop.dto.ProductStatsBucket;
+import tw.edu.ntub.imd.birc.coffeeshop.dto.StockMovementResult;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.DateParseException;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.NotFoundException;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.form.InvalidFormException;
+import tw.edu.ntub.imd.birc.coffeeshop.service.ProductService;
+import tw.edu.ntub.imd.birc.coffeeshop.service.StockMovementService;
+import tw.edu.ntub.imd.birc.coffeeshop.service.TransactionService;
+import tw.edu.ntub.imd.birc.coffeeshop.service.stats.ProductStatsAggregator;
+import tw.edu.ntub.imd.birc.coffeeshop.service.stats.StatsGranularity;
+import tw.edu.ntub.imd.birc.coffeeshop.util.date.LocalDateUtils;
+import tw.edu.ntub.imd.birc.coffeeshop.util.http.BindingResultUtils;
 import tw.edu.ntub.imd.birc.coffeeshop.util.http.ResponseEntityBuilder;
+import tw.edu.ntub.imd.birc.coffeeshop.util.http.StreamingResponseEntityBuilder;
+import tw.edu.ntub.imd.birc.coffeeshop.util.json.object.ObjectData;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 
 @Tag(name = "產品管理", description = "咖啡廳庫存管理系統 - 產品相關API")
 @RestController
 @RequestMapping("/api/v1/products")
 @Validated
 public class ProductController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_TRANSACTION_PAGE_SIZE = 50;
+    private static final int MAX_TRANSACTION_PAGE_SIZE = 1000;
+    private static final int MAX_STATS_DAYS = 3660;
+    private final ProductService productService;
+    private final TransactionService transactionService;
+    private final StockMovementService stockMovementService;
+    private final ProductStatsAggregator productStatsAggregator;
+
+    public ProductController(ProductService productService,
+                             TransactionService transactionService,
+                             StockMovementService stockMovementService,
+                             ProductStatsAggregator productStatsAggregator) {
+        this.productService = productService;
+        this.transactionService = transactionService;
+        this.stockMovementService = stockMovementService;
+        this.productStatsAggregator = productStatsAggregator;
+    }
+
     /**
      * A. 查詢所有產品
+     * 回應內容預先序列化，產品或庫存沒有異動時直接回傳同一份位元組；帶有相符的If-None-Match時回傳304
      */
     @Operation(summary = "查詢所有產品", description = "取得所有產品列表")
     @ApiResponses(value = {
-                    @ApiResponse(responseCode = "200", description = "查詢成功", content = @Content(mediaType = "application/json"))
+                    @ApiResponse(responseCode = "200", description = "查詢成功", content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "304", description = "產品列表未變動")
     })
     @GetMapping
-    public ResponseEntity<String> getAllProducts() {
+    public ResponseEntity<byte[]> getAllProducts(HttpServletRequest request) {
+            return productService.getSerializedList(productList -> ResponseEntityBuilder.success()
+                            .message("查詢成功")
+                            .data(productList, this::addProduct)
+                            .buildJSONString()).toResponseEntity(request);
+    }
+
+    /**
+     * B. 新增產品
+     */
+    @Operation(summary = "新增產品", description = "新增一筆產品資料")
+    @ApiResponses(value = {
+                    @ApiResponse(responseCode = "201", description = "新增成功", content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "400", description = "欄位驗證失敗", content = @Content(mediaType = "application/json"))
+    })
+    @PostMapping
+    public ResponseEntity<String> createProduct(@Valid @RequestBody ProductBean productBean,
+                                                BindingResult bindingResult) {
+            BindingResultUtils.validate(bindingResult);
+            ProductBean saved = productService.save(productBean);
+            ObjectData data = new ObjectData();
+            addProduct(data, saved);
+            return ResponseEntityBuilder.success()
+                            .status(HttpStatus.CREATED)
+                            .message("新增成功")
+                            .data(data)
+                            .build();
+    }
+
+    /**
+     * C. 進貨
+     */
+    @Operation(summary = "進貨", description = "增加產品庫存並寫入一筆IN交易記錄")
+    @ApiResponses(value = {
+                    @ApiResponse(responseCode = "200", description = "進貨成功", content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "400", description = "數量必須大於0", content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "404", description = "產品不存在", content = @Content(mediaType = "application/json"))
+    })
+    @PostMapping("/{id}/stock/in")
+    public ResponseEntity<String> stockIn(@Parameter(description = "產品ID") @PathVariable("id") Long id,
+                                          @Valid @RequestBody StockQuantityBean stockQuantityBean,
+                                          BindingResult bindingResult) {
+            BindingResultUtils.validate(bindingResult);
+            StockMovementResult result = stockMovementService.updateStockIn(id, stockQuantityBean.getQuantity());
+            return ResponseEntityBuilder.success()
+                            .message("進貨成功")
+                            .data(createStockMovementData(result))
+                            .build();
+    }
+
+    /**
+     * D. 出貨
+     */
+    @Operation(summary = "出貨", description = "扣除產品庫存並寫入一筆OUT交易記錄，庫存不足時不會異動")
+    @ApiResponses(value = {
+                    @ApiResponse(responseCode = "200", description = "出貨成功", content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "400", description = "數量必須大於0或庫存不足", content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "404", description = "產品不存在", content = @Content(mediaType = "application/json"))
+    })
+    @PostMapping("/{id}/stock/out")
+    public ResponseEntity<String> stockOut(@Parameter(description = "產品ID") @PathVariable("id") Long id,
+                                           @Valid @RequestBody StockQuantityBean stockQuantityBean,
+                                           BindingResult bindingResult) {
+            BindingResultUtils.validate(bindingResult);
+            StockMovementResult result = stockMovementService.updateStockOut(id, stockQuantityBean.getQuantity());
+            return ResponseEntityBuilder.success()
+                            .message("出貨成功")
+                            .data(createStockMovementData(result))
+                            .build();
+    }
+
+    /**
+     * E. 查詢產品交易記錄
+     * 未帶cursor與size時回傳全部記錄；帶任一參數時以(timestamp, id)游標分頁，下一頁游標放在X-Next-Cursor標頭
+     */
+    @Operation(summary = "查詢產品交易記錄", description = "依交易時間由新到舊列出該產品的交易記錄")
+    @ApiResponses(value = {
+                    @ApiResponse(responseCode = "200", description = "查詢成功", content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "404", description = "產品不存在", content = @Content(mediaType = "application/json"))
+    })
+    @GetMapping("/{id}/transactions")
+    public ResponseEntity<String> getTransactions(@Parameter(description = "產品ID") @PathVariable("id") Long id,
+                                                  @Parameter(description = "上一頁回傳的X-Next-Cursor")
+                                                  @RequestParam(name = "cursor", required = false) String cursor,
+                                                  @Parameter(description = "每頁筆數")
+                                                  @RequestParam(name = "size", required = false)
+                                                  @Min(value = 1, message = "size - 必須大於0")
+                                                  @Max(value = MAX_TRANSACTION_PAGE_SIZE, message = "size - 不得大於{value}")
+                                                  Integer size) {
+            if (cursor == null && size == null) {
+                    return ResponseEntityBuilder.success()
+                                    .message("查詢成功")
+                                    .data(transactionService.searchByProductId(id), this::addTransaction)
+                                    .build();
+            }
+            CursorPage<TransactionBean> page = transactionService.searchByProductId(
+                            id,
+                            cursor,
+                            size != null ? size : DEFAULT_TRANSACTION_PAGE_SIZE
+            );
+            ResponseEntityBuilder builder = ResponseEntityBuilder.success()
+                            .message("查詢成功")
+                            .data(page.getContent(), this::addTransaction);
+            if (page.hasNext()) {
+                    builder.addHeader(NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return builder.build();
+    }
+
+    /**
+     * E-1. 串流查詢產品交易記錄，邊從資料庫讀取邊寫出，適用於歷史很長的產品
+     */
+    @Operation(summary = "串流查詢產品交易記錄", description = "stream=true時以forward-only游標逐筆讀取並直接寫入回應")
+    @GetMapping(value = "/{id}/transactions", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamTransactions(
+                    @Parameter(description = "產品ID") @PathVariable("id") Long id) {
+            productService.getById(id).orElseThrow(() -> new NotFoundException("產品不存在"));
+            return StreamingResponseEntityBuilder.success()
+                            .message("查詢成功")
+                            .data(consumer -> transactionService.searchByProductId(id, consumer), this::addTransaction)
+                            .build();
+    }
+
+    /**
+     * F. 查詢產品進貨/出貨統計
+     * 由每日統計合計，不掃描交易記錄，查詢時間只與日期區間長度有關；停用產品統計時每日統計不會更新，回傳409
+     */
+    @Operation(summary = "查詢產品進貨/出貨統計", description = "依日、週(週一起算)或月合計from到to(皆含)之間的進貨與出貨數量，最近約一秒內的異動可能尚未計入")
+    @ApiResponses(value = {
+                    @ApiResponse(responseCode = "200", description = "查詢成功", content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "400", description = "日期格式錯誤、起始日晚於結束日或區間過長", content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "404", description = "產品不存在", content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "409", description = "產品統計已停用", content = @Content(mediaType = "application/json"))
+    })
+    @GetMapping("/{id}/stats")
+    public ResponseEntity<String> getStats(@Parameter(description = "產品ID") @PathVariable("id") Long id,
+                                           @Parameter(description = "起始日期，如2026-01-01") @RequestParam("from") String from,
+                                           @Parameter(description = "結束日期，如2026-03-31") @RequestParam("to") String to,
+                                           @Parameter(description = "day(預設)、week或month")
+                                           @RequestParam(name = "granularity", defaultValue = "day") String granularity) {
+            LocalDate fromDate = parseDate("from", from);
+            LocalDate toDate = parseDate("to", to);
+            if (fromDate.isAfter(toDate)) {
+                    throw new InvalidFormException("from - 不可晚於to");
+            } else if (ChronoUnit.DAYS.between(fromDate, toDate) >= MAX_STATS_DAYS) {
+                    throw new InvalidFormException("查詢區間不可超過" + MAX_STATS_DAYS + "天");
+            }
+            StatsGranularity statsGranularity = StatsGranularity.fromName(granularity);
+            productService.getById(id).orElseThrow(() -> new NotFoundException("產品不存在"));
+            if (!productStatsAggregator.isEnabled()) {
+                    return ResponseEntityBuilder.error()
+                                    .status(HttpStatus.CONFLICT)
+                                    .errorCode("ProductStats - Disabled")
+                                    .message("產品統計已停用")
+                                    .build();
+            }
             return ResponseEntityBuilder.success()
                             .message("查詢成功")
+                            .data(productStatsAggregator.getStats(id, fromDate, toDate, statsGranularity), this::addStatsBucket)
                             .build();
     }
+
+    private LocalDate parseDate(String name, String value) {
+            try {
+                    return LocalDateUtils.parse(value);
+            } catch (DateParseException | DateTimeException e) {
+                    throw new InvalidFormException(name + " - 日期格式錯誤: " + value);
+            }
+    }
+
+    private void addProduct(ObjectData data, ProductBean productBean) {
+            data.add("id", productBean.getId());
+            data.add("name", productBean.getName());
+            data.add("type", productBean.getType().name());
+            data.add("price", productBean.getPrice());
+            data.add("stock", productBean.getStock());
+    }
+
+    private void addTransaction(ObjectData data, TransactionBean transactionBean) {
+            data.add("id", transactionBean.getId());
+            data.add("productId", transactionBean.getProductId());
+            data.add("type", transactionBean.getType().name());
+            data.add("quantity", transactionBean.getQuantity());
+            data.add("timestamp", transactionBean.getTimestamp());
+    }
+
+    private void addStatsBucket(ObjectData data, ProductStatsBucket bucket) {
+            data.add("periodStart", bucket.getPeriodStart());
+            data.add("inQuantity", bucket.getInQuantity());
+            data.add("outQuantity", bucket.getOutQuantity());
+            data.add("netQuantity", bucket.getNetQuantity());
+            data.add("inCount", bucket.getInCount());
+            data.add("outCount", bucket.getOutCount());
+    }
+
+    private ObjectData createStockMovementData(StockMovementResult result) {
+            return new ObjectData()
+                            .add("productId", result.getProductId())
+                            .add("remainingStock", result.getRemainingStock());
+    }
 }
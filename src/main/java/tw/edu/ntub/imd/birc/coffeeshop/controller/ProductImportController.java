@@ -0,0 +1,120 @@
+package tw.edu.ntub.imd.birc.coffeeshop.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.NotFoundException;
+import tw.edu.ntub.imd.birc.coffeeshop.service.importer.ProductImportJob;
+import tw.edu.ntub.imd.birc.coffeeshop.service.importer.ProductImporter;
+import tw.edu.ntub.imd.birc.coffeeshop.util.http.ResponseEntityBuilder;
+import tw.edu.ntub.imd.birc.coffeeshop.util.json.object.ObjectData;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+@Tag(name = "產品匯入", description = "咖啡廳庫存管理系統 - 以CSV/NDJSON大量匯入產品")
+@RestController
+@RequestMapping("/api/v1/products/import")
+public class ProductImportController {
+    private static final MediaType CSV_MEDIA_TYPE = new MediaType("text", "csv", StandardCharsets.UTF_8);
+    private final ProductImporter productImporter;
+
+    public ProductImportController(ProductImporter productImporter) {
+        this.productImporter = productImporter;
+    }
+
+    /**
+     * A. 上傳匯入檔案
+     * 檔案存檔後立即回傳匯入工作，實際匯入在背景執行，以查詢進度API取得結果
+     */
+    @Operation(summary = "匯入產品", description = "上傳CSV(name,type,price,stock)或NDJSON檔案，於背景逐行驗證並分批新增")
+    @ApiResponses(value = {
+                    @ApiResponse(responseCode = "202", description = "已排入匯入", content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "400", description = "未選擇檔案或副檔名錯誤", content = @Content(mediaType = "application/json"))
+    })
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<String> importProducts(@Parameter(description = "副檔名為csv、ndjson或jsonl的檔案")
+                                                 @RequestParam("file") MultipartFile file) {
+            ProductImportJob job = productImporter.submit(file);
+            return ResponseEntityBuilder.success()
+                            .status(HttpStatus.ACCEPTED)
+                            .message("已排入匯入")
+                            .data(createJobData(job))
+                            .build();
+    }
+
+    /**
+     * B. 查詢匯入進度
+     */
+    @Operation(summary = "查詢匯入進度", description = "回傳已讀取、已新增與被拒絕的筆數")
+    @ApiResponses(value = {
+                    @ApiResponse(responseCode = "200", description = "查詢成功", content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "404", description = "匯入工作不存在", content = @Content(mediaType = "application/json"))
+    })
+    @GetMapping("/{jobId}")
+    public ResponseEntity<String> getJob(@Parameter(description = "匯入工作ID") @PathVariable("jobId") String jobId) {
+            return ResponseEntityBuilder.success()
+                            .message("查詢成功")
+                            .data(createJobData(getJobOrThrow(jobId)))
+                            .build();
+    }
+
+    /**
+     * C. 下載錯誤檔
+     * 每一列為行號、原因與原始內容
+     */
+    @Operation(summary = "下載錯誤檔", description = "下載被拒絕的列，格式為CSV(line,reason,raw)")
+    @ApiResponses(value = {
+                    @ApiResponse(responseCode = "200", description = "下載成功", content = @Content(mediaType = "text/csv")),
+                    @ApiResponse(responseCode = "404", description = "匯入工作不存在或沒有被拒絕的列", content = @Content(mediaType = "application/json"))
+    })
+    @GetMapping("/{jobId}/rejects")
+    public ResponseEntity<Resource> downloadRejects(@Parameter(description = "匯入工作ID") @PathVariable("jobId") String jobId) {
+            ProductImportJob job = getJobOrThrow(jobId);
+            // 匯入中錯誤檔仍在寫入，完成後才提供下載
+            Path rejectFilePath = job.getRejectFilePath()
+                            .filter(path -> job.isFinished())
+                            .orElseThrow(() -> new NotFoundException("沒有被拒絕的列"));
+            return ResponseEntity.ok()
+                            .contentType(CSV_MEDIA_TYPE)
+                            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                                            .filename(job.getFileName() + ".rejects.csv", StandardCharsets.UTF_8)
+                                            .build()
+                                            .toString())
+                            .body(new FileSystemResource(rejectFilePath));
+    }
+
+    private ProductImportJob getJobOrThrow(String jobId) {
+            return productImporter.getJob(jobId).orElseThrow(() -> new NotFoundException("匯入工作不存在"));
+    }
+
+    private ObjectData createJobData(ProductImportJob job) {
+            return new ObjectData()
+                            .add("id", job.getId())
+                            .add("fileName", job.getFileName())
+                            .add("format", job.getFormat().name())
+                            .add("status", job.getStatus().name())
+                            .add("processedRows", job.getProcessedRows())
+                            .add("importedRows", job.getImportedRows())
+                            .add("rejectedRows", job.getRejectedRows())
+                            .add("message", job.getMessage())
+                            .add("createTime", job.getCreateTime())
+                            .add("startTime", job.getStartTime())
+                            .add("endTime", job.getEndTime())
+                            .add("rejectFileUrl", job.isFinished() && job.getRejectFilePath().isPresent() ?
+                                            "/api/v1/products/import/" + job.getId() + "/rejects" :
+                                            null);
+    }
+}
@@ -0,0 +1,77 @@
+package tw.edu.ntub.imd.birc.coffeeshop.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import tw.edu.ntub.imd.birc.coffeeshop.service.stats.ProductStatsAggregator;
+import tw.edu.ntub.imd.birc.coffeeshop.util.http.ResponseEntityBuilder;
+import tw.edu.ntub.imd.birc.coffeeshop.util.json.object.ObjectData;
+
+@Tag(name = "產品統計", description = "咖啡廳庫存管理系統 - 產品每日統計狀態與重建API")
+@RestController
+@RequestMapping("/api/v1/admin/product-stats")
+public class ProductStatsController {
+    private final ProductStatsAggregator productStatsAggregator;
+
+    public ProductStatsController(ProductStatsAggregator productStatsAggregator) {
+        this.productStatsAggregator = productStatsAggregator;
+    }
+
+    /**
+     * 是否啟用、已彙總到的交易記錄ID、尚未彙總的ID範圍、逾時後才提交而未計入的交易記錄數與最近一次重建的結果
+     */
+    @Operation(summary = "查詢產品統計狀態", description = "是否啟用、已彙總到的交易記錄ID與落後的ID數、未計入的交易記錄數(大於0時需重建)，以及最近一次重建的結果")
+    @GetMapping
+    public ResponseEntity<String> getStatus() {
+        long watermark = productStatsAggregator.getWatermark();
+        long maxTransactionId = productStatsAggregator.getMaxTransactionId();
+        ObjectData data = new ObjectData()
+                .add("enabled", productStatsAggregator.isEnabled())
+                .add("watermark", watermark)
+                .add("maxTransactionId", maxTransactionId)
+                .add("lag", Math.max(0, maxTransactionId - watermark))
+                .add("lateTransactionCount", productStatsAggregator.getLateTransactionCount())
+                .add("rebuilding", productStatsAggregator.isRebuilding());
+        productStatsAggregator.getLastRebuildResult().ifPresent(result -> data.addObject("lastRebuild")
+                .add("finishTime", result.getFinishTime())
+                .add("maxTransactionId", result.getMaxTransactionId())
+                .add("chunkCount", result.getChunkCount())
+                .add("elapsedMillis", result.getElapsedMillis())
+                .add("error", result.getError()));
+        return ResponseEntityBuilder.success()
+                .message("查詢成功")
+                .data(data)
+                .build();
+    }
+
+    /**
+     * 在背景清除並由交易記錄重新計算所有統計，以查詢狀態API確認是否完成
+     */
+    @Operation(summary = "重建產品統計", description = "清除所有每日統計，由交易記錄依ID分段並行重新彙總")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "已排入重建", content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "409", description = "已有重建在執行中", content = @Content(mediaType = "application/json"))
+    })
+    @PostMapping("/rebuild")
+    public ResponseEntity<String> rebuild() {
+        if (!productStatsAggregator.submitRebuild()) {
+            return ResponseEntityBuilder.error()
+                    .status(HttpStatus.CONFLICT)
+                    .errorCode("ProductStats - RebuildRunning")
+                    .message("已有重建在執行中")
+                    .build();
+        }
+        return ResponseEntityBuilder.success()
+                .status(HttpStatus.ACCEPTED)
+                .message("已排入重建")
+                .build();
+    }
+}
@@ -0,0 +1,96 @@
+package tw.edu.ntub.imd.birc.coffeeshop.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.probe.SqlProbe;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.probe.SqlStatistics;
+import tw.edu.ntub.imd.birc.coffeeshop.util.http.ResponseEntityBuilder;
+import tw.edu.ntub.imd.birc.coffeeshop.util.json.object.ObjectData;
+
+import javax.validation.constraints.Min;
+import java.util.concurrent.TimeUnit;
+
+@Tag(name = "SQL計時", description = "咖啡廳庫存管理系統 - SQL計時探針管理API")
+@RestController
+@RequestMapping("/api/v1/admin/sql-probe")
+@Validated
+public class SqlProbeController {
+    private final SqlProbe sqlProbe;
+
+    public SqlProbeController(SqlProbe sqlProbe) {
+        this.sqlProbe = sqlProbe;
+    }
+
+    /**
+     * 取得探針狀態與各SQL的統計，依總耗時由高到低排序
+     */
+    @Operation(summary = "查詢SQL統計", description = "各SQL的執行次數、耗時分布與筆數")
+    @GetMapping
+    public ResponseEntity<String> getStatistics() {
+        ObjectData data = new ObjectData()
+                .add("enabled", sqlProbe.isEnabled())
+                .add("slowQueryMillis", sqlProbe.getSlowQueryMillis());
+        data.createCollectionData().add("statements", sqlProbe.getStatisticsList(), this::addStatistics);
+        return ResponseEntityBuilder.success()
+                .message("查詢成功")
+                .data(data)
+                .build();
+    }
+
+    /**
+     * 切換探針，只影響之後取得的Connection
+     */
+    @Operation(summary = "設定SQL計時", description = "啟用或關閉探針，並可調整慢查詢門檻")
+    @PutMapping
+    public ResponseEntity<String> updateSetting(@Parameter(description = "是否啟用")
+                                                @RequestParam("enabled") boolean enabled,
+                                                @Parameter(description = "慢查詢門檻(毫秒)")
+                                                @RequestParam(name = "slowQueryMillis", required = false)
+                                                @Min(value = 0, message = "slowQueryMillis - 不得小於0")
+                                                Long slowQueryMillis) {
+        if (slowQueryMillis != null) {
+            sqlProbe.setSlowQueryMillis(slowQueryMillis);
+        }
+        sqlProbe.setEnabled(enabled);
+        return ResponseEntityBuilder.success()
+                .message("設定成功")
+                .data(new ObjectData()
+                        .add("enabled", sqlProbe.isEnabled())
+                        .add("slowQueryMillis", sqlProbe.getSlowQueryMillis()))
+                .build();
+    }
+
+    @Operation(summary = "清除SQL統計")
+    @DeleteMapping
+    public ResponseEntity<String> reset() {
+        sqlProbe.reset();
+        return ResponseEntityBuilder.success()
+                .message("清除成功")
+                .build();
+    }
+
+    private void addStatistics(ObjectData data, SqlStatistics statistics) {
+        long count = statistics.getCount();
+        data.add("sql", statistics.getSql());
+        data.add("count", count);
+        data.add("rows", statistics.getRows());
+        data.add("totalMillis", toMillis(statistics.getTotalNanos()));
+        data.add("averageMillis", count == 0 ? 0 : toMillis(statistics.getTotalNanos()) / count);
+        data.add("maxMillis", toMillis(statistics.getMaxNanos()));
+        ObjectData histogram = data.addObject("histogram");
+        long[] bucketCounts = statistics.getBucketCounts();
+        for (int i = 0; i < SqlStatistics.BUCKET_UPPER_BOUND_MILLIS.length; i++) {
+            histogram.add("<=" + SqlStatistics.BUCKET_UPPER_BOUND_MILLIS[i] + "ms", bucketCounts[i]);
+        }
+        long maxBound = SqlStatistics.BUCKET_UPPER_BOUND_MILLIS[SqlStatistics.BUCKET_UPPER_BOUND_MILLIS.length - 1];
+        histogram.add(">" + maxBound + "ms", bucketCounts[bucketCounts.length - 1]);
+    }
+
+    private double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,84 @@
+package tw.edu.ntub.imd.birc.coffeeshop.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import tw.edu.ntub.imd.birc.coffeeshop.bean.StockMovementBean;
+import tw.edu.ntub.imd.birc.coffeeshop.dto.StockMovementLineResult;
+import tw.edu.ntub.imd.birc.coffeeshop.service.StockMovementService;
+import tw.edu.ntub.imd.birc.coffeeshop.util.http.ResponseEntityBuilder;
+import tw.edu.ntub.imd.birc.coffeeshop.util.json.object.ObjectData;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Tag(name = "庫存管理", description = "咖啡廳庫存管理系統 - 庫存異動相關API")
+@RestController
+@RequestMapping("/api/v1/stock")
+@Validated
+public class StockMovementController {
+    private static final int MAX_BULK_SIZE = 1000;
+    private static final String ATOMIC_MODE = "atomic";
+    private final StockMovementService stockMovementService;
+
+    public StockMovementController(StockMovementService stockMovementService) {
+        this.stockMovementService = stockMovementService;
+    }
+
+    /**
+     * 批次進貨/出貨
+     * atomic模式任一筆失敗時全部不套用並回傳400；best-effort模式套用所有可套用的異動，失敗的筆數記錄在各筆結果中
+     */
+    @Operation(summary = "批次進貨/出貨", description = "依陣列順序逐筆驗證並判斷庫存，在同一個交易中以批次寫入，回傳每一筆的結果")
+    @ApiResponses(value = {
+                    @ApiResponse(responseCode = "200", description = "異動完成", content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "400", description = "筆數超過上限或atomic模式中有異動失敗", content = @Content(mediaType = "application/json"))
+    })
+    @PostMapping("/movements")
+    public ResponseEntity<String> createMovements(@Parameter(description = "atomic(預設)或best-effort")
+                                                  @RequestParam(name = "mode", defaultValue = ATOMIC_MODE)
+                                                  @Pattern(regexp = "atomic|best-effort", message = "mode - 只能是atomic或best-effort")
+                                                  String mode,
+                                                  @RequestBody
+                                                  @NotNull(message = "缺少必要欄位")
+                                                  @Size(min = 1, max = MAX_BULK_SIZE, message = "異動筆數必須介於{min}到{max}之間")
+                                                  List<StockMovementBean> movementList) {
+            boolean atomic = ATOMIC_MODE.equals(mode);
+            List<StockMovementLineResult> resultList = stockMovementService.updateStockBulk(movementList, atomic);
+            long failedCount = resultList.stream()
+                            .filter(result -> result.getStatus() == StockMovementLineResult.Status.FAILED)
+                            .count();
+            if (atomic && failedCount > 0) {
+                    return ResponseEntityBuilder.error()
+                                    .status(HttpStatus.BAD_REQUEST)
+                                    .errorCode("Stock - BulkRejected")
+                                    .message("有" + failedCount + "筆異動失敗，全部未套用")
+                                    .data(resultList, this::addLineResult)
+                                    .build();
+            }
+            return ResponseEntityBuilder.success()
+                            .message("異動完成，成功" + (resultList.size() - failedCount) + "筆，失敗" + failedCount + "筆")
+                            .data(resultList, this::addLineResult)
+                            .build();
+    }
+
+    private void addLineResult(ObjectData data, StockMovementLineResult result) {
+            data.add("index", result.getIndex());
+            data.add("productId", result.getProductId());
+            data.add("type", result.getType() != null ? result.getType().name() : null);
+            data.add("quantity", result.getQuantity());
+            data.add("status", result.getStatus().name());
+            data.add("remainingStock", result.getRemainingStock());
+            data.add("errorCode", result.getErrorCode());
+            data.add("message", result.getMessage());
+    }
+}
@@ -0,0 +1,119 @@
+package tw.edu.ntub.imd.birc.coffeeshop.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import tw.edu.ntub.imd.birc.coffeeshop.dto.StockAtTime;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.DateParseException;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.NotFoundException;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.form.InvalidFormException;
+import tw.edu.ntub.imd.birc.coffeeshop.service.ProductService;
+import tw.edu.ntub.imd.birc.coffeeshop.service.snapshot.StockSnapshotManager;
+import tw.edu.ntub.imd.birc.coffeeshop.util.date.LocalDateTimeUtils;
+import tw.edu.ntub.imd.birc.coffeeshop.util.http.ResponseEntityBuilder;
+import tw.edu.ntub.imd.birc.coffeeshop.util.json.object.ObjectData;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+
+@Tag(name = "庫存快照", description = "咖啡廳庫存管理系統 - 庫存快照狀態、手動快照與過去時間點庫存查詢API")
+@RestController
+@RequestMapping("/api/v1/admin/stock-snapshots")
+public class StockSnapshotController {
+    private final StockSnapshotManager stockSnapshotManager;
+    private final ProductService productService;
+
+    public StockSnapshotController(StockSnapshotManager stockSnapshotManager, ProductService productService) {
+        this.stockSnapshotManager = stockSnapshotManager;
+        this.productService = productService;
+    }
+
+    /**
+     * 是否正在快照與最近一次快照的結果
+     */
+    @Operation(summary = "查詢庫存快照狀態", description = "是否正在快照，以及最近一次快照處理的產品數與實際寫入的快照數")
+    @GetMapping
+    public ResponseEntity<String> getStatus() {
+        ObjectData data = new ObjectData()
+                .add("enabled", stockSnapshotManager.isEnabled())
+                .add("running", stockSnapshotManager.isRunning());
+        stockSnapshotManager.getLastSnapshotResult().ifPresent(result -> data.addObject("lastSnapshot")
+                .add("finishTime", result.getFinishTime())
+                .add("productCount", result.getProductCount())
+                .add("snapshotCount", result.getSnapshotCount())
+                .add("elapsedMillis", result.getElapsedMillis())
+                .add("error", result.getError()));
+        return ResponseEntityBuilder.success()
+                .message("查詢成功")
+                .data(data)
+                .build();
+    }
+
+    /**
+     * 不等待下一次定期快照，立即在背景快照所有產品，以查詢狀態API確認是否完成
+     */
+    @Operation(summary = "立即快照", description = "在背景快照所有產品目前的庫存與最大交易記錄ID")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "已排入快照", content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "409", description = "快照已停用或已有快照在執行中", content = @Content(mediaType = "application/json"))
+    })
+    @PostMapping
+    public ResponseEntity<String> snapshot() {
+        if (!stockSnapshotManager.isEnabled()) {
+            return ResponseEntityBuilder.error()
+                    .status(HttpStatus.CONFLICT)
+                    .errorCode("StockSnapshot - Disabled")
+                    .message("庫存快照已停用")
+                    .build();
+        } else if (!stockSnapshotManager.submitSnapshot()) {
+            return ResponseEntityBuilder.error()
+                    .status(HttpStatus.CONFLICT)
+                    .errorCode("StockSnapshot - Running")
+                    .message("已有快照在執行中")
+                    .build();
+        }
+        return ResponseEntityBuilder.success()
+                .status(HttpStatus.ACCEPTED)
+                .message("已排入快照")
+                .build();
+    }
+
+    /**
+     * 查詢產品過去某個時間點的庫存
+     * 由該時間點之前最近的庫存快照加上之後的交易記錄計算，只重播快照之後的交易記錄
+     */
+    @Operation(summary = "查詢產品某個時間點的庫存", description = "以最近的庫存快照為起點重播交易記錄，計算at當下的庫存")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "查詢成功", content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "400", description = "時間格式錯誤", content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "404", description = "產品不存在", content = @Content(mediaType = "application/json"))
+    })
+    @GetMapping("/products/{id}")
+    public ResponseEntity<String> getStockAt(@Parameter(description = "產品ID") @PathVariable("id") Long id,
+                                             @Parameter(description = "時間點，如2026-03-01 18:00:00")
+                                             @RequestParam("at") String at) {
+        LocalDateTime atDateTime;
+        try {
+            atDateTime = LocalDateTimeUtils.parse(at);
+        } catch (DateParseException | DateTimeException e) {
+            throw new InvalidFormException("at - 時間格式錯誤: " + at);
+        }
+        productService.getById(id).orElseThrow(() -> new NotFoundException("產品不存在"));
+        StockAtTime stockAtTime = stockSnapshotManager.getStockAt(id, atDateTime);
+        return ResponseEntityBuilder.success()
+                .message("查詢成功")
+                .data(new ObjectData()
+                        .add("productId", stockAtTime.getProductId())
+                        .add("at", stockAtTime.getAt())
+                        .add("stock", stockAtTime.getStock())
+                        .add("snapshotAt", stockAtTime.getSnapshotAt())
+                        .add("snapshotTransactionId", stockAtTime.getSnapshotTransactionId()))
+                .build();
+    }
+}
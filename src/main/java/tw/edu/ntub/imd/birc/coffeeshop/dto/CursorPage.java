@@ -0,0 +1,23 @@
+package tw.edu.ntub.imd.birc.coffeeshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 鍵集分頁的查詢結果
+ */
+@Getter
+@AllArgsConstructor
+public class CursorPage<T> {
+    private final List<T> content;
+    /**
+     * 下一頁的游標，已是最後一頁時為null
+     */
+    private final String nextCursor;
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,56 @@
+package tw.edu.ntub.imd.birc.coffeeshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.core.convert.ConversionException;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.format.datetime.standard.DateTimeFormatterRegistrar;
+import org.springframework.format.support.DefaultFormattingConversionService;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.form.InvalidRequestFormatException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 鍵集分頁的游標，記住上一頁最後一筆的(排序屬性值, id)
+ * 對外一律以encode()後的字串傳遞，呼叫端不應解析其內容；日期時間以ISO格式保存，解碼時依實體屬性的型別轉回
+ */
+@Getter
+@AllArgsConstructor
+public class KeysetCursor {
+    private static final String SEPARATOR = "|";
+    private static final ConversionService CONVERSION_SERVICE = createConversionService();
+    private final Object value;
+    private final Object id;
+
+    private static ConversionService createConversionService() {
+        DefaultFormattingConversionService conversionService = new DefaultFormattingConversionService(false);
+        DateTimeFormatterRegistrar registrar = new DateTimeFormatterRegistrar();
+        registrar.setUseIsoFormat(true);
+        registrar.registerFormatters(conversionService);
+        return conversionService;
+    }
+
+    /**
+     * id不會包含分隔字元，排序屬性值可以包含
+     */
+    public static KeysetCursor decode(String cursor, Class<?> valueType, Class<?> idType) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separatorIndex = value.lastIndexOf(SEPARATOR);
+            return new KeysetCursor(
+                    CONVERSION_SERVICE.convert(value.substring(0, separatorIndex), valueType),
+                    CONVERSION_SERVICE.convert(value.substring(separatorIndex + 1), idType)
+            );
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | ConversionException e) {
+            throw new InvalidRequestFormatException("cursor - 無效的分頁游標");
+        }
+    }
+
+    public String encode() {
+        String value = CONVERSION_SERVICE.convert(this.value, String.class) +
+                SEPARATOR +
+                CONVERSION_SERVICE.convert(id, String.class);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
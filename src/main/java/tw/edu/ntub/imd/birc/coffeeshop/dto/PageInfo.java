@@ -13,5 +13,9 @@ public class PageInfo {
     private int totalPage;
     private long totalDataCount;
     private int countPerPage;
+    /**
+     * totalDataCount與totalPage是否為資料庫統計資訊的估計值
+     */
+    private boolean approximate;
 }
 
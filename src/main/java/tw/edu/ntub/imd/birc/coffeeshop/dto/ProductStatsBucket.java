@@ -0,0 +1,26 @@
+package tw.edu.ntub.imd.birc.coffeeshop.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+/**
+ * 一個統計區間內的進貨/出貨合計
+ */
+@Getter
+@Builder
+public class ProductStatsBucket {
+    /**
+     * 區間的第一天，週為週一、月為一號；第一個區間可能早於查詢的起始日，但只計入查詢範圍內的日期
+     */
+    private final LocalDate periodStart;
+    private final long inQuantity;
+    private final long outQuantity;
+    private final long inCount;
+    private final long outCount;
+
+    public long getNetQuantity() {
+        return inQuantity - outQuantity;
+    }
+}
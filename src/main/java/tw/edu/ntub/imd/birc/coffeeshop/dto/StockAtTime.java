@@ -0,0 +1,25 @@
+package tw.edu.ntub.imd.birc.coffeeshop.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * 產品在某個時間點的庫存，由一筆快照加上重播快照前後的交易記錄而來
+ */
+@Getter
+@Builder
+public class StockAtTime {
+    private final Long productId;
+    private final LocalDateTime at;
+    private final long stock;
+    /**
+     * 作為起點的快照時間，沒有任何快照而以目前庫存為起點時為null
+     */
+    private final LocalDateTime snapshotAt;
+    /**
+     * 作為起點的快照已反映的最大交易記錄ID
+     */
+    private final long snapshotTransactionId;
+}
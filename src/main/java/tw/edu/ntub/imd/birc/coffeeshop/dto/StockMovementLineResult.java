@@ -0,0 +1,43 @@
+package tw.edu.ntub.imd.birc.coffeeshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.enumerate.TransactionType;
+
+/**
+ * 批次庫存異動中單筆的結果，index為該筆在請求中的位置
+ */
+@Getter
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovementLineResult {
+    private int index;
+    private Long productId;
+    private TransactionType type;
+    private Integer quantity;
+    private Status status;
+    /**
+     * 只有APPLIED時有值
+     */
+    private Integer remainingStock;
+    private String errorCode;
+    private String message;
+
+    public enum Status {
+        /**
+         * 已套用
+         */
+        APPLIED,
+        /**
+         * 驗證失敗、產品不存在或庫存不足
+         */
+        FAILED,
+        /**
+         * 本身可套用，但全有或全無模式中有其他筆失敗而未套用
+         */
+        SKIPPED
+    }
+}
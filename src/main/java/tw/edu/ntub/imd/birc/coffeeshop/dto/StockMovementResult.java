@@ -0,0 +1,18 @@
+package tw.edu.ntub.imd.birc.coffeeshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.enumerate.TransactionType;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovementResult {
+    private Long productId;
+    private TransactionType type;
+    private int quantity;
+    private int remainingStock;
+}
@@ -0,0 +1,19 @@
+package tw.edu.ntub.imd.birc.coffeeshop.exception;
+
+import lombok.Getter;
+import tw.edu.ntub.birc.common.exception.ProjectException;
+
+@Getter
+public class InsufficientStockException extends ProjectException {
+    private final int currentStock;
+
+    public InsufficientStockException(int currentStock) {
+        super("庫存不足，目前庫存: " + currentStock);
+        this.currentStock = currentStock;
+    }
+
+    @Override
+    public String getErrorCode() {
+        return "Product - InsufficientStock";
+    }
+}
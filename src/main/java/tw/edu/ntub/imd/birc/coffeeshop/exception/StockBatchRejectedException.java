@@ -0,0 +1,18 @@
+package tw.edu.ntub.imd.birc.coffeeshop.exception;
+
+import tw.edu.ntub.birc.common.exception.ProjectException;
+
+public class StockBatchRejectedException extends ProjectException {
+    public StockBatchRejectedException() {
+        this("庫存異動請求過多，請稍後再試");
+    }
+
+    public StockBatchRejectedException(String message) {
+        super(message);
+    }
+
+    @Override
+    public String getErrorCode() {
+        return "Stock - BatchQueueFull";
+    }
+}
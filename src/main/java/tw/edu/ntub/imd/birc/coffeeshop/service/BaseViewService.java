@@ -1,22 +1,71 @@
 package tw.edu.ntub.imd.birc.coffeeshop.service;
 
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
 import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto.Pager;
+import tw.edu.ntub.imd.birc.coffeeshop.dto.CursorPage;
 import tw.edu.ntub.imd.birc.coffeeshop.dto.PageInfo;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface BaseViewService<B, ID> {
     Optional<B> getById(ID id);
 
     List<B> searchAll();
 
+    /**
+     * @param pager Pager.infinity()或page、count小於1時只回傳第一頁，筆數上限為coffee-shop.pager.max-list-size，
+     *              需要全部資料時改用searchAll(Pager, Consumer)
+     */
     List<B> searchAll(Pager pager);
 
+    /**
+     * Pager.infinity()時依id分批讀取全部資料並逐筆交給consumer，每批處理完就可以回收，記憶體用量與總筆數無關；
+     * 其他分頁條件與searchAll(Pager)相同
+     */
+    void searchAll(Pager pager, Consumer<B> consumer);
+
     List<B> searchByBean(B b);
 
     Optional<B> getByBean(B b);
 
+    /**
+     * 以投影型別查詢，結果不經過persistence context，適用於唯讀的列表
+     *
+     * @param type 建構子參數名稱與實體屬性相同的類別，或getter與實體屬性相同的介面
+     */
+    <T> List<T> searchAll(Class<T> type);
+
+    <T> List<T> searchAll(Class<T> type, Pager pager);
+
+    <T> void searchAll(Class<T> type, Pager pager, Consumer<T> consumer);
+
+    <T> List<T> searchByBean(B b, Class<T> type);
+
+    /**
+     * 鍵集分頁，由上一頁最後一筆往後讀，不使用OFFSET，讀取很後面的頁數也不會變慢
+     *
+     * @param pager 以Pager.keyset或Pager.after建立，排序屬性需為該服務允許的屬性
+     * @return 該頁資料與下一頁的游標
+     */
+    CursorPage<B> searchAfter(Pager pager);
+
+    /**
+     * @param cursor 上一頁回傳的nextCursor，null代表第一頁
+     */
+    CursorPage<B> searchAfter(String sortProperty, Sort.Direction direction, @Nullable String cursor, int count);
+
+    /**
+     * 只在符合b中非null屬性的資料中鍵集分頁，條件與searchByBean相同
+     */
+    CursorPage<B> searchAfter(B b, String sortProperty, Sort.Direction direction, @Nullable String cursor, int count);
+
     PageInfo getPageInfo(int count);
-}
 
+    /**
+     * 只計算符合條件的筆數，不查詢資料
+     */
+    PageInfo getPageInfo(B b, int count);
+}
@@ -0,0 +1,17 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service;
+
+import tw.edu.ntub.imd.birc.coffeeshop.bean.ProductBean;
+import tw.edu.ntub.imd.birc.coffeeshop.util.http.SerializedResponse;
+
+import java.util.List;
+import java.util.function.Function;
+
+public interface ProductService extends BaseService<ProductBean, Long> {
+    /**
+     * 以serializer序列化searchAll的結果，啟用產品快取時產品與庫存未異動就回傳上次序列化的同一份回應，
+     * 未啟用時回傳不含ETag、不壓縮的一般回應
+     *
+     * @param serializer 每次呼叫都必須是相同的格式
+     */
+    SerializedResponse getSerializedList(Function<List<ProductBean>, String> serializer);
+}
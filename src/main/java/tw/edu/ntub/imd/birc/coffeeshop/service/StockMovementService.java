@@ -0,0 +1,26 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service;
+
+import tw.edu.ntub.imd.birc.coffeeshop.bean.StockMovementBean;
+import tw.edu.ntub.imd.birc.coffeeshop.dto.StockMovementLineResult;
+import tw.edu.ntub.imd.birc.coffeeshop.dto.StockMovementResult;
+
+import java.util.List;
+
+/**
+ * 進貨/出貨引擎，庫存異動與交易記錄會在同一個交易中完成
+ * 啟用群組提交時單筆進貨/出貨在StockMovementBatcher的交易中完成，不會隨呼叫端的交易回復；
+ * 熱門產品的異動則在呼叫端的交易提交後才寫回，詳見HotStockManager
+ */
+public interface StockMovementService {
+    StockMovementResult updateStockIn(Long productId, int quantity);
+
+    StockMovementResult updateStockOut(Long productId, int quantity);
+
+    /**
+     * 批次進貨/出貨，先依請求順序逐筆驗證並判斷庫存，全部判斷完才在同一個交易中寫入
+     *
+     * @param atomic true時任一筆失敗就全部不套用；false時套用所有可套用的異動
+     * @return 與請求順序相同的每筆結果
+     */
+    List<StockMovementLineResult> updateStockBulk(List<StockMovementBean> movementList, boolean atomic);
+}
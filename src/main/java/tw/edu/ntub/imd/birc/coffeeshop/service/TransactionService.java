@@ -0,0 +1,24 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service;
+
+import org.springframework.lang.Nullable;
+import tw.edu.ntub.imd.birc.coffeeshop.bean.TransactionBean;
+import tw.edu.ntub.imd.birc.coffeeshop.dto.CursorPage;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface TransactionService extends BaseViewService<TransactionBean, Long> {
+    List<TransactionBean> searchByProductId(Long productId);
+
+    /**
+     * 依交易時間由新到舊以(timestamp, id)鍵集分頁
+     *
+     * @param cursor 上一頁回傳的nextCursor，null代表第一頁
+     */
+    CursorPage<TransactionBean> searchByProductId(Long productId, @Nullable String cursor, int size);
+
+    /**
+     * 依交易時間由新到舊逐筆交給consumer，不會將整份歷史載入記憶體
+     */
+    void searchByProductId(Long productId, Consumer<TransactionBean> consumer);
+}
@@ -0,0 +1,236 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.batch;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.StockBatchProperties;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.StockBatchDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity.Transaction;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.enumerate.TransactionType;
+import tw.edu.ntub.imd.birc.coffeeshop.dto.StockMovementResult;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.InsufficientStockException;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.NotFoundException;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.StockBatchRejectedException;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.form.InvalidFormException;
+import tw.edu.ntub.imd.birc.coffeeshop.service.cache.ProductCatalogCache;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 進貨/出貨的群組提交器
+ * 請求先進入有上限的佇列，由單一flush執行緒每N毫秒或每M筆合併成一個交易：
+ * 鎖定相關產品、依到達順序逐筆判斷庫存，再以一次JDBC batch更新淨增減量並以多列INSERT寫入交易記錄，
+ * 每個呼叫端的CompletableFuture各自完成自己的結果或庫存不足錯誤
+ */
+@Log4j2
+@Component
+public class StockMovementBatcher {
+    private final StockBatchProperties properties;
+    private final StockBatchDAO stockBatchDAO;
+    private final ProductCatalogCache productCatalogCache;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<StockMovementRequest> queue;
+    private volatile boolean running;
+    private Thread flushThread;
+
+    public StockMovementBatcher(StockBatchProperties properties,
+                                StockBatchDAO stockBatchDAO,
+                                ProductCatalogCache productCatalogCache,
+                                PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.stockBatchDAO = stockBatchDAO;
+        this.productCatalogCache = productCatalogCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity()));
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        running = true;
+        flushThread = new Thread(this::runFlushLoop, "stock-batch-flusher");
+        flushThread.setDaemon(true);
+        flushThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flushThread == null) {
+            return;
+        }
+        running = false;
+        flushThread.interrupt();
+        flushThread.join(TimeUnit.SECONDS.toMillis(10));
+        // 關閉時仍留在佇列中的請求直接提交，避免呼叫端永遠等不到結果
+        List<StockMovementRequest> remainList = new ArrayList<>();
+        queue.drainTo(remainList);
+        if (!remainList.isEmpty()) {
+            flush(remainList);
+        }
+    }
+
+    public boolean isEnabled() {
+        return running;
+    }
+
+    public CompletableFuture<StockMovementResult> submit(Long productId, TransactionType type, int quantity) {
+        StockMovementRequest request = new StockMovementRequest(productId, type, quantity);
+        if (quantity <= 0) {
+            request.future.completeExceptionally(new InvalidFormException("數量必須大於0"));
+            return request.future;
+        }
+        if (!running) {
+            request.future.completeExceptionally(new StockBatchRejectedException("庫存批次提交已停止，請稍後再試"));
+            return request.future;
+        }
+        try {
+            if (!queue.offer(request, properties.getEnqueueTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                request.future.completeExceptionally(new StockBatchRejectedException());
+            } else if (!running && queue.remove(request)) {
+                // stop()已清空佇列，之後才放入的請求不會再被處理；移除失敗表示已被取出處理
+                request.future.completeExceptionally(new StockBatchRejectedException("庫存批次提交已停止，請稍後再試"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            request.future.completeExceptionally(new StockBatchRejectedException());
+        }
+        return request.future;
+    }
+
+    /**
+     * 提交並等待結果，失敗時拋出與非批次模式相同的例外
+     * 超過result-timeout-millis仍未取得結果時拋出StockBatchRejectedException，此時該請求仍可能在之後被提交
+     */
+    public StockMovementResult execute(Long productId, TransactionType type, int quantity) {
+        try {
+            return submit(productId, type, quantity).get(properties.getResultTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new StockBatchRejectedException("庫存異動等待提交逾時，請查詢交易記錄確認是否已完成");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StockBatchRejectedException("庫存異動等待提交時被中斷，請查詢交易記錄確認是否已完成");
+        }
+    }
+
+    private void runFlushLoop() {
+        List<StockMovementRequest> batch = new ArrayList<>(properties.getMaxSize());
+        while (running) {
+            try {
+                StockMovementRequest first = queue.poll(properties.getFlushIntervalMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getFlushIntervalMillis());
+                while (batch.size() < properties.getMaxSize()) {
+                    if (queue.drainTo(batch, properties.getMaxSize() - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remainNanos = deadline - System.nanoTime();
+                    StockMovementRequest next = remainNanos > 0 ? queue.poll(remainNanos, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch = new ArrayList<>(properties.getMaxSize());
+            }
+        }
+    }
+
+    private void flush(List<StockMovementRequest> batch) {
+        List<Runnable> completionList;
+        try {
+            completionList = transactionTemplate.execute(status -> apply(batch));
+        } catch (RuntimeException e) {
+            log.error("庫存批次提交失敗，共" + batch.size() + "筆", e);
+            batch.forEach(request -> request.future.completeExceptionally(e));
+            return;
+        }
+        // 交易確定提交後才通知呼叫端
+        Objects.requireNonNull(completionList).forEach(Runnable::run);
+    }
+
+    private List<Runnable> apply(List<StockMovementRequest> batch) {
+        Set<Long> productIdSet = new TreeSet<>();
+        batch.forEach(request -> productIdSet.add(request.productId));
+        Map<Long, Integer> stockMap = stockBatchDAO.lockStockByIdIn(productIdSet);
+        Map<Long, Integer> deltaMap = new HashMap<>();
+        List<Transaction> transactionList = new ArrayList<>(batch.size());
+        List<Runnable> completionList = new ArrayList<>(batch.size());
+        for (StockMovementRequest request : batch) {
+            Integer stock = stockMap.get(request.productId);
+            if (stock == null) {
+                completionList.add(() -> request.future.completeExceptionally(new NotFoundException("產品不存在")));
+                continue;
+            }
+            boolean isOut = request.type == TransactionType.OUT;
+            if (isOut && stock < request.quantity) {
+                completionList.add(() -> request.future.completeExceptionally(new InsufficientStockException(stock)));
+                continue;
+            }
+            int delta = isOut ? -request.quantity : request.quantity;
+            int remainingStock = stock + delta;
+            stockMap.put(request.productId, remainingStock);
+            deltaMap.merge(request.productId, delta, Integer::sum);
+            transactionList.add(request.toTransaction());
+            StockMovementResult result = StockMovementResult.builder()
+                    .productId(request.productId)
+                    .type(request.type)
+                    .quantity(request.quantity)
+                    .remainingStock(remainingStock)
+                    .build();
+            completionList.add(() -> request.future.complete(result));
+        }
+        stockBatchDAO.updateStockByDelta(deltaMap);
+        stockBatchDAO.insertTransactions(transactionList);
+        deltaMap.forEach(productCatalogCache::applyStockDelta);
+        return completionList;
+    }
+
+    private static class StockMovementRequest {
+        private final Long productId;
+        private final TransactionType type;
+        private final int quantity;
+        private final LocalDateTime requestTime = LocalDateTime.now();
+        private final CompletableFuture<StockMovementResult> future = new CompletableFuture<>();
+
+        private StockMovementRequest(Long productId, TransactionType type, int quantity) {
+            this.productId = productId;
+            this.type = type;
+            this.quantity = quantity;
+        }
+
+        private Transaction toTransaction() {
+            Transaction transaction = new Transaction();
+            transaction.setProductId(productId);
+            transaction.setType(type);
+            transaction.setQuantity(quantity);
+            transaction.setTimestamp(requestTime);
+            return transaction;
+        }
+    }
+}
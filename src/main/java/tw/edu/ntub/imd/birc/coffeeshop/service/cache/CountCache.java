@@ -0,0 +1,228 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.cache;
+
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.CountCacheProperties;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 分頁資訊的筆數快取，依實體與查詢條件保存COUNT的結果
+ * 經由BaseServiceImpl新增、修改、刪除時遞增該實體的世代，交易中的異動在提交後才遞增，舊世代的結果視為無效；
+ * 其他途徑的異動(例如進貨/出貨寫入交易記錄、直接修改資料庫)只能等存活時間到期
+ */
+@Component
+public class CountCache {
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final int maxSize;
+    private final long approximateThreshold;
+    private final Map<Key, Entry> entryMap = new ConcurrentHashMap<>();
+    private final Map<Class<?>, AtomicLong> generationMap = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean(false);
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    public CountCache(CountCacheProperties properties) {
+        this.enabled = properties.isEnabled() && properties.getMaxSize() > 0;
+        this.ttlMillis = properties.getTtlMillis();
+        this.maxSize = properties.getMaxSize();
+        this.approximateThreshold = properties.getApproximateThreshold();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param filter  查詢條件，需實作equals與hashCode且放入後不再修改，null代表不帶條件
+     * @param counter 快取無效時實際計算筆數
+     */
+    public Count get(Class<?> entityClass, @Nullable Object filter, Supplier<Count> counter) {
+        if (!enabled) {
+            return counter.get();
+        }
+        long now = System.currentTimeMillis();
+        Key key = new Key(entityClass, filter);
+        AtomicLong generation = getGeneration(entityClass);
+        long currentGeneration = generation.get();
+        Entry entry = entryMap.get(key);
+        if (entry != null && entry.generation == currentGeneration && entry.expiresAt > now) {
+            hitCount.increment();
+            return entry.count;
+        }
+        missCount.increment();
+        Count count = counter.get();
+        if (currentGeneration == generation.get()) {
+            if (entryMap.size() >= maxSize) {
+                evict(now);
+            }
+            entryMap.put(key, new Entry(count, currentGeneration, now + ttlMillis));
+        }
+        return count;
+    }
+
+    /**
+     * 使該實體所有條件的筆數失效，在交易中呼叫時於提交後才失效
+     */
+    public void invalidate(Class<?> entityClass) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    getGeneration(entityClass).incrementAndGet();
+                }
+            });
+        } else {
+            getGeneration(entityClass).incrementAndGet();
+        }
+    }
+
+    /**
+     * 估計筆數達到此值時可直接使用估計值，0代表一律精確計算
+     */
+    public long getApproximateThreshold() {
+        return approximateThreshold;
+    }
+
+    public void clear() {
+        generationMap.values().forEach(AtomicLong::incrementAndGet);
+        entryMap.clear();
+    }
+
+    public void resetStatistics() {
+        hitCount.reset();
+        missCount.reset();
+        evictionCount.reset();
+    }
+
+    public int getSize() {
+        return entryMap.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    private AtomicLong getGeneration(Class<?> entityClass) {
+        return generationMap.computeIfAbsent(entityClass, key -> new AtomicLong());
+    }
+
+    /**
+     * 先清除已過期或已失效的項目，仍超過上限九成時依迭代順序淘汰，同一時間只有一個執行緒進行
+     */
+    private void evict(long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int target = maxSize - Math.max(1, maxSize / 10);
+            Iterator<Map.Entry<Key, Entry>> iterator = entryMap.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Key, Entry> mapEntry = iterator.next();
+                Entry entry = mapEntry.getValue();
+                if (entry.expiresAt <= now || entry.generation != getGeneration(mapEntry.getKey().entityClass).get()) {
+                    iterator.remove();
+                    evictionCount.increment();
+                }
+            }
+            iterator = entryMap.entrySet().iterator();
+            while (entryMap.size() > target && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+                evictionCount.increment();
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * 筆數與是否為資料庫統計資訊的估計值
+     */
+    public static final class Count {
+        private final long value;
+        private final boolean approximate;
+
+        private Count(long value, boolean approximate) {
+            this.value = value;
+            this.approximate = approximate;
+        }
+
+        public static Count exact(long value) {
+            return new Count(value, false);
+        }
+
+        public static Count approximate(long value) {
+            return new Count(value, true);
+        }
+
+        public long getValue() {
+            return value;
+        }
+
+        public boolean isApproximate() {
+            return approximate;
+        }
+    }
+
+    private static final class Key {
+        private final Class<?> entityClass;
+        private final Object filter;
+
+        private Key(Class<?> entityClass, Object filter) {
+            this.entityClass = entityClass;
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return entityClass.equals(key.entityClass) && Objects.equals(filter, key.filter);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * entityClass.hashCode() + Objects.hashCode(filter);
+        }
+    }
+
+    private static final class Entry {
+        private final Count count;
+        private final long generation;
+        private final long expiresAt;
+
+        private Entry(Count count, long generation, long expiresAt) {
+            this.count = count;
+            this.generation = generation;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
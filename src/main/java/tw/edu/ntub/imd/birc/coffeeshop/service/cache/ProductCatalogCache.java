@@ -0,0 +1,544 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.cache;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tw.edu.ntub.imd.birc.coffeeshop.bean.ProductBean;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.ProductCacheProperties;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.ProductDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto.ProductStock;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto.ProductView;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.enumerate.ProductType;
+import tw.edu.ntub.imd.birc.coffeeshop.util.http.SerializedResponse;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 產品的兩層快取
+ * 名稱、類型、單價很少變動，長時間快取並在新增、修改、刪除產品時清除；
+ * 庫存經常變動，只短暫快取，進貨/出貨在交易提交後直接加減快取中的庫存，因此過期前讀到的仍是本節點最新的庫存；
+ * 重新查詢庫存期間有進貨/出貨加減過的產品保留快取中的值，不以查詢時可能尚未包含該筆異動的庫存覆寫
+ * 兩層都有效時查詢列表完全不需存取資料庫；只有庫存過期時以一次只查ID與庫存的SQL更新全部庫存
+ * 另保存依版本預先序列化的列表回應，版本未變時直接回傳同一份位元組
+ */
+@Component
+public class ProductCatalogCache {
+    private final ProductDAO productDAO;
+    private final boolean enabled;
+    private final int maxSize;
+    private final long catalogTtlMillis;
+    private final long stockTtlMillis;
+    private final boolean gzipResponse;
+    private final Map<Long, CatalogEntry> catalogMap = new ConcurrentHashMap<>();
+    private final Map<Long, StockEntry> stockMap = new ConcurrentHashMap<>();
+    /**
+     * 每次清除產品資料時遞增，查詢期間有清除時不寫入查到的舊資料
+     */
+    private final AtomicLong generation = new AtomicLong();
+    /**
+     * 快取中的產品或庫存有任何異動時遞增，供預先序列化的列表回應判斷是否需要重建
+     */
+    private final AtomicLong version = new AtomicLong();
+    /**
+     * 每次加減快取中的庫存時遞增，寫入查到的庫存前以此判斷查詢期間是否有進貨/出貨
+     */
+    private final AtomicLong stockStamp = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean(false);
+    private final LongAdder catalogHitCount = new LongAdder();
+    private final LongAdder catalogMissCount = new LongAdder();
+    private final LongAdder stockHitCount = new LongAdder();
+    private final LongAdder stockMissCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private volatile ProductIdList productIdList;
+    /**
+     * 列表中所有產品庫存最早的到期時間，整批載入或重新查詢庫存時更新
+     */
+    private volatile long listStockExpiresAt;
+    /**
+     * 最近一次加減庫存時該產品不在快取中的stockStamp，查詢期間有這種異動時不寫入原本不在快取中的產品
+     */
+    private volatile long lastAbsentDeltaStamp;
+    private volatile SerializedList serializedList;
+
+    public ProductCatalogCache(ProductCacheProperties properties, ProductDAO productDAO) {
+        this.productDAO = productDAO;
+        this.enabled = properties.isEnabled() && properties.getMaxSize() > 0;
+        this.maxSize = properties.getMaxSize();
+        this.catalogTtlMillis = properties.getCatalogTtlMillis();
+        this.stockTtlMillis = properties.getStockTtlMillis();
+        this.gzipResponse = properties.isGzipResponse();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 依ID順序回傳所有產品，每次都是新的ProductBean
+     */
+    public List<ProductBean> searchAll() {
+        long now = System.currentTimeMillis();
+        List<CatalogEntry> catalogList = getCatalogList(now);
+        if (catalogList == null) {
+            catalogMissCount.increment();
+            stockMissCount.increment();
+            return loadAll(now);
+        }
+        catalogHitCount.increment();
+        if (isAllStockValid(catalogList, now)) {
+            stockHitCount.increment();
+        } else {
+            stockMissCount.increment();
+            reloadAllStock(now);
+        }
+        List<ProductBean> result = new ArrayList<>(catalogList.size());
+        for (CatalogEntry catalogEntry : catalogList) {
+            StockEntry stockEntry = stockMap.get(catalogEntry.id);
+            if (stockEntry == null) {
+                // 重新查詢庫存時已不存在，代表產品剛被刪除
+                return loadAll(now);
+            }
+            result.add(catalogEntry.toBean(stockEntry.stock));
+        }
+        return result;
+    }
+
+    /**
+     * 確認兩層快取都有效後回傳目前的版本，必要時與searchAll相同地重新查詢
+     *
+     * @return 列表無法快取(產品總數超過上限)時回傳-1
+     */
+    public long getVersion() {
+        long now = System.currentTimeMillis();
+        ProductIdList currentList = productIdList;
+        if (currentList != null && currentList.expiresAt > now && listStockExpiresAt > now) {
+            // 列表中的產品只會因清除或淘汰而消失，兩者都會同時清除列表，因此不需逐筆檢查
+            catalogHitCount.increment();
+            stockHitCount.increment();
+            return version.get();
+        }
+        List<CatalogEntry> catalogList = getCatalogList(now);
+        if (catalogList == null) {
+            catalogMissCount.increment();
+            stockMissCount.increment();
+            loadAll(now);
+            return getCatalogList(now) != null ? version.get() : -1;
+        }
+        catalogHitCount.increment();
+        if (isAllStockValid(catalogList, now)) {
+            stockHitCount.increment();
+        } else {
+            stockMissCount.increment();
+            reloadAllStock(now);
+        }
+        return version.get();
+    }
+
+    /**
+     * 版本未變時回傳上次序列化的同一份回應，列表無法快取時每次重新序列化
+     *
+     * @param serializer 將searchAll的結果轉成JSON，每次呼叫都必須是相同的格式
+     */
+    public SerializedResponse getSerializedList(Function<List<ProductBean>, String> serializer) {
+        long currentVersion = getVersion();
+        SerializedList current = serializedList;
+        if (currentVersion >= 0 && current != null && current.version == currentVersion) {
+            return current.response;
+        }
+        SerializedResponse response = serialize(searchAll(), serializer);
+        if (currentVersion >= 0) {
+            serializedList = new SerializedList(currentVersion, response);
+        }
+        return response;
+    }
+
+    /**
+     * 依gzip-response設定序列化並計算ETag
+     */
+    private SerializedResponse serialize(List<ProductBean> productList, Function<List<ProductBean>, String> serializer) {
+        return SerializedResponse.of(serializer.apply(productList), gzipResponse);
+    }
+
+    public Optional<ProductBean> getById(Long id) {
+        long now = System.currentTimeMillis();
+        CatalogEntry catalogEntry = catalogMap.get(id);
+        if (catalogEntry == null || catalogEntry.isExpired(now)) {
+            catalogMissCount.increment();
+            stockMissCount.increment();
+            long currentGeneration = generation.get();
+            long currentStamp = stockStamp.get();
+            Optional<ProductView> optional = productDAO.findById(id, ProductView.class);
+            if (optional.isEmpty()) {
+                return Optional.empty();
+            }
+            ProductView product = optional.get();
+            if (currentGeneration == generation.get()) {
+                putCatalog(new CatalogEntry(product, now + catalogTtlMillis));
+                putStock(id, new StockEntry(product.getStock(), now + stockTtlMillis), currentStamp);
+            }
+            return Optional.of(new CatalogEntry(product, now).toBean(product.getStock()));
+        }
+        catalogHitCount.increment();
+        StockEntry stockEntry = stockMap.get(id);
+        if (stockEntry != null && !stockEntry.isExpired(now)) {
+            stockHitCount.increment();
+            return Optional.of(catalogEntry.toBean(stockEntry.stock));
+        }
+        stockMissCount.increment();
+        long currentStamp = stockStamp.get();
+        Optional<Integer> stock = productDAO.findStockById(id);
+        if (stock.isEmpty()) {
+            invalidateNow(id);
+            return Optional.empty();
+        }
+        putStock(id, new StockEntry(stock.get(), now + stockTtlMillis), currentStamp);
+        return Optional.of(catalogEntry.toBean(stock.get()));
+    }
+
+    /**
+     * 進貨/出貨後加減快取中的庫存，在交易中呼叫時等到提交後才套用
+     * 只加減不覆寫，因此多個交易提交的順序不影響結果；不延長存活時間，其他來源的異動仍會在過期後更新
+     */
+    public void applyStockDelta(Long productId, int delta) {
+        if (!enabled || delta == 0) {
+            return;
+        }
+        afterCommit(() -> {
+            long stamp = stockStamp.incrementAndGet();
+            stockMap.compute(productId, (key, entry) -> {
+                if (entry == null) {
+                    lastAbsentDeltaStamp = stamp;
+                    return null;
+                }
+                return new StockEntry(entry.stock + delta, entry.expiresAt, stamp);
+            });
+            version.incrementAndGet();
+        });
+    }
+
+    /**
+     * 新增、修改或刪除產品後清除該產品與列表，在交易中呼叫時等到提交後才清除
+     */
+    public void invalidate(Long productId) {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> invalidateNow(productId));
+    }
+
+    private void invalidateNow(Long productId) {
+        generation.incrementAndGet();
+        version.incrementAndGet();
+        productIdList = null;
+        serializedList = null;
+        if (productId != null) {
+            catalogMap.remove(productId);
+            stockMap.remove(productId);
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * @return 列表或其中任一產品已過期、被淘汰時回傳null
+     */
+    private List<CatalogEntry> getCatalogList(long now) {
+        ProductIdList currentList = productIdList;
+        if (currentList == null || currentList.expiresAt <= now) {
+            return null;
+        }
+        List<CatalogEntry> result = new ArrayList<>(currentList.idList.size());
+        for (Long id : currentList.idList) {
+            CatalogEntry catalogEntry = catalogMap.get(id);
+            if (catalogEntry == null || catalogEntry.isExpired(now)) {
+                return null;
+            }
+            result.add(catalogEntry);
+        }
+        return result;
+    }
+
+    private boolean isAllStockValid(List<CatalogEntry> catalogList, long now) {
+        for (CatalogEntry catalogEntry : catalogList) {
+            StockEntry stockEntry = stockMap.get(catalogEntry.id);
+            if (stockEntry == null || stockEntry.isExpired(now)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<ProductBean> loadAll(long now) {
+        long currentGeneration = generation.get();
+        long currentStamp = stockStamp.get();
+        List<ProductView> productList = productDAO.findAll(ProductView.class, Sort.by("id"));
+        List<ProductBean> result = new ArrayList<>(productList.size());
+        List<Long> idList = new ArrayList<>(productList.size());
+        for (ProductView product : productList) {
+            CatalogEntry catalogEntry = new CatalogEntry(product, now + catalogTtlMillis);
+            result.add(catalogEntry.toBean(product.getStock()));
+            idList.add(product.getId());
+        }
+        if (productList.size() <= maxSize && currentGeneration == generation.get()) {
+            boolean allStockPut = true;
+            for (ProductView product : productList) {
+                putCatalog(new CatalogEntry(product, now + catalogTtlMillis));
+                allStockPut &= putStock(
+                        product.getId(),
+                        new StockEntry(product.getStock(), now + stockTtlMillis),
+                        currentStamp
+                );
+            }
+            if (allStockPut) {
+                listStockExpiresAt = now + stockTtlMillis;
+            }
+            productIdList = new ProductIdList(Collections.unmodifiableList(idList), now + catalogTtlMillis);
+            version.incrementAndGet();
+        }
+        return result;
+    }
+
+    /**
+     * 查詢期間有進貨/出貨而保留舊值的產品仍是過期的，不延長列表的庫存到期時間，下一次查詢會再重新查詢
+     */
+    private void reloadAllStock(long now) {
+        long expiresAt = now + stockTtlMillis;
+        long currentStamp = stockStamp.get();
+        Set<Long> existIdSet = new HashSet<>();
+        boolean allStockPut = true;
+        for (ProductStock productStock : productDAO.findAllStock()) {
+            existIdSet.add(productStock.getId());
+            allStockPut &= putStock(
+                    productStock.getId(),
+                    new StockEntry(productStock.getStock(), expiresAt),
+                    currentStamp
+            );
+        }
+        if (stockMap.keySet().retainAll(existIdSet)) {
+            version.incrementAndGet();
+        }
+        if (allStockPut) {
+            listStockExpiresAt = expiresAt;
+        }
+    }
+
+    private void putCatalog(CatalogEntry catalogEntry) {
+        if (catalogMap.size() >= maxSize) {
+            evict();
+        }
+        catalogMap.put(catalogEntry.id, catalogEntry);
+    }
+
+    /**
+     * 查詢期間已加減過的產品不寫入，避免以查詢前就讀到的庫存覆寫已套用的進貨/出貨；庫存與原本不同時遞增版本
+     *
+     * @param stamp 查詢資料庫前的stockStamp
+     * @return 有寫入時回傳true
+     */
+    private boolean putStock(Long id, StockEntry stockEntry, long stamp) {
+        if (stockMap.size() >= maxSize) {
+            evict();
+        }
+        StockEntry[] previous = new StockEntry[1];
+        StockEntry current = stockMap.compute(id, (key, entry) -> {
+            previous[0] = entry;
+            boolean changed = entry != null ? entry.stamp > stamp : lastAbsentDeltaStamp > stamp;
+            return changed ? entry : stockEntry;
+        });
+        if (current != stockEntry) {
+            return false;
+        }
+        if (previous[0] == null || !previous[0].stock.equals(stockEntry.stock)) {
+            version.incrementAndGet();
+        }
+        return true;
+    }
+
+    /**
+     * 先清除已過期的項目，仍超過上限九成時依迭代順序淘汰，同一時間只有一個執行緒進行
+     */
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            int target = maxSize - Math.max(1, maxSize / 10);
+            if (evict(catalogMap, now, target) | evict(stockMap, now, target)) {
+                productIdList = null;
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * @return 有淘汰任何項目時回傳true
+     */
+    private boolean evict(Map<Long, ? extends Entry> entryMap, long now, int target) {
+        boolean evicted = false;
+        Iterator<? extends Entry> iterator = entryMap.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isExpired(now)) {
+                iterator.remove();
+                evictionCount.increment();
+                evicted = true;
+            }
+        }
+        iterator = entryMap.values().iterator();
+        while (entryMap.size() > target && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictionCount.increment();
+            evicted = true;
+        }
+        return evicted;
+    }
+
+    public void clear() {
+        invalidateNow(null);
+        catalogMap.clear();
+        stockMap.clear();
+    }
+
+    public void resetStatistics() {
+        catalogHitCount.reset();
+        catalogMissCount.reset();
+        stockHitCount.reset();
+        stockMissCount.reset();
+        evictionCount.reset();
+    }
+
+    public int getCatalogSize() {
+        return catalogMap.size();
+    }
+
+    public int getStockSize() {
+        return stockMap.size();
+    }
+
+    public long getCatalogHitCount() {
+        return catalogHitCount.sum();
+    }
+
+    public long getCatalogMissCount() {
+        return catalogMissCount.sum();
+    }
+
+    public long getStockHitCount() {
+        return stockHitCount.sum();
+    }
+
+    public long getStockMissCount() {
+        return stockMissCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public double getCatalogHitRate() {
+        return getHitRate(getCatalogHitCount(), getCatalogMissCount());
+    }
+
+    public double getStockHitRate() {
+        return getHitRate(getStockHitCount(), getStockMissCount());
+    }
+
+    private static double getHitRate(long hit, long miss) {
+        long total = hit + miss;
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    private abstract static class Entry {
+        protected final long expiresAt;
+
+        private Entry(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+
+        protected boolean isExpired(long now) {
+            return expiresAt <= now;
+        }
+    }
+
+    private static class CatalogEntry extends Entry {
+        private final Long id;
+        private final String name;
+        private final ProductType type;
+        private final Integer price;
+
+        private CatalogEntry(ProductView product, long expiresAt) {
+            super(expiresAt);
+            this.id = product.getId();
+            this.name = product.getName();
+            this.type = product.getType();
+            this.price = product.getPrice();
+        }
+
+        private ProductBean toBean(Integer stock) {
+            ProductBean productBean = new ProductBean();
+            productBean.setId(id);
+            productBean.setName(name);
+            productBean.setType(type);
+            productBean.setPrice(price);
+            productBean.setStock(stock);
+            return productBean;
+        }
+    }
+
+    private static class StockEntry extends Entry {
+        private final Integer stock;
+        /**
+         * 由進貨/出貨加減而來時為當時的stockStamp，由資料庫查到的為0
+         */
+        private final long stamp;
+
+        private StockEntry(Integer stock, long expiresAt) {
+            this(stock, expiresAt, 0);
+        }
+
+        private StockEntry(Integer stock, long expiresAt, long stamp) {
+            super(expiresAt);
+            this.stock = stock;
+            this.stamp = stamp;
+        }
+    }
+
+    private static class SerializedList {
+        private final long version;
+        private final SerializedResponse response;
+
+        private SerializedList(long version, SerializedResponse response) {
+            this.version = version;
+            this.response = response;
+        }
+    }
+
+    private static class ProductIdList {
+        private final List<Long> idList;
+        private final long expiresAt;
+
+        private ProductIdList(List<Long> idList, long expiresAt) {
+            this.idList = idList;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
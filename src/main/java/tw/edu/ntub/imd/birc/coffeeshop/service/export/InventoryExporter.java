@@ -0,0 +1,147 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.export;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.stereotype.Component;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.ExportProperties;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto.Pager;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto.ProductView;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto.TransactionView;
+import tw.edu.ntub.imd.birc.coffeeshop.service.ProductService;
+import tw.edu.ntub.imd.birc.coffeeshop.service.TransactionService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * 庫存與交易記錄匯出
+ * 以SXSSF產生XLSX，記憶體中只保留row-access-window-size列，較早的列寫入暫存檔；
+ * 資料以鍵集分頁依id分批讀取，因此記憶體用量與交易筆數無關，只有暫存檔會隨筆數成長
+ */
+@Component
+public class InventoryExporter {
+    static final String INVENTORY_SHEET_NAME = "庫存";
+    static final String LEDGER_SHEET_NAME = "交易記錄";
+    private static final List<String> INVENTORY_HEADER_LIST = List.of("ID", "名稱", "類型", "價格", "庫存", "庫存金額");
+    private static final List<String> LEDGER_HEADER_LIST = List.of("ID", "產品ID", "類型", "數量", "時間");
+    /**
+     * 每個工作表扣除標題列後可放的資料列數，超過時換到下一個工作表
+     */
+    private static final int MAX_DATA_ROWS_PER_SHEET = SpreadsheetVersion.EXCEL2007.getMaxRows() - 1;
+    private final ExportProperties properties;
+    private final ProductService productService;
+    private final TransactionService transactionService;
+
+    public InventoryExporter(ExportProperties properties,
+                             ProductService productService,
+                             TransactionService transactionService) {
+        this.properties = properties;
+        this.productService = productService;
+        this.transactionService = transactionService;
+    }
+
+    /**
+     * 將庫存與交易記錄寫入outputStream，不會關閉outputStream
+     * 交易記錄超過一個工作表的上限時依序寫入「交易記錄 (2)」、「交易記錄 (3)」...
+     */
+    public void export(OutputStream outputStream) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(Math.max(1, properties.getRowAccessWindowSize()));
+        workbook.setCompressTempFiles(properties.isCompressTempFiles());
+        try {
+            CellStyle headerStyle = createHeaderStyle(workbook);
+            writeInventory(workbook, headerStyle);
+            writeLedger(workbook, headerStyle);
+            workbook.write(outputStream);
+        } finally {
+            // close不會刪除暫存檔，必須呼叫dispose
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private void writeInventory(SXSSFWorkbook workbook, CellStyle headerStyle) {
+        SXSSFSheet sheet = createSheet(workbook, INVENTORY_SHEET_NAME, INVENTORY_HEADER_LIST, headerStyle);
+        int[] rowIndex = {1};
+        productService.searchAll(ProductView.class, Pager.infinity(), productView -> {
+            Row row = sheet.createRow(rowIndex[0]++);
+            row.createCell(0).setCellValue(productView.getId());
+            row.createCell(1).setCellValue(productView.getName());
+            row.createCell(2).setCellValue(productView.getType().name());
+            row.createCell(3).setCellValue(productView.getPrice());
+            row.createCell(4).setCellValue(productView.getStock());
+            row.createCell(5).setCellValue((long) productView.getPrice() * productView.getStock());
+        });
+    }
+
+    private void writeLedger(SXSSFWorkbook workbook, CellStyle headerStyle) {
+        CellStyle timestampStyle = workbook.createCellStyle();
+        timestampStyle.setDataFormat(workbook.createDataFormat().getFormat("yyyy-mm-dd hh:mm:ss"));
+        LedgerSheetWriter writer = new LedgerSheetWriter(workbook, headerStyle, timestampStyle);
+        writer.nextSheet();
+        transactionService.searchAll(TransactionView.class, Pager.infinity(), writer::write);
+    }
+
+    private static SXSSFSheet createSheet(SXSSFWorkbook workbook,
+                                          String name,
+                                          List<String> headerList,
+                                          CellStyle headerStyle) {
+        SXSSFSheet sheet = workbook.createSheet(name);
+        // 串流模式下無法依全部資料計算欄寬，固定欄寬並凍結標題列
+        sheet.setDefaultColumnWidth(16);
+        sheet.createFreezePane(0, 1);
+        Row header = sheet.createRow(0);
+        for (int i = 0; i < headerList.size(); i++) {
+            header.createCell(i).setCellValue(headerList.get(i));
+            header.getCell(i).setCellStyle(headerStyle);
+        }
+        return sheet;
+    }
+
+    private static CellStyle createHeaderStyle(SXSSFWorkbook workbook) {
+        Font font = workbook.createFont();
+        font.setBold(true);
+        CellStyle headerStyle = workbook.createCellStyle();
+        headerStyle.setFont(font);
+        return headerStyle;
+    }
+
+    private static class LedgerSheetWriter {
+        private final SXSSFWorkbook workbook;
+        private final CellStyle headerStyle;
+        private final CellStyle timestampStyle;
+        private SXSSFSheet sheet;
+        private int sheetCount;
+        private int rowIndex;
+
+        private LedgerSheetWriter(SXSSFWorkbook workbook, CellStyle headerStyle, CellStyle timestampStyle) {
+            this.workbook = workbook;
+            this.headerStyle = headerStyle;
+            this.timestampStyle = timestampStyle;
+        }
+
+        private void nextSheet() {
+            sheetCount++;
+            String name = sheetCount == 1 ? LEDGER_SHEET_NAME : LEDGER_SHEET_NAME + " (" + sheetCount + ")";
+            sheet = createSheet(workbook, name, LEDGER_HEADER_LIST, headerStyle);
+            rowIndex = 1;
+        }
+
+        private void write(TransactionView transactionView) {
+            if (rowIndex > MAX_DATA_ROWS_PER_SHEET) {
+                nextSheet();
+            }
+            Row row = sheet.createRow(rowIndex++);
+            row.createCell(0).setCellValue(transactionView.getId());
+            row.createCell(1).setCellValue(transactionView.getProductId());
+            row.createCell(2).setCellValue(transactionView.getType().name());
+            row.createCell(3).setCellValue(transactionView.getQuantity());
+            row.createCell(4).setCellValue(transactionView.getTimestamp());
+            row.getCell(4).setCellStyle(timestampStyle);
+        }
+    }
+}
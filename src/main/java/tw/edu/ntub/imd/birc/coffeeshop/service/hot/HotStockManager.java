@@ -0,0 +1,225 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.hot;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.HotStockProperties;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.ProductDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.StockBatchDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity.Transaction;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.enumerate.TransactionType;
+import tw.edu.ntub.imd.birc.coffeeshop.dto.StockMovementResult;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.InsufficientStockException;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.form.InvalidFormException;
+import tw.edu.ntub.imd.birc.coffeeshop.service.cache.ProductCatalogCache;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 熱門產品庫存管理
+ * 啟動時由product.stock建立分段計數器，之後進貨/出貨只異動記憶體中的計數器，
+ * 交易記錄先放在待寫佇列，由背景執行緒定期將淨增減量與交易記錄寫回資料庫，產品快取中的庫存隨寫回更新
+ * 待寫佇列只存在記憶體中：程序異常終止時尚未寫回的異動會遺失，重新啟動後計數器由未包含這些異動的product.stock建立；
+ * 正常關閉時會重試寫回，仍失敗的異動逐筆記錄在錯誤日誌中，需人工補登
+ */
+@Log4j2
+@Component
+public class HotStockManager {
+    /**
+     * 關閉時每批異動最多嘗試寫回的次數
+     */
+    private static final int STOP_FLUSH_ATTEMPTS = 3;
+    private final HotStockProperties properties;
+    private final ProductDAO productDAO;
+    private final StockBatchDAO stockBatchDAO;
+    private final ProductCatalogCache productCatalogCache;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Long, StripedStockCounter> counterMap = new ConcurrentHashMap<>();
+    private final Queue<Transaction> pendingQueue = new ConcurrentLinkedQueue<>();
+    private final List<Transaction> retryList = new ArrayList<>();
+    private ScheduledExecutorService flushExecutor;
+
+    public HotStockManager(HotStockProperties properties,
+                           ProductDAO productDAO,
+                           StockBatchDAO stockBatchDAO,
+                           ProductCatalogCache productCatalogCache,
+                           PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.productDAO = productDAO;
+        this.stockBatchDAO = stockBatchDAO;
+        this.productCatalogCache = productCatalogCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled() || properties.getProductIds().isEmpty()) {
+            return;
+        }
+        for (Long productId : properties.getProductIds()) {
+            Optional<Integer> stock = productDAO.findStockById(productId);
+            if (stock.isPresent()) {
+                counterMap.put(productId, new StripedStockCounter(properties.getStripes(), stock.get()));
+            } else {
+                log.warn("熱門產品不存在，略過: " + productId);
+            }
+        }
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hot-stock-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushExecutor.scheduleWithFixedDelay(
+                this::flushQuietly,
+                properties.getFlushIntervalMillis(),
+                properties.getFlushIntervalMillis(),
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flushExecutor == null) {
+            return;
+        }
+        flushExecutor.shutdown();
+        flushExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        // 關閉前把所有尚未寫回的異動寫入資料庫，下次啟動才能由product.stock正確復原
+        int failedAttempts = 0;
+        while (!pendingQueue.isEmpty() || !retryList.isEmpty()) {
+            try {
+                flush();
+                failedAttempts = 0;
+            } catch (RuntimeException e) {
+                failedAttempts++;
+                log.error("關閉時熱門產品庫存寫回失敗，第" + failedAttempts + "次", e);
+                if (failedAttempts >= STOP_FLUSH_ATTEMPTS) {
+                    logUnflushed();
+                    return;
+                }
+                TimeUnit.MILLISECONDS.sleep(Math.min(properties.getFlushIntervalMillis(), 1000));
+            }
+        }
+    }
+
+    /**
+     * 放棄寫回時逐筆記錄剩餘的異動，product.stock未包含這些異動，需人工補登交易記錄與庫存
+     */
+    private synchronized void logUnflushed() {
+        List<Transaction> unflushedList = new ArrayList<>(retryList);
+        unflushedList.addAll(pendingQueue);
+        retryList.clear();
+        pendingQueue.clear();
+        log.error("熱門產品共" + unflushedList.size() + "筆異動未寫回資料庫");
+        for (Transaction transaction : unflushedList) {
+            log.error("未寫回: productId=" + transaction.getProductId() +
+                    ", type=" + transaction.getType() +
+                    ", quantity=" + transaction.getQuantity() +
+                    ", timestamp=" + transaction.getTimestamp());
+        }
+    }
+
+    public boolean isHot(Long productId) {
+        return counterMap.containsKey(productId);
+    }
+
+    /**
+     * 在資料庫交易中呼叫時，出貨先預留計數器，交易提交後才放入待寫佇列，回復時歸還預留的數量；
+     * 進貨則在提交後才增加計數器，回傳的剩餘庫存為預計提交後的值
+     */
+    public StockMovementResult move(Long productId, TransactionType type, int quantity) {
+        if (quantity <= 0) {
+            throw new InvalidFormException("數量必須大於0");
+        }
+        StripedStockCounter counter = counterMap.get(productId);
+        boolean inTransaction = TransactionSynchronizationManager.isSynchronizationActive();
+        int remainingStock;
+        if (type == TransactionType.OUT) {
+            if (!counter.tryReserve(quantity)) {
+                throw new InsufficientStockException(counter.getTotal());
+            }
+            remainingStock = counter.getTotal();
+        } else if (inTransaction) {
+            remainingStock = counter.getTotal() + quantity;
+        } else {
+            counter.release(quantity);
+            remainingStock = counter.getTotal();
+        }
+        Transaction transaction = new Transaction();
+        transaction.setProductId(productId);
+        transaction.setType(type);
+        transaction.setQuantity(quantity);
+        transaction.setTimestamp(LocalDateTime.now());
+        if (inTransaction) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        if (type == TransactionType.IN) {
+                            counter.release(quantity);
+                        }
+                        pendingQueue.add(transaction);
+                    } else if (type == TransactionType.OUT) {
+                        counter.release(quantity);
+                    }
+                }
+            });
+        } else {
+            pendingQueue.add(transaction);
+        }
+        return StockMovementResult.builder()
+                .productId(productId)
+                .type(type)
+                .quantity(quantity)
+                .remainingStock(remainingStock)
+                .build();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("熱門產品庫存寫回失敗，將於下次重試", e);
+        }
+    }
+
+    /**
+     * 寫回一批異動，失敗時保留該批於下次優先重送
+     * 產品快取的庫存在寫回提交後才加減，與product.stock一致；寫回前重新查詢庫存不會在之後被重複加減
+     */
+    synchronized void flush() {
+        if (retryList.isEmpty()) {
+            Transaction transaction;
+            while (retryList.size() < properties.getMaxFlushSize() && (transaction = pendingQueue.poll()) != null) {
+                retryList.add(transaction);
+            }
+        }
+        if (retryList.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> deltaMap = new HashMap<>();
+        for (Transaction transaction : retryList) {
+            int delta = transaction.getType() == TransactionType.OUT ?
+                    -transaction.getQuantity() :
+                    transaction.getQuantity();
+            deltaMap.merge(transaction.getProductId(), delta, Integer::sum);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            stockBatchDAO.updateStockByDelta(deltaMap);
+            stockBatchDAO.insertTransactions(retryList);
+            deltaMap.forEach(productCatalogCache::applyStockDelta);
+        });
+        retryList.clear();
+    }
+}
@@ -0,0 +1,94 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.hot;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分段庫存計數器，將一個產品的庫存拆成多個子計數器，
+ * 扣減時只對單一子計數器做CAS，避免所有執行緒競爭同一個值
+ */
+class StripedStockCounter {
+    private final AtomicIntegerArray stripes;
+    /**
+     * 開始與完成歸還的次數，跨子計數器扣減時用來判斷掃描期間是否有數量放回
+     */
+    private final LongAdder releaseStartCount = new LongAdder();
+    private final LongAdder releaseEndCount = new LongAdder();
+
+    StripedStockCounter(int stripeCount, int stock) {
+        stripes = new AtomicIntegerArray(Math.max(1, stripeCount));
+        int length = stripes.length();
+        for (int i = 0; i < length; i++) {
+            stripes.set(i, stock / length + (i < stock % length ? 1 : 0));
+        }
+    }
+
+    int getTotal() {
+        int total = 0;
+        for (int i = 0; i < stripes.length(); i++) {
+            total += stripes.get(i);
+        }
+        return total;
+    }
+
+    boolean tryReserve(int quantity) {
+        int length = stripes.length();
+        int start = ThreadLocalRandom.current().nextInt(length);
+        for (int i = 0; i < length; i++) {
+            int index = (start + i) % length;
+            int value = stripes.get(index);
+            while (value >= quantity) {
+                if (stripes.compareAndSet(index, value, value - quantity)) {
+                    return true;
+                }
+                value = stripes.get(index);
+            }
+        }
+        return reserveAcrossStripes(quantity);
+    }
+
+    /**
+     * 沒有任何單一子計數器足夠時，從多個子計數器湊足數量，湊不足則全數歸還
+     * 掃描期間有歸還的數量時可能放進已掃描過的子計數器，因此保留已取得的數量再掃描一次，
+     * 直到一次完整掃描期間沒有進行中或新開始的歸還，此時所有子計數器都已取完，才判定不足
+     */
+    private synchronized boolean reserveAcrossStripes(int quantity) {
+        int length = stripes.length();
+        int[] takenArray = new int[length];
+        int collected = 0;
+        boolean released;
+        do {
+            long endCount = releaseEndCount.sum();
+            long startCount = releaseStartCount.sum();
+            for (int index = 0; index < length && collected < quantity; index++) {
+                int value = stripes.get(index);
+                while (value > 0) {
+                    int take = Math.min(value, quantity - collected);
+                    if (stripes.compareAndSet(index, value, value - take)) {
+                        takenArray[index] += take;
+                        collected += take;
+                        break;
+                    }
+                    value = stripes.get(index);
+                }
+            }
+            released = endCount != startCount || startCount != releaseStartCount.sum();
+        } while (collected < quantity && released);
+        if (collected < quantity) {
+            for (int index = 0; index < length; index++) {
+                if (takenArray[index] > 0) {
+                    stripes.addAndGet(index, takenArray[index]);
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    void release(int quantity) {
+        releaseStartCount.increment();
+        stripes.addAndGet(ThreadLocalRandom.current().nextInt(stripes.length()), quantity);
+        releaseEndCount.increment();
+    }
+}
@@ -1,9 +1,12 @@
 package tw.edu.ntub.imd.birc.coffeeshop.service.impl;
 
 import org.springframework.transaction.annotation.Transactional;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.PagerProperties;
 import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.BaseDAO;
 import tw.edu.ntub.imd.birc.coffeeshop.service.BaseService;
+import tw.edu.ntub.imd.birc.coffeeshop.service.cache.CountCache;
 import tw.edu.ntub.imd.birc.coffeeshop.service.transformer.BeanEntityTransformer;
+import tw.edu.ntub.imd.birc.coffeeshop.service.transformer.BeanViewTransformer;
 import tw.edu.ntub.imd.birc.coffeeshop.exception.NotFoundException;
 import tw.edu.ntub.birc.common.util.JavaBeanUtils;
 
@@ -18,6 +21,15 @@ public abstract class BaseServiceImpl<B, E, ID extends Serializable> extends Bas
         this.baseDAO = d;
     }
 
+    public BaseServiceImpl(BaseDAO<E, ID> d,
+                           BeanEntityTransformer<B, E> transformer,
+                           BeanViewTransformer<B, ?> viewTransformer,
+                           CountCache countCache,
+                           PagerProperties pagerProperties) {
+        super(d, transformer, viewTransformer, countCache, pagerProperties);
+        this.baseDAO = d;
+    }
+
     @Transactional
     @Override
     public void update(ID id, B b) {
@@ -26,6 +38,7 @@ public abstract class BaseServiceImpl<B, E, ID extends Serializable> extends Bas
             E entity = optional.get();
             JavaBeanUtils.copy(b, entity);
             baseDAO.update(entity);
+            invalidateCount();
         } else {
             throw new NotFoundException("找不到資料, id = " + id);
         }
@@ -35,6 +48,7 @@ public abstract class BaseServiceImpl<B, E, ID extends Serializable> extends Bas
     @Override
     public void delete(ID id) {
         baseDAO.deleteById(id);
+        invalidateCount();
     }
 }
 
@@ -1,30 +1,72 @@
 package tw.edu.ntub.imd.birc.coffeeshop.service.impl;
 
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.core.GenericTypeResolver;
 import org.springframework.data.domain.Example;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.PagerProperties;
 import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.BaseViewDAO;
 import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto.Pager;
 import tw.edu.ntub.imd.birc.coffeeshop.service.BaseViewService;
+import tw.edu.ntub.imd.birc.coffeeshop.service.cache.CountCache;
 import tw.edu.ntub.imd.birc.coffeeshop.service.transformer.BeanEntityTransformer;
+import tw.edu.ntub.imd.birc.coffeeshop.service.transformer.BeanViewTransformer;
+import tw.edu.ntub.imd.birc.coffeeshop.dto.CursorPage;
+import tw.edu.ntub.imd.birc.coffeeshop.dto.KeysetCursor;
 import tw.edu.ntub.imd.birc.coffeeshop.dto.PageInfo;
 import tw.edu.ntub.birc.common.util.CollectionUtils;
-import tw.edu.ntub.birc.common.util.MathUtils;
 
 import java.io.Serializable;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public abstract class BaseViewServiceImpl<B, E, ID extends Serializable> implements BaseViewService<B, ID> {
+    /**
+     * 鍵集分頁由查詢結果取得id的屬性名稱，實體與投影的主鍵屬性都需使用此名稱
+     */
+    private static final String ID_PROPERTY = "id";
     private final BaseViewDAO<E, ID> baseDAO;
     private final BeanEntityTransformer<B, E> transformer;
+    private final BeanViewTransformer<B, ?> viewTransformer;
+    private final CountCache countCache;
+    private final PagerProperties pagerProperties;
+    private final Class<?> entityClass;
+    private final Class<?> idClass;
 
     public BaseViewServiceImpl(BaseViewDAO<E, ID> d, BeanEntityTransformer<B, E> transformer) {
+        this(d, transformer, null, null, null);
+    }
+
+    /**
+     * @param viewTransformer 不為null時searchAll與searchByBean改為查詢投影再轉成bean，不載入實體
+     * @param countCache      不為null時getPageInfo的筆數依實體與條件快取
+     * @param pagerProperties 為null時使用預設的不分頁上限與串流批次大小
+     */
+    public BaseViewServiceImpl(BaseViewDAO<E, ID> d,
+                               BeanEntityTransformer<B, E> transformer,
+                               @Nullable BeanViewTransformer<B, ?> viewTransformer,
+                               @Nullable CountCache countCache,
+                               @Nullable PagerProperties pagerProperties) {
         Assert.notNull(d, "baseDAO不能為null");
         Assert.notNull(d, "transformer不能為null");
         this.baseDAO = d;
         this.transformer = transformer;
+        this.viewTransformer = viewTransformer;
+        this.countCache = countCache;
+        this.pagerProperties = pagerProperties != null ? pagerProperties : new PagerProperties();
+        Class<?>[] typeArray = GenericTypeResolver.resolveTypeArguments(getClass(), BaseViewServiceImpl.class);
+        this.entityClass = typeArray != null ? typeArray[1] : null;
+        this.idClass = typeArray != null ? typeArray[2] : null;
+        Assert.state(countCache == null || entityClass != null, "無法取得" + getClass().getName() + "的實體型別");
     }
 
     @Override
@@ -41,26 +83,34 @@ public abstract class BaseViewServiceImpl<B, E, ID extends Serializable> impleme
 
     @Override
     public List<B> searchAll() {
+        if (viewTransformer != null) {
+            return searchView(viewTransformer, this::searchAll);
+        }
         return CollectionUtils.map(baseDAO.findAll(), transformer::transferToBean);
     }
 
     @Override
     public List<B> searchAll(Pager pager) {
-        List<E> entityList;
-        if (pager.isInfinity()) {
-            entityList = baseDAO.findAll();
+        if (viewTransformer != null) {
+            return searchView(viewTransformer, type -> searchAll(type, pager));
+        }
+        return CollectionUtils.map(baseDAO.findAll(toPageRequest(pager)).getContent(), transformer::transferToBean);
+    }
+
+    @Override
+    public void searchAll(Pager pager, Consumer<B> consumer) {
+        if (viewTransformer != null) {
+            searchView(viewTransformer, pager, consumer);
         } else {
-            PageRequest pageRequest = PageRequest.of(
-                    MathUtils.translateOneBasedToZeroBased(pager.getPage()),
-                    pager.getCount()
-            );
-            entityList = baseDAO.findAll(pageRequest).getContent();
+            searchAll(getEntityClass(), pager, entity -> consumer.accept(transformer.transferToBean(entity)));
         }
-        return CollectionUtils.map(entityList, transformer::transferToBean);
     }
 
     @Override
     public List<B> searchByBean(B b) {
+        if (viewTransformer != null) {
+            return searchView(viewTransformer, type -> searchByBean(b, type));
+        }
         List<E> eList = baseDAO.findAll(Example.of(transformer.transferToEntity(b)));
         return CollectionUtils.map(eList, transformer::transferToBean);
     }
@@ -71,14 +121,209 @@ public abstract class BaseViewServiceImpl<B, E, ID extends Serializable> impleme
         return optional.map(transformer::transferToBean);
     }
 
+    @Override
+    public <T> List<T> searchAll(Class<T> type) {
+        return baseDAO.findAll(type);
+    }
+
+    @Override
+    public <T> List<T> searchAll(Class<T> type, Pager pager) {
+        return baseDAO.findAll(type, toPageRequest(pager)).getContent();
+    }
+
+    /**
+     * 不分頁時以鍵集分頁依id分批讀取，每批各自查詢，不會長時間占用連線；
+     * 批次之間的新增與刪除可能會讀到或漏掉，不是同一時間點的快照
+     */
+    @Override
+    public <T> void searchAll(Class<T> type, Pager pager, Consumer<T> consumer) {
+        if (!pager.isInfinity()) {
+            searchAll(type, pager).forEach(consumer);
+            return;
+        }
+        int chunkSize = pagerProperties.getStreamChunkSize();
+        Assert.state(chunkSize > 0, "coffee-shop.pager.stream-chunk-size必須大於0");
+        Pager chunkPager = Pager.keyset(ID_PROPERTY, Sort.Direction.ASC, chunkSize);
+        List<T> chunk;
+        do {
+            chunk = baseDAO.findAllAfter(chunkPager, type);
+            chunk.forEach(consumer);
+            if (!chunk.isEmpty()) {
+                Object lastId = PropertyAccessorFactory.forBeanPropertyAccess(chunk.get(chunk.size() - 1))
+                        .getPropertyValue(ID_PROPERTY);
+                chunkPager = Pager.after(ID_PROPERTY, Sort.Direction.ASC, lastId, lastId, chunkSize);
+                detachEntities(chunk);
+            }
+        } while (chunk.size() == chunkSize);
+    }
+
+    @Override
+    public <T> List<T> searchByBean(B b, Class<T> type) {
+        return baseDAO.findAll(Example.of(transformer.transferToEntity(b)), type);
+    }
+
+    @Override
+    public CursorPage<B> searchAfter(Pager pager) {
+        return searchAfter(null, pager);
+    }
+
+    @Override
+    public CursorPage<B> searchAfter(String sortProperty,
+                                     Sort.Direction direction,
+                                     @Nullable String cursor,
+                                     int count) {
+        return searchAfter(null, toKeysetPager(sortProperty, direction, cursor, count));
+    }
+
+    @Override
+    public CursorPage<B> searchAfter(B b,
+                                     String sortProperty,
+                                     Sort.Direction direction,
+                                     @Nullable String cursor,
+                                     int count) {
+        Assert.notNull(b, "b不能為null");
+        return searchAfter(
+                Example.of(transformer.transferToEntity(b)),
+                toKeysetPager(sortProperty, direction, cursor, count)
+        );
+    }
+
+    /**
+     * @param example 為null時不加條件
+     */
+    private CursorPage<B> searchAfter(@Nullable Example<E> example, Pager pager) {
+        Assert.isTrue(pager.isKeyset(), "pager必須是鍵集分頁");
+        Assert.isTrue(
+                getKeysetProperties().contains(pager.getSortProperty()),
+                pager.getSortProperty() + "不是可用於鍵集分頁的屬性"
+        );
+        if (viewTransformer != null) {
+            return searchViewAfter(viewTransformer, example, pager);
+        }
+        return createCursorPage(findAllAfter(example, pager, getEntityClass()), pager, transformer::transferToBean);
+    }
+
+    private Pager toKeysetPager(String sortProperty, Sort.Direction direction, @Nullable String cursor, int count) {
+        if (cursor == null) {
+            return Pager.keyset(sortProperty, direction, count);
+        }
+        KeysetCursor keysetCursor = KeysetCursor.decode(
+                cursor,
+                BeanUtils.findPropertyType(sortProperty, getEntityClass()),
+                idClass
+        );
+        return Pager.after(sortProperty, direction, keysetCursor.getValue(), keysetCursor.getId(), count);
+    }
+
+    private <T> List<T> findAllAfter(@Nullable Example<E> example, Pager pager, Class<T> type) {
+        return example != null ? baseDAO.findAllAfter(example, pager, type) : baseDAO.findAllAfter(pager, type);
+    }
+
+    /**
+     * 可用於鍵集分頁的排序屬性，需有索引且不為null，預設只有主鍵
+     */
+    protected Set<String> getKeysetProperties() {
+        return Set.of(ID_PROPERTY);
+    }
+
+    private <V> CursorPage<B> searchViewAfter(BeanViewTransformer<B, V> viewTransformer,
+                                              @Nullable Example<E> example,
+                                              Pager pager) {
+        return createCursorPage(
+                findAllAfter(example, pager, viewTransformer.getViewType()),
+                pager,
+                viewTransformer::transferViewToBean
+        );
+    }
+
+    /**
+     * 查到的筆數等於count時才有下一頁，游標由轉成bean之前的實體或投影取值
+     */
+    private <R> CursorPage<B> createCursorPage(List<R> resultList, Pager pager, Function<R, B> toBean) {
+        String nextCursor = null;
+        if (resultList.size() == pager.getCount()) {
+            BeanWrapper last = PropertyAccessorFactory.forBeanPropertyAccess(resultList.get(resultList.size() - 1));
+            nextCursor = new KeysetCursor(
+                    last.getPropertyValue(pager.getSortProperty()),
+                    last.getPropertyValue(ID_PROPERTY)
+            ).encode();
+        }
+        return new CursorPage<>(CollectionUtils.map(resultList, toBean::apply), nextCursor);
+    }
+
+    private <V> List<B> searchView(BeanViewTransformer<B, V> viewTransformer, Function<Class<V>, List<V>> search) {
+        return CollectionUtils.map(search.apply(viewTransformer.getViewType()), viewTransformer::transferViewToBean);
+    }
+
+    private <V> void searchView(BeanViewTransformer<B, V> viewTransformer, Pager pager, Consumer<B> consumer) {
+        searchAll(viewTransformer.getViewType(), pager, view -> consumer.accept(viewTransformer.transferViewToBean(view)));
+    }
+
+    /**
+     * Pager.infinity()或page、count小於1時只讀取第一頁，避免一次將整個資料表載入記憶體
+     */
+    private PageRequest toPageRequest(Pager pager) {
+        if (pager.isInfinity()) {
+            return PageRequest.of(0, pagerProperties.getMaxListSize());
+        }
+        return PageRequest.of(pager.getZeroBasedPage(), pager.getCount());
+    }
+
+    /**
+     * 投影不是受管理的實體，只有查詢實體時才需要移出persistence context
+     */
+    private void detachEntities(List<?> resultList) {
+        if (entityClass != null && entityClass.isInstance(resultList.get(0))) {
+            @SuppressWarnings("unchecked")
+            List<E> entityList = (List<E>) resultList;
+            baseDAO.detach(entityList);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Class<E> getEntityClass() {
+        Assert.state(entityClass != null, "無法取得" + getClass().getName() + "的實體型別");
+        return (Class<E>) entityClass;
+    }
+
     @Override
     public PageInfo getPageInfo(int count) {
-        Page<?> page = baseDAO.findAll(PageRequest.of(0, count));
+        return createPageInfo(getCount(null, this::countAll), count);
+    }
+
+    @Override
+    public PageInfo getPageInfo(B b, int count) {
+        E probe = transformer.transferToEntity(b);
+        return createPageInfo(getCount(probe, () -> CountCache.Count.exact(baseDAO.count(Example.of(probe)))), count);
+    }
+
+    /**
+     * 不帶條件的總筆數，資料量很大的實體可覆寫為使用資料庫統計資訊的估計值
+     */
+    protected CountCache.Count countAll() {
+        return CountCache.Count.exact(baseDAO.count());
+    }
+
+    /**
+     * 使快取的筆數失效，新增、修改、刪除後呼叫
+     */
+    protected void invalidateCount() {
+        if (countCache != null) {
+            countCache.invalidate(entityClass);
+        }
+    }
+
+    private CountCache.Count getCount(@Nullable E probe, Supplier<CountCache.Count> counter) {
+        return countCache != null ? countCache.get(entityClass, probe, counter) : counter.get();
+    }
+
+    private PageInfo createPageInfo(CountCache.Count total, int count) {
+        Assert.isTrue(count > 0, "count必須大於0");
         return PageInfo.builder()
-                .totalPage(page.getTotalPages())
-                .totalDataCount(page.getTotalElements())
+                .totalPage((int) ((total.getValue() + count - 1) / count))
+                .totalDataCount(total.getValue())
                 .countPerPage(count)
+                .approximate(total.isApproximate())
                 .build();
     }
 }
-
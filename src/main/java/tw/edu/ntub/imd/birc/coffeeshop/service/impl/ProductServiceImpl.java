@@ -0,0 +1,79 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.impl;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tw.edu.ntub.imd.birc.coffeeshop.bean.ProductBean;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.PagerProperties;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.ProductDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity.Product;
+import tw.edu.ntub.imd.birc.coffeeshop.service.ProductService;
+import tw.edu.ntub.imd.birc.coffeeshop.service.cache.CountCache;
+import tw.edu.ntub.imd.birc.coffeeshop.service.cache.ProductCatalogCache;
+import tw.edu.ntub.imd.birc.coffeeshop.service.transformer.ProductTransformer;
+import tw.edu.ntub.imd.birc.coffeeshop.util.http.SerializedResponse;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+@Service
+public class ProductServiceImpl extends BaseServiceImpl<ProductBean, Product, Long> implements ProductService {
+    private final ProductDAO productDAO;
+    private final ProductTransformer transformer;
+    private final ProductCatalogCache productCatalogCache;
+
+    public ProductServiceImpl(ProductDAO productDAO,
+                              ProductTransformer transformer,
+                              ProductCatalogCache productCatalogCache,
+                              CountCache countCache,
+                              PagerProperties pagerProperties) {
+        super(productDAO, transformer, transformer, countCache, pagerProperties);
+        this.productDAO = productDAO;
+        this.transformer = transformer;
+        this.productCatalogCache = productCatalogCache;
+    }
+
+    @Override
+    public Optional<ProductBean> getById(Long id) {
+        return productCatalogCache.isEnabled() ? productCatalogCache.getById(id) : super.getById(id);
+    }
+
+    @Override
+    public List<ProductBean> searchAll() {
+        return productCatalogCache.isEnabled() ? productCatalogCache.searchAll() : super.searchAll();
+    }
+
+    /**
+     * 未啟用快取時每次都重新序列化，回應不會重複使用，因此不計算ETag也不預先壓縮
+     */
+    @Override
+    public SerializedResponse getSerializedList(Function<List<ProductBean>, String> serializer) {
+        return productCatalogCache.isEnabled() ?
+                productCatalogCache.getSerializedList(serializer) :
+                SerializedResponse.plain(serializer.apply(super.searchAll()));
+    }
+
+    @Override
+    public ProductBean save(ProductBean productBean) {
+        Product product = transformer.transferToEntity(productBean);
+        product.setId(null);
+        ProductBean saved = transformer.transferToBean(productDAO.save(product));
+        productCatalogCache.invalidate(saved.getId());
+        invalidateCount();
+        return saved;
+    }
+
+    @Transactional
+    @Override
+    public void update(Long id, ProductBean productBean) {
+        super.update(id, productBean);
+        productCatalogCache.invalidate(id);
+    }
+
+    @Transactional
+    @Override
+    public void delete(Long id) {
+        super.delete(id);
+        productCatalogCache.invalidate(id);
+    }
+}
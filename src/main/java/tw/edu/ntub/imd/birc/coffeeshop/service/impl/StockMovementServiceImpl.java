@@ -0,0 +1,210 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.impl;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tw.edu.ntub.birc.common.exception.ProjectException;
+import tw.edu.ntub.imd.birc.coffeeshop.bean.StockMovementBean;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.ProductDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.StockBatchDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.TransactionDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity.Transaction;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.enumerate.TransactionType;
+import tw.edu.ntub.imd.birc.coffeeshop.dto.StockMovementLineResult;
+import tw.edu.ntub.imd.birc.coffeeshop.dto.StockMovementResult;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.InsufficientStockException;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.NotFoundException;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.form.InvalidFormException;
+import tw.edu.ntub.imd.birc.coffeeshop.service.StockMovementService;
+import tw.edu.ntub.imd.birc.coffeeshop.service.batch.StockMovementBatcher;
+import tw.edu.ntub.imd.birc.coffeeshop.service.cache.ProductCatalogCache;
+import tw.edu.ntub.imd.birc.coffeeshop.service.hot.HotStockManager;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 庫存的增減一律透過單一條件式UPDATE完成(stock = stock ± ?)，不做先讀後寫，
+ * 因此同一產品被大量同時出貨時不會有遺失更新，也不需要悲觀鎖；
+ * 批次異動則先鎖定相關產品再逐筆判斷，最後以JDBC batch更新淨增減量並以多列INSERT寫入交易記錄；
+ * 熱門產品的單筆進貨/出貨交給HotStockManager以記憶體計數器處理，其餘在啟用群組提交時交給StockMovementBatcher合併提交
+ */
+@Service
+public class StockMovementServiceImpl implements StockMovementService {
+    /**
+     * 每個多列INSERT的最大筆數，避免超過資料庫單一SQL的參數上限
+     */
+    private static final int INSERT_CHUNK_SIZE = 1000;
+    private final ProductDAO productDAO;
+    private final TransactionDAO transactionDAO;
+    private final StockBatchDAO stockBatchDAO;
+    private final HotStockManager hotStockManager;
+    private final StockMovementBatcher stockMovementBatcher;
+    private final ProductCatalogCache productCatalogCache;
+
+    public StockMovementServiceImpl(ProductDAO productDAO,
+                                    TransactionDAO transactionDAO,
+                                    StockBatchDAO stockBatchDAO,
+                                    HotStockManager hotStockManager,
+                                    StockMovementBatcher stockMovementBatcher,
+                                    ProductCatalogCache productCatalogCache) {
+        this.productDAO = productDAO;
+        this.transactionDAO = transactionDAO;
+        this.stockBatchDAO = stockBatchDAO;
+        this.hotStockManager = hotStockManager;
+        this.stockMovementBatcher = stockMovementBatcher;
+        this.productCatalogCache = productCatalogCache;
+    }
+
+    @Transactional
+    @Override
+    public StockMovementResult updateStockIn(Long productId, int quantity) {
+        validateQuantity(quantity);
+        if (hotStockManager.isHot(productId)) {
+            return hotStockManager.move(productId, TransactionType.IN, quantity);
+        } else if (stockMovementBatcher.isEnabled()) {
+            return stockMovementBatcher.execute(productId, TransactionType.IN, quantity);
+        }
+        if (productDAO.increaseStock(productId, quantity) == 0) {
+            throw new NotFoundException("產品不存在");
+        }
+        return record(productId, TransactionType.IN, quantity);
+    }
+
+    @Transactional
+    @Override
+    public StockMovementResult updateStockOut(Long productId, int quantity) {
+        validateQuantity(quantity);
+        if (hotStockManager.isHot(productId)) {
+            return hotStockManager.move(productId, TransactionType.OUT, quantity);
+        } else if (stockMovementBatcher.isEnabled()) {
+            return stockMovementBatcher.execute(productId, TransactionType.OUT, quantity);
+        }
+        if (productDAO.decreaseStock(productId, quantity) == 0) {
+            // 沒有更新到資料時才回頭查詢，用來區分產品不存在與庫存不足
+            int currentStock = productDAO.findStockById(productId)
+                    .orElseThrow(() -> new NotFoundException("產品不存在"));
+            throw new InsufficientStockException(currentStock);
+        }
+        return record(productId, TransactionType.OUT, quantity);
+    }
+
+    @Transactional
+    @Override
+    public List<StockMovementLineResult> updateStockBulk(List<StockMovementBean> movementList, boolean atomic) {
+        Set<Long> productIdSet = new TreeSet<>();
+        for (StockMovementBean movement : movementList) {
+            if (movement != null && movement.getProductId() != null && !hotStockManager.isHot(movement.getProductId())) {
+                productIdSet.add(movement.getProductId());
+            }
+        }
+        Map<Long, Integer> stockMap = stockBatchDAO.lockStockByIdIn(productIdSet);
+        Map<Long, Integer> deltaMap = new HashMap<>();
+        List<Transaction> transactionList = new ArrayList<>(movementList.size());
+        List<StockMovementLineResult> resultList = new ArrayList<>(movementList.size());
+        LocalDateTime now = LocalDateTime.now();
+        boolean hasFailure = false;
+        for (int i = 0; i < movementList.size(); i++) {
+            StockMovementBean movement = movementList.get(i);
+            StockMovementLineResult.StockMovementLineResultBuilder builder = StockMovementLineResult.builder().index(i);
+            if (movement != null) {
+                builder.productId(movement.getProductId()).type(movement.getType()).quantity(movement.getQuantity());
+            }
+            try {
+                validateMovement(movement);
+                Long productId = movement.getProductId();
+                TransactionType type = movement.getType();
+                int quantity = movement.getQuantity();
+                if (hotStockManager.isHot(productId)) {
+                    // 熱門產品的庫存在記憶體中，只能在交易結束後套用或歸還，無法與其他產品一起全有或全無
+                    if (atomic) {
+                        throw new InvalidFormException("熱門產品不支援全有或全無模式，請改用best-effort模式");
+                    }
+                    resultList.add(builder.status(StockMovementLineResult.Status.APPLIED)
+                            .remainingStock(hotStockManager.move(productId, type, quantity).getRemainingStock())
+                            .build());
+                    continue;
+                }
+                Integer stock = stockMap.get(productId);
+                if (stock == null) {
+                    throw new NotFoundException("產品不存在");
+                }
+                boolean isOut = type == TransactionType.OUT;
+                if (isOut && stock < quantity) {
+                    throw new InsufficientStockException(stock);
+                }
+                int delta = isOut ? -quantity : quantity;
+                int remainingStock = stock + delta;
+                stockMap.put(productId, remainingStock);
+                deltaMap.merge(productId, delta, Integer::sum);
+                transactionList.add(createTransaction(productId, type, quantity, now));
+                resultList.add(builder.status(StockMovementLineResult.Status.APPLIED)
+                        .remainingStock(remainingStock)
+                        .build());
+            } catch (ProjectException e) {
+                hasFailure = true;
+                resultList.add(builder.status(StockMovementLineResult.Status.FAILED)
+                        .errorCode(e.getErrorCode())
+                        .message(e.getMessage())
+                        .build());
+            }
+        }
+        if (atomic && hasFailure) {
+            resultList.replaceAll(result -> result.getStatus() == StockMovementLineResult.Status.APPLIED ?
+                    result.toBuilder().status(StockMovementLineResult.Status.SKIPPED).remainingStock(null).build() :
+                    result);
+            return resultList;
+        }
+        stockBatchDAO.updateStockByDelta(deltaMap);
+        for (int start = 0; start < transactionList.size(); start += INSERT_CHUNK_SIZE) {
+            stockBatchDAO.insertTransactions(
+                    transactionList.subList(start, Math.min(transactionList.size(), start + INSERT_CHUNK_SIZE))
+            );
+        }
+        deltaMap.forEach(productCatalogCache::applyStockDelta);
+        return resultList;
+    }
+
+    private void validateMovement(StockMovementBean movement) {
+        if (movement == null || movement.getProductId() == null) {
+            throw new InvalidFormException("缺少必要欄位: productId");
+        } else if (movement.getType() == null) {
+            throw new InvalidFormException("缺少必要欄位: type");
+        } else if (movement.getQuantity() == null) {
+            throw new InvalidFormException("缺少必要欄位: quantity");
+        }
+        validateQuantity(movement.getQuantity());
+    }
+
+    private void validateQuantity(int quantity) {
+        if (quantity <= 0) {
+            throw new InvalidFormException("數量必須大於0");
+        }
+    }
+
+    private Transaction createTransaction(Long productId, TransactionType type, int quantity, LocalDateTime timestamp) {
+        Transaction transaction = new Transaction();
+        transaction.setProductId(productId);
+        transaction.setType(type);
+        transaction.setQuantity(quantity);
+        transaction.setTimestamp(timestamp);
+        return transaction;
+    }
+
+    private StockMovementResult record(Long productId, TransactionType type, int quantity) {
+        Transaction transaction = new Transaction();
+        transaction.setProductId(productId);
+        transaction.setType(type);
+        transaction.setQuantity(quantity);
+        transactionDAO.save(transaction);
+        productCatalogCache.applyStockDelta(productId, type == TransactionType.OUT ? -quantity : quantity);
+        // 同一交易內已持有該列的鎖，讀到的即為本次異動後的庫存
+        int remainingStock = productDAO.findStockById(productId)
+                .orElseThrow(() -> new NotFoundException("產品不存在"));
+        return StockMovementResult.builder()
+                .productId(productId)
+                .type(type)
+                .quantity(quantity)
+                .remainingStock(remainingStock)
+                .build();
+    }
+}
@@ -0,0 +1,108 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.impl;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import tw.edu.ntub.birc.common.util.CollectionUtils;
+import tw.edu.ntub.imd.birc.coffeeshop.bean.TransactionBean;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.PagerProperties;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.ProductDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.TableStatisticsDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.TransactionDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.TransactionStreamDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto.TransactionView;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity.Transaction;
+import tw.edu.ntub.imd.birc.coffeeshop.dto.CursorPage;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.NotFoundException;
+import tw.edu.ntub.imd.birc.coffeeshop.service.TransactionService;
+import tw.edu.ntub.imd.birc.coffeeshop.service.cache.CountCache;
+import tw.edu.ntub.imd.birc.coffeeshop.service.transformer.TransactionTransformer;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+@Service
+public class TransactionServiceImpl extends BaseViewServiceImpl<TransactionBean, Transaction, Long> implements TransactionService {
+    private static final String TABLE_NAME = "transaction";
+    private static final String TIMESTAMP_PROPERTY = "timestamp";
+    private static final Set<String> KEYSET_PROPERTIES = Set.of("id", TIMESTAMP_PROPERTY);
+    private final TransactionDAO transactionDAO;
+    private final TransactionStreamDAO transactionStreamDAO;
+    private final TableStatisticsDAO tableStatisticsDAO;
+    private final ProductDAO productDAO;
+    private final TransactionTransformer transformer;
+    private final CountCache countCache;
+
+    public TransactionServiceImpl(TransactionDAO transactionDAO,
+                                  TransactionStreamDAO transactionStreamDAO,
+                                  TableStatisticsDAO tableStatisticsDAO,
+                                  ProductDAO productDAO,
+                                  TransactionTransformer transformer,
+                                  CountCache countCache,
+                                  PagerProperties pagerProperties) {
+        super(transactionDAO, transformer, transformer, countCache, pagerProperties);
+        this.transactionDAO = transactionDAO;
+        this.transactionStreamDAO = transactionStreamDAO;
+        this.tableStatisticsDAO = tableStatisticsDAO;
+        this.productDAO = productDAO;
+        this.transformer = transformer;
+        this.countCache = countCache;
+    }
+
+    @Override
+    public List<TransactionBean> searchByProductId(Long productId) {
+        validateProductExists(productId);
+        return CollectionUtils.map(
+                transactionDAO.findByProductIdOrderByTimestampDescIdDesc(productId, TransactionView.class),
+                transformer::transferViewToBean
+        );
+    }
+
+    @Override
+    public CursorPage<TransactionBean> searchByProductId(Long productId, @Nullable String cursor, int size) {
+        validateProductExists(productId);
+        TransactionBean probe = new TransactionBean();
+        probe.setProductId(productId);
+        return searchAfter(probe, TIMESTAMP_PROPERTY, Sort.Direction.DESC, cursor, size);
+    }
+
+    @Override
+    public void searchByProductId(Long productId, Consumer<TransactionBean> consumer) {
+        validateProductExists(productId);
+        transactionStreamDAO.streamByProductId(
+                productId,
+                transaction -> consumer.accept(transformer.transferToBean(transaction))
+        );
+    }
+
+    /**
+     * 交易記錄只會持續增加，資料表的估計筆數達到門檻時直接使用估計值，避免InnoDB對大表COUNT(*)掃描整個索引
+     */
+    @Override
+    protected CountCache.Count countAll() {
+        long threshold = countCache.getApproximateThreshold();
+        if (threshold > 0) {
+            Optional<Long> estimate = tableStatisticsDAO.estimateRowCount(TABLE_NAME);
+            if (estimate.isPresent() && estimate.get() >= threshold) {
+                return CountCache.Count.approximate(estimate.get());
+            }
+        }
+        return super.countAll();
+    }
+
+    /**
+     * timestamp有idx_timestamp索引；依產品分頁時由idx_product_id_timestamp_id直接依序讀取游標之後的記錄，不需排序
+     */
+    @Override
+    protected Set<String> getKeysetProperties() {
+        return KEYSET_PROPERTIES;
+    }
+
+    private void validateProductExists(Long productId) {
+        if (!productDAO.existsById(productId)) {
+            throw new NotFoundException("產品不存在");
+        }
+    }
+}
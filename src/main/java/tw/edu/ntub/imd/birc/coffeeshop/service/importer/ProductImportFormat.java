@@ -0,0 +1,32 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.importer;
+
+import tw.edu.ntub.imd.birc.coffeeshop.exception.file.FileExtensionIllegalException;
+import tw.edu.ntub.imd.birc.coffeeshop.util.file.FileUtils;
+
+import java.util.Locale;
+
+/**
+ * 產品匯入檔案的格式，依副檔名判斷
+ */
+public enum ProductImportFormat {
+    /**
+     * 第一行為欄位名稱(name,type,price,stock，順序不限)，欄位值可用雙引號包住，不支援跨行的欄位值
+     */
+    CSV,
+    /**
+     * 每一行一個JSON物件
+     */
+    NDJSON;
+
+    public static ProductImportFormat fromFileName(String fileName) {
+        switch (FileUtils.getFileExtension(fileName).toLowerCase(Locale.ROOT)) {
+            case "csv":
+                return CSV;
+            case "ndjson":
+            case "jsonl":
+                return NDJSON;
+            default:
+                throw new FileExtensionIllegalException("請上傳副檔名為csv、ndjson或jsonl的檔案");
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.importer;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一次產品匯入的進度，只由匯入執行緒更新，其他執行緒可隨時讀取
+ */
+public class ProductImportJob {
+    private final String id = UUID.randomUUID().toString();
+    private final String fileName;
+    private final ProductImportFormat format;
+    private final Path filePath;
+    private final boolean deleteAfterImport;
+    private final LocalDateTime createTime = LocalDateTime.now();
+    private final AtomicLong processedRows = new AtomicLong();
+    private final AtomicLong importedRows = new AtomicLong();
+    private final AtomicLong rejectedRows = new AtomicLong();
+    private volatile Status status = Status.PENDING;
+    private volatile LocalDateTime startTime;
+    private volatile LocalDateTime endTime;
+    private volatile String message;
+    private volatile Path rejectFilePath;
+
+    /**
+     * @param deleteAfterImport 匯入完成後是否刪除檔案，上傳的暫存檔應刪除，錯誤的列另外保存在錯誤檔
+     */
+    ProductImportJob(String fileName, ProductImportFormat format, Path filePath, boolean deleteAfterImport) {
+        this.fileName = fileName;
+        this.format = format;
+        this.filePath = filePath;
+        this.deleteAfterImport = deleteAfterImport;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public ProductImportFormat getFormat() {
+        return format;
+    }
+
+    Path getFilePath() {
+        return filePath;
+    }
+
+    boolean isDeleteAfterImport() {
+        return deleteAfterImport;
+    }
+
+    public LocalDateTime getCreateTime() {
+        return createTime;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    /**
+     * 已讀取的資料列數，不含CSV的欄位名稱與空白行
+     */
+    public long getProcessedRows() {
+        return processedRows.get();
+    }
+
+    /**
+     * 已提交到資料庫的筆數
+     */
+    public long getImportedRows() {
+        return importedRows.get();
+    }
+
+    public long getRejectedRows() {
+        return rejectedRows.get();
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * 失敗時的原因
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * @return 沒有被拒絕的列時為empty
+     */
+    public Optional<Path> getRejectFilePath() {
+        return Optional.ofNullable(rejectFilePath);
+    }
+
+    void start() {
+        startTime = LocalDateTime.now();
+        status = Status.RUNNING;
+    }
+
+    void addProcessed() {
+        processedRows.incrementAndGet();
+    }
+
+    void addImported(int count) {
+        importedRows.addAndGet(count);
+    }
+
+    void addRejected() {
+        rejectedRows.incrementAndGet();
+    }
+
+    void setRejectFilePath(Path rejectFilePath) {
+        this.rejectFilePath = rejectFilePath;
+    }
+
+    void complete() {
+        endTime = LocalDateTime.now();
+        status = Status.COMPLETED;
+    }
+
+    /**
+     * 已提交的筆數不會回復
+     */
+    void fail(String message) {
+        this.message = message;
+        endTime = LocalDateTime.now();
+        status = Status.FAILED;
+    }
+
+    public enum Status {
+        PENDING,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
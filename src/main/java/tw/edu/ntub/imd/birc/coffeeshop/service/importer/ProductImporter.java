@@ -0,0 +1,272 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.importer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import tw.edu.ntub.imd.birc.coffeeshop.bean.ProductBean;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.ProductImportProperties;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.ProductBatchDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity.Product;
+import tw.edu.ntub.imd.birc.coffeeshop.dto.file.uploader.MultipartFileUploader;
+import tw.edu.ntub.imd.birc.coffeeshop.dto.file.uploader.UploadResult;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.file.EmptyFileException;
+import tw.edu.ntub.imd.birc.coffeeshop.service.cache.CountCache;
+import tw.edu.ntub.imd.birc.coffeeshop.service.cache.ProductCatalogCache;
+import tw.edu.ntub.imd.birc.coffeeshop.service.transformer.ProductTransformer;
+import tw.edu.ntub.imd.birc.coffeeshop.util.file.FileUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 產品匯入
+ * 上傳的CSV/NDJSON先存到MultipartFileUploader的目錄，再由單一背景執行緒逐行讀取、以與新增產品相同的規則驗證，
+ * 每chunk-size筆以一次JDBC batch新增並各自提交，記憶體中最多只保留一個chunk；
+ * 驗證或寫入失敗的列連同行號與原因寫入錯誤檔，不影響其他列；工作超過保留數量被移除時一併刪除其錯誤檔
+ */
+@Log4j2
+@Component
+public class ProductImporter {
+    private static final String REJECT_FILE_SUFFIX = ".rejects.csv";
+    private final ProductImportProperties properties;
+    private final MultipartFileUploader multipartFileUploader;
+    private final ProductBatchDAO productBatchDAO;
+    private final ProductTransformer productTransformer;
+    private final ProductCatalogCache productCatalogCache;
+    private final CountCache countCache;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, ProductImportJob> jobMap;
+    private ExecutorService importExecutor;
+
+    public ProductImporter(ProductImportProperties properties,
+                           MultipartFileUploader multipartFileUploader,
+                           ProductBatchDAO productBatchDAO,
+                           ProductTransformer productTransformer,
+                           ProductCatalogCache productCatalogCache,
+                           CountCache countCache,
+                           Validator validator,
+                           ObjectMapper objectMapper,
+                           PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.multipartFileUploader = multipartFileUploader;
+        this.productBatchDAO = productBatchDAO;
+        this.productTransformer = productTransformer;
+        this.productCatalogCache = productCatalogCache;
+        this.countCache = countCache;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        int maxRetainedJobs = Math.max(1, properties.getMaxRetainedJobs());
+        this.jobMap = Collections.synchronizedMap(new LinkedHashMap<>() {
+            /**
+             * 尚未結束的工作可能還會建立錯誤檔，留待run結束時發現已被移除再刪除
+             */
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ProductImportJob> eldest) {
+                if (size() <= maxRetainedJobs) {
+                    return false;
+                }
+                ProductImportJob job = eldest.getValue();
+                if (job.isFinished()) {
+                    job.getRejectFilePath().ifPresent(ProductImporter.this::deleteQuietly);
+                }
+                return true;
+            }
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        importExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "product-importer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        importExecutor.shutdown();
+        importExecutor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 儲存上傳的檔案並排入背景匯入，匯入工作依序執行
+     */
+    public ProductImportJob submit(MultipartFile multipartFile) {
+        String fileName = multipartFile.getOriginalFilename();
+        if (fileName == null || fileName.isBlank()) {
+            throw new EmptyFileException(multipartFile.getName());
+        }
+        ProductImportFormat format = ProductImportFormat.fromFileName(fileName);
+        UploadResult uploadResult = multipartFileUploader.upload(multipartFile, properties.getDirectory());
+        ProductImportJob job = new ProductImportJob(fileName, format, uploadResult.getFilePath(), true);
+        jobMap.put(job.getId(), job);
+        importExecutor.execute(() -> run(job));
+        return job;
+    }
+
+    /**
+     * 在目前的執行緒匯入已存在的檔案，檔案不會被刪除
+     */
+    public ProductImportJob execute(Path filePath) {
+        String fileName = FileUtils.getFullFileNameFromPath(filePath);
+        ProductImportJob job = new ProductImportJob(fileName, ProductImportFormat.fromFileName(fileName), filePath, false);
+        jobMap.put(job.getId(), job);
+        run(job);
+        return job;
+    }
+
+    public Optional<ProductImportJob> getJob(String id) {
+        return Optional.ofNullable(jobMap.get(id));
+    }
+
+    private void run(ProductImportJob job) {
+        job.start();
+        Path rejectFilePath = job.getFilePath().resolveSibling(job.getFilePath().getFileName() + REJECT_FILE_SUFFIX);
+        int chunkSize = Math.max(1, properties.getChunkSize());
+        try (ProductRowReader reader = new ProductRowReader(
+                FileUtils.openReader(job.getFilePath().toString()),
+                job.getFormat(),
+                objectMapper
+        ); RejectWriter rejectWriter = new RejectWriter(job, rejectFilePath)) {
+            List<ProductRowReader.Row> chunk = new ArrayList<>(chunkSize);
+            ProductRowReader.Row row;
+            while ((row = reader.next()) != null) {
+                job.addProcessed();
+                String error = row.getError() != null ? row.getError() : validate(row.getProductBean());
+                if (error != null) {
+                    rejectWriter.write(row, error);
+                } else {
+                    chunk.add(row);
+                    if (chunk.size() >= chunkSize) {
+                        insert(job, chunk, rejectWriter);
+                        chunk.clear();
+                    }
+                }
+            }
+            insert(job, chunk, rejectWriter);
+            job.complete();
+        } catch (IOException | RuntimeException e) {
+            log.error("產品匯入失敗: " + job.getFileName(), e);
+            job.fail(e.getMessage());
+        } finally {
+            if (job.isDeleteAfterImport()) {
+                deleteQuietly(job.getFilePath());
+            }
+            if (jobMap.get(job.getId()) != job) {
+                job.getRejectFilePath().ifPresent(this::deleteQuietly);
+            }
+        }
+    }
+
+    /**
+     * 與ProductBean的驗證規則相同
+     *
+     * @return 通過驗證時回傳null
+     */
+    private String validate(ProductBean productBean) {
+        Set<ConstraintViolation<ProductBean>> violationSet = validator.validate(productBean);
+        if (violationSet.isEmpty()) {
+            return null;
+        }
+        return violationSet.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    /**
+     * 整批寫入失敗時改為逐筆寫入，找出造成失敗的列並寫入錯誤檔
+     */
+    private void insert(ProductImportJob job, List<ProductRowReader.Row> chunk, RejectWriter rejectWriter) throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<Product> productList = new ArrayList<>(chunk.size());
+        for (ProductRowReader.Row row : chunk) {
+            productList.add(productTransformer.transferToEntity(row.getProductBean()));
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> productBatchDAO.insertProducts(productList));
+            job.addImported(productList.size());
+        } catch (DataAccessException e) {
+            log.warn("產品匯入整批寫入失敗，改為逐筆寫入: " + e.getMostSpecificCause().getMessage());
+            for (int i = 0; i < chunk.size(); i++) {
+                Product product = productList.get(i);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> productBatchDAO.insertProduct(product));
+                    job.addImported(1);
+                } catch (DataAccessException rowException) {
+                    rejectWriter.write(chunk.get(i), "資料庫寫入失敗: " + rowException.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+        productCatalogCache.invalidate(null);
+        countCache.invalidate(Product.class);
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("無法刪除匯入檔案: " + path, e);
+        }
+    }
+
+    /**
+     * 第一次有列被拒絕時才建立錯誤檔，格式為CSV：行號、原因、原始內容
+     */
+    private static class RejectWriter implements Closeable {
+        private final ProductImportJob job;
+        private final Path path;
+        private BufferedWriter writer;
+
+        private RejectWriter(ProductImportJob job, Path path) {
+            this.job = job;
+            this.path = path;
+        }
+
+        private void write(ProductRowReader.Row row, String reason) throws IOException {
+            if (writer == null) {
+                writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+                writer.write("line,reason,raw");
+                writer.newLine();
+                job.setRejectFilePath(path);
+            }
+            writer.write(row.getLineNumber() + "," + escape(reason) + "," + escape(row.getRaw()));
+            writer.newLine();
+            job.addRejected();
+        }
+
+        private String escape(String value) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import tw.edu.ntub.imd.birc.coffeeshop.bean.ProductBean;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.enumerate.ProductType;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.form.InvalidFormException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * 逐行讀取匯入檔案並轉為ProductBean，任何時候只保留目前這一行，不會將整個檔案讀入記憶體
+ * 轉換失敗的列回傳錯誤原因而不拋出例外，由呼叫端寫入錯誤檔
+ */
+class ProductRowReader implements Closeable {
+    private static final String UTF8_BOM = "\uFEFF";
+    private static final List<String> COLUMN_LIST = List.of("name", "type", "price", "stock");
+    private final BufferedReader reader;
+    private final ProductImportFormat format;
+    private final ObjectMapper objectMapper;
+    /**
+     * CSV每個欄位名稱在一列中的位置
+     */
+    private int[] columnIndexArray;
+    private int headerSize;
+    private long lineNumber;
+
+    ProductRowReader(BufferedReader reader, ProductImportFormat format, ObjectMapper objectMapper) {
+        this.reader = reader;
+        this.format = format;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @return 沒有下一列時回傳null，空白行會被略過
+     * @throws InvalidFormException CSV的第一行缺少必要欄位
+     */
+    Row next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (lineNumber == 1 && line.startsWith(UTF8_BOM)) {
+                line = line.substring(UTF8_BOM.length());
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+            if (format == ProductImportFormat.CSV && columnIndexArray == null) {
+                readHeader(line);
+                continue;
+            }
+            try {
+                return new Row(lineNumber, line, format == ProductImportFormat.CSV ? parseCsv(line) : parseJson(line), null);
+            } catch (InvalidFormException e) {
+                return new Row(lineNumber, line, null, e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    private void readHeader(String line) {
+        List<String> headerList = splitCsv(line);
+        columnIndexArray = new int[COLUMN_LIST.size()];
+        List<String> missingList = new ArrayList<>();
+        for (int i = 0; i < COLUMN_LIST.size(); i++) {
+            int index = -1;
+            for (int j = 0; j < headerList.size(); j++) {
+                if (headerList.get(j).trim().equalsIgnoreCase(COLUMN_LIST.get(i))) {
+                    index = j;
+                    break;
+                }
+            }
+            if (index == -1) {
+                missingList.add(COLUMN_LIST.get(i));
+            }
+            columnIndexArray[i] = index;
+        }
+        if (!missingList.isEmpty()) {
+            throw new InvalidFormException("CSV第一行缺少欄位: " + String.join(", ", missingList));
+        }
+        headerSize = headerList.size();
+    }
+
+    private ProductBean parseCsv(String line) {
+        List<String> valueList = splitCsv(line);
+        if (valueList.size() != headerSize) {
+            throw new InvalidFormException("欄位數量不符，應為" + headerSize + "個，實際為" + valueList.size() + "個");
+        }
+        return toBean(
+                valueList.get(columnIndexArray[0]),
+                valueList.get(columnIndexArray[1]),
+                valueList.get(columnIndexArray[2]),
+                valueList.get(columnIndexArray[3])
+        );
+    }
+
+    /**
+     * RFC 4180的單行版本：以逗號分隔，雙引號包住的欄位可含逗號，欄位中的雙引號以兩個雙引號表示
+     */
+    private List<String> splitCsv(String line) {
+        List<String> valueList = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"' && value.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                valueList.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new InvalidFormException("雙引號未結束，不支援跨行的欄位值");
+        }
+        valueList.add(value.toString());
+        return valueList;
+    }
+
+    private ProductBean parseJson(String line) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            throw new InvalidFormException("JSON格式錯誤: " + e.getOriginalMessage());
+        }
+        if (node == null || !node.isObject()) {
+            throw new InvalidFormException("每一行必須是一個JSON物件");
+        }
+        return toBean(getText(node, "name"), getText(node, "type"), getText(node, "price"), getText(node, "stock"));
+    }
+
+    private String getText(JsonNode node, String fieldName) {
+        JsonNode value = node.get(fieldName);
+        if (value == null || value.isNull()) {
+            return null;
+        } else if (value.isContainerNode()) {
+            throw new InvalidFormException(fieldName + " - 必須是單一值");
+        }
+        return value.asText();
+    }
+
+    private ProductBean toBean(String name, String type, String price, String stock) {
+        ProductBean productBean = new ProductBean();
+        productBean.setName(name != null && !name.isBlank() ? name.trim() : null);
+        productBean.setType(toProductType(type));
+        productBean.setPrice(toInteger("price", price));
+        productBean.setStock(toInteger("stock", stock));
+        return productBean;
+    }
+
+    private ProductType toProductType(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return ProductType.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidFormException("type - 無效的產品類型: " + value);
+        }
+    }
+
+    private Integer toInteger(String fieldName, String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidFormException(fieldName + " - 必須是整數");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    static class Row {
+        private final long lineNumber;
+        private final String raw;
+        private final ProductBean productBean;
+        private final String error;
+
+        private Row(long lineNumber, String raw, ProductBean productBean, String error) {
+            this.lineNumber = lineNumber;
+            this.raw = raw;
+            this.productBean = productBean;
+            this.error = error;
+        }
+
+        long getLineNumber() {
+            return lineNumber;
+        }
+
+        String getRaw() {
+            return raw;
+        }
+
+        /**
+         * 轉換失敗時為null
+         */
+        ProductBean getProductBean() {
+            return productBean;
+        }
+
+        String getError() {
+            return error;
+        }
+    }
+}
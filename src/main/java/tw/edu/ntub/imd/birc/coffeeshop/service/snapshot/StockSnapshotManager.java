@@ -0,0 +1,343 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.snapshot;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.StockSnapshotProperties;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.StockSnapshotDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto.StockSnapshot;
+import tw.edu.ntub.imd.birc.coffeeshop.dto.StockAtTime;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.NotFoundException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 庫存快照
+ * 背景執行緒定期依產品ID分段，在同一個交易中鎖定產品列、讀取目前庫存與已提交的最大交易記錄ID後寫入stock_snapshot；
+ * 所有寫入交易記錄的路徑都先鎖定或更新產品列再新增交易記錄，因此該產品ID較小的交易記錄都已反映在庫存中，較大的都尚未反映
+ * 庫存與上一次快照相同的產品不再寫入，快照筆數只與有異動的產品數有關
+ * 查詢某個時間點的庫存時，由該時間點之前最近的快照加上之後的交易記錄，只重播快照之後的部分
+ * 直接修改產品庫存(非進貨/出貨)不會留下交易記錄，只會反映在之後的快照中
+ * 停用時不建立資料表也不啟動背景執行緒，查詢改由目前庫存倒推所有晚於該時間點的交易記錄
+ */
+@Log4j2
+@Component
+public class StockSnapshotManager {
+    private final StockSnapshotProperties properties;
+    private final StockSnapshotDAO stockSnapshotDAO;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicBoolean snapshotPending = new AtomicBoolean();
+    private volatile boolean running;
+    private volatile SnapshotResult lastSnapshotResult;
+    private ScheduledExecutorService snapshotExecutor;
+
+    public StockSnapshotManager(StockSnapshotProperties properties,
+                                StockSnapshotDAO stockSnapshotDAO,
+                                PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.stockSnapshotDAO = stockSnapshotDAO;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        stockSnapshotDAO.createTableIfNotExists();
+        snapshotExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-snapshotter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotExecutor.scheduleWithFixedDelay(
+                this::snapshotQuietly,
+                properties.getIntervalMillis(),
+                properties.getIntervalMillis(),
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (snapshotExecutor == null) {
+            return;
+        }
+        snapshotExecutor.shutdownNow();
+        snapshotExecutor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            log.error("庫存快照失敗，將於下次重試", e);
+        }
+    }
+
+    /**
+     * 依產品ID分段快照所有產品，每段各自提交，只鎖定該段的產品
+     */
+    public synchronized SnapshotResult snapshot() {
+        running = true;
+        long start = System.nanoTime();
+        int chunkSize = Math.max(1, properties.getChunkSize());
+        int productCount = 0;
+        int snapshotCount = 0;
+        try {
+            ChunkResult chunkResult = new ChunkResult(0, 0, 0);
+            do {
+                long afterId = chunkResult.lastProductId;
+                chunkResult = transactionTemplate.execute(status -> snapshotChunk(afterId, chunkSize));
+                productCount += chunkResult.productCount;
+                snapshotCount += chunkResult.snapshotCount;
+            } while (chunkResult.productCount == chunkSize);
+            lastSnapshotResult = new SnapshotResult(productCount, snapshotCount, elapsedMillis(start), null);
+            log.info("庫存快照完成，" + productCount + "個產品中" + snapshotCount + "個有異動，" +
+                    lastSnapshotResult.getElapsedMillis() + "ms");
+            return lastSnapshotResult;
+        } catch (RuntimeException e) {
+            lastSnapshotResult = new SnapshotResult(productCount, snapshotCount, elapsedMillis(start), e.getMessage());
+            throw e;
+        } finally {
+            running = false;
+        }
+    }
+
+    /**
+     * 先鎖定產品列再讀取最大交易記錄ID：已提交的交易記錄都已反映在庫存中，尚未提交的必須等待鎖定結束，ID一定較大
+     */
+    private ChunkResult snapshotChunk(long afterId, int chunkSize) {
+        Map<Long, Integer> stockMap = stockSnapshotDAO.lockStockAfter(afterId, chunkSize);
+        if (stockMap.isEmpty()) {
+            return new ChunkResult(afterId, 0, 0);
+        }
+        long lastTransactionId = stockSnapshotDAO.findMaxTransactionId();
+        LocalDateTime at = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        long firstProductId = stockMap.keySet().iterator().next();
+        long lastProductId = firstProductId;
+        for (Long productId : stockMap.keySet()) {
+            lastProductId = productId;
+        }
+        Map<Long, Integer> latestStockMap = stockSnapshotDAO.findLatestStockByProductIdBetween(firstProductId, lastProductId);
+        List<StockSnapshot> snapshotList = new ArrayList<>();
+        stockMap.forEach((productId, stock) -> {
+            if (!stock.equals(latestStockMap.get(productId))) {
+                snapshotList.add(createSnapshot(productId, stock, lastTransactionId, at));
+            }
+        });
+        stockSnapshotDAO.insertSnapshots(snapshotList);
+        return new ChunkResult(lastProductId, stockMap.size(), snapshotList.size());
+    }
+
+    private StockSnapshot createSnapshot(Long productId, int stock, long lastTransactionId, LocalDateTime at) {
+        StockSnapshot snapshot = new StockSnapshot();
+        snapshot.setProductId(productId);
+        snapshot.setStock(stock);
+        snapshot.setLastTransactionId(lastTransactionId);
+        snapshot.setAt(at);
+        return snapshot;
+    }
+
+    /**
+     * 在背景執行snapshot
+     *
+     * @return 已有快照在排隊或執行中時回傳false
+     * @throws IllegalStateException 快照已停用
+     */
+    public boolean submitSnapshot() {
+        if (!isEnabled()) {
+            throw new IllegalStateException("庫存快照已停用");
+        }
+        if (!snapshotPending.compareAndSet(false, true)) {
+            return false;
+        }
+        snapshotExecutor.execute(() -> {
+            try {
+                snapshotQuietly();
+            } finally {
+                snapshotPending.set(false);
+            }
+        });
+        return true;
+    }
+
+    public boolean isEnabled() {
+        return snapshotExecutor != null;
+    }
+
+    public boolean isRunning() {
+        return running || snapshotPending.get();
+    }
+
+    /**
+     * @return 啟動後尚未快照過時為empty
+     */
+    public Optional<SnapshotResult> getLastSnapshotResult() {
+        return Optional.ofNullable(lastSnapshotResult);
+    }
+
+    /**
+     * 查詢產品在at當下的庫存
+     * 以at之前最近的快照為起點，加上ID大於快照且交易時間不晚於at的交易記錄；
+     * at早於第一筆快照時改以之後最近的快照(沒有快照時為目前庫存)為起點，扣除快照之前、交易時間晚於at的交易記錄
+     * 交易時間不晚於at的交易記錄都在at加上max-commit-delay-millis之前提交，因此只需重播到之後的下一筆快照為止
+     * at早於產品建立時間時回傳建立時的庫存
+     */
+    public StockAtTime getStockAt(Long productId, LocalDateTime at) {
+        if (!isEnabled()) {
+            return getStockAtFromCurrent(productId, at, Long.MAX_VALUE, null);
+        }
+        long upperTransactionId = stockSnapshotDAO.findEarliestByProductIdAndAtAfter(
+                productId,
+                at.plus(properties.getMaxCommitDelayMillis(), ChronoUnit.MILLIS)
+        ).map(StockSnapshot::getLastTransactionId).orElse(Long.MAX_VALUE);
+        Optional<StockSnapshot> previousSnapshot = stockSnapshotDAO.findLatestByProductIdAndAtNotAfter(productId, at);
+        if (previousSnapshot.isPresent()) {
+            StockSnapshot snapshot = previousSnapshot.get();
+            return createStockAtTime(
+                    snapshot,
+                    at,
+                    snapshot.getStock() + replayAfter(snapshot, upperTransactionId, at),
+                    snapshot.getAt()
+            );
+        }
+        return getStockAtFromCurrent(
+                productId,
+                at,
+                upperTransactionId,
+                stockSnapshotDAO.findEarliestByProductIdAndAtAfter(productId, at).orElse(null)
+        );
+    }
+
+    /**
+     * 以at之後最近的快照為起點，扣除快照之前、交易時間晚於at的交易記錄
+     *
+     * @param nextSnapshot 為null時以目前庫存為起點
+     */
+    private StockAtTime getStockAtFromCurrent(Long productId,
+                                              LocalDateTime at,
+                                              long upperTransactionId,
+                                              StockSnapshot nextSnapshot) {
+        StockSnapshot snapshot = nextSnapshot != null ? nextSnapshot : takeCurrentSnapshot(productId);
+        long rollback = stockSnapshotDAO.sumQuantityByProductIdAndIdNotAfterAndTimestampAfter(
+                productId,
+                snapshot.getLastTransactionId(),
+                at
+        );
+        return createStockAtTime(
+                snapshot,
+                at,
+                snapshot.getStock() - rollback + replayAfter(snapshot, upperTransactionId, at),
+                nextSnapshot != null ? snapshot.getAt() : null
+        );
+    }
+
+    /**
+     * 快照之後才寫入、但交易時間不晚於at的交易記錄，包含熱門產品延後寫回的異動
+     */
+    private long replayAfter(StockSnapshot snapshot, long upperTransactionId, LocalDateTime at) {
+        if (upperTransactionId <= snapshot.getLastTransactionId()) {
+            return 0;
+        }
+        return stockSnapshotDAO.sumQuantityByProductIdAndIdBetweenAndTimestampNotAfter(
+                snapshot.getProductId(),
+                snapshot.getLastTransactionId(),
+                upperTransactionId,
+                at
+        );
+    }
+
+    /**
+     * 與定期快照相同的方式取得目前庫存，但不寫入stock_snapshot
+     */
+    private StockSnapshot takeCurrentSnapshot(Long productId) {
+        return transactionTemplate.execute(status -> {
+            int stock = stockSnapshotDAO.lockStockById(productId)
+                    .orElseThrow(() -> new NotFoundException("產品不存在"));
+            return createSnapshot(productId, stock, stockSnapshotDAO.findMaxTransactionId(), LocalDateTime.now());
+        });
+    }
+
+    private StockAtTime createStockAtTime(StockSnapshot snapshot, LocalDateTime at, long stock, LocalDateTime snapshotAt) {
+        return StockAtTime.builder()
+                .productId(snapshot.getProductId())
+                .at(at)
+                .stock(stock)
+                .snapshotAt(snapshotAt)
+                .snapshotTransactionId(snapshot.getLastTransactionId())
+                .build();
+    }
+
+    private long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static class ChunkResult {
+        private final long lastProductId;
+        private final int productCount;
+        private final int snapshotCount;
+
+        private ChunkResult(long lastProductId, int productCount, int snapshotCount) {
+            this.lastProductId = lastProductId;
+            this.productCount = productCount;
+            this.snapshotCount = snapshotCount;
+        }
+    }
+
+    public static class SnapshotResult {
+        private final LocalDateTime finishTime = LocalDateTime.now();
+        private final int productCount;
+        private final int snapshotCount;
+        private final long elapsedMillis;
+        private final String error;
+
+        private SnapshotResult(int productCount, int snapshotCount, long elapsedMillis, String error) {
+            this.productCount = productCount;
+            this.snapshotCount = snapshotCount;
+            this.elapsedMillis = elapsedMillis;
+            this.error = error;
+        }
+
+        public LocalDateTime getFinishTime() {
+            return finishTime;
+        }
+
+        /**
+         * 已處理的產品數，失敗時只計入已提交的段
+         */
+        public int getProductCount() {
+            return productCount;
+        }
+
+        /**
+         * 實際寫入的快照數，庫存與上一次快照相同的產品不寫入
+         */
+        public int getSnapshotCount() {
+            return snapshotCount;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * 失敗原因，成功時為null
+         */
+        public String getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.stats;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.ProductStatsProperties;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.ProductDailyStatsDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity.ProductDailyStats;
+import tw.edu.ntub.imd.birc.coffeeshop.dto.ProductStatsBucket;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 產品每日統計
+ * 背景執行緒依ID遞增讀取新的交易記錄，以GROUP BY彙總成每個產品每日的進貨/出貨合計後累加到product_daily_stats，
+ * 彙總結果與已處理到的ID在同一個交易中提交，因此每筆交易記錄只會計入一次；
+ * 所有寫入交易記錄的路徑(單筆、批次、熱門產品寫回)都不需要額外處理
+ * ID由資料庫在提交前配置，較小的ID可能較晚提交，遇到缺號時先停在缺號之前，等待gap-timeout後仍未出現才視為已回滾；
+ * 略過的缺號之後仍會檢查，逾時後才提交的交易記錄不會計入統計，記錄在錯誤日誌與lateTransactionCount中，需重建統計
+ * 重建期間處理進度記為REBUILDING_WATERMARK，重建中斷(含程序異常終止)後會清除不完整的統計，由頭重新彙總
+ */
+@Log4j2
+@Component
+public class ProductStatsAggregator {
+    static final String WATERMARK_NAME = "product_daily_stats";
+    /**
+     * 重建尚未完成時寫入的處理進度，此時product_daily_stats可能只有部分的段
+     */
+    static final long REBUILDING_WATERMARK = -1;
+    /**
+     * 最多保留檢查的略過缺號區間數
+     */
+    private static final int MAX_SKIPPED_GAP_COUNT = 100;
+    private static final long NOT_LOADED = Long.MIN_VALUE;
+    private final ProductStatsProperties properties;
+    private final ProductDailyStatsDAO productDailyStatsDAO;
+    private final TransactionTemplate transactionTemplate;
+    /**
+     * key為缺號的ID，value為第一次發現的時間(System.nanoTime)
+     */
+    private final Map<Long, Long> gapFirstSeenMap = new HashMap<>();
+    /**
+     * 逾時後略過的缺號區間(皆含)，依略過的順序排列
+     */
+    private final Deque<long[]> skippedGapList = new ArrayDeque<>();
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private final AtomicLong lateTransactionCount = new AtomicLong();
+    private long watermark = NOT_LOADED;
+    private volatile boolean rebuilding;
+    private volatile RebuildResult lastRebuildResult;
+    private ScheduledExecutorService tailExecutor;
+    private ExecutorService rebuildExecutor;
+
+    public ProductStatsAggregator(ProductStatsProperties properties,
+                                  ProductDailyStatsDAO productDailyStatsDAO,
+                                  PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.productDailyStatsDAO = productDailyStatsDAO;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void start() {
+        rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "product-stats-rebuilder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!properties.isEnabled()) {
+            return;
+        }
+        tailExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "product-stats-tailer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        tailExecutor.scheduleWithFixedDelay(
+                this::tailQuietly,
+                properties.getTailIntervalMillis(),
+                properties.getTailIntervalMillis(),
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (tailExecutor != null) {
+            tailExecutor.shutdown();
+            tailExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        rebuildExecutor.shutdownNow();
+        rebuildExecutor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private void tailQuietly() {
+        try {
+            tail();
+        } catch (RuntimeException e) {
+            log.error("產品統計彙總失敗，將於下次重試", e);
+        }
+    }
+
+    /**
+     * 彙總目前已提交的新交易記錄，有超過一批時連續處理到沒有新資料或遇到未逾時的缺號為止
+     *
+     * @return 已處理到的ID前進了多少
+     */
+    public synchronized long tail() {
+        if (watermark == NOT_LOADED) {
+            watermark = productDailyStatsDAO.findWatermark(WATERMARK_NAME);
+        }
+        if (watermark == REBUILDING_WATERMARK) {
+            log.warn("上次產品統計重建未完成，清除統計後由頭重新彙總");
+            reset();
+        }
+        checkSkippedGaps();
+        int batchSize = Math.max(1, properties.getTailBatchSize());
+        long startWatermark = watermark;
+        List<Long> idList;
+        do {
+            idList = productDailyStatsDAO.findTransactionIdsAfter(watermark, batchSize);
+            long upperId = findContiguousUpperId(idList);
+            if (upperId == watermark) {
+                break;
+            }
+            long fromId = watermark;
+            transactionTemplate.executeWithoutResult(status -> {
+                productDailyStatsDAO.addStats(productDailyStatsDAO.aggregateTransactions(fromId, upperId));
+                productDailyStatsDAO.updateWatermark(WATERMARK_NAME, upperId);
+            });
+            watermark = upperId;
+            gapFirstSeenMap.keySet().removeIf(id -> id <= upperId);
+        } while (idList.size() == batchSize);
+        return watermark - startWatermark;
+    }
+
+    /**
+     * 由watermark往後找出連續(或缺號已逾時)的最大ID，並記錄這批資料中所有缺號第一次出現的時間
+     */
+    private long findContiguousUpperId(List<Long> idList) {
+        long now = System.nanoTime();
+        long gapTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(properties.getGapTimeoutMillis());
+        long expectedId = watermark + 1;
+        long upperId = watermark;
+        boolean blocked = false;
+        for (Long id : idList) {
+            if (id != expectedId) {
+                long firstSeen = gapFirstSeenMap.computeIfAbsent(expectedId, gapId -> now);
+                if (now - firstSeen < gapTimeoutNanos) {
+                    blocked = true;
+                } else if (!blocked) {
+                    log.warn("交易記錄ID " + expectedId + " 到 " + (id - 1) + " 缺號超過等待時間，視為已回滾");
+                    if (skippedGapList.size() >= MAX_SKIPPED_GAP_COUNT) {
+                        long[] droppedGap = skippedGapList.removeFirst();
+                        log.warn("略過的缺號過多，不再檢查交易記錄ID " + droppedGap[0] + " 到 " + droppedGap[1]);
+                    }
+                    skippedGapList.addLast(new long[]{expectedId, id - 1});
+                }
+            }
+            if (!blocked) {
+                upperId = id;
+            }
+            expectedId = id + 1;
+        }
+        return upperId;
+    }
+
+    /**
+     * 檢查略過的缺號是否在逾時後才提交，已出現的區間不再檢查
+     */
+    private void checkSkippedGaps() {
+        Iterator<long[]> iterator = skippedGapList.iterator();
+        while (iterator.hasNext()) {
+            long[] gap = iterator.next();
+            List<Long> lateIdList = productDailyStatsDAO.findTransactionIdsBetween(gap[0], gap[1]);
+            if (!lateIdList.isEmpty()) {
+                lateTransactionCount.addAndGet(lateIdList.size());
+                log.error("交易記錄ID " + lateIdList + " 在缺號逾時後才提交，未計入產品統計，請重建統計");
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 清除所有統計並將處理進度歸零，之後由tail從頭彙總
+     */
+    private void reset() {
+        transactionTemplate.executeWithoutResult(status -> {
+            productDailyStatsDAO.deleteAll();
+            productDailyStatsDAO.updateWatermark(WATERMARK_NAME, 0);
+        });
+        watermark = 0;
+        gapFirstSeenMap.clear();
+        skippedGapList.clear();
+    }
+
+    /**
+     * 清除所有統計並由交易記錄重新計算，期間暫停背景彙總；交易記錄依ID切成多段，由rebuild-parallelism個執行緒並行彙總後累加
+     * 所有段都完成後才將處理進度推進到重建時的最大ID，任一段失敗時清除統計並將處理進度歸零，由tail從頭彙總
+     * 重建期間查詢到的統計不完整；重建開始時尚未提交的交易記錄若ID小於當時的最大ID則不會被計入，需再次重建
+     */
+    public synchronized RebuildResult rebuild() {
+        rebuilding = true;
+        long start = System.nanoTime();
+        long maxId = 0;
+        AtomicInteger finishedChunkCount = new AtomicInteger();
+        try {
+            Optional<Long> minId = productDailyStatsDAO.findMinTransactionId();
+            maxId = productDailyStatsDAO.findMaxTransactionId().orElse(0L);
+            transactionTemplate.executeWithoutResult(status -> {
+                productDailyStatsDAO.deleteAll();
+                productDailyStatsDAO.updateWatermark(WATERMARK_NAME, REBUILDING_WATERMARK);
+            });
+            watermark = REBUILDING_WATERMARK;
+            gapFirstSeenMap.clear();
+            skippedGapList.clear();
+            lateTransactionCount.set(0);
+            try {
+                if (minId.isPresent()) {
+                    aggregateInParallel(minId.get() - 1, maxId, finishedChunkCount);
+                }
+            } catch (RuntimeException e) {
+                resetAfterFailedRebuild(e);
+                throw e;
+            }
+            productDailyStatsDAO.updateWatermark(WATERMARK_NAME, maxId);
+            watermark = maxId;
+            lastRebuildResult = new RebuildResult(maxId, finishedChunkCount.get(), elapsedMillis(start), null);
+            log.info("產品統計重建完成，交易記錄ID至" + maxId + "，共" + finishedChunkCount.get() + "段，" +
+                    lastRebuildResult.getElapsedMillis() + "ms");
+            return lastRebuildResult;
+        } catch (RuntimeException e) {
+            lastRebuildResult = new RebuildResult(maxId, finishedChunkCount.get(), elapsedMillis(start), e.getMessage());
+            throw e;
+        } finally {
+            rebuilding = false;
+        }
+    }
+
+    private void resetAfterFailedRebuild(RuntimeException cause) {
+        try {
+            reset();
+            log.error("產品統計重建失敗，已清除統計，將由頭重新彙總", cause);
+        } catch (RuntimeException e) {
+            // 處理進度仍為REBUILDING_WATERMARK，下次彙總時會再清除
+            cause.addSuppressed(e);
+        }
+    }
+
+    private void aggregateInParallel(long afterId, long maxId, AtomicInteger finishedChunkCount) {
+        long chunkSize = Math.max(1, properties.getRebuildChunkSize());
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, properties.getRebuildParallelism()), runnable -> {
+            Thread thread = new Thread(runnable, "product-stats-rebuild-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futureList = new ArrayList<>();
+            for (long fromId = afterId; fromId < maxId; fromId += chunkSize) {
+                long chunkFromId = fromId;
+                long chunkToId = Math.min(maxId, fromId + chunkSize);
+                futureList.add(executor.submit(() -> {
+                    transactionTemplate.executeWithoutResult(status -> productDailyStatsDAO.addStats(
+                            productDailyStatsDAO.aggregateTransactions(chunkFromId, chunkToId)
+                    ));
+                    finishedChunkCount.incrementAndGet();
+                }));
+            }
+            for (Future<?> future : futureList) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("產品統計重建失敗: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("產品統計重建被中斷", e);
+        } finally {
+            // 等待執行中的段結束，避免失敗後清除統計時仍有段在提交
+            executor.shutdownNow();
+            awaitTermination(executor);
+        }
+    }
+
+    private void awaitTermination(ExecutorService executor) {
+        try {
+            while (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("等待產品統計重建中的段結束");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 在背景執行rebuild
+     *
+     * @return 已有重建在排隊或執行中時回傳false
+     */
+    public boolean submitRebuild() {
+        if (!rebuildPending.compareAndSet(false, true)) {
+            return false;
+        }
+        rebuildExecutor.execute(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.error("產品統計重建失敗", e);
+            } finally {
+                rebuildPending.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 停用時不在背景彙總新的交易記錄，每日統計不會更新
+     */
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public boolean isRebuilding() {
+        return rebuilding || rebuildPending.get();
+    }
+
+    /**
+     * @return 尚未重建過時為empty
+     */
+    public Optional<RebuildResult> getLastRebuildResult() {
+        return Optional.ofNullable(lastRebuildResult);
+    }
+
+    /**
+     * 已計入統計的最大交易記錄ID，重建期間為REBUILDING_WATERMARK
+     */
+    public long getWatermark() {
+        return productDailyStatsDAO.findWatermark(WATERMARK_NAME);
+    }
+
+    /**
+     * 上次重建之後，在缺號逾時後才提交而未計入統計的交易記錄數，大於0時需重建統計
+     */
+    public long getLateTransactionCount() {
+        return lateTransactionCount.get();
+    }
+
+    public long getMaxTransactionId() {
+        return productDailyStatsDAO.findMaxTransactionId().orElse(0L);
+    }
+
+    /**
+     * 由每日統計合計出from到to(皆含)之間每個區間的進貨/出貨，沒有異動的區間為0
+     * 只讀取區間內的每日統計，與交易記錄筆數無關；最近tail-interval-millis內的異動可能尚未計入
+     */
+    public List<ProductStatsBucket> getStats(Long productId, LocalDate from, LocalDate to, StatsGranularity granularity) {
+        List<ProductDailyStats> dailyStatsList = productDailyStatsDAO.findByProductIdAndStatsDateBetween(productId, from, to);
+        List<ProductStatsBucket> bucketList = new ArrayList<>();
+        int index = 0;
+        for (LocalDate periodStart = granularity.truncate(from);
+             !periodStart.isAfter(to);
+             periodStart = granularity.next(periodStart)) {
+            LocalDate nextPeriodStart = granularity.next(periodStart);
+            long inQuantity = 0;
+            long outQuantity = 0;
+            long inCount = 0;
+            long outCount = 0;
+            while (index < dailyStatsList.size() && dailyStatsList.get(index).getStatsDate().isBefore(nextPeriodStart)) {
+                ProductDailyStats dailyStats = dailyStatsList.get(index++);
+                inQuantity += dailyStats.getInQuantity();
+                outQuantity += dailyStats.getOutQuantity();
+                inCount += dailyStats.getInCount();
+                outCount += dailyStats.getOutCount();
+            }
+            bucketList.add(ProductStatsBucket.builder()
+                    .periodStart(periodStart)
+                    .inQuantity(inQuantity)
+                    .outQuantity(outQuantity)
+                    .inCount(inCount)
+                    .outCount(outCount)
+                    .build());
+        }
+        return bucketList;
+    }
+
+    private long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    public static class RebuildResult {
+        private final LocalDateTime finishTime = LocalDateTime.now();
+        private final long maxTransactionId;
+        private final int chunkCount;
+        private final long elapsedMillis;
+        private final String error;
+
+        private RebuildResult(long maxTransactionId, int chunkCount, long elapsedMillis, String error) {
+            this.maxTransactionId = maxTransactionId;
+            this.chunkCount = chunkCount;
+            this.elapsedMillis = elapsedMillis;
+            this.error = error;
+        }
+
+        public LocalDateTime getFinishTime() {
+            return finishTime;
+        }
+
+        /**
+         * 重建涵蓋的最大交易記錄ID
+         */
+        public long getMaxTransactionId() {
+            return maxTransactionId;
+        }
+
+        /**
+         * 已完成的段數，失敗時只計入成功的段
+         */
+        public int getChunkCount() {
+            return chunkCount;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * 失敗原因，成功時為null
+         */
+        public String getError() {
+            return error;
+        }
+    }
+}
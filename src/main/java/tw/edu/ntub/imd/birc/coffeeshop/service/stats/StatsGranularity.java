@@ -0,0 +1,52 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.stats;
+
+import tw.edu.ntub.imd.birc.coffeeshop.exception.form.InvalidFormException;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.function.UnaryOperator;
+
+/**
+ * 統計區間的單位，週以週一為第一天
+ */
+public enum StatsGranularity {
+    DAY(date -> date, date -> date.plusDays(1)),
+    WEEK(date -> date.with(DayOfWeek.MONDAY), date -> date.plusWeeks(1)),
+    MONTH(date -> date.withDayOfMonth(1), date -> date.plusMonths(1));
+
+    private final UnaryOperator<LocalDate> truncater;
+    private final UnaryOperator<LocalDate> incrementer;
+
+    StatsGranularity(UnaryOperator<LocalDate> truncater, UnaryOperator<LocalDate> incrementer) {
+        this.truncater = truncater;
+        this.incrementer = incrementer;
+    }
+
+    /**
+     * 不分大小寫
+     *
+     * @throws InvalidFormException 不是day、week或month
+     */
+    public static StatsGranularity fromName(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidFormException("granularity - 只能是day、week或month");
+        }
+    }
+
+    /**
+     * @return date所在區間的第一天
+     */
+    public LocalDate truncate(LocalDate date) {
+        return truncater.apply(date);
+    }
+
+    /**
+     * @return 下一個區間的第一天，periodStart必須是truncate的結果
+     */
+    public LocalDate next(LocalDate periodStart) {
+        return incrementer.apply(periodStart);
+    }
+}
@@ -0,0 +1,14 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.transformer;
+
+import javax.annotation.Nonnull;
+
+/**
+ * 投影與bean之間的轉換，投影由建構子運算式建立，不是受管理的實體
+ */
+public interface BeanViewTransformer<B, V> {
+    @Nonnull
+    Class<V> getViewType();
+
+    @Nonnull
+    B transferViewToBean(@Nonnull V v);
+}
@@ -0,0 +1,9 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.transformer;
+
+import tw.edu.ntub.imd.birc.coffeeshop.bean.ProductBean;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto.ProductView;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity.Product;
+
+public interface ProductTransformer extends BeanEntityTransformer<ProductBean, Product>,
+        BeanViewTransformer<ProductBean, ProductView> {
+}
@@ -0,0 +1,9 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.transformer;
+
+import tw.edu.ntub.imd.birc.coffeeshop.bean.TransactionBean;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto.TransactionView;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity.Transaction;
+
+public interface TransactionTransformer extends BeanEntityTransformer<TransactionBean, Transaction>,
+        BeanViewTransformer<TransactionBean, TransactionView> {
+}
@@ -0,0 +1,47 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.transformer.impl;
+
+import org.springframework.stereotype.Component;
+import tw.edu.ntub.birc.common.util.JavaBeanUtils;
+import tw.edu.ntub.imd.birc.coffeeshop.bean.ProductBean;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto.ProductView;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity.Product;
+import tw.edu.ntub.imd.birc.coffeeshop.service.transformer.ProductTransformer;
+
+import javax.annotation.Nonnull;
+
+@Component
+public class ProductTransformerImpl implements ProductTransformer {
+    @Nonnull
+    @Override
+    public Product transferToEntity(@Nonnull ProductBean productBean) {
+        Product product = new Product();
+        JavaBeanUtils.copy(productBean, product);
+        return product;
+    }
+
+    @Nonnull
+    @Override
+    public ProductBean transferToBean(@Nonnull Product product) {
+        ProductBean productBean = new ProductBean();
+        JavaBeanUtils.copy(product, productBean);
+        return productBean;
+    }
+
+    @Nonnull
+    @Override
+    public Class<ProductView> getViewType() {
+        return ProductView.class;
+    }
+
+    @Nonnull
+    @Override
+    public ProductBean transferViewToBean(@Nonnull ProductView productView) {
+        ProductBean productBean = new ProductBean();
+        productBean.setId(productView.getId());
+        productBean.setName(productView.getName());
+        productBean.setType(productView.getType());
+        productBean.setPrice(productView.getPrice());
+        productBean.setStock(productView.getStock());
+        return productBean;
+    }
+}
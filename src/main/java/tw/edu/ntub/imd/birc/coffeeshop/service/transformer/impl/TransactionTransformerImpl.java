@@ -0,0 +1,47 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.transformer.impl;
+
+import org.springframework.stereotype.Component;
+import tw.edu.ntub.birc.common.util.JavaBeanUtils;
+import tw.edu.ntub.imd.birc.coffeeshop.bean.TransactionBean;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto.TransactionView;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity.Transaction;
+import tw.edu.ntub.imd.birc.coffeeshop.service.transformer.TransactionTransformer;
+
+import javax.annotation.Nonnull;
+
+@Component
+public class TransactionTransformerImpl implements TransactionTransformer {
+    @Nonnull
+    @Override
+    public Transaction transferToEntity(@Nonnull TransactionBean transactionBean) {
+        Transaction transaction = new Transaction();
+        JavaBeanUtils.copy(transactionBean, transaction);
+        return transaction;
+    }
+
+    @Nonnull
+    @Override
+    public TransactionBean transferToBean(@Nonnull Transaction transaction) {
+        TransactionBean transactionBean = new TransactionBean();
+        JavaBeanUtils.copy(transaction, transactionBean);
+        return transactionBean;
+    }
+
+    @Nonnull
+    @Override
+    public Class<TransactionView> getViewType() {
+        return TransactionView.class;
+    }
+
+    @Nonnull
+    @Override
+    public TransactionBean transferViewToBean(@Nonnull TransactionView transactionView) {
+        TransactionBean transactionBean = new TransactionBean();
+        transactionBean.setId(transactionView.getId());
+        transactionBean.setProductId(transactionView.getProductId());
+        transactionBean.setType(transactionView.getType());
+        transactionBean.setQuantity(transactionView.getQuantity());
+        transactionBean.setTimestamp(transactionView.getTimestamp());
+        return transactionBean;
+    }
+}
@@ -12,6 +12,13 @@ import java.time.format.DecimalStyle;
 import java.util.Locale;
 
 public class ChYearUtil {
+    private static final String MINGUO_DATE_PATTERN = "民國yyy年MM月dd日";
+    private static final DateTimeFormatter MINGUO_DATE_PARSER = new DateTimeFormatterBuilder().parseLenient()
+            .appendPattern(MINGUO_DATE_PATTERN)
+            .toFormatter()
+            .withChronology(MinguoChronology.INSTANCE)
+            .withDecimalStyle(DecimalStyle.of(Locale.getDefault()));
+
     private ChYearUtil() {
     }
 
@@ -24,7 +31,7 @@ public class ChYearUtil {
      */
     public static String transferADDateToMinguoDate(LocalDateTime localDateTime) {
         LocalDate localDate = localDateTime.toLocalDate();
-        return MinguoDate.from(localDate).format(DateTimeFormatter.ofPattern("民國yyy年MM月dd日"));
+        return MinguoDate.from(localDate).format(DateTimeFormatterRegistry.get(MINGUO_DATE_PATTERN));
     }
 
     /**
@@ -36,13 +43,7 @@ public class ChYearUtil {
      */
     public static LocalDateTime transferMinguoDateToADDate(String dateString) {
         Chronology chrono = MinguoChronology.INSTANCE;
-        DateTimeFormatter df = new DateTimeFormatterBuilder().parseLenient()
-                .appendPattern("民國yyy年MM月dd日")
-                .toFormatter()
-                .withChronology(chrono)
-                .withDecimalStyle(DecimalStyle.of(Locale.getDefault()));
-
-        ChronoLocalDate chDate = chrono.date(df.parse(dateString));
+        ChronoLocalDate chDate = chrono.date(MINGUO_DATE_PARSER.parse(dateString));
         return LocalDate.from(chDate).atStartOfDay();
     }
 }
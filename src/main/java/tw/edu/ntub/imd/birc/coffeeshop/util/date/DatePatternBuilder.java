@@ -146,7 +146,7 @@ public class DatePatternBuilder {
     }
 
     public DateTimeFormatter buildFormatter() {
-        return DateTimeFormatter.ofPattern(build());
+        return DateTimeFormatterRegistry.get(build());
     }
 }
 
@@ -0,0 +1,44 @@
+package tw.edu.ntub.imd.birc.coffeeshop.util.date;
+
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * DateTimeFormatter快取，同一組(pattern, locale)只會編譯一次
+ * DateTimeFormatter本身不可變且執行緒安全，可在所有執行緒間共用
+ * pattern應來自程式內的常數，超過上限後不再放入快取，避免外部輸入的pattern讓快取無限成長
+ */
+public class DateTimeFormatterRegistry {
+    static final int MAX_CACHE_SIZE = 256;
+    private static final Map<Locale, Map<String, DateTimeFormatter>> CACHE = new ConcurrentHashMap<>();
+
+    private DateTimeFormatterRegistry() {
+
+    }
+
+    /**
+     * 與DateTimeFormatter.ofPattern(pattern)相同，使用當下預設的FORMAT語系
+     */
+    public static DateTimeFormatter get(String pattern) {
+        return get(pattern, Locale.getDefault(Locale.Category.FORMAT));
+    }
+
+    public static DateTimeFormatter get(String pattern, Locale locale) {
+        Map<String, DateTimeFormatter> formatterMap = CACHE.get(locale);
+        if (formatterMap == null) {
+            formatterMap = CACHE.computeIfAbsent(locale, key -> new ConcurrentHashMap<>());
+        }
+        DateTimeFormatter formatter = formatterMap.get(pattern);
+        if (formatter != null) {
+            return formatter;
+        }
+        formatter = DateTimeFormatter.ofPattern(pattern, locale);
+        if (formatterMap.size() < MAX_CACHE_SIZE) {
+            DateTimeFormatter previous = formatterMap.putIfAbsent(pattern, formatter);
+            return previous != null ? previous : formatter;
+        }
+        return formatter;
+    }
+}
@@ -1,13 +1,15 @@
 package tw.edu.ntub.imd.birc.coffeeshop.util.date;
 
-import org.apache.commons.lang3.time.FastDateFormat;
 import tw.edu.ntub.imd.birc.coffeeshop.exception.DateParseException;
 import tw.edu.ntub.imd.birc.coffeeshop.exception.NullParameterException;
 
 import java.text.ParseException;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
 
 public class DateUtils {
     private DateUtils() {
@@ -28,8 +30,9 @@ public class DateUtils {
     }
 
     public static String format(Date date, DatePatternBuilder builder) {
-        FastDateFormat dateFormat = FastDateFormat.getInstance(builder.build());
-        return date != null ? dateFormat.format(date) : "";
+        return date != null ?
+                builder.buildFormatter().format(date.toInstant().atZone(ZoneId.systemDefault())) :
+                "";
     }
 
     public static Date parseIgnoreException(String dateString) {
@@ -41,6 +44,22 @@ public class DateUtils {
     }
 
     public static Date parse(String dateString) throws DateParseException {
+        DefaultDateTimeParser.Result result = DefaultDateTimeParser.parse(dateString);
+        if (result != null && result.isAmPmMarkerLegacyCompatible()) {
+            // 與commons-lang的parseDate相同，以預設時區與語系的Calendar清空後設定各欄位
+            Calendar calendar = Calendar.getInstance(TimeZone.getDefault(), Locale.getDefault());
+            calendar.clear();
+            if (result.hasDate()) {
+                calendar.set(result.getYear(), result.getMonth() - 1, result.getDay());
+            }
+            if (result.hasTime()) {
+                calendar.set(Calendar.HOUR_OF_DAY, result.getHour());
+                calendar.set(Calendar.MINUTE, result.getMinute());
+                calendar.set(Calendar.SECOND, result.getSecond());
+                calendar.set(Calendar.MILLISECOND, result.getMillisecond());
+            }
+            return calendar.getTime();
+        }
         return parse(dateString, DatePatternBuilder.DEFAULT_PATTERN_ARRAY);
     }
 
@@ -0,0 +1,202 @@
+package tw.edu.ntub.imd.birc.coffeeshop.util.date;
+
+import java.text.DateFormatSymbols;
+import java.time.LocalTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 一次掃描辨識DatePatternBuilder.DEFAULT_PATTERN_ARRAY支援的所有格式：
+ * yyyy/MM/dd或yyyy-MM-dd，可接空白與HH:mm、HH:mm:ss、HH:mm:ss.SSS，
+ * 或上下午標記加上KK:mm、KK:mm:ss、KK:mm:ss.SSS，以及單純的時間HH:mm、HH:mm:ss、HH:mm:ss.SSS
+ * 只在格式完全符合且每個欄位都在合法範圍內時回傳結果，其餘(2月31日、24:00、前後空白等)一律回傳null，
+ * 由呼叫端退回原本逐一嘗試的解析方式，以確保結果與原本相同
+ */
+class DefaultDateTimeParser {
+    private static final Map<Locale, AmPmMarker> AM_PM_MARKER_MAP = new ConcurrentHashMap<>();
+
+    private DefaultDateTimeParser() {
+
+    }
+
+    /**
+     * @return 無法在快速路徑辨識時回傳null
+     */
+    static Result parse(String text) {
+        if (text == null) {
+            return null;
+        }
+        int length = text.length();
+        if (length >= 10 && (text.charAt(4) == '/' || text.charAt(4) == '-')) {
+            return parseDateTime(text, length);
+        } else if (length >= 5 && text.charAt(2) == ':') {
+            Result result = new Result();
+            return parseTime(text, 0, length, result, false) ? result : null;
+        }
+        return null;
+    }
+
+    private static Result parseDateTime(String text, int length) {
+        char separator = text.charAt(4);
+        if (text.charAt(7) != separator) {
+            return null;
+        }
+        Result result = new Result();
+        result.year = parseDigits(text, 0, 4);
+        result.month = parseDigits(text, 5, 2);
+        result.day = parseDigits(text, 8, 2);
+        if (result.year < 1 || result.month < 1 || result.month > 12 || result.day < 1 ||
+                result.day > Month.of(result.month).length(Year.isLeap(result.year))) {
+            return null;
+        }
+        result.hasDate = true;
+        if (length == 10) {
+            return result;
+        } else if (text.charAt(10) != ' ') {
+            return null;
+        }
+        return parseTime(text, 11, length, result, true) ? result : null;
+    }
+
+    private static boolean parseTime(String text, int index, int length, Result result, boolean allowAmPm) {
+        int amPm = -1;
+        if (allowAmPm) {
+            AmPmMarker marker = AM_PM_MARKER_MAP.computeIfAbsent(
+                    Locale.getDefault(Locale.Category.FORMAT),
+                    AmPmMarker::new
+            );
+            if (text.startsWith(marker.am, index)) {
+                amPm = 0;
+                index += marker.am.length();
+            } else if (text.startsWith(marker.pm, index)) {
+                amPm = 1;
+                index += marker.pm.length();
+            }
+            result.amPmMarkerLegacyCompatible = amPm == -1 || marker.legacyCompatible;
+        }
+        if (length - index < 5 || text.charAt(index + 2) != ':') {
+            return false;
+        }
+        int hour = parseDigits(text, index, 2);
+        result.minute = parseDigits(text, index + 3, 2);
+        index += 5;
+        if (index < length) {
+            if (length - index < 3 || text.charAt(index) != ':') {
+                return false;
+            }
+            result.second = parseDigits(text, index + 1, 2);
+            index += 3;
+            if (index < length) {
+                if (length - index != 4 || text.charAt(index) != '.') {
+                    return false;
+                }
+                result.millisecond = parseDigits(text, index + 1, 3);
+                index += 4;
+            }
+        }
+        if (amPm == -1) {
+            if (hour < 0 || hour > 23) {
+                return false;
+            }
+            result.hour = hour;
+        } else {
+            if (hour < 0 || hour > 11) {
+                return false;
+            }
+            result.hour = amPm * 12 + hour;
+        }
+        result.hasTime = true;
+        return index == length && result.minute >= 0 && result.minute <= 59 &&
+                result.second >= 0 && result.second <= 59 && result.millisecond >= 0;
+    }
+
+    /**
+     * @return 含非ASCII數字時回傳-1
+     */
+    private static int parseDigits(String text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    static class Result {
+        private boolean hasDate;
+        private boolean hasTime;
+        private boolean amPmMarkerLegacyCompatible = true;
+        private int year;
+        private int month;
+        private int day;
+        private int hour;
+        private int minute;
+        private int second;
+        private int millisecond;
+
+        boolean hasDate() {
+            return hasDate;
+        }
+
+        boolean hasTime() {
+            return hasTime;
+        }
+
+        /**
+         * 目前語系下DateTimeFormatter與DateFormatSymbols的上下午文字不一致時，
+         * 舊版的commons-lang解析結果可能不同，DateUtils需退回原本的方式
+         */
+        boolean isAmPmMarkerLegacyCompatible() {
+            return amPmMarkerLegacyCompatible;
+        }
+
+        int getYear() {
+            return year;
+        }
+
+        int getMonth() {
+            return month;
+        }
+
+        int getDay() {
+            return day;
+        }
+
+        int getHour() {
+            return hour;
+        }
+
+        int getMinute() {
+            return minute;
+        }
+
+        int getSecond() {
+            return second;
+        }
+
+        int getMillisecond() {
+            return millisecond;
+        }
+    }
+
+    private static class AmPmMarker {
+        private final String am;
+        private final String pm;
+        private final boolean legacyCompatible;
+
+        private AmPmMarker(Locale locale) {
+            DateTimeFormatter formatter = DateTimeFormatterRegistry.get("a", locale);
+            am = formatter.format(LocalTime.MIDNIGHT);
+            pm = formatter.format(LocalTime.NOON);
+            String[] legacyMarkerArray = DateFormatSymbols.getInstance(locale).getAmPmStrings();
+            legacyCompatible = am.equalsIgnoreCase(legacyMarkerArray[0]) && pm.equalsIgnoreCase(legacyMarkerArray[1]);
+        }
+    }
+}
@@ -39,6 +39,22 @@ public class LocalDateTimeUtils {
     }
 
     public static LocalDateTime parse(String dateString) throws DateParseException {
+        DefaultDateTimeParser.Result result = DefaultDateTimeParser.parse(dateString);
+        if (result != null && result.hasDate() && result.hasTime()) {
+            return LocalDateTime.of(
+                    result.getYear(),
+                    result.getMonth(),
+                    result.getDay(),
+                    result.getHour(),
+                    result.getMinute(),
+                    result.getSecond(),
+                    result.getMillisecond() * 1_000_000
+            );
+        }
+        return parseByDefaultPattern(dateString);
+    }
+
+    private static LocalDateTime parseByDefaultPattern(String dateString) throws DateParseException {
         for (DatePatternBuilder builder : DatePatternBuilder.DEFAULT_BUILDER_ARRAY) {
             try {
                 return LocalDateTime.parse(dateString, builder.buildFormatter());
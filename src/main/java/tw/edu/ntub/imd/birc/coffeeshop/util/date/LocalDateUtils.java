@@ -40,6 +40,14 @@ public class LocalDateUtils {
     }
 
     public static LocalDate parse(String dateString) throws DateParseException {
+        DefaultDateTimeParser.Result result = DefaultDateTimeParser.parse(dateString);
+        if (result != null && result.hasDate()) {
+            return LocalDate.of(result.getYear(), result.getMonth(), result.getDay());
+        }
+        return parseByDefaultPattern(dateString);
+    }
+
+    private static LocalDate parseByDefaultPattern(String dateString) throws DateParseException {
         for (DatePatternBuilder builder : DatePatternBuilder.DEFAULT_BUILDER_ARRAY) {
             try {
                 return LocalDate.parse(dateString, builder.buildFormatter());
@@ -3,6 +3,8 @@ package tw.edu.ntub.imd.birc.coffeeshop.util.http;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import tw.edu.ntub.birc.common.exception.ProjectException;
 import tw.edu.ntub.imd.birc.coffeeshop.util.function.TripleConsumer;
@@ -31,7 +33,8 @@ import java.util.function.BiConsumer;
  */
 @Log4j2
 public class ResponseEntityBuilder {
-    private final ResponseEntity.BodyBuilder bodyBuilder = ResponseEntity.ok();
+    private final HttpHeaders headers = new HttpHeaders();
+    private HttpStatus status = HttpStatus.OK;
     private boolean success;
     private ProjectException ProjectException;
     private String message;
@@ -66,6 +69,11 @@ public class ResponseEntityBuilder {
         return this;
     }
 
+    public ResponseEntityBuilder status(@Nonnull HttpStatus status) {
+        this.status = status;
+        return this;
+    }
+
     public ResponseEntityBuilder message(String message) {
         this.message = message;
         return this;
@@ -114,29 +122,36 @@ public class ResponseEntityBuilder {
     }
 
     public ResponseEntityBuilder addHeader(String name, String... valueArray) {
-        bodyBuilder.header(name, valueArray);
+        for (String value : valueArray) {
+            headers.add(name, value);
+        }
         return this;
     }
 
     public ResponseEntity<String> build() {
-        return bodyBuilder.body(buildJSONString());
+        String body = buildJSONString();
+        if (ResponseLogger.isSampled()) {
+            ResponseLogger.log(status, getResponseErrorCode(), body);
+        }
+        return ResponseEntity.status(status).headers(headers).body(body);
+    }
+
+    private String getResponseErrorCode() {
+        return ProjectException != null ? ProjectException.getErrorCode() : errorCode != null ? errorCode : "";
     }
 
     public String buildJSONString() {
         try {
             ObjectData result = new ObjectData()
                     .add("result", success)
-                    .add("errorCode", ProjectException != null ?
-                            ProjectException.getErrorCode() : errorCode != null ? errorCode : "")
+                    .add("errorCode", getResponseErrorCode())
                     .add("message", message)
                     .replace("data",
                             responseData != null ?
                                     responseData.getData() :
                                     new ObjectData().getData()
                     );
-            String body = ResponseUtils.createMapper().writeValueAsString(result.getData());
-            System.out.println("Response JSON = " + body);
-            return body;
+            return ResponseUtils.createMapper().writeValueAsString(result.getData());
         } catch (JsonProcessingException e) {
             e.printStackTrace();
             return "{\"result\": false, \"errorCode\": \"Server - JsonProcessError\", \"message\": \"" +
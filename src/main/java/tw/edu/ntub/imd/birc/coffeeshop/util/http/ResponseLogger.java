@@ -0,0 +1,101 @@
+package tw.edu.ntub.imd.birc.coffeeshop.util.http;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.StringMapMessage;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.ResponseLogProperties;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 抽樣記錄回應的errorCode、HTTP狀態與大小
+ * 預設關閉；輸出交給名為ResponseLog的Log4j2 logger，由log4j2.yml設定為非同步寫出，不會阻塞請求執行緒
+ */
+@Component
+public class ResponseLogger {
+    private static final Logger LOGGER = LogManager.getLogger("ResponseLog");
+    private static volatile boolean enabled = false;
+    private static volatile double sampleRate = 0;
+    private static volatile int maxBodyBytes = 0;
+    private final ResponseLogProperties properties;
+
+    public ResponseLogger(ResponseLogProperties properties) {
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void init() {
+        configure(properties.isEnabled(), properties.getSampleRate(), properties.getMaxBodyBytes());
+    }
+
+    public static void configure(boolean isEnabled, double rate, int bodyBytes) {
+        sampleRate = Math.max(0, Math.min(1, rate));
+        maxBodyBytes = Math.max(0, bodyBytes);
+        enabled = isEnabled;
+    }
+
+    /**
+     * 是否記錄本次回應，未啟用時只有一次volatile讀取
+     */
+    public static boolean isSampled() {
+        if (!enabled || !LOGGER.isInfoEnabled()) {
+            return false;
+        }
+        double rate = sampleRate;
+        return rate >= 1 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    public static void log(HttpStatus status, String errorCode, String body) {
+        StringMapMessage message = createMessage(status, errorCode, utf8Length(body));
+        int bodyBytes = maxBodyBytes;
+        if (bodyBytes > 0) {
+            message.with("preview", truncate(body, bodyBytes));
+        }
+        LOGGER.info(message);
+    }
+
+    public static void log(HttpStatus status, String errorCode, long size) {
+        LOGGER.info(createMessage(status, errorCode, size));
+    }
+
+    private static StringMapMessage createMessage(HttpStatus status, String errorCode, long size) {
+        return new StringMapMessage()
+                .with("status", status.value())
+                .with("errorCode", errorCode != null ? errorCode : "")
+                .with("size", size);
+    }
+
+    /**
+     * 不轉成byte[]直接計算UTF-8長度
+     */
+    static long utf8Length(String body) {
+        long length = 0;
+        for (int index = 0; index < body.length(); ) {
+            int codePoint = body.codePointAt(index);
+            length += utf8Length(codePoint);
+            index += Character.charCount(codePoint);
+        }
+        return length;
+    }
+
+    private static int utf8Length(int codePoint) {
+        return codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+    }
+
+    private static String truncate(String body, int bodyBytes) {
+        long length = 0;
+        int index = 0;
+        while (index < body.length()) {
+            int codePoint = body.codePointAt(index);
+            length += utf8Length(codePoint);
+            if (length > bodyBytes) {
+                break;
+            }
+            index += Character.charCount(codePoint);
+        }
+        return body.substring(0, index);
+    }
+}
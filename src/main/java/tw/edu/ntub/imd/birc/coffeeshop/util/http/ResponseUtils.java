@@ -12,6 +12,7 @@ import tw.edu.ntub.birc.common.exception.date.ParseDateException;
 import tw.edu.ntub.birc.common.util.DateTimeUtils;
 import tw.edu.ntub.birc.common.util.StringUtils;
 import tw.edu.ntub.birc.common.wrapper.date.*;
+import tw.edu.ntub.imd.birc.coffeeshop.util.date.DateTimeFormatterRegistry;
 
 import java.io.IOException;
 import java.time.LocalDate;
@@ -87,24 +88,31 @@ public class ResponseUtils {
     }
 
     public static class DateModule extends SimpleModule {
+        private static final DateTimeFormatter DEFAULT_DATE_FORMATTER =
+                DateTimeFormatterRegistry.get(DateTimePattern.DEFAULT_DATE.getPattern());
+        private static final DateTimeFormatter DEFAULT_TIME_FORMATTER =
+                DateTimeFormatterRegistry.get(DateTimePattern.DEFAULT_TIME.getPattern());
+        private static final DateTimeFormatter DEFAULT_DATE_TIME_FORMATTER =
+                DateTimeFormatterRegistry.get(DateTimePattern.DEFAULT_DATE_TIME.getPattern());
+
         public DateModule() {
             super("DateModule", new Version(1, 0, 0, null, null, null));
             addSerializer(LocalDate.class, new JsonSerializer<>() {
                 @Override
                 public void serialize(LocalDate value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
-                    gen.writeString(value.format(DateTimeFormatter.ofPattern(DateTimePattern.DEFAULT_DATE.getPattern())));
+                    gen.writeString(value.format(DEFAULT_DATE_FORMATTER));
                 }
             });
             addSerializer(LocalTime.class, new JsonSerializer<>() {
                 @Override
                 public void serialize(LocalTime value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
-                    gen.writeString(value.format(DateTimeFormatter.ofPattern(DateTimePattern.DEFAULT_TIME.getPattern())));
+                    gen.writeString(value.format(DEFAULT_TIME_FORMATTER));
                 }
             });
             addSerializer(LocalDateTime.class, new JsonSerializer<>() {
                 @Override
                 public void serialize(LocalDateTime value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
-                    gen.writeString(value.format(DateTimeFormatter.ofPattern(DateTimePattern.DEFAULT_DATE_TIME.getPattern())));
+                    gen.writeString(value.format(DEFAULT_DATE_TIME_FORMATTER));
                 }
             });
             addDeserializer(LocalDate.class, new JsonDeserializer<>() {
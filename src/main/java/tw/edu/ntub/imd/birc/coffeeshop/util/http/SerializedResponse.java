@@ -0,0 +1,133 @@
+package tw.edu.ntub.imd.birc.coffeeshop.util.http;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import tw.edu.ntub.birc.common.exception.UnknownException;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 預先序列化的JSON回應，保存UTF-8位元組、強ETag與選擇性的gzip壓縮版本
+ * ETag為內容的SHA-256，相同內容在不同節點或重新啟動後仍相同；請求的If-None-Match相符時回傳304且不含內容
+ * 只使用一次的回應以plain建立，不計算ETag也不壓縮，與一般回應相同
+ */
+public final class SerializedResponse {
+    private static final MediaType JSON_UTF8 = new MediaType(MediaType.APPLICATION_JSON, StandardCharsets.UTF_8);
+    private static final String GZIP = "gzip";
+    private final byte[] body;
+    private final byte[] gzipBody;
+    private final String etag;
+    private final String gzipEtag;
+
+    private SerializedResponse(byte[] body, byte[] gzipBody, String etag) {
+        this.body = body;
+        this.gzipBody = gzipBody;
+        this.etag = etag != null ? "\"" + etag + "\"" : null;
+        // 同一內容的不同編碼需使用不同的強ETag
+        this.gzipEtag = etag != null ? "\"" + etag + "-" + GZIP + "\"" : null;
+    }
+
+    public static SerializedResponse plain(String json) {
+        return new SerializedResponse(json.getBytes(StandardCharsets.UTF_8), null, null);
+    }
+
+    public static SerializedResponse of(String json, boolean gzip) {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        return new SerializedResponse(body, gzip ? compress(body) : null, digest(body));
+    }
+
+    private static String digest(byte[] body) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(body);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new UnknownException(e);
+        }
+    }
+
+    private static byte[] compress(byte[] body) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+            gzipOutputStream.write(body);
+        } catch (IOException e) {
+            throw new UnknownException(e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    public ResponseEntity<byte[]> toResponseEntity(HttpServletRequest request) {
+        boolean useGzip = gzipBody != null && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        HttpHeaders headers = new HttpHeaders();
+        if (etag != null) {
+            headers.setETag(useGzip ? gzipEtag : etag);
+        }
+        if (gzipBody != null) {
+            headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+        }
+        if (etag != null && matches(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+        headers.setContentType(JSON_UTF8);
+        if (useGzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+        return ResponseEntity.ok().headers(headers).body(useGzip ? gzipBody : body);
+    }
+
+    /**
+     * If-None-Match以弱比較判斷，任一編碼的ETag相符即視為未修改
+     */
+    private boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String trimmed = tag.trim();
+            if (trimmed.startsWith("W/")) {
+                trimmed = trimmed.substring(2);
+            }
+            if (trimmed.equals("*") || trimmed.equals(etag) || trimmed.equals(gzipEtag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] partArray = coding.trim().split(";");
+            if (partArray[0].trim().equalsIgnoreCase(GZIP)) {
+                return partArray.length < 2 || !partArray[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return 以plain建立時回傳null
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    public int getLength() {
+        return body.length;
+    }
+
+    public int getGzipLength() {
+        return gzipBody != null ? gzipBody.length : 0;
+    }
+}
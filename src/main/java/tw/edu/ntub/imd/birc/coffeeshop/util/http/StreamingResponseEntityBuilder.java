@@ -0,0 +1,221 @@
+package tw.edu.ntub.imd.birc.coffeeshop.util.http;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tw.edu.ntub.birc.common.exception.ProjectException;
+import tw.edu.ntub.imd.birc.coffeeshop.util.function.AddObjectDataConsumer;
+import tw.edu.ntub.imd.birc.coffeeshop.util.json.ResponseData;
+import tw.edu.ntub.imd.birc.coffeeshop.util.json.object.ObjectData;
+
+import javax.annotation.Nonnull;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * ResponseEntityBuilder的串流版本，回傳格式相同
+ * {
+ * "result": Boolean,
+ * "errorCode": String,
+ * "message": String,
+ * "data": Object/Array
+ * }
+ * 差別在於不會先組出整棵JSON樹再轉成字串，而是透過JsonGenerator直接寫入回應的OutputStream，
+ * 陣列資料每次只為一個元素建立ObjectData，寫出後即可回收
+ * 注意：開始寫出後回應狀態已送出，資料來源中途拋出例外時只能中斷回應，無法再改成錯誤格式
+ */
+@Log4j2
+public class StreamingResponseEntityBuilder {
+    private final HttpHeaders headers = new HttpHeaders();
+    private HttpStatus status = HttpStatus.OK;
+    private boolean success;
+    private String message;
+    private String errorCode;
+    private DataWriter dataWriter = generator -> {
+        generator.writeStartObject();
+        generator.writeEndObject();
+    };
+
+    private StreamingResponseEntityBuilder(boolean success) {
+        this.success = success;
+    }
+
+    public static StreamingResponseEntityBuilder success() {
+        return new StreamingResponseEntityBuilder(true);
+    }
+
+    public static StreamingResponseEntityBuilder error() {
+        return new StreamingResponseEntityBuilder(false);
+    }
+
+    public static StreamingResponseEntityBuilder error(@Nonnull ProjectException projectException) {
+        log.error("發生錯誤！", projectException);
+        return new StreamingResponseEntityBuilder(false)
+                .errorCode(projectException.getErrorCode())
+                .message(projectException.getMessage());
+    }
+
+    public StreamingResponseEntityBuilder result(boolean isSuccess) {
+        success = isSuccess;
+        return this;
+    }
+
+    public StreamingResponseEntityBuilder status(@Nonnull HttpStatus status) {
+        this.status = status;
+        return this;
+    }
+
+    public StreamingResponseEntityBuilder message(String message) {
+        this.message = message;
+        return this;
+    }
+
+    public StreamingResponseEntityBuilder errorCode(String code) {
+        this.errorCode = code;
+        return this;
+    }
+
+    public StreamingResponseEntityBuilder emptyArray() {
+        dataWriter = generator -> {
+            generator.writeStartArray();
+            generator.writeEndArray();
+        };
+        return this;
+    }
+
+    public StreamingResponseEntityBuilder data(ResponseData responseData) {
+        dataWriter = generator -> generator.writeTree(responseData.getData());
+        return this;
+    }
+
+    public <T> StreamingResponseEntityBuilder data(Collection<T> resource, BiConsumer<ObjectData, T> addObjectDataConsumer) {
+        dataWriter = generator -> {
+            generator.writeStartArray();
+            for (T t : resource) {
+                writeElement(generator, t, addObjectDataConsumer);
+            }
+            generator.writeEndArray();
+        };
+        return this;
+    }
+
+    public <T> StreamingResponseEntityBuilder data(Collection<T> resource, AddObjectDataConsumer<T> addObjectDataConsumer) {
+        dataWriter = generator -> {
+            generator.writeStartArray();
+            int index = 0;
+            for (T t : resource) {
+                ObjectData objectData = new ObjectData();
+                addObjectDataConsumer.addObject(objectData, index++, t);
+                generator.writeTree(objectData.getData());
+            }
+            generator.writeEndArray();
+        };
+        return this;
+    }
+
+    /**
+     * 資料來源為逐筆推送(如資料庫游標)時使用，source會在寫出回應的當下才被呼叫
+     *
+     * @param source 接收一個Consumer，每讀到一筆就交給它
+     */
+    public <T> StreamingResponseEntityBuilder data(Consumer<Consumer<T>> source,
+                                                   BiConsumer<ObjectData, T> addObjectDataConsumer) {
+        dataWriter = generator -> {
+            generator.writeStartArray();
+            try {
+                source.accept(t -> {
+                    try {
+                        writeElement(generator, t, addObjectDataConsumer);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            generator.writeEndArray();
+        };
+        return this;
+    }
+
+    public StreamingResponseEntityBuilder addHeader(String name, String... valueArray) {
+        for (String value : valueArray) {
+            headers.add(name, value);
+        }
+        return this;
+    }
+
+    public ResponseEntity<StreamingResponseBody> build() {
+        return ResponseEntity.status(status)
+                .headers(headers)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(this::writeTo);
+    }
+
+    public void writeTo(OutputStream outputStream) throws IOException {
+        if (ResponseLogger.isSampled()) {
+            CountingOutputStream countingOutputStream = new CountingOutputStream(outputStream);
+            write(countingOutputStream);
+            ResponseLogger.log(status, errorCode, countingOutputStream.count);
+        } else {
+            write(outputStream);
+        }
+    }
+
+    private void write(OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = ResponseUtils.createMapper().getFactory().createGenerator(outputStream)) {
+            generator.writeStartObject();
+            generator.writeBooleanField("result", success);
+            generator.writeStringField("errorCode", errorCode != null ? errorCode : "");
+            generator.writeStringField("message", message);
+            generator.writeFieldName("data");
+            dataWriter.write(generator);
+            generator.writeEndObject();
+        } catch (IOException | RuntimeException e) {
+            log.error("串流回應寫出中斷", e);
+            throw e;
+        }
+    }
+
+    private <T> void writeElement(JsonGenerator generator,
+                                  T t,
+                                  BiConsumer<ObjectData, T> addObjectDataConsumer) throws IOException {
+        ObjectData objectData = new ObjectData();
+        addObjectDataConsumer.accept(objectData, t);
+        generator.writeTree(objectData.getData());
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(@Nonnull byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    @FunctionalInterface
+    private interface DataWriter {
+        void write(JsonGenerator generator) throws IOException;
+    }
+}
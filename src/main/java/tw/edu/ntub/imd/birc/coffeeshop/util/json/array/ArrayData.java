@@ -3,6 +3,7 @@ package tw.edu.ntub.imd.birc.coffeeshop.util.json.array;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import tw.edu.ntub.imd.birc.coffeeshop.util.json.ResponseData;
+import tw.edu.ntub.imd.birc.coffeeshop.util.date.DateTimeFormatterRegistry;
 import tw.edu.ntub.imd.birc.coffeeshop.util.http.ResponseUtils;
 import tw.edu.ntub.imd.birc.coffeeshop.util.json.object.ObjectData;
 import tw.edu.ntub.birc.common.wrapper.date.DateTimePattern;
@@ -14,7 +15,6 @@ import java.math.BigInteger;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.function.BiConsumer;
@@ -119,7 +119,7 @@ public class ArrayData implements ResponseData {
     public ArrayData add(LocalDate localDate, DateTimePattern pattern) {
         arrayNode.add(
                 localDate != null ?
-                        localDate.format(DateTimeFormatter.ofPattern(pattern.getPattern(), pattern.getLocale())) :
+                        localDate.format(DateTimeFormatterRegistry.get(pattern.getPattern(), pattern.getLocale())) :
                         ""
         );
         return this;
@@ -128,7 +128,7 @@ public class ArrayData implements ResponseData {
     public ArrayData add(LocalTime localTime, DateTimePattern pattern) {
         arrayNode.add(
                 localTime != null ?
-                        localTime.format(DateTimeFormatter.ofPattern(pattern.getPattern(), pattern.getLocale())) :
+                        localTime.format(DateTimeFormatterRegistry.get(pattern.getPattern(), pattern.getLocale())) :
                         ""
         );
         return this;
@@ -137,7 +137,7 @@ public class ArrayData implements ResponseData {
     public ArrayData add(LocalDateTime localDateTime, DateTimePattern pattern) {
         arrayNode.add(
                 localDateTime != null ?
-                        localDateTime.format(DateTimeFormatter.ofPattern(pattern.getPattern(), pattern.getLocale())) :
+                        localDateTime.format(DateTimeFormatterRegistry.get(pattern.getPattern(), pattern.getLocale())) :
                         ""
         );
         return this;
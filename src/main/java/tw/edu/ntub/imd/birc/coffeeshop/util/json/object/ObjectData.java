@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import tw.edu.ntub.imd.birc.coffeeshop.util.json.ResponseData;
 import tw.edu.ntub.imd.birc.coffeeshop.util.json.array.ArrayData;
+import tw.edu.ntub.imd.birc.coffeeshop.util.date.DateTimeFormatterRegistry;
 import tw.edu.ntub.imd.birc.coffeeshop.util.http.ResponseUtils;
 import tw.edu.ntub.birc.common.wrapper.date.DateTimePattern;
 import tw.edu.ntub.birc.common.wrapper.date.DateTimeWrapper;
@@ -17,7 +18,6 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.Year;
-import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.function.BiConsumer;
@@ -186,7 +186,7 @@ public class ObjectData implements ResponseData {
         objectNode.put(
                 key,
                 localDate != null ?
-                        localDate.format(DateTimeFormatter.ofPattern(pattern.getPattern(), pattern.getLocale())) :
+                        localDate.format(DateTimeFormatterRegistry.get(pattern.getPattern(), pattern.getLocale())) :
                         ""
         );
         return this;
@@ -200,7 +200,7 @@ public class ObjectData implements ResponseData {
         objectNode.put(
                 key,
                 localTime != null ?
-                        localTime.format(DateTimeFormatter.ofPattern(pattern.getPattern(), pattern.getLocale())) :
+                        localTime.format(DateTimeFormatterRegistry.get(pattern.getPattern(), pattern.getLocale())) :
                         ""
         );
         return this;
@@ -214,7 +214,7 @@ public class ObjectData implements ResponseData {
         objectNode.put(
                 key,
                 localDateTime != null ?
-                        localDateTime.format(DateTimeFormatter.ofPattern(pattern.getPattern(), pattern.getLocale())) :
+                        localDateTime.format(DateTimeFormatterRegistry.get(pattern.getPattern(), pattern.getLocale())) :
                         ""
         );
         return this;
@@ -0,0 +1,117 @@
+package tw.edu.ntub.imd.birc.coffeeshop;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.config.ConfigurationFactory;
+import org.apache.logging.log4j.core.config.ConfigurationSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures.runConcurrently;
+
+/**
+ * 正式環境日誌設定測試
+ * 驗證log4j2-prod.yml依等級分流寫入，並行寫入的事件在關閉時不會遺失
+ */
+class ProductionLoggingTest {
+    private static final int THREAD_COUNT = 8;
+    private static final int REQUEST_PER_THREAD = 2_000;
+    private static final int LOG_PER_REQUEST = 3;
+    @TempDir
+    Path logDirectory;
+
+    @BeforeEach
+    void setUp() {
+        System.setProperty("log.path", logDirectory.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty("log.path");
+    }
+
+    @Test
+    @DisplayName("依等級寫入對應的檔案，每個事件只寫入一個檔案")
+    void testLevelRouting() throws Exception {
+        LoggerContext context = startContext("prod-routing", "log4j2-prod.yml");
+        try {
+            Logger logger = context.getLogger("tw.edu.ntub.imd.birc.coffeeshop.Routing");
+            logger.debug("debug-message");
+            logger.info("info-message");
+            logger.warn("warn-message");
+            logger.error("error-message");
+        } finally {
+            context.stop(10, TimeUnit.SECONDS);
+        }
+        String info = readLog("poi-info.log");
+        assertTrue(info.contains("info-message"));
+        assertFalse(info.contains("warn-message"));
+        assertTrue(readLog("poi-warn.log").contains("warn-message"));
+        assertTrue(readLog("poi-error.log").contains("error-message"));
+        assertFalse(readLog("poi-debug.log").contains("debug-message"));
+    }
+
+    private String readLog(String fileName) throws Exception {
+        Path file = logDirectory.resolve("poi").resolve(fileName);
+        return Files.exists(file) ? Files.readString(file) : "";
+    }
+
+    @Test
+    @DisplayName("多個執行緒同時寫入INFO，關閉時非同步佇列中的事件全數寫入檔案")
+    void testNoEventLost() throws Exception {
+        LoggerContext context = startContext("prod-concurrent", "log4j2-prod.yml");
+        try {
+            Logger logger = context.getLogger("tw.edu.ntub.imd.birc.coffeeshop.Concurrent");
+            runConcurrently(THREAD_COUNT, THREAD_COUNT, index -> {
+                for (int i = 0; i < REQUEST_PER_THREAD; i++) {
+                    logger.info("收到請求：GET /api/v1/products/{}", i);
+                    logger.info("查詢成功，共{}筆", i % 50);
+                    logger.info("回應完成，耗時{}ms", i % 7);
+                }
+            });
+        } finally {
+            context.stop(30, TimeUnit.SECONDS);
+        }
+        assertEquals(THREAD_COUNT * REQUEST_PER_THREAD * LOG_PER_REQUEST, countInfoLines());
+    }
+
+    /**
+     * 包含測試期間跨過整點而輪替的檔案
+     */
+    private long countInfoLines() throws Exception {
+        Path poiDirectory = logDirectory.resolve("poi");
+        try (Stream<Path> fileStream = Files.walk(poiDirectory)) {
+            long count = 0;
+            for (Path file : fileStream.collect(Collectors.toList())) {
+                boolean isInfoFile = file.getFileName().toString().equals("poi-info.log") ||
+                        file.startsWith(poiDirectory.resolve("info"));
+                if (isInfoFile && Files.isRegularFile(file)) {
+                    try (Stream<String> lineStream = Files.lines(file)) {
+                        count += lineStream.count();
+                    }
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * 建立獨立的LoggerContext，不影響測試本身使用的日誌設定
+     */
+    private LoggerContext startContext(String name, String resource) throws Exception {
+        LoggerContext context = new LoggerContext(name);
+        ConfigurationSource source = ConfigurationSource.fromResource(resource, getClass().getClassLoader());
+        context.start(ConfigurationFactory.getInstance().getConfiguration(context, source));
+        return context;
+    }
+}
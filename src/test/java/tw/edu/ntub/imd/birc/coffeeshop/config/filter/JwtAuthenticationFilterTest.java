@@ -0,0 +1,222 @@
+package tw.edu.ntub.imd.birc.coffeeshop.config.filter;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.JwtCacheProperties;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.JwtRejectionProperties;
+import tw.edu.ntub.imd.birc.coffeeshop.config.security.CustomUserDetails;
+import tw.edu.ntub.imd.birc.coffeeshop.config.security.RejectedTokenTracker;
+import tw.edu.ntub.imd.birc.coffeeshop.config.security.VerifiedTokenCache;
+import tw.edu.ntub.imd.birc.coffeeshop.config.util.JwtUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JWT驗證過濾器測試
+ * 驗證已驗證token快取的命中、到期與容量上限，重複的token只解析一次；
+ * 驗證失敗原因的分類與負向快取，重送的錯誤token不再重新解析
+ */
+class JwtAuthenticationFilterTest {
+    private static final int ITERATION = 1_000;
+    private static final String SECRET = "Y29mZmVlLXNob3AtdGVzdC1zZWNyZXQ=";
+    private static final int BAD_TOKEN_REPLAY_COUNT = 2000;
+    private JwtUtils jwtUtils;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "secret", SECRET);
+        token = jwtUtils.getToken(new CustomUserDetails(
+                "pos-01@coffee.shop",
+                "POS 01",
+                true,
+                List.of(new SimpleGrantedAuthority("ROLE_POS"))
+        ));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("同一個token第二次請求命中快取，且每次取得不同的Authentication")
+    void testCacheHit() throws Exception {
+        VerifiedTokenCache cache = createCache(true, 100);
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtUtils, cache, createTracker(30_000));
+
+        Authentication first = doFilter(filter, token);
+        Authentication second = doFilter(filter, token);
+
+        assertNotNull(first);
+        assertEquals("pos-01@coffee.shop", second.getPrincipal());
+        assertEquals(first.getAuthorities(), second.getAuthorities());
+        assertNotSame(first, second);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    @DisplayName("快取只保留到token的exp")
+    void testExpiration() throws Exception {
+        VerifiedTokenCache cache = createCache(true, 100);
+        Authentication authentication = new UsernamePasswordAuthenticationToken("pos", null, List.of());
+        cache.put("expired", authentication, new Date(System.currentTimeMillis() - 1));
+        cache.put("short", authentication, new Date(System.currentTimeMillis() + 50));
+        assertEquals(1, cache.size());
+        assertNotNull(cache.get("short"));
+
+        Thread.sleep(100);
+        assertNull(cache.get("short"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("超過容量上限時淘汰舊項目")
+    void testMaxSize() {
+        VerifiedTokenCache cache = createCache(true, 100);
+        Authentication authentication = new UsernamePasswordAuthenticationToken("pos", null, List.of());
+        Date expiration = new Date(System.currentTimeMillis() + 60_000);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(JwtUtils.hashToken("token-" + i), authentication, expiration);
+        }
+        assertTrue(cache.size() <= 100);
+        assertTrue(cache.getEvictionCount() >= 900);
+    }
+
+    @Test
+    @DisplayName("同一token重複通過過濾器只解析一次，無快取時每次解析")
+    void testRepeatedToken() throws Exception {
+        VerifiedTokenCache uncachedCache = createCache(false, 0);
+        JwtAuthenticationFilter uncachedFilter = new JwtAuthenticationFilter(jwtUtils, uncachedCache, createTracker(30_000));
+        VerifiedTokenCache cache = createCache(true, 10000);
+        JwtAuthenticationFilter cachedFilter = new JwtAuthenticationFilter(jwtUtils, cache, createTracker(30_000));
+
+        for (int i = 0; i < ITERATION; i++) {
+            Authentication uncached = doFilter(uncachedFilter, token);
+            Authentication cached = doFilter(cachedFilter, token);
+            assertNotNull(cached);
+            assertEquals(uncached.getName(), cached.getName());
+            assertEquals(uncached.getAuthorities(), cached.getAuthorities());
+        }
+        assertEquals(0, uncachedCache.size());
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(ITERATION - 1, cache.getHitCount());
+    }
+
+    @Test
+    @DisplayName("依原因分類驗證失敗，失敗過的token不再重新解析")
+    void testRejectionClassification() throws Exception {
+        RejectedTokenTracker tracker = createTracker(30_000);
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtUtils, createCache(true, 100), tracker);
+
+        assertNull(doFilter(filter, createToken(SECRET, -60_000, "expired")));
+        assertNull(doFilter(filter, createToken("b3RoZXItc2VjcmV0", 60_000, "forged")));
+        assertNull(doFilter(filter, "not-a-jwt"));
+        assertNull(doFilter(filter, "abc.def.ghi"));
+        assertNull(doFilter(filter, "not-a-jwt"));
+
+        assertEquals(1, tracker.getCount(RejectedTokenTracker.Reason.EXPIRED));
+        assertEquals(1, tracker.getCount(RejectedTokenTracker.Reason.BAD_SIGNATURE));
+        assertEquals(2, tracker.getCount(RejectedTokenTracker.Reason.MALFORMED));
+        assertEquals(1, tracker.getNegativeCacheHitCount());
+        assertNotNull(doFilter(filter, token));
+    }
+
+    @Test
+    @DisplayName("負向快取到期後重新解析")
+    void testNegativeCacheExpiration() throws Exception {
+        RejectedTokenTracker tracker = createTracker(50);
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtUtils, createCache(true, 100), tracker);
+        String expiredToken = createToken(SECRET, -60_000, "expired");
+
+        doFilter(filter, expiredToken);
+        doFilter(filter, expiredToken);
+        assertEquals(1, tracker.getCount(RejectedTokenTracker.Reason.EXPIRED));
+        Thread.sleep(100);
+        doFilter(filter, expiredToken);
+        assertEquals(2, tracker.getCount(RejectedTokenTracker.Reason.EXPIRED));
+    }
+
+    @Test
+    @DisplayName("重送2000個錯誤token，每個token只解析一次")
+    void testBadTokenReplay() throws Exception {
+        List<String> badTokenList = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            badTokenList.add(createToken(SECRET, -60_000, "expired-" + i));
+            badTokenList.add(createToken("b3RoZXItc2VjcmV0", 60_000, "forged-" + i));
+            badTokenList.add("garbage-" + i);
+            badTokenList.add("e30.e30." + i);
+        }
+        RejectedTokenTracker tracker = createTracker(30_000);
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtUtils, createCache(true, 100), tracker);
+
+        for (int i = 0; i < BAD_TOKEN_REPLAY_COUNT; i++) {
+            assertNull(doFilter(filter, badTokenList.get(i % badTokenList.size())));
+        }
+
+        long rejectCount = 0;
+        for (RejectedTokenTracker.Reason reason : RejectedTokenTracker.Reason.values()) {
+            rejectCount += tracker.getCount(reason);
+        }
+        assertEquals(badTokenList.size(), rejectCount);
+        assertEquals(30, tracker.getCount(RejectedTokenTracker.Reason.EXPIRED));
+        assertEquals(30, tracker.getCount(RejectedTokenTracker.Reason.BAD_SIGNATURE));
+        assertEquals(BAD_TOKEN_REPLAY_COUNT - badTokenList.size(), tracker.getNegativeCacheHitCount());
+    }
+
+    private String createToken(String secret, long expireAfterMillis, String issuer) {
+        return Jwts.builder()
+                .setSubject("Login")
+                .setIssuer(issuer)
+                .claim("roles", new String[]{"ROLE_POS"})
+                .setExpiration(new Date(System.currentTimeMillis() + expireAfterMillis))
+                .signWith(SignatureAlgorithm.HS512, secret)
+                .compact();
+    }
+
+    private Authentication doFilter(JwtAuthenticationFilter filter, String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/products");
+        request.addHeader("Authorization", "Bearer " + token);
+        Authentication[] result = new Authentication[1];
+        filter.doFilter(
+                request,
+                new MockHttpServletResponse(),
+                (req, res) -> result[0] = SecurityContextHolder.getContext().getAuthentication()
+        );
+        return result[0];
+    }
+
+    private RejectedTokenTracker createTracker(long negativeCacheTtlMillis) {
+        JwtRejectionProperties properties = new JwtRejectionProperties();
+        properties.setNegativeCacheTtlMillis(negativeCacheTtlMillis);
+        properties.setSummaryIntervalMillis(1000);
+        return new RejectedTokenTracker(properties);
+    }
+
+    private VerifiedTokenCache createCache(boolean enabled, int maxSize) {
+        JwtCacheProperties properties = new JwtCacheProperties();
+        properties.setEnabled(enabled);
+        properties.setMaxSize(maxSize);
+        return new VerifiedTokenCache(properties);
+    }
+}
@@ -22,7 +22,12 @@ import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.enumerate.TransactionType;
 import tw.edu.ntub.imd.birc.coffeeshop.bean.ProductBean;
 import tw.edu.ntub.imd.birc.coffeeshop.dto.StockQuantity;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -104,6 +109,63 @@ class ProductControllerTest {
                                 .andExpect(jsonPath("$.data[1].stock", is(8)));
         }
 
+        @Test
+        @DisplayName("測試 GET /api/v1/products - If-None-Match相符時回傳304，內容變動後回傳新的ETag")
+        void testGetAllProducts_NotModified() throws Exception {
+                Product product = new Product();
+                product.setName("瓜地馬拉安提瓜");
+                product.setType(ProductType.BEAN);
+                product.setPrice(520);
+                product.setStock(30);
+                productDAO.save(product);
+
+                String etag = mockMvc.perform(get("/api/v1/products"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().exists("ETag"))
+                                .andReturn()
+                                .getResponse()
+                                .getHeader("ETag");
+
+                mockMvc.perform(get("/api/v1/products").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", etag))
+                                .andExpect(content().string(""));
+
+                product.setStock(29);
+                productDAO.save(product);
+                mockMvc.perform(get("/api/v1/products").header("If-None-Match", etag))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", not(etag)))
+                                .andExpect(jsonPath("$.data[0].stock", is(29)));
+        }
+
+        @Test
+        @DisplayName("測試 GET /api/v1/products - 接受gzip時回傳壓縮內容")
+        void testGetAllProducts_Gzip() throws Exception {
+                Product product = new Product();
+                product.setName("衣索比亞耶加雪菲");
+                product.setType(ProductType.BEAN);
+                product.setPrice(450);
+                product.setStock(120);
+                productDAO.save(product);
+
+                MvcResult result = mockMvc.perform(get("/api/v1/products").header("Accept-Encoding", "gzip, deflate"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Content-Encoding", "gzip"))
+                                .andExpect(header().string("Vary", containsString("Accept-Encoding")))
+                                .andReturn();
+                try (GZIPInputStream inputStream = new GZIPInputStream(
+                                new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+                        String json = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+                        assertTrue(json.contains("衣索比亞耶加雪菲"));
+                }
+
+                mockMvc.perform(get("/api/v1/products").header("Accept-Encoding", "gzip;q=0"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist("Content-Encoding"))
+                                .andExpect(jsonPath("$.data[0].name", is("衣索比亞耶加雪菲")));
+        }
+
         // ========================================
         // B. 新增產品 - 成功情境
         // ========================================
@@ -519,6 +581,116 @@ class ProductControllerTest {
                 org.junit.jupiter.api.Assertions.assertEquals(0, transactionDAO.count());
         }
 
+        // ========================================
+        // E. 查詢交易記錄 - 游標分頁與串流
+        // ========================================
+
+        @Test
+        @DisplayName("測試 GET /api/v1/products/{id}/transactions?size= - 游標分頁")
+        void testGetTransactions_CursorPaging() throws Exception {
+                Product product = new Product();
+                product.setName("衣索比亞耶加雪菲");
+                product.setType(ProductType.BEAN);
+                product.setPrice(450);
+                product.setStock(120);
+                product = productDAO.save(product);
+
+                // 同一時間的多筆交易需以 id 決定順序
+                java.time.LocalDateTime timestamp = java.time.LocalDateTime.of(2026, 1, 11, 23, 30, 37);
+                for (int quantity = 1; quantity <= 5; quantity++) {
+                        Transaction transaction = new Transaction();
+                        transaction.setProductId(product.getId());
+                        transaction.setType(TransactionType.IN);
+                        transaction.setQuantity(quantity);
+                        transaction.setTimestamp(quantity <= 3 ? timestamp : timestamp.plusMinutes(1));
+                        transactionDAO.save(transaction);
+                }
+
+                MvcResult firstPage = mockMvc.perform(get("/api/v1/products/" + product.getId() + "/transactions")
+                                .param("size", "2"))
+                                .andDo(print())
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.data", hasSize(2)))
+                                .andExpect(jsonPath("$.data[0].quantity", is(5)))
+                                .andExpect(jsonPath("$.data[1].quantity", is(4)))
+                                .andExpect(header().exists("X-Next-Cursor"))
+                                .andReturn();
+
+                MvcResult secondPage = mockMvc.perform(get("/api/v1/products/" + product.getId() + "/transactions")
+                                .param("size", "2")
+                                .param("cursor", firstPage.getResponse().getHeader("X-Next-Cursor")))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.data", hasSize(2)))
+                                .andExpect(jsonPath("$.data[0].quantity", is(3)))
+                                .andExpect(jsonPath("$.data[1].quantity", is(2)))
+                                .andReturn();
+
+                mockMvc.perform(get("/api/v1/products/" + product.getId() + "/transactions")
+                                .param("size", "2")
+                                .param("cursor", secondPage.getResponse().getHeader("X-Next-Cursor")))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.data", hasSize(1)))
+                                .andExpect(jsonPath("$.data[0].quantity", is(1)))
+                                .andExpect(header().doesNotExist("X-Next-Cursor"));
+        }
+
+        @Test
+        @DisplayName("測試 GET /api/v1/products/{id}/transactions?cursor= - 無效的游標")
+        void testGetTransactions_InvalidCursor() throws Exception {
+                Product product = new Product();
+                product.setName("提拉米蘇");
+                product.setType(ProductType.DESSERT);
+                product.setPrice(150);
+                product.setStock(8);
+                product = productDAO.save(product);
+
+                mockMvc.perform(get("/api/v1/products/" + product.getId() + "/transactions")
+                                .param("cursor", "not-a-cursor"))
+                                .andDo(print())
+                                .andExpect(status().isBadRequest())
+                                .andExpect(jsonPath("$.result", is(false)));
+        }
+
+        @Test
+        @DisplayName("測試 GET /api/v1/products/{id}/transactions?stream=true - 串流查詢")
+        void testStreamTransactions() throws Exception {
+                Product product = new Product();
+                product.setName("提拉米蘇");
+                product.setType(ProductType.DESSERT);
+                product.setPrice(150);
+                product.setStock(8);
+                product = productDAO.save(product);
+
+                Transaction inTx = new Transaction();
+                inTx.setProductId(product.getId());
+                inTx.setType(TransactionType.IN);
+                inTx.setQuantity(10);
+                transactionDAO.save(inTx);
+
+                Transaction outTx = new Transaction();
+                outTx.setProductId(product.getId());
+                outTx.setType(TransactionType.OUT);
+                outTx.setQuantity(2);
+                transactionDAO.save(outTx);
+
+                MvcResult asyncResult = mockMvc.perform(get("/api/v1/products/" + product.getId() + "/transactions")
+                                .param("stream", "true"))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+                mockMvc.perform(asyncDispatch(asyncResult))
+                                .andDo(print())
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.result", is(true)))
+                                .andExpect(jsonPath("$.message", is("查詢成功")))
+                                .andExpect(jsonPath("$.data", hasSize(2)))
+                                .andExpect(jsonPath("$.data[0].type", is("OUT")))
+                                .andExpect(jsonPath("$.data[1].type", is("IN")));
+
+                mockMvc.perform(get("/api/v1/products/9999/transactions").param("stream", "true"))
+                                .andExpect(status().isNotFound())
+                                .andExpect(jsonPath("$.message", is("產品不存在")));
+        }
+
         // ========================================
         // 綜合測試：完整流程
         // ========================================
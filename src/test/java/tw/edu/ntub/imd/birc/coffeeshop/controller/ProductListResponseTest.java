@@ -0,0 +1,132 @@
+package tw.edu.ntub.imd.birc.coffeeshop.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ActiveProfiles;
+import tw.edu.ntub.imd.birc.coffeeshop.bean.ProductBean;
+import tw.edu.ntub.imd.birc.coffeeshop.config.TestSecurityConfig;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.enumerate.ProductType;
+import tw.edu.ntub.imd.birc.coffeeshop.service.ProductService;
+import tw.edu.ntub.imd.birc.coffeeshop.service.StockMovementService;
+import tw.edu.ntub.imd.birc.coffeeshop.service.cache.ProductCatalogCache;
+import tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures;
+import tw.edu.ntub.imd.birc.coffeeshop.util.http.ResponseEntityBuilder;
+import tw.edu.ntub.imd.birc.coffeeshop.util.http.SerializedResponse;
+import tw.edu.ntub.imd.birc.coffeeshop.util.json.object.ObjectData;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures.newProductBean;
+
+/**
+ * 預先序列化的產品列表回應測試
+ * 驗證產品與庫存未變動時回傳同一份內容、進貨/出貨後重建，且內容與每次重建的JSON相同
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "coffee-shop.product-cache.enabled=true",
+        "coffee-shop.product-cache.stock-ttl-millis=60000"
+})
+@ActiveProfiles("test")
+@Import({TestSecurityConfig.class, TestFixtures.class})
+class ProductListResponseTest {
+    private static final int PRODUCT_COUNT = 200;
+    private static final int POLL_COUNT = 100;
+
+    @Autowired
+    private ProductController productController;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private StockMovementService stockMovementService;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @BeforeEach
+    void setUp() {
+        fixtures.clear();
+        productCatalogCache.clear();
+    }
+
+    @Test
+    @DisplayName("產品與庫存未變動時回傳同一份內容，出貨後重建")
+    void testRebuildOnChange() {
+        ProductBean saved = productService.save(newProductBean("哥倫比亞慧蘭", ProductType.BEAN, 100));
+        ResponseEntity<byte[]> first = productController.getAllProducts(new MockHttpServletRequest());
+        ResponseEntity<byte[]> second = productController.getAllProducts(new MockHttpServletRequest());
+        assertSame(first.getBody(), second.getBody());
+        assertEquals(first.getHeaders().getETag(), second.getHeaders().getETag());
+
+        stockMovementService.updateStockOut(saved.getId(), 1);
+        ResponseEntity<byte[]> third = productController.getAllProducts(createRequest(first.getHeaders().getETag()));
+        assertEquals(HttpStatus.OK, third.getStatusCode());
+        assertNotEquals(first.getHeaders().getETag(), third.getHeaders().getETag());
+        assertTrue(new String(third.getBody(), StandardCharsets.UTF_8).contains("\"stock\":99"));
+
+        ResponseEntity<byte[]> fourth = productController.getAllProducts(createRequest(third.getHeaders().getETag()));
+        assertEquals(HttpStatus.NOT_MODIFIED, fourth.getStatusCode());
+        assertNull(fourth.getBody());
+    }
+
+    @Test
+    @DisplayName("不重複使用的回應不計算ETag也不壓縮，If-None-Match不影響結果")
+    void testPlainResponse() {
+        MockHttpServletRequest request = createRequest("*");
+        request.addHeader("Accept-Encoding", "gzip");
+        ResponseEntity<byte[]> response = SerializedResponse.plain("{\"result\":true}").toResponseEntity(request);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNull(response.getHeaders().getETag());
+        assertNull(response.getHeaders().getFirst("Content-Encoding"));
+        assertEquals("{\"result\":true}", new String(response.getBody(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("POS輪詢產品列表：預先序列化的內容與每次重建的JSON相同，未變動時不重新序列化，帶ETag時回傳304")
+    void testPolling() {
+        for (int i = 0; i < PRODUCT_COUNT; i++) {
+            productService.save(newProductBean("產品" + i, ProductType.BEAN, 100));
+        }
+        ResponseEntity<byte[]> first = productController.getAllProducts(new MockHttpServletRequest());
+        ResponseEntity<String> rebuilt = ResponseEntityBuilder.success()
+                .message("查詢成功")
+                .data(productService.searchAll(), this::addProduct)
+                .build();
+        assertEquals(rebuilt.getBody(), new String(first.getBody(), StandardCharsets.UTF_8));
+
+        String etag = first.getHeaders().getETag();
+        for (int i = 0; i < POLL_COUNT; i++) {
+            assertSame(first.getBody(), productController.getAllProducts(new MockHttpServletRequest()).getBody());
+            ResponseEntity<byte[]> notModified = productController.getAllProducts(createRequest(etag));
+            assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+            assertNull(notModified.getBody());
+        }
+    }
+
+    private MockHttpServletRequest createRequest(String etag) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("If-None-Match", etag);
+        return request;
+    }
+
+    private void addProduct(ObjectData data, ProductBean productBean) {
+        data.add("id", productBean.getId());
+        data.add("name", productBean.getName());
+        data.add("type", productBean.getType().name());
+        data.add("price", productBean.getPrice());
+        data.add("stock", productBean.getStock());
+    }
+}
@@ -0,0 +1,203 @@
+package tw.edu.ntub.imd.birc.coffeeshop.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import tw.edu.ntub.imd.birc.coffeeshop.config.TestSecurityConfig;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.ProductDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.TransactionDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures;
+
+import java.util.*;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 批次庫存異動API測試
+ * 驗證逐筆判斷庫存、atomic模式全部不套用、best-effort模式只套用成功的筆數，
+ * 以及1,000筆異動以批次API與逐筆呼叫進貨/出貨API的結果相同
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import({TestSecurityConfig.class, TestFixtures.class})
+class StockMovementControllerTest {
+    private static final String URL = "/api/v1/stock/movements";
+    private static final int PRODUCT_COUNT = 20;
+    private static final int MAX_MOVEMENT_COUNT = 1000;
+    private static final int INITIAL_STOCK = 10000;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductDAO productDAO;
+
+    @Autowired
+    private TransactionDAO transactionDAO;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @BeforeEach
+    void setUp() {
+        fixtures.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixtures.clear();
+    }
+
+    @Test
+    @DisplayName("同一產品的多筆異動依請求順序判斷庫存，全部成功時在同一個交易中寫入")
+    void testAtomicSuccess() throws Exception {
+        Long productId = fixtures.createProduct(5).getId();
+        postMovements("atomic", List.of(
+                movement(productId, "OUT", 5),
+                movement(productId, "IN", 10),
+                movement(productId, "OUT", 8)
+        ))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result", is(true)))
+                .andExpect(jsonPath("$.data", hasSize(3)))
+                .andExpect(jsonPath("$.data[*].status", everyItem(is("APPLIED"))))
+                .andExpect(jsonPath("$.data[0].remainingStock", is(0)))
+                .andExpect(jsonPath("$.data[1].remainingStock", is(10)))
+                .andExpect(jsonPath("$.data[2].remainingStock", is(2)));
+
+        assertEquals(2, productDAO.findStockById(productId).orElseThrow());
+        assertEquals(3, transactionDAO.findByProductIdOrderByTimestampDesc(productId).size());
+    }
+
+    @Test
+    @DisplayName("atomic模式任一筆失敗時回傳400，庫存與交易記錄都不異動")
+    void testAtomicRejected() throws Exception {
+        Long productId = fixtures.createProduct(5).getId();
+        postMovements("atomic", List.of(
+                movement(productId, "IN", 3),
+                movement(productId, "OUT", 9),
+                movement(-1L, "IN", 1)
+        ))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.result", is(false)))
+                .andExpect(jsonPath("$.errorCode", is("Stock - BulkRejected")))
+                .andExpect(jsonPath("$.data[0].status", is("SKIPPED")))
+                .andExpect(jsonPath("$.data[0].remainingStock", nullValue()))
+                .andExpect(jsonPath("$.data[1].status", is("FAILED")))
+                .andExpect(jsonPath("$.data[1].errorCode", is("Product - InsufficientStock")))
+                .andExpect(jsonPath("$.data[2].status", is("FAILED")))
+                .andExpect(jsonPath("$.data[2].errorCode", is("NotFound")));
+
+        assertEquals(5, productDAO.findStockById(productId).orElseThrow());
+        assertEquals(0, transactionDAO.count());
+    }
+
+    @Test
+    @DisplayName("best-effort模式套用可套用的異動，失敗的筆數不影響後續判斷")
+    void testBestEffort() throws Exception {
+        Long productId = fixtures.createProduct(5).getId();
+        Map<String, Object> missingQuantity = new HashMap<>();
+        missingQuantity.put("productId", productId);
+        missingQuantity.put("type", "IN");
+        postMovements("best-effort", List.of(
+                movement(productId, "OUT", 9),
+                movement(productId, "OUT", 4),
+                missingQuantity,
+                movement(productId, "IN", 0),
+                movement(productId, "IN", 2)
+        ))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result", is(true)))
+                .andExpect(jsonPath("$.data[*].status", contains("FAILED", "APPLIED", "FAILED", "FAILED", "APPLIED")))
+                .andExpect(jsonPath("$.data[2].errorCode", is("FormValidation - Invalid")))
+                .andExpect(jsonPath("$.data[3].message", is("數量必須大於0")))
+                .andExpect(jsonPath("$.data[4].remainingStock", is(3)));
+
+        assertEquals(3, productDAO.findStockById(productId).orElseThrow());
+        assertEquals(2, transactionDAO.count());
+    }
+
+    @Test
+    @DisplayName("筆數為0或超過上限、mode不正確時回傳400")
+    void testInvalidRequest() throws Exception {
+        Long productId = fixtures.createProduct(5).getId();
+        postMovements("atomic", List.of())
+                .andExpect(status().isBadRequest());
+        postMovements("atomic", Collections.nCopies(MAX_MOVEMENT_COUNT + 1, movement(productId, "IN", 1)))
+                .andExpect(status().isBadRequest());
+        postMovements("all", List.of(movement(productId, "IN", 1)))
+                .andExpect(status().isBadRequest());
+        assertEquals(5, productDAO.findStockById(productId).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("1,000筆異動以批次API與逐筆呼叫進貨/出貨API套用後的庫存與交易記錄筆數相同")
+    void testBulkMatchesIndividual() throws Exception {
+        List<Long> individualIdList = new ArrayList<>();
+        List<Long> bulkIdList = new ArrayList<>();
+        for (int i = 0; i < PRODUCT_COUNT; i++) {
+            individualIdList.add(fixtures.createProduct(INITIAL_STOCK).getId());
+            bulkIdList.add(fixtures.createProduct(INITIAL_STOCK).getId());
+        }
+        List<Map<String, Object>> bulkList = new ArrayList<>();
+        for (int i = 0; i < MAX_MOVEMENT_COUNT; i++) {
+            String type = i % 3 == 0 ? "IN" : "OUT";
+            int quantity = i % 5 + 1;
+            String path = "IN".equals(type) ? "/stock/in" : "/stock/out";
+            mockMvc.perform(post("/api/v1/products/" + individualIdList.get(i % PRODUCT_COUNT) + path)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(Map.of("quantity", quantity))))
+                    .andExpect(status().isOk());
+            bulkList.add(movement(bulkIdList.get(i % PRODUCT_COUNT), type, quantity));
+        }
+        postMovements("atomic", bulkList)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", hasSize(MAX_MOVEMENT_COUNT)));
+
+        assertEquals(MAX_MOVEMENT_COUNT * 2L, transactionDAO.count());
+        for (int i = 0; i < PRODUCT_COUNT; i++) {
+            assertEquals(
+                    productDAO.findStockById(individualIdList.get(i)).orElseThrow(),
+                    productDAO.findStockById(bulkIdList.get(i)).orElseThrow()
+            );
+            assertEquals(
+                    transactionDAO.findByProductIdOrderByTimestampDesc(individualIdList.get(i)).size(),
+                    transactionDAO.findByProductIdOrderByTimestampDesc(bulkIdList.get(i)).size()
+            );
+        }
+        int expectedStock = INITIAL_STOCK;
+        for (int i = 0; i < MAX_MOVEMENT_COUNT; i += PRODUCT_COUNT) {
+            expectedStock += (i % 3 == 0 ? 1 : -1) * (i % 5 + 1);
+        }
+        assertEquals(expectedStock, productDAO.findStockById(bulkIdList.get(0)).orElseThrow());
+    }
+
+    private ResultActions postMovements(String mode, List<Map<String, Object>> movementList) throws Exception {
+        return mockMvc.perform(post(URL)
+                .param("mode", mode)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(movementList)));
+    }
+
+    private Map<String, Object> movement(Long productId, String type, int quantity) {
+        return Map.of("productId", productId, "type", type, "quantity", quantity);
+    }
+}
@@ -0,0 +1,110 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.pool;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import tw.edu.ntub.imd.birc.coffeeshop.config.TestSecurityConfig;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.ProductDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.TransactionDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity.Product;
+import tw.edu.ntub.imd.birc.coffeeshop.service.StockMovementService;
+import tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures.runConcurrently;
+
+/**
+ * HikariCP連線池測試
+ * 驗證連線池設定與統計，以及200個並行進貨/出貨請求下都能取得連線且不會逾時
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+@Import({TestSecurityConfig.class, TestFixtures.class})
+class DataSourcePoolTest {
+    private static final int THREAD_COUNT = 200;
+    private static final int REQUEST_PER_THREAD = 10;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PoolMetrics poolMetrics;
+
+    @Autowired
+    private ProductDAO productDAO;
+
+    @Autowired
+    private TransactionDAO transactionDAO;
+
+    @Autowired
+    private StockMovementService stockMovementService;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @BeforeEach
+    void setUp() {
+        fixtures.clear();
+    }
+
+    @Test
+    @DisplayName("使用HikariCP，閒置連線定期驗證，非MySQL時不加入預編譯快取設定")
+    void testPoolConfiguration() throws Exception {
+        HikariDataSource hikariDataSource = dataSource.unwrap(HikariDataSource.class);
+        assertEquals("CoffeeShopPool", hikariDataSource.getPoolName());
+        assertEquals(50, hikariDataSource.getMaximumPoolSize());
+        assertEquals(60000, hikariDataSource.getKeepaliveTime());
+        assertEquals("60000", System.getProperty("com.zaxxer.hikari.aliveBypassWindowMs"));
+        assertTrue(hikariDataSource.getDataSourceProperties().isEmpty());
+        assertSame(poolMetrics, hikariDataSource.getMetricsTrackerFactory());
+        assertTrue(poolMetrics.isAvailable());
+    }
+
+    @Test
+    @DisplayName("取得連線耗時的百分位數取所在區間的上限")
+    void testPercentile() {
+        PoolMetrics metrics = new PoolMetrics();
+        for (int i = 0; i < 98; i++) {
+            metrics.recordAcquire(TimeUnit.MICROSECONDS.toNanos(5));
+        }
+        metrics.recordAcquire(TimeUnit.MICROSECONDS.toNanos(300));
+        metrics.recordAcquire(TimeUnit.SECONDS.toNanos(3));
+        assertEquals(10, metrics.getAcquirePercentileMicros(50));
+        assertEquals(500, metrics.getAcquirePercentileMicros(99));
+        assertEquals(3_000_000, metrics.getAcquirePercentileMicros(100));
+        metrics.reset();
+        assertEquals(0, metrics.getAcquirePercentileMicros(99));
+    }
+
+    @Test
+    @DisplayName("200個並行進貨/出貨請求下每個請求都取得連線，沒有逾時也沒有仍在等待的執行緒")
+    void testAcquireUnderLoad() throws Exception {
+        int requestCount = THREAD_COUNT * REQUEST_PER_THREAD;
+        Product product = fixtures.createProduct(requestCount);
+        poolMetrics.reset();
+        runConcurrently(THREAD_COUNT, THREAD_COUNT, index -> {
+            for (int i = 0; i < REQUEST_PER_THREAD; i++) {
+                if (i % 2 == 0) {
+                    stockMovementService.updateStockOut(product.getId(), 2);
+                } else {
+                    stockMovementService.updateStockIn(product.getId(), 1);
+                }
+            }
+        });
+
+        assertEquals(requestCount / 2, productDAO.findStockById(product.getId()).orElseThrow());
+        assertEquals(requestCount, transactionDAO.count());
+        assertEquals(0, poolMetrics.getTimeoutCount());
+        assertEquals(0, poolMetrics.getPendingThreads());
+        assertTrue(poolMetrics.getAcquireCount() >= requestCount);
+        assertTrue(poolMetrics.getTotalConnections() <= poolMetrics.getMaxConnections());
+    }
+}
@@ -0,0 +1,204 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.probe;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.SqlProbeProperties;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SQL計時探針測試
+ * 驗證關閉時不包裝Connection、啟用時的次數與筆數統計，且經過探針的查詢結果不變
+ */
+class ProbeDataSourceTest {
+    private static final String URL = "jdbc:h2:mem:probe;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final String SELECT_SQL = "SELECT name, stock FROM probe_product WHERE id = ?";
+    private static final String INSERT_SQL = "INSERT INTO probe_product (id, name, stock) VALUES (?, ?, ?)";
+    private static final int ITERATION = 1_000;
+    private JdbcDataSource h2DataSource;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        h2DataSource = new JdbcDataSource();
+        h2DataSource.setURL(URL);
+        try (Connection connection = h2DataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS probe_product");
+            statement.execute("CREATE TABLE probe_product (id BIGINT PRIMARY KEY, name VARCHAR(50), stock INT)");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Connection connection = h2DataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS probe_product");
+        }
+    }
+
+    @Test
+    @DisplayName("關閉時回傳原本的Connection，切換只影響之後取得的Connection")
+    void testRuntimeSwitch() throws Exception {
+        SqlProbe sqlProbe = createProbe(false, 500);
+        DataSource dataSource = new ProbeDataSource(h2DataSource, sqlProbe);
+
+        try (Connection connection = dataSource.getConnection()) {
+            assertFalse(Proxy.isProxyClass(connection.getClass()));
+            sqlProbe.setEnabled(true);
+            insert(connection, 1, 1);
+        }
+        assertTrue(sqlProbe.getStatisticsList().isEmpty());
+
+        try (Connection connection = dataSource.getConnection()) {
+            assertTrue(Proxy.isProxyClass(connection.getClass()));
+            assertNotNull(connection.unwrap(org.h2.jdbc.JdbcConnection.class));
+            insert(connection, 2, 1);
+        }
+        assertEquals(1, sqlProbe.getStatisticsList().size());
+    }
+
+    @Test
+    @DisplayName("依SQL文字統計次數、更新筆數與查詢筆數，不帶入參數值")
+    void testStatistics() throws Exception {
+        SqlProbe sqlProbe = createProbe(true, 500);
+        DataSource dataSource = new ProbeDataSource(h2DataSource, sqlProbe);
+
+        try (Connection connection = dataSource.getConnection()) {
+            insert(connection, 1, 3);
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+                for (int i = 10; i < 15; i++) {
+                    statement.setLong(1, i);
+                    statement.setString(2, "Latte");
+                    statement.setInt(3, i);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT id FROM probe_product")) {
+                assertSame(statement, resultSet.getStatement());
+                while (resultSet.next()) {
+                    resultSet.getLong(1);
+                }
+            }
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_SQL)) {
+                statement.setLong(1, 1);
+                statement.executeQuery().next();
+            }
+        }
+
+        SqlStatistics insert = find(sqlProbe.getStatisticsList(), INSERT_SQL);
+        assertEquals(4, insert.getCount());
+        assertEquals(8, insert.getRows());
+        SqlStatistics selectAll = find(sqlProbe.getStatisticsList(), "SELECT id FROM probe_product");
+        assertEquals(1, selectAll.getCount());
+        assertEquals(8, selectAll.getRows());
+        SqlStatistics select = find(sqlProbe.getStatisticsList(), SELECT_SQL);
+        assertEquals(1, select.getRows());
+        long bucketTotal = 0;
+        for (long count : insert.getBucketCounts()) {
+            bucketTotal += count;
+        }
+        assertEquals(insert.getCount(), bucketTotal);
+        assertTrue(insert.getMaxNanos() > 0);
+        assertTrue(sqlProbe.getStatisticsList().stream().noneMatch(statistics -> statistics.getSql().contains("Latte")));
+    }
+
+    @Test
+    @DisplayName("超過maxStatements的SQL歸入同一筆")
+    void testMaxStatements() throws Exception {
+        SqlProbe sqlProbe = createProbe(true, 2);
+        DataSource dataSource = new ProbeDataSource(h2DataSource, sqlProbe);
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            for (int i = 0; i < 5; i++) {
+                statement.executeQuery("SELECT " + i).close();
+            }
+        }
+        List<SqlStatistics> statisticsList = sqlProbe.getStatisticsList();
+        assertEquals(3, statisticsList.size());
+        assertEquals(3, find(statisticsList, SqlProbe.OTHER_STATEMENT).getCount());
+        sqlProbe.reset();
+        assertTrue(sqlProbe.getStatisticsList().isEmpty());
+    }
+
+    @Test
+    @DisplayName("經過探針的查詢結果與原本的Connection相同，啟用時每次查詢都計入統計")
+    void testSameResultThroughProbe() throws Exception {
+        try (Connection connection = h2DataSource.getConnection()) {
+            insert(connection, 1, 100);
+        }
+        SqlProbe disabledProbe = createProbe(false, 500);
+        SqlProbe enabledProbe = createProbe(true, 500);
+        DataSource disabledDataSource = new ProbeDataSource(h2DataSource, disabledProbe);
+        DataSource enabledDataSource = new ProbeDataSource(h2DataSource, enabledProbe);
+
+        long expected;
+        try (Connection connection = h2DataSource.getConnection()) {
+            expected = query(connection);
+        }
+        try (Connection connection = disabledDataSource.getConnection()) {
+            assertEquals(expected, query(connection));
+        }
+        try (Connection connection = enabledDataSource.getConnection()) {
+            assertEquals(expected, query(connection));
+        }
+        SqlStatistics select = find(enabledProbe.getStatisticsList(), SELECT_SQL);
+        assertEquals(ITERATION, select.getCount());
+        assertEquals(ITERATION, select.getRows());
+        assertTrue(disabledProbe.getStatisticsList().isEmpty());
+    }
+
+    /**
+     * @return 所有查詢結果的庫存合計
+     */
+    private long query(Connection connection) throws SQLException {
+        long stockTotal = 0;
+        for (int i = 0; i < ITERATION; i++) {
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_SQL)) {
+                statement.setLong(1, 1 + i % 100);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        assertEquals("Americano", resultSet.getString(1));
+                        stockTotal += resultSet.getInt(2);
+                    }
+                }
+            }
+        }
+        return stockTotal;
+    }
+
+    private void insert(Connection connection, long startId, int count) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+            for (int i = 0; i < count; i++) {
+                statement.setLong(1, startId + i);
+                statement.setString(2, "Americano");
+                statement.setInt(3, 10);
+                statement.executeUpdate();
+            }
+        }
+    }
+
+    private SqlStatistics find(List<SqlStatistics> statisticsList, String sql) {
+        return statisticsList.stream()
+                .filter(statistics -> statistics.getSql().equals(sql))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private SqlProbe createProbe(boolean enabled, int maxStatements) {
+        SqlProbeProperties properties = new SqlProbeProperties();
+        properties.setEnabled(enabled);
+        properties.setMaxStatements(maxStatements);
+        return new SqlProbe(properties);
+    }
+}
@@ -0,0 +1,215 @@
+package tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.routing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import tw.edu.ntub.imd.birc.coffeeshop.bean.ProductBean;
+import tw.edu.ntub.imd.birc.coffeeshop.config.TestSecurityConfig;
+import tw.edu.ntub.imd.birc.coffeeshop.config.filter.ReadYourWritesFilter;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.ProductDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.enumerate.ProductType;
+import tw.edu.ntub.imd.birc.coffeeshop.service.ProductService;
+import tw.edu.ntub.imd.birc.coffeeshop.service.StockMovementService;
+import tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures.newProductBean;
+import static tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures.runConcurrently;
+
+/**
+ * 讀寫分離測試，主資料庫與副本為兩個獨立的H2資料庫，以SCRIPT/RUNSCRIPT模擬複寫
+ * 驗證唯讀呼叫使用副本、寫入使用主資料庫、副本落後時改回主資料庫、請求中寫入後讀取固定使用主資料庫，
+ * 以及進貨/出貨同時進行時產品列表仍使用副本
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "coffee-shop.datasource.routing.enabled=true",
+        "coffee-shop.datasource.routing.replica-url=jdbc:h2:mem:replica;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "coffee-shop.datasource.routing.lag-query=SELECT lag_millis FROM replica_lag",
+        "coffee-shop.datasource.routing.lag-check-interval-millis=3600000"
+})
+@ActiveProfiles("test")
+@Import({TestSecurityConfig.class, TestFixtures.class})
+class RoutingDataSourceTest {
+    private static final int READER_COUNT = 16;
+    private static final int WRITER_COUNT = 16;
+    private static final int READ_PER_THREAD = 50;
+    private static final int WRITE_PER_THREAD = 50;
+    private static final int PRODUCT_COUNT = 100;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private StockMovementService stockMovementService;
+
+    @Autowired
+    private ProductDAO productDAO;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @TempDir
+    Path scriptDirectory;
+
+    private RoutingDataSource routingDataSource;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        routingDataSource = dataSource.unwrap(RoutingDataSource.class);
+        fixtures.clear();
+        replicate();
+    }
+
+    @AfterEach
+    void tearDown() {
+        RoutingContext.endRequest();
+    }
+
+    @Test
+    @DisplayName("唯讀呼叫使用副本，寫入使用主資料庫")
+    void testRouting() throws Exception {
+        long replicaCount = routingDataSource.getRouteCount(DataSourceType.REPLICA);
+        ProductBean saved = productService.save(newProductBean("瓜地馬拉安提瓜", ProductType.BEAN, 100));
+        assertTrue(productService.searchAll().isEmpty());
+        assertTrue(routingDataSource.getRouteCount(DataSourceType.REPLICA) > replicaCount);
+
+        replicate();
+        executeOnReplica("UPDATE product SET name = '副本' WHERE id = " + saved.getId());
+        assertEquals("副本", productService.getById(saved.getId()).orElseThrow().getName());
+        try (Connection connection = getTargetDataSource(DataSourceType.PRIMARY).getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT name FROM product WHERE id = " + saved.getId())) {
+            assertTrue(resultSet.next());
+            assertEquals("瓜地馬拉安提瓜", resultSet.getString(1));
+        }
+    }
+
+    @Test
+    @DisplayName("副本落後超過容許值時改用主資料庫")
+    void testLagTolerance() throws Exception {
+        productService.save(newProductBean("肯亞AA", ProductType.BEAN, 100));
+        assertTrue(productService.searchAll().isEmpty());
+
+        setReplicaLag(5000);
+        assertFalse(routingDataSource.getLagMonitor().isAvailable());
+        assertEquals(5000, routingDataSource.getLagMonitor().getLagMillis());
+        assertEquals(1, productService.searchAll().size());
+
+        setReplicaLag(200);
+        assertTrue(routingDataSource.getLagMonitor().isAvailable());
+        assertTrue(productService.searchAll().isEmpty());
+    }
+
+    @Test
+    @DisplayName("同一個請求寫入後，剩下的讀取使用主資料庫")
+    void testReadYourWrites() throws Exception {
+        List<Integer> sizeList = new ArrayList<>();
+        new ReadYourWritesFilter().doFilter(
+                new MockHttpServletRequest("POST", "/api/v1/products"),
+                new MockHttpServletResponse(),
+                (request, response) -> {
+                    sizeList.add(productService.searchAll().size());
+                    productService.save(newProductBean("巴拿馬藝伎", ProductType.BEAN, 100));
+                    assertTrue(RoutingContext.isPinned());
+                    sizeList.add(productService.searchAll().size());
+                }
+        );
+        assertEquals(List.of(0, 1), sizeList);
+        assertFalse(RoutingContext.isPinned());
+        assertTrue(productService.searchAll().isEmpty());
+    }
+
+    @Test
+    @DisplayName("進貨/出貨同時進行時，產品列表使用副本且結果完整；副本無法使用時全部改用主資料庫")
+    void testListingUnderMixedLoad() throws Exception {
+        List<Long> productIdList = new ArrayList<>();
+        for (int i = 0; i < PRODUCT_COUNT; i++) {
+            productIdList.add(productService.save(newProductBean("產品" + i, ProductType.BEAN, 100)).getId());
+        }
+        replicate();
+
+        long replicaCount = routingDataSource.getRouteCount(DataSourceType.REPLICA);
+        runMixedLoad(productIdList);
+        long replicaRouted = routingDataSource.getRouteCount(DataSourceType.REPLICA) - replicaCount;
+        assertTrue(replicaRouted >= READER_COUNT * READ_PER_THREAD);
+
+        setReplicaLag(Long.MAX_VALUE);
+        replicaCount = routingDataSource.getRouteCount(DataSourceType.REPLICA);
+        runMixedLoad(productIdList);
+        assertEquals(replicaCount, routingDataSource.getRouteCount(DataSourceType.REPLICA));
+        for (Long productId : productIdList) {
+            assertEquals(100, productDAO.findStockById(productId).orElseThrow());
+        }
+    }
+
+    /**
+     * 前WRITER_COUNT個工作輪流對產品進貨再出貨1個，其餘工作反覆查詢產品列表
+     */
+    private void runMixedLoad(List<Long> productIdList) throws Exception {
+        runConcurrently(READER_COUNT + WRITER_COUNT, READER_COUNT + WRITER_COUNT, index -> {
+            if (index < WRITER_COUNT) {
+                for (int i = 0; i < WRITE_PER_THREAD; i++) {
+                    Long productId = productIdList.get((index + i) % productIdList.size());
+                    stockMovementService.updateStockIn(productId, 1);
+                    stockMovementService.updateStockOut(productId, 1);
+                }
+            } else {
+                for (int i = 0; i < READ_PER_THREAD; i++) {
+                    assertEquals(PRODUCT_COUNT, productService.searchAll().size());
+                }
+            }
+        });
+    }
+
+    /**
+     * 將主資料庫的結構與資料完整複製到副本，並重建落後時間表
+     */
+    private void replicate() throws Exception {
+        String script = scriptDirectory.resolve("replica.sql").toString().replace('\\', '/');
+        try (Connection connection = getTargetDataSource(DataSourceType.PRIMARY).getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("SCRIPT TO '" + script + "'");
+        }
+        executeOnReplica("DROP ALL OBJECTS");
+        executeOnReplica("RUNSCRIPT FROM '" + script + "'");
+        executeOnReplica("CREATE TABLE replica_lag (lag_millis BIGINT)");
+        setReplicaLag(0);
+    }
+
+    private void setReplicaLag(long lagMillis) throws Exception {
+        executeOnReplica("DELETE FROM replica_lag");
+        executeOnReplica("INSERT INTO replica_lag VALUES (" + lagMillis + ")");
+        routingDataSource.getLagMonitor().checkLag();
+    }
+
+    private void executeOnReplica(String sql) throws Exception {
+        try (Connection connection = getTargetDataSource(DataSourceType.REPLICA).getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private DataSource getTargetDataSource(DataSourceType type) {
+        return routingDataSource.getResolvedDataSources().get(type);
+    }
+}
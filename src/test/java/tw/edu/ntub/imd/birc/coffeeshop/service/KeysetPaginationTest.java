@@ -0,0 +1,222 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import tw.edu.ntub.birc.common.util.CollectionUtils;
+import tw.edu.ntub.imd.birc.coffeeshop.bean.ProductBean;
+import tw.edu.ntub.imd.birc.coffeeshop.bean.TransactionBean;
+import tw.edu.ntub.imd.birc.coffeeshop.config.TestSecurityConfig;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.TransactionDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto.Pager;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto.TransactionView;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity.Product;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.enumerate.ProductType;
+import tw.edu.ntub.imd.birc.coffeeshop.dto.CursorPage;
+import tw.edu.ntub.imd.birc.coffeeshop.dto.KeysetCursor;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.form.InvalidRequestFormatException;
+import tw.edu.ntub.imd.birc.coffeeshop.service.transformer.TransactionTransformer;
+import tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures.newProductBean;
+
+/**
+ * 鍵集分頁測試
+ * 驗證逐頁讀完的結果與整批排序相同、游標只能用於允許的屬性，以及深頁數時與OFFSET分頁的結果相同
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+@Import({TestSecurityConfig.class, TestFixtures.class})
+class KeysetPaginationTest {
+    private static final int PAGE_SIZE = 20;
+    private static final int DEEP_PAGE = 10_000;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionDAO transactionDAO;
+
+    @Autowired
+    private TransactionTransformer transactionTransformer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @BeforeEach
+    void setUp() {
+        fixtures.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixtures.clear();
+    }
+
+    @Test
+    @DisplayName("依時間由新到舊逐頁讀完，結果與整批排序相同，同一時間的記錄不會重複或遺漏")
+    void testWalkAllPages() {
+        Product product = fixtures.createProduct(100);
+        // 每個時間點有3筆，頁的邊界會落在同一時間的記錄之間
+        fixtures.insertTransactions(product.getId(), 100, 3);
+        List<TransactionBean> expected = new ArrayList<>(CollectionUtils.map(
+                transactionDAO.findAll(),
+                transactionTransformer::transferToBean
+        ));
+        expected.sort(Comparator.comparing(TransactionBean::getTimestamp)
+                .thenComparing(TransactionBean::getId)
+                .reversed());
+
+        List<TransactionBean> actual = new ArrayList<>();
+        String cursor = null;
+        int pageCount = 0;
+        do {
+            CursorPage<TransactionBean> page = transactionService.searchAfter("timestamp", Sort.Direction.DESC, cursor, 7);
+            actual.addAll(page.getContent());
+            cursor = page.getNextCursor();
+            pageCount++;
+        } while (cursor != null);
+        assertEquals(expected, actual);
+        assertEquals(15, pageCount);
+    }
+
+    @Test
+    @DisplayName("依id遞增分頁，使用投影的服務也能取得下一頁游標")
+    void testAscendingById() {
+        for (int i = 0; i < 5; i++) {
+            productService.save(newProductBean("產品" + i, ProductType.BEAN, i));
+        }
+        CursorPage<ProductBean> first = productService.searchAfter(Pager.keyset("id", Sort.Direction.ASC, 2));
+        CursorPage<ProductBean> second = productService.searchAfter("id", Sort.Direction.ASC, first.getNextCursor(), 2);
+        CursorPage<ProductBean> third = productService.searchAfter("id", Sort.Direction.ASC, second.getNextCursor(), 2);
+        assertEquals(List.of("產品0", "產品1"), CollectionUtils.map(first.getContent(), ProductBean::getName));
+        assertEquals(List.of("產品2", "產品3"), CollectionUtils.map(second.getContent(), ProductBean::getName));
+        assertEquals(List.of("產品4"), CollectionUtils.map(third.getContent(), ProductBean::getName));
+        assertFalse(third.hasNext());
+    }
+
+    @Test
+    @DisplayName("帶條件的鍵集分頁只讀取符合條件的記錄，與同一時間的其他產品記錄交錯也不會混入")
+    void testWalkFilteredPages() {
+        Product product = fixtures.createProduct(100);
+        Product other = fixtures.createProduct(100);
+        fixtures.insertTransactions(product.getId(), 50, 3);
+        fixtures.insertTransactions(other.getId(), 50, 3);
+        List<TransactionBean> expected = CollectionUtils.map(
+                transactionDAO.findByProductIdOrderByTimestampDescIdDesc(product.getId()),
+                transactionTransformer::transferToBean
+        );
+        TransactionBean probe = new TransactionBean();
+        probe.setProductId(product.getId());
+
+        List<TransactionBean> actual = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<TransactionBean> page = transactionService.searchAfter(
+                    probe,
+                    "timestamp",
+                    Sort.Direction.DESC,
+                    cursor,
+                    7
+            );
+            actual.addAll(page.getContent());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    @DisplayName("沒有索引的屬性不能用於鍵集分頁，無效的游標回傳格式錯誤")
+    void testInvalid() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> transactionService.searchAfter("quantity", Sort.Direction.ASC, null, PAGE_SIZE)
+        );
+        assertThrows(
+                InvalidRequestFormatException.class,
+                () -> transactionService.searchAfter("timestamp", Sort.Direction.DESC, "not-a-cursor", PAGE_SIZE)
+        );
+    }
+
+    @Test
+    @DisplayName("第10,000頁與下一頁：鍵集分頁與OFFSET分頁的結果相同，依id遞增與依時間由新到舊")
+    void testDeepPage() {
+        Product product = fixtures.createProduct(100);
+        fixtures.insertTransactions(product.getId(), (DEEP_PAGE + 1) * PAGE_SIZE, 2);
+
+        CursorPage<TransactionBean> byId = transactionService.searchAfter(
+                "id",
+                Sort.Direction.ASC,
+                createCursor("id", "id", DEEP_PAGE),
+                PAGE_SIZE
+        );
+        assertEquals(transactionService.searchAll(Pager.getInstance(DEEP_PAGE, PAGE_SIZE)), byId.getContent());
+        assertEquals(
+                transactionService.searchAll(Pager.getInstance(DEEP_PAGE + 1, PAGE_SIZE)),
+                transactionService.searchAfter("id", Sort.Direction.ASC, byId.getNextCursor(), PAGE_SIZE).getContent()
+        );
+
+        CursorPage<TransactionBean> byTimestamp = transactionService.searchAfter(
+                "timestamp",
+                Sort.Direction.DESC,
+                createCursor("timestamp", "timestamp DESC, id DESC", DEEP_PAGE),
+                PAGE_SIZE
+        );
+        assertEquals(findByTimestamp(DEEP_PAGE), byTimestamp.getContent());
+        assertEquals(
+                findByTimestamp(DEEP_PAGE + 1),
+                transactionService.searchAfter("timestamp", Sort.Direction.DESC, byTimestamp.getNextCursor(), PAGE_SIZE)
+                        .getContent()
+        );
+    }
+
+    /**
+     * 以OFFSET分頁依時間由新到舊讀取第page頁
+     */
+    private List<TransactionBean> findByTimestamp(int page) {
+        return CollectionUtils.map(
+                transactionDAO.findAll(
+                        TransactionView.class,
+                        PageRequest.of(page - 1, PAGE_SIZE, Sort.by(Sort.Direction.DESC, "timestamp", "id"))
+                ).getContent(),
+                transactionTransformer::transferViewToBean
+        );
+    }
+
+    /**
+     * 模擬用戶端已逐頁讀到page的前一頁，以該頁最後一筆建立游標
+     */
+    private String createCursor(String sortColumn, String orderBy, int page) {
+        Map<String, Object> last = jdbcTemplate.queryForMap(
+                "SELECT id, " + sortColumn + " AS sort_value FROM transaction ORDER BY " + orderBy +
+                        " LIMIT 1 OFFSET ?",
+                (page - 1) * PAGE_SIZE - 1
+        );
+        Object value = last.get("sort_value");
+        return new KeysetCursor(
+                value instanceof Timestamp ? ((Timestamp) value).toLocalDateTime() : value,
+                last.get("id")
+        ).encode();
+    }
+}
@@ -0,0 +1,194 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import tw.edu.ntub.birc.common.util.CollectionUtils;
+import tw.edu.ntub.imd.birc.coffeeshop.bean.ProductBean;
+import tw.edu.ntub.imd.birc.coffeeshop.bean.TransactionBean;
+import tw.edu.ntub.imd.birc.coffeeshop.config.TestSecurityConfig;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.ProductDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.TransactionDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto.ProductStock;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto.ProductView;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto.TransactionView;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity.Product;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.enumerate.ProductType;
+import tw.edu.ntub.imd.birc.coffeeshop.dto.CursorPage;
+import tw.edu.ntub.imd.birc.coffeeshop.service.transformer.ProductTransformer;
+import tw.edu.ntub.imd.birc.coffeeshop.service.transformer.TransactionTransformer;
+import tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures;
+
+import javax.persistence.EntityManager;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures.newProductBean;
+
+/**
+ * 投影查詢測試
+ * 驗證投影查詢的結果與實體查詢相同且不會放進persistence context，
+ * 且50k筆交易記錄時單次請求的配置量比實體查詢少
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+@Import({TestSecurityConfig.class, TestFixtures.class})
+class ProjectionQueryTest {
+    private static final int ROW_COUNT = 50_000;
+    private static final int ITERATIONS = 5;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private ProductDAO productDAO;
+
+    @Autowired
+    private TransactionDAO transactionDAO;
+
+    @Autowired
+    private ProductTransformer productTransformer;
+
+    @Autowired
+    private TransactionTransformer transactionTransformer;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @BeforeEach
+    void setUp() {
+        fixtures.clear();
+    }
+
+    @Test
+    @DisplayName("類別投影、介面投影與實體查詢的結果相同")
+    void testSameResult() {
+        for (int i = 0; i < 5; i++) {
+            productService.save(newProductBean("產品" + i, i % 2 == 0 ? ProductType.BEAN : ProductType.DESSERT, i));
+        }
+        List<ProductBean> expected = CollectionUtils.map(productDAO.findAll(), productTransformer::transferToBean);
+        assertEquals(sortById(expected), sortById(productService.searchAll()));
+
+        List<ProductStock> stockList = productDAO.findAll(ProductStock.class, Sort.by("id"));
+        assertEquals(
+                expected.stream().map(ProductBean::getStock).collect(Collectors.toList()),
+                stockList.stream().map(ProductStock::getStock).collect(Collectors.toList())
+        );
+
+        ProductBean probe = new ProductBean();
+        probe.setType(ProductType.DESSERT);
+        List<ProductView> dessertList = productService.searchByBean(probe, ProductView.class);
+        assertEquals(2, dessertList.size());
+        assertTrue(dessertList.stream().allMatch(view -> view.getType() == ProductType.DESSERT));
+        assertEquals(2, productService.searchByBean(probe).size());
+
+        Page<ProductView> page = productDAO.findAll(ProductView.class, PageRequest.of(1, 2, Sort.by("id")));
+        assertEquals(5, page.getTotalElements());
+        assertEquals(expected.get(2).getName(), page.getContent().get(0).getName());
+        assertEquals("產品3", productDAO.findById(page.getContent().get(1).getId(), ProductView.class)
+                .orElseThrow()
+                .getName());
+    }
+
+    @Test
+    @DisplayName("投影查詢的結果不會放進persistence context")
+    void testNotManaged() {
+        productService.save(newProductBean("瓜地馬拉安提瓜", ProductType.BEAN, 10));
+        int[] entityCount = transactionTemplate.execute(status -> {
+            Session session = entityManager.unwrap(Session.class);
+            productDAO.findAll(ProductView.class);
+            productDAO.findAll(ProductStock.class);
+            int projectionCount = session.getStatistics().getEntityCount();
+            productDAO.findAll();
+            return new int[]{projectionCount, session.getStatistics().getEntityCount()};
+        });
+        assertNotNull(entityCount);
+        assertEquals(0, entityCount[0]);
+        assertEquals(1, entityCount[1]);
+    }
+
+    @Test
+    @DisplayName("交易記錄改用投影後結果與游標分頁不變")
+    void testTransactionHistory() {
+        Product product = fixtures.createProduct(100);
+        fixtures.insertTransactions(product.getId(), 30, 2);
+        List<TransactionBean> expected = CollectionUtils.map(
+                transactionDAO.findByProductIdOrderByTimestampDescIdDesc(product.getId()),
+                transactionTransformer::transferToBean
+        );
+        assertEquals(expected, transactionService.searchByProductId(product.getId()));
+
+        List<TransactionBean> pagedList = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<TransactionBean> page = transactionService.searchByProductId(product.getId(), cursor, 7);
+            pagedList.addAll(page.getContent());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(expected, pagedList);
+    }
+
+    @Test
+    @DisplayName("50k筆交易記錄的單次請求，投影查詢的配置量比實體查詢少")
+    void testAllocation() {
+        Long productId = fixtures.createProduct(100).getId();
+        fixtures.insertTransactions(productId, ROW_COUNT, 2);
+        Supplier<List<TransactionBean>> entity = () -> CollectionUtils.map(
+                transactionDAO.findByProductIdOrderByTimestampDescIdDesc(productId),
+                transactionTransformer::transferToBean
+        );
+        Supplier<List<TransactionBean>> projection = () -> CollectionUtils.map(
+                transactionDAO.findByProductIdOrderByTimestampDescIdDesc(productId, TransactionView.class),
+                transactionTransformer::transferViewToBean
+        );
+        // 先各執行一次，排除類別載入與查詢編譯等一次性的配置
+        assertEquals(projection.get(), entity.get());
+
+        assertTrue(measureAllocation(projection) < measureAllocation(entity));
+    }
+
+    /**
+     * @return 平均每次請求的配置量(byte)
+     */
+    private long measureAllocation(Supplier<List<TransactionBean>> supplier) {
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBytes = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long before = threadMXBean.getThreadAllocatedBytes(threadId);
+            assertEquals(ROW_COUNT, supplier.get().size());
+            allocatedBytes += threadMXBean.getThreadAllocatedBytes(threadId) - before;
+        }
+        return allocatedBytes / ITERATIONS;
+    }
+
+    private List<ProductBean> sortById(List<ProductBean> productList) {
+        List<ProductBean> result = new ArrayList<>(productList);
+        result.sort(Comparator.comparing(ProductBean::getId));
+        return result;
+    }
+}
@@ -0,0 +1,86 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import tw.edu.ntub.imd.birc.coffeeshop.config.TestSecurityConfig;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.ProductDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.TransactionDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity.Product;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity.Transaction;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.enumerate.TransactionType;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.InsufficientStockException;
+import tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures.runConcurrently;
+
+/**
+ * 庫存引擎併發測試
+ * 同一產品被大量同時進貨/出貨時，庫存與交易記錄必須一致
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import({TestSecurityConfig.class, TestFixtures.class})
+class StockMovementServiceTest {
+    private static final int THREAD_COUNT = 200;
+
+    @Autowired
+    private StockMovementService stockMovementService;
+
+    @Autowired
+    private ProductDAO productDAO;
+
+    @Autowired
+    private TransactionDAO transactionDAO;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @BeforeEach
+    void setUp() {
+        fixtures.clear();
+    }
+
+    @Test
+    @DisplayName("200個執行緒同時出貨1個，庫存100時只有100筆成功且不會超賣")
+    void testConcurrentStockOut() throws Exception {
+        Product product = fixtures.createProduct(100);
+        AtomicInteger successCount = new AtomicInteger();
+        AtomicInteger insufficientCount = new AtomicInteger();
+
+        runConcurrently(THREAD_COUNT, THREAD_COUNT, index -> {
+            try {
+                stockMovementService.updateStockOut(product.getId(), 1);
+                successCount.incrementAndGet();
+            } catch (InsufficientStockException e) {
+                insufficientCount.incrementAndGet();
+            }
+        });
+
+        assertEquals(100, successCount.get());
+        assertEquals(100, insufficientCount.get());
+        assertEquals(0, productDAO.findStockById(product.getId()).orElseThrow());
+        List<Transaction> transactions = transactionDAO.findByProductIdOrderByTimestampDesc(product.getId());
+        assertEquals(100, transactions.size());
+        assertTrue(transactions.stream().allMatch(transaction -> transaction.getType() == TransactionType.OUT));
+    }
+
+    @Test
+    @DisplayName("200個執行緒同時進貨1個，不會遺失任何一筆更新")
+    void testConcurrentStockIn() throws Exception {
+        Product product = fixtures.createProduct(0);
+
+        runConcurrently(THREAD_COUNT, THREAD_COUNT, index -> stockMovementService.updateStockIn(product.getId(), 1));
+
+        assertEquals(THREAD_COUNT, productDAO.findStockById(product.getId()).orElseThrow());
+        assertEquals(THREAD_COUNT, transactionDAO.findByProductIdOrderByTimestampDesc(product.getId()).size());
+    }
+}
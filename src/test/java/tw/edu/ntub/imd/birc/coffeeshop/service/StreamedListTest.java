@@ -0,0 +1,160 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import tw.edu.ntub.imd.birc.coffeeshop.config.TestSecurityConfig;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.TransactionDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto.Pager;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dto.TransactionView;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity.Transaction;
+import tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 不分頁查詢測試
+ * 驗證回傳List時只回傳第一頁、串流時依id分批讀完全部資料且不會累積在persistence context，
+ * 串流1M筆交易記錄時保留的記憶體也不會隨筆數增加(標記為benchmark，以gradle benchmark執行)
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "coffee-shop.pager.max-list-size=" + StreamedListTest.MAX_LIST_SIZE,
+        "coffee-shop.pager.stream-chunk-size=" + StreamedListTest.CHUNK_SIZE
+})
+@ActiveProfiles("test")
+@Import({TestSecurityConfig.class, TestFixtures.class})
+class StreamedListTest {
+    static final int MAX_LIST_SIZE = 50;
+    static final int CHUNK_SIZE = 1000;
+    private static final int LARGE_ROW_COUNT = 1_000_000;
+    private static final int SAMPLE_INTERVAL = 100_000;
+    private static final long MAX_RETAINED_BYTES = 32L * 1024 * 1024;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionDAO transactionDAO;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        fixtures.clear();
+        productId = fixtures.createProduct(100).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixtures.clear();
+    }
+
+    @Test
+    @DisplayName("不分頁或分頁條件錯誤時回傳List只回傳第一頁，正常的分頁不受影響")
+    void testListCapped() {
+        fixtures.insertTransactions(productId, 120);
+        assertEquals(MAX_LIST_SIZE, transactionService.searchAll(Pager.infinity()).size());
+        assertEquals(MAX_LIST_SIZE, transactionService.searchAll(Pager.getInstance(0, 20)).size());
+        assertEquals(MAX_LIST_SIZE, transactionService.searchAll(TransactionView.class, Pager.getInstance(3, -1)).size());
+        assertEquals(20, transactionService.searchAll(Pager.getInstance(6, 20)).size());
+    }
+
+    @Test
+    @DisplayName("串流依id讀完全部資料，不受List上限影響")
+    void testStreamAll() {
+        fixtures.insertTransactions(productId, CHUNK_SIZE * 2 + 500);
+        List<Long> idList = new ArrayList<>();
+        transactionService.searchAll(Pager.infinity(), transaction -> idList.add(transaction.getId()));
+        assertEquals(jdbcTemplate.queryForList("SELECT id FROM transaction ORDER BY id", Long.class), idList);
+
+        List<Long> pagedIdList = new ArrayList<>();
+        transactionService.searchAll(Pager.getInstance(2, 10), transaction -> pagedIdList.add(transaction.getId()));
+        assertEquals(idList.subList(10, 20), pagedIdList);
+    }
+
+    @Test
+    @DisplayName("串流實體不會累積在呼叫端交易的persistence context，DAO可將一批實體移出")
+    void testDetach() {
+        fixtures.insertTransactions(productId, CHUNK_SIZE * 3);
+        int[] result = transactionTemplate.execute(status -> {
+            Session session = entityManager.unwrap(Session.class);
+            AtomicInteger count = new AtomicInteger();
+            AtomicInteger maxManaged = new AtomicInteger();
+            transactionService.searchAll(Transaction.class, Pager.infinity(), transaction -> {
+                count.incrementAndGet();
+                maxManaged.accumulateAndGet(session.getStatistics().getEntityCount(), Math::max);
+            });
+            List<Transaction> chunk = transactionDAO.findAllAfter(Pager.keyset("id", Sort.Direction.ASC, CHUNK_SIZE));
+            int managed = session.getStatistics().getEntityCount();
+            transactionDAO.detach(chunk);
+            return new int[]{count.get(), maxManaged.get(), managed, session.getStatistics().getEntityCount()};
+        });
+        assertNotNull(result);
+        assertEquals(CHUNK_SIZE * 3, result[0]);
+        assertEquals(0, result[1]);
+        assertEquals(CHUNK_SIZE, result[2]);
+        assertEquals(0, result[3]);
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("串流1M筆交易記錄時保留的記憶體與總筆數無關")
+    void testStreamMillionRows() {
+        fixtures.insertTransactions(productId, LARGE_ROW_COUNT);
+        long baseline = getUsedHeap();
+        AtomicLong peak = new AtomicLong();
+        AtomicInteger count = new AtomicInteger();
+        AtomicLong quantity = new AtomicLong();
+        transactionService.searchAll(Pager.infinity(), transaction -> {
+            quantity.addAndGet(transaction.getQuantity());
+            if (count.incrementAndGet() % SAMPLE_INTERVAL == 0) {
+                peak.accumulateAndGet(getUsedHeap() - baseline, Math::max);
+            }
+        });
+
+        assertEquals(LARGE_ROW_COUNT, count.get());
+        assertEquals(
+                jdbcTemplate.queryForObject("SELECT SUM(quantity) FROM transaction", Long.class),
+                quantity.get()
+        );
+        assertTrue(peak.get() < MAX_RETAINED_BYTES);
+    }
+
+    /**
+     * GC後仍在使用的heap，也就是仍被參照而無法回收的物件
+     */
+    private long getUsedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,230 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.batch;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import tw.edu.ntub.imd.birc.coffeeshop.config.TestSecurityConfig;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.StockBatchProperties;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.ProductDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.StockBatchDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.TransactionDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity.Product;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.enumerate.TransactionType;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.pool.PoolMetrics;
+import tw.edu.ntub.imd.birc.coffeeshop.dto.StockMovementResult;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.InsufficientStockException;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.NotFoundException;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.StockBatchRejectedException;
+import tw.edu.ntub.imd.birc.coffeeshop.service.StockMovementService;
+import tw.edu.ntub.imd.birc.coffeeshop.service.cache.ProductCatalogCache;
+import tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures.runConcurrently;
+
+/**
+ * 群組提交器測試
+ * 驗證合併提交後每個呼叫端仍各自拿到正確結果，且請求依max-size合併成較少的交易
+ */
+@SpringBootTest(properties = {
+        "coffee-shop.stock.batch.enabled=true",
+        "spring.jpa.show-sql=false"
+})
+@ActiveProfiles("test")
+@Import({TestSecurityConfig.class, TestFixtures.class})
+class StockMovementBatcherTest {
+    private static final int THREAD_COUNT = 200;
+
+    @Autowired
+    private StockMovementBatcher stockMovementBatcher;
+
+    @Autowired
+    private StockMovementService stockMovementService;
+
+    @Autowired
+    private ProductDAO productDAO;
+
+    @Autowired
+    private TransactionDAO transactionDAO;
+
+    @Autowired
+    private StockBatchDAO stockBatchDAO;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private PoolMetrics poolMetrics;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @BeforeEach
+    void setUp() {
+        fixtures.clear();
+    }
+
+    @Test
+    @DisplayName("批次模式下200個執行緒同時出貨1個，庫存100時只有100筆成功")
+    void testConcurrentStockOut() throws Exception {
+        Product product = fixtures.createProduct(100);
+        List<CompletableFuture<StockMovementResult>> futureList = new ArrayList<>();
+        runConcurrently(THREAD_COUNT, THREAD_COUNT, index -> {
+            CompletableFuture<StockMovementResult> future =
+                    stockMovementBatcher.submit(product.getId(), TransactionType.OUT, 1);
+            synchronized (futureList) {
+                futureList.add(future);
+            }
+        });
+
+        int successCount = 0;
+        int insufficientCount = 0;
+        for (CompletableFuture<StockMovementResult> future : futureList) {
+            try {
+                future.get(30, TimeUnit.SECONDS);
+                successCount++;
+            } catch (ExecutionException e) {
+                assertInstanceOf(InsufficientStockException.class, e.getCause());
+                insufficientCount++;
+            }
+        }
+        assertEquals(100, successCount);
+        assertEquals(100, insufficientCount);
+        assertEquals(0, productDAO.findStockById(product.getId()).orElseThrow());
+        assertEquals(100, transactionDAO.findByProductIdOrderByTimestampDesc(product.getId()).size());
+    }
+
+    @Test
+    @DisplayName("批次模式下透過服務出貨也由群組提交器合併，取得連線的次數少於請求數")
+    void testServiceRoutesThroughBatcher() throws Exception {
+        Product product = fixtures.createProduct(100);
+        AtomicInteger successCount = new AtomicInteger();
+        AtomicInteger insufficientCount = new AtomicInteger();
+        poolMetrics.reset();
+        runConcurrently(THREAD_COUNT, THREAD_COUNT, index -> {
+            try {
+                stockMovementService.updateStockOut(product.getId(), 1);
+                successCount.incrementAndGet();
+            } catch (InsufficientStockException e) {
+                insufficientCount.incrementAndGet();
+            }
+        });
+
+        assertEquals(100, successCount.get());
+        assertEquals(100, insufficientCount.get());
+        // 每筆各自提交時每次出貨至少取得一次連線；服務的交易沒有執行SQL，只有flush會取得連線
+        assertTrue(poolMetrics.getAcquireCount() < THREAD_COUNT);
+        assertEquals(0, productDAO.findStockById(product.getId()).orElseThrow());
+        assertEquals(100, transactionDAO.findByProductIdOrderByTimestampDesc(product.getId()).size());
+    }
+
+    @Test
+    @DisplayName("同一批次中的不同產品與不存在的產品各自完成")
+    void testMixedBatch() {
+        Product bean = fixtures.createProduct(5);
+        Product dessert = fixtures.createProduct(0);
+
+        CompletableFuture<StockMovementResult> beanOut = stockMovementBatcher.submit(bean.getId(), TransactionType.OUT, 3);
+        CompletableFuture<StockMovementResult> dessertIn = stockMovementBatcher.submit(dessert.getId(), TransactionType.IN, 7);
+        CompletableFuture<StockMovementResult> beanOutAgain = stockMovementBatcher.submit(bean.getId(), TransactionType.OUT, 3);
+        CompletableFuture<StockMovementResult> notExist = stockMovementBatcher.submit(-1L, TransactionType.IN, 1);
+
+        assertEquals(2, beanOut.join().getRemainingStock());
+        assertEquals(7, dessertIn.join().getRemainingStock());
+        InsufficientStockException insufficient = assertThrows(
+                InsufficientStockException.class,
+                () -> stockMovementBatcher.execute(bean.getId(), TransactionType.OUT, 3)
+        );
+        assertEquals(2, insufficient.getCurrentStock());
+        ExecutionException againException = assertThrows(ExecutionException.class, beanOutAgain::get);
+        assertInstanceOf(InsufficientStockException.class, againException.getCause());
+        ExecutionException notExistException = assertThrows(ExecutionException.class, notExist::get);
+        assertInstanceOf(NotFoundException.class, notExistException.getCause());
+        assertEquals(2, productDAO.findStockById(bean.getId()).orElseThrow());
+        assertEquals(7, productDAO.findStockById(dessert.getId()).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("停止後提交的請求直接拒絕，不會留在佇列中等不到結果")
+    void testRejectAfterStop() throws Exception {
+        Product product = fixtures.createProduct(5);
+        StockBatchProperties properties = new StockBatchProperties();
+        properties.setEnabled(true);
+        StockMovementBatcher batcher = new StockMovementBatcher(
+                properties,
+                stockBatchDAO,
+                productCatalogCache,
+                transactionManager
+        );
+        batcher.start();
+        assertEquals(4, batcher.execute(product.getId(), TransactionType.OUT, 1).getRemainingStock());
+        batcher.stop();
+
+        assertThrows(
+                StockBatchRejectedException.class,
+                () -> batcher.execute(product.getId(), TransactionType.OUT, 1)
+        );
+        assertEquals(4, productDAO.findStockById(product.getId()).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("短時間內送出的請求依max-size合併，2000筆只提交10個交易")
+    void testMergeIntoBatches() throws Exception {
+        int requestCount = 2000;
+        Product product = fixtures.createProduct(0);
+        AtomicInteger flushCount = new AtomicInteger();
+        StockBatchDAO countingDAO = new StockBatchDAO(namedParameterJdbcTemplate) {
+            @Override
+            public Map<Long, Integer> lockStockByIdIn(Collection<Long> idCollection) {
+                flushCount.incrementAndGet();
+                return super.lockStockByIdIn(idCollection);
+            }
+        };
+        StockBatchProperties properties = new StockBatchProperties();
+        properties.setEnabled(true);
+        properties.setMaxSize(200);
+        // 等待時間足以讓所有請求在第一批提交前排入佇列，每批都會湊滿max-size
+        properties.setFlushIntervalMillis(5000);
+        StockMovementBatcher batcher = new StockMovementBatcher(
+                properties,
+                countingDAO,
+                productCatalogCache,
+                transactionManager
+        );
+        batcher.start();
+        try {
+            List<CompletableFuture<StockMovementResult>> futureList = new ArrayList<>();
+            for (int i = 0; i < requestCount; i++) {
+                futureList.add(batcher.submit(product.getId(), TransactionType.IN, 1));
+            }
+            CompletableFuture.allOf(futureList.toArray(new CompletableFuture<?>[0])).get(60, TimeUnit.SECONDS);
+        } finally {
+            batcher.stop();
+        }
+
+        assertEquals(requestCount / properties.getMaxSize(), flushCount.get());
+        assertEquals(requestCount, productDAO.findStockById(product.getId()).orElseThrow());
+        assertEquals(requestCount, transactionDAO.count());
+    }
+}
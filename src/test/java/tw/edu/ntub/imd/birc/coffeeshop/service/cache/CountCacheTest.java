@@ -0,0 +1,140 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.cache;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import tw.edu.ntub.imd.birc.coffeeshop.bean.ProductBean;
+import tw.edu.ntub.imd.birc.coffeeshop.config.TestSecurityConfig;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity.Product;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.enumerate.ProductType;
+import tw.edu.ntub.imd.birc.coffeeshop.dto.PageInfo;
+import tw.edu.ntub.imd.birc.coffeeshop.service.ProductService;
+import tw.edu.ntub.imd.birc.coffeeshop.service.TransactionService;
+import tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures.newProductBean;
+
+/**
+ * 分頁資訊筆數快取測試
+ * 驗證只執行COUNT、依條件快取並在經由服務寫入後失效、交易記錄超過門檻時使用估計值
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "coffee-shop.count-cache.enabled=true",
+        "coffee-shop.count-cache.approximate-threshold=" + CountCacheTest.APPROXIMATE_THRESHOLD
+})
+@ActiveProfiles("test")
+@Import({TestSecurityConfig.class, TestFixtures.class})
+class CountCacheTest {
+    static final int APPROXIMATE_THRESHOLD = 10_000;
+    private static final int PAGE_SIZE = 20;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private CountCache countCache;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @BeforeEach
+    void setUp() {
+        fixtures.clear();
+        countCache.clear();
+        countCache.resetStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixtures.clear();
+    }
+
+    @Test
+    @DisplayName("分頁資訊只執行COUNT，不再查詢第一頁的資料")
+    void testCountOnly() {
+        for (int i = 0; i < 5; i++) {
+            productService.save(newProductBean("產品" + i, ProductType.BEAN, 20));
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        PageInfo pageInfo = productService.getPageInfo(2);
+
+        assertEquals(3, pageInfo.getTotalPage());
+        assertEquals(5, pageInfo.getTotalDataCount());
+        assertEquals(2, pageInfo.getCountPerPage());
+        assertFalse(pageInfo.isApproximate());
+        assertEquals(1, statistics.getQueryExecutionCount());
+        assertTrue(statistics.getQueries()[0].toLowerCase(Locale.ROOT).contains("count("));
+    }
+
+    @Test
+    @DisplayName("筆數依條件快取，經由服務新增、修改、刪除後失效")
+    void testInvalidateOnWrite() {
+        ProductBean first = productService.save(newProductBean("巴西喜拉朵", ProductType.BEAN, 20));
+        productService.save(newProductBean("提拉米蘇", ProductType.DESSERT, 20));
+        ProductBean dessert = new ProductBean();
+        dessert.setType(ProductType.DESSERT);
+        assertEquals(2, productService.getPageInfo(10).getTotalDataCount());
+        assertEquals(1, productService.getPageInfo(dessert, 10).getTotalDataCount());
+
+        // 不經過服務的異動在存活時間內看不到
+        fixtures.createProduct(100);
+        assertEquals(2, productService.getPageInfo(10).getTotalDataCount());
+        assertEquals(1, productService.getPageInfo(dessert, 10).getTotalDataCount());
+        assertEquals(2, countCache.getHitCount());
+
+        productService.save(newProductBean("檸檬塔", ProductType.DESSERT, 20));
+        assertEquals(4, productService.getPageInfo(10).getTotalDataCount());
+        assertEquals(2, productService.getPageInfo(dessert, 10).getTotalDataCount());
+
+        ProductBean update = productService.getById(first.getId()).orElseThrow();
+        update.setType(ProductType.DESSERT);
+        productService.update(first.getId(), update);
+        assertEquals(3, productService.getPageInfo(dessert, 10).getTotalDataCount());
+
+        productService.delete(first.getId());
+        assertEquals(3, productService.getPageInfo(10).getTotalDataCount());
+        assertEquals(2, productService.getPageInfo(dessert, 10).getTotalDataCount());
+    }
+
+    @Test
+    @DisplayName("交易記錄的估計筆數達到門檻時使用估計值，未達門檻時精確計算")
+    void testApproximate() {
+        Product product = fixtures.createProduct(100);
+        fixtures.insertTransactions(product.getId(), 1000);
+        PageInfo exact = transactionService.getPageInfo(PAGE_SIZE);
+        assertFalse(exact.isApproximate());
+        assertEquals(1000, exact.getTotalDataCount());
+        assertEquals(50, exact.getTotalPage());
+
+        fixtures.insertTransactions(product.getId(), APPROXIMATE_THRESHOLD);
+        countCache.clear();
+        PageInfo approximate = transactionService.getPageInfo(PAGE_SIZE);
+        assertTrue(approximate.isApproximate());
+        assertTrue(approximate.getTotalDataCount() >= APPROXIMATE_THRESHOLD);
+
+        // 估計值同樣快取，存活時間內不再查詢
+        long hitCount = countCache.getHitCount();
+        assertEquals(approximate.getTotalDataCount(), transactionService.getPageInfo(PAGE_SIZE).getTotalDataCount());
+        assertEquals(hitCount + 1, countCache.getHitCount());
+    }
+}
@@ -0,0 +1,200 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import tw.edu.ntub.imd.birc.coffeeshop.bean.ProductBean;
+import tw.edu.ntub.imd.birc.coffeeshop.config.TestSecurityConfig;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.ProductCacheProperties;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.ProductDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.enumerate.ProductType;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.InsufficientStockException;
+import tw.edu.ntub.imd.birc.coffeeshop.service.ProductService;
+import tw.edu.ntub.imd.birc.coffeeshop.service.StockMovementService;
+import tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures.newProductBean;
+
+/**
+ * 產品兩層快取測試
+ * 驗證快取有效時列表不讀資料庫、進貨/出貨直接更新快取庫存、新增產品後清除列表、依存活時間與數量淘汰
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "coffee-shop.product-cache.enabled=true",
+        "coffee-shop.product-cache.stock-ttl-millis=60000"
+})
+@ActiveProfiles("test")
+@Import({TestSecurityConfig.class, TestFixtures.class})
+class ProductCatalogCacheTest {
+    private static final int LIST_PRODUCT_COUNT = 200;
+    private static final int LIST_ITERATIONS = 500;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private StockMovementService stockMovementService;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private ProductDAO productDAO;
+
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @BeforeEach
+    void setUp() {
+        fixtures.clear();
+        productCatalogCache.clear();
+        productCatalogCache.resetStatistics();
+    }
+
+    @Test
+    @DisplayName("快取有效時列表不讀資料庫，進貨/出貨直接更新快取中的庫存")
+    void testWarmListAndWriteThrough() {
+        ProductBean saved = productService.save(newProductBean("衣索比亞耶加雪菲", ProductType.BEAN, 100));
+        assertEquals(100, productService.searchAll().get(0).getStock());
+        assertEquals(1, productCatalogCache.getCatalogMissCount());
+
+        jdbcTemplate.update("UPDATE product SET name = '未經服務修改' WHERE id = ?", saved.getId());
+        stockMovementService.updateStockOut(saved.getId(), 30);
+        stockMovementService.updateStockIn(saved.getId(), 5);
+        assertThrows(InsufficientStockException.class, () -> stockMovementService.updateStockOut(saved.getId(), 1000));
+
+        ProductBean cached = productService.searchAll().get(0);
+        assertEquals("衣索比亞耶加雪菲", cached.getName());
+        assertEquals(75, cached.getStock());
+        assertEquals(75, productService.getById(saved.getId()).orElseThrow().getStock());
+        assertEquals(1, productCatalogCache.getCatalogMissCount());
+        assertEquals(1, productCatalogCache.getStockMissCount());
+        assertEquals(2, productCatalogCache.getCatalogHitCount());
+        assertEquals(2, productCatalogCache.getStockHitCount());
+    }
+
+    @Test
+    @DisplayName("新增、刪除產品後清除列表")
+    void testInvalidate() {
+        ProductBean first = productService.save(newProductBean("巴西喜拉朵", ProductType.BEAN, 10));
+        assertEquals(1, productService.searchAll().size());
+        ProductBean second = productService.save(newProductBean("提拉米蘇", ProductType.BEAN, 5));
+        assertEquals(List.of(first.getId(), second.getId()), getIdList(productService.searchAll()));
+
+        productService.delete(first.getId());
+        assertEquals(List.of(second.getId()), getIdList(productService.searchAll()));
+        assertTrue(productService.getById(first.getId()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("庫存過期時只重新查詢庫存，產品資料仍使用快取")
+    void testStockTtl() throws InterruptedException {
+        ProductCatalogCache cache = createCache(100, 500);
+        ProductBean saved = productService.save(newProductBean("肯亞AA", ProductType.BEAN, 100));
+        cache.searchAll();
+        jdbcTemplate.update("UPDATE product SET name = '未經服務修改', stock = 42 WHERE id = ?", saved.getId());
+        assertEquals(100, cache.searchAll().get(0).getStock());
+
+        Thread.sleep(600);
+        ProductBean reloaded = cache.searchAll().get(0);
+        assertEquals("肯亞AA", reloaded.getName());
+        assertEquals(42, reloaded.getStock());
+        assertEquals(1, cache.getCatalogMissCount());
+        assertEquals(2, cache.getStockMissCount());
+    }
+
+    @Test
+    @DisplayName("重新查詢庫存期間有進貨時保留快取中已加減的庫存，不以查詢時的舊庫存覆寫")
+    void testDeltaDuringStockReload() throws InterruptedException {
+        ProductBean saved = productService.save(newProductBean("肯亞AA", ProductType.BEAN, 100));
+        ProductCatalogCache[] cacheHolder = new ProductCatalogCache[1];
+        // 查到庫存後、寫入快取前，另一個交易進貨5並提交
+        ProductDAO slowDAO = (ProductDAO) Proxy.newProxyInstance(
+                ProductDAO.class.getClassLoader(),
+                new Class<?>[]{ProductDAO.class},
+                (proxy, method, args) -> {
+                    Object result;
+                    try {
+                        result = method.invoke(productDAO, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (method.getName().equals("findAllStock")) {
+                        jdbcTemplate.update("UPDATE product SET stock = stock + 5 WHERE id = ?", saved.getId());
+                        cacheHolder[0].applyStockDelta(saved.getId(), 5);
+                    }
+                    return result;
+                }
+        );
+        ProductCacheProperties properties = new ProductCacheProperties();
+        properties.setStockTtlMillis(500);
+        ProductCatalogCache cache = new ProductCatalogCache(properties, slowDAO);
+        cacheHolder[0] = cache;
+        assertEquals(100, cache.searchAll().get(0).getStock());
+
+        Thread.sleep(600);
+        assertEquals(105, cache.searchAll().get(0).getStock());
+        assertEquals(105, cache.getById(saved.getId()).orElseThrow().getStock());
+    }
+
+    @Test
+    @DisplayName("超過數量上限時淘汰項目，產品總數超過上限時列表不快取")
+    void testMaxSize() {
+        ProductCatalogCache cache = createCache(5, 60000);
+        for (int i = 0; i < 10; i++) {
+            productService.save(newProductBean("產品" + i, ProductType.BEAN, i));
+        }
+        assertEquals(10, cache.searchAll().size());
+        assertEquals(10, cache.searchAll().size());
+        assertEquals(2, cache.getCatalogMissCount());
+        assertEquals(0, cache.getCatalogSize());
+
+        for (ProductBean productBean : productService.searchAll()) {
+            assertEquals(productBean.getName(), cache.getById(productBean.getId()).orElseThrow().getName());
+        }
+        assertTrue(cache.getCatalogSize() <= 5);
+        assertTrue(cache.getEvictionCount() > 0);
+    }
+
+    @Test
+    @DisplayName("200筆產品的列表只在第一次查詢資料庫，之後兩層快取都命中")
+    void testRepeatedList() {
+        for (int i = 0; i < LIST_PRODUCT_COUNT; i++) {
+            productService.save(newProductBean("產品" + i, ProductType.BEAN, 100));
+        }
+        for (int i = 0; i < LIST_ITERATIONS; i++) {
+            assertEquals(LIST_PRODUCT_COUNT, productService.searchAll().size());
+        }
+        assertEquals(1, productCatalogCache.getCatalogMissCount());
+        assertEquals(1, productCatalogCache.getStockMissCount());
+        assertEquals(LIST_ITERATIONS - 1, productCatalogCache.getCatalogHitCount());
+        assertEquals(LIST_ITERATIONS - 1, productCatalogCache.getStockHitCount());
+    }
+
+    private ProductCatalogCache createCache(int maxSize, long stockTtlMillis) {
+        ProductCacheProperties properties = new ProductCacheProperties();
+        properties.setMaxSize(maxSize);
+        properties.setStockTtlMillis(stockTtlMillis);
+        return new ProductCatalogCache(properties, productDAO);
+    }
+
+    private List<Long> getIdList(List<ProductBean> productList) {
+        return productList.stream().map(ProductBean::getId).collect(Collectors.toList());
+    }
+}
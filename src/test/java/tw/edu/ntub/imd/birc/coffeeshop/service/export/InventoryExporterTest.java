@@ -0,0 +1,190 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.export;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import tw.edu.ntub.imd.birc.coffeeshop.config.TestSecurityConfig;
+import tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * 庫存與交易記錄匯出測試
+ * 驗證XLSX的工作表與內容、下載時以串流寫出，匯出1M筆交易記錄時保留的記憶體也不會隨筆數增加(標記為benchmark，以gradle benchmark執行)
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "coffee-shop.pager.stream-chunk-size=1000",
+        "coffee-shop.export.row-access-window-size=100"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import({TestSecurityConfig.class, TestFixtures.class})
+class InventoryExporterTest {
+    private static final int LARGE_ROW_COUNT = 1_000_000;
+    private static final long SAMPLE_INTERVAL_MILLIS = 1000;
+    private static final long MAX_RETAINED_BYTES = 64L * 1024 * 1024;
+
+    @Autowired
+    private InventoryExporter inventoryExporter;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        fixtures.clear();
+        productId = fixtures.createProduct("宏都拉斯", 30).getId();
+        jdbcTemplate.update("INSERT INTO product (name, type, price, stock) VALUES ('提拉米蘇', 'DESSERT', 150, 8)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixtures.clear();
+    }
+
+    @Test
+    @DisplayName("下載的XLSX包含庫存與交易記錄兩個工作表，以串流寫出")
+    void testExport() throws Exception {
+        fixtures.insertTransactions(productId, 3);
+        MvcResult asyncResult = mockMvc.perform(get("/api/v1/exports/inventory"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] content = mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, containsString(
+                        "inventory-" + LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE) + ".xlsx"
+                )))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(content))) {
+            assertEquals(2, workbook.getNumberOfSheets());
+            Sheet inventorySheet = workbook.getSheet(InventoryExporter.INVENTORY_SHEET_NAME);
+            assertEquals(2, inventorySheet.getLastRowNum());
+            assertEquals("名稱", inventorySheet.getRow(0).getCell(1).getStringCellValue());
+            Row inventoryRow = inventorySheet.getRow(2);
+            assertEquals("提拉米蘇", inventoryRow.getCell(1).getStringCellValue());
+            assertEquals("DESSERT", inventoryRow.getCell(2).getStringCellValue());
+            assertEquals(150, inventoryRow.getCell(3).getNumericCellValue());
+            assertEquals(8, inventoryRow.getCell(4).getNumericCellValue());
+            assertEquals(1200, inventoryRow.getCell(5).getNumericCellValue());
+
+            Sheet ledgerSheet = workbook.getSheet(InventoryExporter.LEDGER_SHEET_NAME);
+            assertEquals(3, ledgerSheet.getLastRowNum());
+            Row ledgerRow = ledgerSheet.getRow(3);
+            assertEquals(productId.doubleValue(), ledgerRow.getCell(1).getNumericCellValue());
+            assertEquals("OUT", ledgerRow.getCell(2).getStringCellValue());
+            assertEquals(4, ledgerRow.getCell(3).getNumericCellValue());
+            assertEquals(LocalDateTime.of(2026, 1, 1, 0, 0, 3), ledgerRow.getCell(4).getLocalDateTimeCellValue());
+            assertEquals("yyyy-mm-dd hh:mm:ss", ledgerRow.getCell(4).getCellStyle().getDataFormatString());
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("匯出1M筆交易記錄時保留的記憶體與筆數無關")
+    void testExportMillionRows() throws Exception {
+        fixtures.insertTransactions(productId, LARGE_ROW_COUNT);
+        CountingOutputStream outputStream = new CountingOutputStream();
+        long baseline = getUsedHeap();
+        CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
+            try {
+                inventoryExporter.export(outputStream);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        // 每秒記錄一次保留的記憶體，取匯出過程中的最大值
+        long peakRetained = 0;
+        while (!future.isDone()) {
+            Thread.sleep(SAMPLE_INTERVAL_MILLIS);
+            peakRetained = Math.max(peakRetained, getUsedHeap() - baseline);
+        }
+        future.get();
+
+        assertTrue(outputStream.getCount() > 0);
+        long retained = peakRetained;
+        assertTrue(
+                retained < MAX_RETAINED_BYTES,
+                () -> String.format("匯出過程中保留的記憶體 %.1f MB", retained / 1024.0 / 1024.0)
+        );
+    }
+
+    /**
+     * GC後仍在使用的heap，也就是仍被參照而無法回收的物件
+     * 取GC完成當下記錄的用量，匯出執行緒在GC後繼續配置的物件不會算入
+     */
+    private long getUsedHeap() {
+        System.gc();
+        long used = 0;
+        for (MemoryPoolMXBean memoryPoolMXBean : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage collectionUsage = memoryPoolMXBean.getCollectionUsage();
+            if (memoryPoolMXBean.getType() == MemoryType.HEAP && collectionUsage != null) {
+                used += collectionUsage.getUsed();
+            }
+        }
+        return used;
+    }
+
+    /**
+     * 只計算寫出的位元組數，不保留內容
+     */
+    private static class CountingOutputStream extends OutputStream {
+        private final AtomicLong count = new AtomicLong();
+
+        @Override
+        public void write(int b) {
+            count.incrementAndGet();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count.addAndGet(len);
+        }
+
+        private long getCount() {
+            return count.get();
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.hot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tw.edu.ntub.imd.birc.coffeeshop.config.TestSecurityConfig;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.HotStockProperties;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.ProductCacheProperties;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.ProductDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.StockBatchDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.TransactionDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity.Product;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.enumerate.TransactionType;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.InsufficientStockException;
+import tw.edu.ntub.imd.birc.coffeeshop.service.StockMovementService;
+import tw.edu.ntub.imd.birc.coffeeshop.service.batch.StockMovementBatcher;
+import tw.edu.ntub.imd.birc.coffeeshop.service.cache.ProductCatalogCache;
+import tw.edu.ntub.imd.birc.coffeeshop.service.impl.StockMovementServiceImpl;
+import tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures.runConcurrently;
+
+/**
+ * 熱門產品分段計數器測試
+ * 驗證記憶體扣減不會超賣、寫回前不存取資料庫、寫回後資料庫一致
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+@Import({TestSecurityConfig.class, TestFixtures.class})
+class HotStockManagerTest {
+    private static final int THREAD_COUNT = 200;
+
+    @Autowired
+    private ProductDAO productDAO;
+
+    @Autowired
+    private TransactionDAO transactionDAO;
+
+    @Autowired
+    private StockBatchDAO stockBatchDAO;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private StockMovementBatcher stockMovementBatcher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private HotStockManager hotStockManager;
+
+    @BeforeEach
+    void setUp() {
+        fixtures.clear();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (hotStockManager != null) {
+            hotStockManager.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("分段計數器跨子計數器扣減，不足時全數歸還")
+    void testReserveAcrossStripes() {
+        StripedStockCounter counter = new StripedStockCounter(4, 10);
+        assertTrue(counter.tryReserve(7));
+        assertEquals(3, counter.getTotal());
+        assertFalse(counter.tryReserve(4));
+        assertEquals(3, counter.getTotal());
+        counter.release(5);
+        assertTrue(counter.tryReserve(8));
+        assertEquals(0, counter.getTotal());
+    }
+
+    @Test
+    @DisplayName("跨子計數器扣減期間其他執行緒持續在子計數器間移動數量，總數足夠時不會判定不足")
+    void testReserveAcrossStripesWhileMoving() throws Exception {
+        StripedStockCounter counter = new StripedStockCounter(8, 16);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread mover = new Thread(() -> {
+            while (running.get()) {
+                if (counter.tryReserve(1)) {
+                    counter.release(1);
+                }
+            }
+        });
+        mover.start();
+        try {
+            for (int i = 0; i < 20000; i++) {
+                // 移動中的執行緒最多持有1個，15個一定湊得到
+                assertTrue(counter.tryReserve(15), "第" + i + "次跨子計數器扣減判定不足");
+                counter.release(15);
+            }
+        } finally {
+            running.set(false);
+            mover.join();
+        }
+        assertEquals(16, counter.getTotal());
+    }
+
+    @Test
+    @DisplayName("200個執行緒同時出貨1個，庫存100時只有100筆成功，寫回後資料庫一致")
+    void testConcurrentStockOut() throws Exception {
+        Product product = fixtures.createProduct(100);
+        hotStockManager = startManager(product);
+        AtomicInteger successCount = new AtomicInteger();
+        AtomicInteger insufficientCount = new AtomicInteger();
+
+        runConcurrently(THREAD_COUNT, THREAD_COUNT, index -> {
+            try {
+                hotStockManager.move(product.getId(), TransactionType.OUT, 1);
+                successCount.incrementAndGet();
+            } catch (InsufficientStockException e) {
+                insufficientCount.incrementAndGet();
+            }
+        });
+        hotStockManager.stop();
+
+        assertEquals(100, successCount.get());
+        assertEquals(100, insufficientCount.get());
+        assertEquals(0, productDAO.findStockById(product.getId()).orElseThrow());
+        assertEquals(100, transactionDAO.findByProductIdOrderByTimestampDesc(product.getId()).size());
+    }
+
+    @Test
+    @DisplayName("重新啟動時由product.stock復原計數器")
+    void testRecoverFromProductStock() throws Exception {
+        Product product = fixtures.createProduct(10);
+        hotStockManager = startManager(product);
+        hotStockManager.move(product.getId(), TransactionType.IN, 5);
+        hotStockManager.move(product.getId(), TransactionType.OUT, 12);
+        hotStockManager.stop();
+
+        hotStockManager = startManager(product);
+        assertEquals(0, hotStockManager.move(product.getId(), TransactionType.OUT, 3).getRemainingStock());
+        assertThrows(
+                InsufficientStockException.class,
+                () -> hotStockManager.move(product.getId(), TransactionType.OUT, 1)
+        );
+    }
+
+    @Test
+    @DisplayName("交易回復時歸還出貨預留的數量，進貨與交易記錄都不套用")
+    void testRollbackInTransaction() throws Exception {
+        Product product = fixtures.createProduct(10);
+        hotStockManager = startManager(product);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            assertEquals(4, hotStockManager.move(product.getId(), TransactionType.OUT, 6).getRemainingStock());
+            assertEquals(7, hotStockManager.move(product.getId(), TransactionType.IN, 3).getRemainingStock());
+            throw new IllegalStateException("rollback");
+        }));
+        transactionTemplate.executeWithoutResult(status ->
+                hotStockManager.move(product.getId(), TransactionType.OUT, 2)
+        );
+        hotStockManager.stop();
+
+        assertEquals(8, productDAO.findStockById(product.getId()).orElseThrow());
+        assertEquals(1, transactionDAO.findByProductIdOrderByTimestampDesc(product.getId()).size());
+    }
+
+    @Test
+    @DisplayName("關閉時寫回持續失敗，重試有限次數後結束而不是無限重試")
+    void testStopGivesUpAfterRepeatedFailure() throws Exception {
+        Product product = fixtures.createProduct(10);
+        AtomicInteger attemptCount = new AtomicInteger();
+        StockBatchDAO failingDAO = new StockBatchDAO(jdbcTemplate) {
+            @Override
+            public void updateStockByDelta(Map<Long, Integer> deltaMap) {
+                attemptCount.incrementAndGet();
+                throw new DataAccessResourceFailureException("資料庫無法連線");
+            }
+        };
+        HotStockManager manager = startManager(product, failingDAO, 60000);
+        manager.move(product.getId(), TransactionType.OUT, 3);
+        manager.stop();
+
+        assertEquals(3, attemptCount.get());
+        assertEquals(10, productDAO.findStockById(product.getId()).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("寫回提交後才加減產品快取的庫存，寫回前重新查詢到的庫存不會被重複加減")
+    void testCacheFollowsFlush() throws Exception {
+        Product product = fixtures.createProduct(10);
+        ProductCacheProperties cacheProperties = new ProductCacheProperties();
+        cacheProperties.setStockTtlMillis(500);
+        ProductCatalogCache cache = new ProductCatalogCache(cacheProperties, productDAO);
+        hotStockManager = startManager(product, stockBatchDAO, cache, 60000);
+        assertEquals(10, cache.getById(product.getId()).orElseThrow().getStock());
+
+        hotStockManager.move(product.getId(), TransactionType.OUT, 3);
+        assertEquals(10, cache.getById(product.getId()).orElseThrow().getStock());
+        Thread.sleep(600);
+        assertEquals(10, cache.getById(product.getId()).orElseThrow().getStock());
+
+        hotStockManager.stop();
+        assertEquals(7, productDAO.findStockById(product.getId()).orElseThrow());
+        assertEquals(7, cache.getById(product.getId()).orElseThrow().getStock());
+    }
+
+    @Test
+    @DisplayName("寫回前的2000筆出貨只異動計數器，不更新product.stock也不寫入交易記錄")
+    void testNoDatabaseWriteBeforeFlush() throws Exception {
+        int requestCount = 2000;
+        Product product = fixtures.createProduct(requestCount);
+        hotStockManager = startManager(product, stockBatchDAO, 60000);
+        runConcurrently(THREAD_COUNT, requestCount, index ->
+                hotStockManager.move(product.getId(), TransactionType.OUT, 1));
+
+        assertEquals(requestCount, productDAO.findStockById(product.getId()).orElseThrow());
+        assertEquals(0, transactionDAO.count());
+        assertThrows(
+                InsufficientStockException.class,
+                () -> hotStockManager.move(product.getId(), TransactionType.OUT, 1)
+        );
+
+        hotStockManager.stop();
+        assertEquals(0, productDAO.findStockById(product.getId()).orElseThrow());
+        assertEquals(requestCount, transactionDAO.count());
+    }
+
+    @Test
+    @DisplayName("透過服務進貨/出貨熱門產品時只異動計數器，寫回後資料庫一致")
+    void testMoveThroughService() throws Exception {
+        Product product = fixtures.createProduct(100);
+        hotStockManager = startManager(product, stockBatchDAO, 60000);
+        StockMovementService stockMovementService = new StockMovementServiceImpl(
+                productDAO,
+                transactionDAO,
+                stockBatchDAO,
+                hotStockManager,
+                stockMovementBatcher,
+                productCatalogCache
+        );
+        AtomicInteger successCount = new AtomicInteger();
+        AtomicInteger insufficientCount = new AtomicInteger();
+
+        runConcurrently(THREAD_COUNT, THREAD_COUNT, index -> {
+            try {
+                stockMovementService.updateStockOut(product.getId(), 1);
+                successCount.incrementAndGet();
+            } catch (InsufficientStockException e) {
+                insufficientCount.incrementAndGet();
+            }
+        });
+        assertEquals(40, stockMovementService.updateStockIn(product.getId(), 40).getRemainingStock());
+
+        assertEquals(100, productDAO.findStockById(product.getId()).orElseThrow());
+        assertEquals(0, transactionDAO.count());
+
+        hotStockManager.stop();
+        assertEquals(100, successCount.get());
+        assertEquals(100, insufficientCount.get());
+        assertEquals(40, productDAO.findStockById(product.getId()).orElseThrow());
+        assertEquals(101, transactionDAO.count());
+    }
+
+    private HotStockManager startManager(Product product) {
+        return startManager(product, stockBatchDAO, 20);
+    }
+
+    private HotStockManager startManager(Product product, StockBatchDAO stockBatchDAO, long flushIntervalMillis) {
+        return startManager(product, stockBatchDAO, productCatalogCache, flushIntervalMillis);
+    }
+
+    private HotStockManager startManager(Product product,
+                                         StockBatchDAO stockBatchDAO,
+                                         ProductCatalogCache productCatalogCache,
+                                         long flushIntervalMillis) {
+        HotStockProperties properties = new HotStockProperties();
+        properties.setEnabled(true);
+        properties.setProductIds(List.of(product.getId()));
+        properties.setFlushIntervalMillis(flushIntervalMillis);
+        HotStockManager manager = new HotStockManager(
+                properties,
+                productDAO,
+                stockBatchDAO,
+                productCatalogCache,
+                transactionManager
+        );
+        manager.start();
+        return manager;
+    }
+}
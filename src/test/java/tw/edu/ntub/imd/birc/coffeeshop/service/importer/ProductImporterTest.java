@@ -0,0 +1,279 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.importer;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import tw.edu.ntub.imd.birc.coffeeshop.config.TestSecurityConfig;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.FileProperties;
+import tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * 產品匯入測試
+ * 驗證CSV與NDJSON逐行驗證、錯誤的列寫入錯誤檔、上傳後在背景匯入並可查詢進度、移除工作時刪除錯誤檔，
+ * 匯入1M筆產品時資料表以外保留的記憶體也不會隨筆數增加(標記為benchmark，以gradle benchmark執行)
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "server.file.path=${java.io.tmpdir}/coffee-shop-test-files",
+        "coffee-shop.product-import.chunk-size=" + ProductImporterTest.CHUNK_SIZE,
+        "coffee-shop.product-import.max-retained-jobs=" + ProductImporterTest.MAX_RETAINED_JOBS
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import({TestSecurityConfig.class, TestFixtures.class})
+class ProductImporterTest {
+    static final int CHUNK_SIZE = 1000;
+    static final int MAX_RETAINED_JOBS = 2;
+    private static final int LARGE_ROW_COUNT = 1_000_000;
+    private static final long SAMPLE_INTERVAL_MILLIS = 1000;
+    private static final long MAX_RETAINED_BYTES = 64L * 1024 * 1024;
+
+    @Autowired
+    private ProductImporter productImporter;
+
+    @Autowired
+    private FileProperties fileProperties;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        fixtures.clear();
+        directory = Files.createDirectories(Paths.get(fileProperties.getPath(), "import-test"));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        fixtures.clear();
+        deleteFiles(directory);
+        deleteFiles(Paths.get(fileProperties.getPath(), "import"));
+    }
+
+    @Test
+    @DisplayName("CSV欄位順序不限、可用雙引號，驗證失敗的列連同行號與原因寫入錯誤檔")
+    void testCsv() throws IOException {
+        Path path = write("products.csv",
+                "\uFEFFstock,name,price,type",
+                "10,\"Kenya AA, washed\",520,BEAN",
+                "",
+                "5,\"說 \"\"Hi\"\"\",150,dessert",
+                "3,Bad Type,100,CAKE",
+                "3,Free,0,BEAN",
+                "3,Missing Name",
+                ",,100,BEAN",
+                "3,\"Unclosed,100,BEAN",
+                "7,Latte Beans,abc,BEAN",
+                "8,Mocha,300,BEAN"
+        );
+        ProductImportJob job = productImporter.execute(path);
+
+        assertEquals(ProductImportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(9, job.getProcessedRows());
+        assertEquals(3, job.getImportedRows());
+        assertEquals(6, job.getRejectedRows());
+        assertTrue(Files.exists(path));
+        assertEquals(
+                List.of(
+                        Map.of("name", "Kenya AA, washed", "type", "BEAN", "price", 520, "stock", 10),
+                        Map.of("name", "說 \"Hi\"", "type", "DESSERT", "price", 150, "stock", 5),
+                        Map.of("name", "Mocha", "type", "BEAN", "price", 300, "stock", 8)
+                ),
+                jdbcTemplate.queryForList("SELECT name, type, price, stock FROM product ORDER BY id")
+        );
+
+        List<String> rejectLineList = Files.readAllLines(job.getRejectFilePath().orElseThrow(), StandardCharsets.UTF_8);
+        assertEquals(7, rejectLineList.size());
+        assertEquals("line,reason,raw", rejectLineList.get(0));
+        assertEquals("5,\"type - 無效的產品類型: CAKE\",\"3,Bad Type,100,CAKE\"", rejectLineList.get(1));
+        assertEquals("6,\"價格和庫存必須大於0\",\"3,Free,0,BEAN\"", rejectLineList.get(2));
+        assertTrue(rejectLineList.get(3).startsWith("7,\"欄位數量不符"));
+        assertTrue(rejectLineList.get(4).startsWith("8,\"缺少必要欄位：name; 缺少必要欄位：stock\""));
+        assertTrue(rejectLineList.get(5).startsWith("9,\"雙引號未結束"));
+        assertTrue(rejectLineList.get(6).startsWith("10,\"price - 必須是整數\""));
+    }
+
+    @Test
+    @DisplayName("NDJSON每行一個物件，格式錯誤的行不影響其他行；CSV缺少欄位時整個匯入失敗")
+    void testNdjsonAndInvalidHeader() throws IOException {
+        Path path = write("products.ndjson",
+                "{\"name\": \"Geisha\", \"type\": \"BEAN\", \"price\": 680, \"stock\": 50}",
+                "{\"name\": \"Tart\", \"type\": \"DESSERT\", \"price\": \"120\", \"stock\": 0}",
+                "{\"name\": \"Broken\"",
+                "[1, 2]",
+                "{\"name\": \"Cake\", \"type\": \"DESSERT\", \"price\": {\"value\": 1}, \"stock\": 1}"
+        );
+        ProductImportJob job = productImporter.execute(path);
+        assertEquals(ProductImportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(2, job.getImportedRows());
+        assertEquals(3, job.getRejectedRows());
+        assertEquals(List.of("Geisha", "Tart"), jdbcTemplate.queryForList("SELECT name FROM product ORDER BY id", String.class));
+
+        ProductImportJob invalidHeaderJob = productImporter.execute(write("invalid.csv", "name,type", "Geisha,BEAN"));
+        assertEquals(ProductImportJob.Status.FAILED, invalidHeaderJob.getStatus());
+        assertEquals("CSV第一行缺少欄位: price, stock", invalidHeaderJob.getMessage());
+    }
+
+    @Test
+    @DisplayName("工作超過保留數量被移除時一併刪除其錯誤檔")
+    void testRejectFileDeletedWithEvictedJob() throws IOException {
+        List<ProductImportJob> jobList = new ArrayList<>();
+        for (int i = 0; i <= MAX_RETAINED_JOBS; i++) {
+            jobList.add(productImporter.execute(write("products" + i + ".csv", "name,type,price,stock", "Cake,CAKE,100,1")));
+        }
+        Path evictedRejectFilePath = jobList.get(0).getRejectFilePath().orElseThrow();
+        assertTrue(productImporter.getJob(jobList.get(0).getId()).isEmpty());
+        assertTrue(Files.notExists(evictedRejectFilePath));
+        for (ProductImportJob job : jobList.subList(1, jobList.size())) {
+            assertTrue(productImporter.getJob(job.getId()).isPresent());
+            assertTrue(Files.exists(job.getRejectFilePath().orElseThrow()));
+        }
+    }
+
+    @Test
+    @DisplayName("上傳後在背景匯入，可查詢進度並下載錯誤檔；副檔名錯誤時回傳400")
+    void testUpload() throws Exception {
+        MockMultipartFile file = new MockMultipartFile(
+                "file",
+                "branch.csv",
+                "text/csv",
+                "name,type,price,stock\nGeisha,BEAN,680,50\nCake,CAKE,100,1\n".getBytes(StandardCharsets.UTF_8)
+        );
+        String response = mockMvc.perform(multipart("/api/v1/products/import").file(file))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.data.fileName", is("branch.csv")))
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+        String jobId = JsonPath.read(response, "$.data.id");
+        ProductImportJob job = productImporter.getJob(jobId).orElseThrow();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!job.isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        mockMvc.perform(get("/api/v1/products/import/" + jobId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.status", is("COMPLETED")))
+                .andExpect(jsonPath("$.data.importedRows", is(1)))
+                .andExpect(jsonPath("$.data.rejectedRows", is(1)))
+                .andExpect(jsonPath("$.data.rejectFileUrl", is("/api/v1/products/import/" + jobId + "/rejects")));
+        mockMvc.perform(get("/api/v1/products/import/" + jobId + "/rejects"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("line,reason,raw" + System.lineSeparator() +
+                        "3,\"type - 無效的產品類型: CAKE\",\"Cake,CAKE,100,1\"" + System.lineSeparator()));
+        // 上傳的檔案匯入後刪除，只保留錯誤檔
+        Path uploadDirectory = Paths.get(fileProperties.getPath(), "import");
+        try (Stream<Path> pathStream = Files.list(uploadDirectory)) {
+            assertTrue(pathStream.allMatch(path -> path.toString().endsWith(".rejects.csv")));
+        }
+
+        mockMvc.perform(multipart("/api/v1/products/import")
+                        .file(new MockMultipartFile("file", "branch.xlsx", "application/octet-stream", new byte[]{1})))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode", is("File - FileExtensionIllegal")));
+        mockMvc.perform(get("/api/v1/products/import/not-a-job"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("匯入1M筆產品時保留的記憶體只有資料表本身")
+    void testImportMillionRows() throws Exception {
+        Path path = directory.resolve("million.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("name,type,price,stock");
+            writer.newLine();
+            for (int i = 1; i <= LARGE_ROW_COUNT; i++) {
+                writer.write("產品" + i + "," + (i % 2 == 0 ? "BEAN" : "DESSERT") + "," + (100 + i % 500) + "," + i % 100);
+                writer.newLine();
+            }
+        }
+        long baseline = getUsedHeap();
+        CompletableFuture<ProductImportJob> future = CompletableFuture.supplyAsync(() -> productImporter.execute(path));
+        // 每秒記錄保留的記憶體與當時已新增的筆數，結束後再扣除資料表本身依比例佔用的部分
+        List<long[]> sampleList = new ArrayList<>();
+        while (!future.isDone()) {
+            Thread.sleep(SAMPLE_INTERVAL_MILLIS);
+            long importedRows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product", Long.class);
+            sampleList.add(new long[]{importedRows, getUsedHeap() - baseline});
+        }
+        ProductImportJob job = future.get();
+        long tableBytes = getUsedHeap() - baseline;
+        long peakExcess = 0;
+        for (long[] sample : sampleList) {
+            peakExcess = Math.max(peakExcess, sample[1] - tableBytes * sample[0] / LARGE_ROW_COUNT);
+        }
+
+        assertEquals(ProductImportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(LARGE_ROW_COUNT, job.getImportedRows());
+        assertEquals(0, job.getRejectedRows());
+        assertEquals(LARGE_ROW_COUNT, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product", Long.class));
+        long excess = peakExcess;
+        assertTrue(
+                excess < MAX_RETAINED_BYTES,
+                () -> String.format("匯入過程中資料表以外保留的記憶體 %.1f MB", excess / 1024.0 / 1024.0)
+        );
+    }
+
+    /**
+     * GC後仍在使用的heap，也就是仍被參照而無法回收的物件
+     */
+    private long getUsedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private void deleteFiles(Path directory) throws IOException {
+        if (Files.notExists(directory)) {
+            return;
+        }
+        try (Stream<Path> pathStream = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) pathStream::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private Path write(String fileName, String... lineArray) throws IOException {
+        return Files.write(directory.resolve(fileName), List.of(lineArray), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,391 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.snapshot;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import tw.edu.ntub.imd.birc.coffeeshop.config.TestSecurityConfig;
+import tw.edu.ntub.imd.birc.coffeeshop.dto.StockAtTime;
+import tw.edu.ntub.imd.birc.coffeeshop.service.StockMovementService;
+import tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 庫存快照測試
+ * 驗證快照與並行的庫存異動一致、由快照前後重播交易記錄查詢過去的庫存，
+ * 並驗證10M筆交易記錄下只重播快照與查詢時間之間的交易記錄
+ * 10M筆交易記錄無法放在記憶體中，此測試使用暫存目錄中的H2檔案資料庫，測試結束後關閉容器並刪除；
+ * 10M筆的測試標記為benchmark，以gradle benchmark執行
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=jdbc:h2:file:${java.io.tmpdir}/" + StockSnapshotManagerTest.DATABASE_NAME + ";" +
+                "MODE=MySQL;DB_CLOSE_ON_EXIT=FALSE;LOCK_TIMEOUT=10000",
+        "coffee-shop.stock-snapshot.enabled=true",
+        "coffee-shop.stock-snapshot.interval-millis=3600000",
+        "coffee-shop.stock-snapshot.chunk-size=" + StockSnapshotManagerTest.CHUNK_SIZE
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import({TestSecurityConfig.class, TestFixtures.class})
+@DirtiesContext
+class StockSnapshotManagerTest {
+    static final String DATABASE_NAME = "coffee-shop-stock-snapshot-test";
+    static final int CHUNK_SIZE = 2;
+    private static final int BENCHMARK_ROW_COUNT = 10_000_000;
+    private static final int BENCHMARK_PRODUCT_COUNT = 100;
+    private static final int INSERT_CHUNK_SIZE = 100_000;
+    private static final int QUERY_REPEAT = 50;
+    private static final LocalDateTime BENCHMARK_START = LocalDateTime.of(2025, 1, 1, 0, 0);
+    /**
+     * 交易記錄的間隔(秒)，10M筆約橫跨一年
+     */
+    private static final int BENCHMARK_INTERVAL_SECONDS = 3;
+
+    @Autowired
+    private StockSnapshotManager stockSnapshotManager;
+
+    @Autowired
+    private StockMovementService stockMovementService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private Long productId;
+
+    static {
+        // 上次執行異常中止時留下的資料庫檔案
+        deleteDatabaseFiles();
+    }
+
+    /**
+     * 先關閉容器，連線池關閉所有連線後H2才會關閉資料庫檔案
+     */
+    @AfterAll
+    static void deleteDatabase(@Autowired ConfigurableApplicationContext applicationContext) {
+        applicationContext.close();
+        deleteDatabaseFiles();
+    }
+
+    private static void deleteDatabaseFiles() {
+        Path directory = Path.of(System.getProperty("java.io.tmpdir"));
+        try {
+            Files.deleteIfExists(directory.resolve(DATABASE_NAME + ".mv.db"));
+            Files.deleteIfExists(directory.resolve(DATABASE_NAME + ".trace.db"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        clear();
+        productId = fixtures.createProduct("耶加雪菲", 0).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        clear();
+    }
+
+    @Test
+    @DisplayName("以之前最近的快照加上之後的交易記錄計算，延後寫入但交易時間較早的交易記錄也會計入")
+    void testStockAt() {
+        move(productId, "IN", 100, "2026-01-01 10:00:00");
+        move(productId, "OUT", 30, "2026-01-02 10:00:00");
+        snapshotAt("2026-01-03 00:00:00");
+        move(productId, "IN", 50, "2026-01-04 10:00:00");
+        move(productId, "OUT", 5, "2026-01-05 10:00:00");
+        snapshotAt("2026-01-06 00:00:00");
+        move(productId, "IN", 7, "2026-01-07 10:00:00");
+        // 快照之後才寫入，交易時間早於快照但在max-commit-delay-millis之內
+        move(productId, "IN", 1, "2026-01-05 23:59:50");
+
+        assertEquals(0, stockAt("2026-01-01 09:00:00"));
+        assertEquals(100, stockAt("2026-01-01 10:00:00"));
+        assertEquals(70, stockAt("2026-01-03 00:00:00"));
+        assertEquals(120, stockAt("2026-01-04 12:00:00"));
+        assertEquals(115, stockAt("2026-01-05 13:00:00"));
+        assertEquals(116, stockAt("2026-01-05 23:59:55"));
+        assertEquals(116, stockAt("2026-01-06 00:00:00"));
+        assertEquals(123, stockAt("2026-01-08 00:00:00"));
+
+        StockAtTime stockAtTime = stockSnapshotManager.getStockAt(productId, LocalDateTime.of(2026, 1, 4, 12, 0));
+        assertEquals(LocalDateTime.of(2026, 1, 3, 0, 0), stockAtTime.getSnapshotAt());
+        assertEquals(2, stockAtTime.getSnapshotTransactionId() - findMinTransactionId() + 1);
+    }
+
+    @Test
+    @DisplayName("沒有快照時以目前庫存為起點往回扣除；庫存沒有變動的產品不再寫入快照")
+    void testWithoutSnapshot() {
+        Long otherProductId = fixtures.createProduct("曼特寧", 0).getId();
+        Long thirdProductId = fixtures.createProduct("藍山", 0).getId();
+        move(productId, "IN", 10, "2026-02-01 10:00:00");
+        move(productId, "OUT", 4, "2026-02-02 10:00:00");
+
+        StockAtTime stockAtTime = stockSnapshotManager.getStockAt(productId, LocalDateTime.of(2026, 2, 1, 12, 0));
+        assertEquals(10, stockAtTime.getStock());
+        assertNull(stockAtTime.getSnapshotAt());
+        assertEquals(0, stockAt("2026-01-31 00:00:00"));
+
+        StockSnapshotManager.SnapshotResult result = stockSnapshotManager.snapshot();
+        assertNull(result.getError());
+        assertEquals(3, result.getProductCount());
+        assertEquals(3, result.getSnapshotCount());
+        move(otherProductId, "IN", 3, "2026-02-03 10:00:00");
+        result = stockSnapshotManager.snapshot();
+        assertEquals(3, result.getProductCount());
+        assertEquals(1, result.getSnapshotCount());
+        assertEquals(3, stockSnapshotManager.getStockAt(otherProductId, LocalDateTime.now()).getStock());
+        assertEquals(0, stockSnapshotManager.getStockAt(thirdProductId, LocalDateTime.now()).getStock());
+    }
+
+    @Test
+    @DisplayName("庫存異動與快照並行時，每筆快照的庫存都等於該快照交易記錄ID之前的合計")
+    void testConcurrentMovement() throws Exception {
+        List<Long> productIdList = List.of(
+                productId,
+                fixtures.createProduct("曼特寧", 0).getId(),
+                fixtures.createProduct("藍山", 0).getId()
+        );
+        AtomicBoolean stopped = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Future<?>> futureList = new ArrayList<>();
+        for (int thread = 0; thread < 2; thread++) {
+            int offset = thread;
+            futureList.add(executor.submit(() -> {
+                for (int i = 0; !stopped.get(); i++) {
+                    stockMovementService.updateStockIn(productIdList.get((i + offset) % productIdList.size()), i % 5 + 1);
+                }
+            }));
+        }
+        try {
+            for (int i = 0; i < 30; i++) {
+                assertNull(stockSnapshotManager.snapshot().getError());
+            }
+        } finally {
+            stopped.set(true);
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        for (Future<?> future : futureList) {
+            future.get();
+        }
+
+        List<Map<String, Object>> snapshotList = jdbcTemplate.queryForList(
+                "SELECT product_id, stock, last_transaction_id FROM stock_snapshot"
+        );
+        assertFalse(snapshotList.isEmpty());
+        for (Map<String, Object> snapshot : snapshotList) {
+            assertEquals(
+                    ((Number) snapshot.get("stock")).longValue(),
+                    jdbcTemplate.queryForObject(
+                            "SELECT COALESCE(SUM(quantity), 0) FROM transaction WHERE product_id = ? AND id <= ?",
+                            Long.class,
+                            snapshot.get("product_id"),
+                            snapshot.get("last_transaction_id")
+                    )
+            );
+        }
+        for (Long id : productIdList) {
+            assertEquals(
+                    jdbcTemplate.queryForObject("SELECT stock FROM product WHERE id = ?", Long.class, id),
+                    stockSnapshotManager.getStockAt(id, LocalDateTime.now().plusMinutes(1)).getStock()
+            );
+        }
+    }
+
+    @Test
+    @DisplayName("查詢API回傳某個時間點的庫存，時間格式錯誤回傳400、產品不存在回傳404；手動快照在背景執行")
+    void testApi() throws Exception {
+        move(productId, "IN", 8, "2026-03-01 17:00:00");
+        move(productId, "OUT", 3, "2026-03-01 19:00:00");
+
+        mockMvc.perform(get("/api/v1/admin/stock-snapshots/products/" + productId)
+                        .param("at", "2026-03-01 18:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.stock", is(8)))
+                .andExpect(jsonPath("$.data.snapshotAt", is("")));
+        mockMvc.perform(get("/api/v1/admin/stock-snapshots/products/" + productId)
+                        .param("at", "yesterday"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/admin/stock-snapshots/products/9999")
+                        .param("at", "2026-03-01 18:00:00"))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(post("/api/v1/admin/stock-snapshots"))
+                .andExpect(status().isAccepted());
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (stockSnapshotManager.isRunning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        mockMvc.perform(get("/api/v1/admin/stock-snapshots"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.running", is(false)))
+                .andExpect(jsonPath("$.data.lastSnapshot.productCount", is(1)))
+                .andExpect(jsonPath("$.data.lastSnapshot.snapshotCount", is(1)));
+        mockMvc.perform(get("/api/v1/admin/stock-snapshots/products/" + productId)
+                        .param("at", "2026-03-01 18:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.stock", is(8)));
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("10M筆交易記錄，快照加重播尾端與完整重播結果相同且只讀取快照之後的交易記錄")
+    void testTenMillionRows() {
+        jdbcTemplate.update("DELETE FROM product");
+        for (int i = 0; i < BENCHMARK_PRODUCT_COUNT; i++) {
+            fixtures.createProduct("產品" + i, 0);
+        }
+        long firstProductId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM product", Long.class);
+        long lastTransactionId = 0;
+        for (int inserted = 0; inserted < BENCHMARK_ROW_COUNT; inserted += INSERT_CHUNK_SIZE) {
+            // 產品輪流異動，每3秒一筆；每一段寫入後快照一次，快照時間設為該段最後一筆交易記錄的時間
+            int to = Math.min(BENCHMARK_ROW_COUNT, inserted + INSERT_CHUNK_SIZE);
+            jdbcTemplate.update(
+                    "INSERT INTO transaction (product_id, type, quantity, timestamp) " +
+                            "SELECT ? + MOD(X, ?), CASE WHEN MOD(X, 3) = 0 THEN 'OUT' ELSE 'IN' END, MOD(X, 5) + 1, " +
+                            "DATEADD('SECOND', X * ?, CAST(? AS TIMESTAMP)) " +
+                            "FROM SYSTEM_RANGE(?, ?)",
+                    firstProductId,
+                    BENCHMARK_PRODUCT_COUNT,
+                    BENCHMARK_INTERVAL_SECONDS,
+                    Timestamp.valueOf(BENCHMARK_START),
+                    inserted + 1,
+                    to
+            );
+            List<Object[]> deltaList = jdbcTemplate.query(
+                    "SELECT product_id, SUM(CASE WHEN type = 'IN' THEN quantity ELSE -quantity END) AS delta " +
+                            "FROM transaction WHERE id > ? GROUP BY product_id",
+                    (resultSet, rowNum) -> new Object[]{resultSet.getLong("delta"), resultSet.getLong("product_id")},
+                    lastTransactionId
+            );
+            jdbcTemplate.batchUpdate("UPDATE product SET stock = stock + ? WHERE id = ?", deltaList);
+            lastTransactionId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM transaction", Long.class);
+            stockSnapshotManager.snapshot();
+            jdbcTemplate.update(
+                    "UPDATE stock_snapshot SET at = ? WHERE at > ?",
+                    Timestamp.valueOf(BENCHMARK_START.plusSeconds((long) to * BENCHMARK_INTERVAL_SECONDS)),
+                    Timestamp.valueOf(BENCHMARK_START.plusSeconds((long) to * BENCHMARK_INTERVAL_SECONDS))
+            );
+        }
+        // InnoDB的次要索引本身帶有主鍵，idx_product_id等同(product_id, id)；H2不會以主鍵做次要索引的範圍條件，以此索引模擬
+        jdbcTemplate.execute("CREATE INDEX idx_product_id_id ON transaction (product_id, id)");
+
+        Random random = new Random(25);
+        long endSeconds = (long) BENCHMARK_ROW_COUNT * BENCHMARK_INTERVAL_SECONDS;
+        for (int i = 0; i < QUERY_REPEAT; i++) {
+            Long queryProductId = firstProductId + random.nextInt(BENCHMARK_PRODUCT_COUNT);
+            LocalDateTime at = BENCHMARK_START.plusSeconds((long) (random.nextDouble() * endSeconds));
+            long fullReplayStock = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(SUM(CASE WHEN type = 'IN' THEN quantity ELSE -quantity END), 0) " +
+                            "FROM transaction WHERE product_id = ? AND timestamp <= ?",
+                    Long.class,
+                    queryProductId,
+                    Timestamp.valueOf(at)
+            );
+            StockAtTime stockAtTime = stockSnapshotManager.getStockAt(queryProductId, at);
+            assertEquals(fullReplayStock, stockAtTime.getStock());
+            assertNotNull(stockAtTime.getSnapshotAt());
+            // 重播或扣除的只有快照與at之間的交易記錄，不超過一段寫入中該產品的筆數
+            long replayedCount = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM transaction WHERE product_id = ? AND " +
+                            "((id > ? AND timestamp <= ?) OR (id <= ? AND timestamp > ?))",
+                    Long.class,
+                    queryProductId,
+                    stockAtTime.getSnapshotTransactionId(),
+                    Timestamp.valueOf(at),
+                    stockAtTime.getSnapshotTransactionId(),
+                    Timestamp.valueOf(at)
+            );
+            assertTrue(
+                    replayedCount <= INSERT_CHUNK_SIZE / BENCHMARK_PRODUCT_COUNT,
+                    () -> at + "重播" + replayedCount + "筆交易記錄"
+            );
+        }
+    }
+
+    private void clear() {
+        jdbcTemplate.execute("DROP INDEX IF EXISTS idx_product_id_id");
+        jdbcTemplate.execute("DELETE FROM stock_snapshot");
+        fixtures.clear();
+    }
+
+    private long stockAt(String at) {
+        return stockSnapshotManager.getStockAt(productId, parse(at)).getStock();
+    }
+
+    /**
+     * 快照後將剛寫入的快照時間改為at，模擬過去定期執行的快照
+     */
+    private void snapshotAt(String at) {
+        assertNull(stockSnapshotManager.snapshot().getError());
+        jdbcTemplate.update("UPDATE stock_snapshot SET at = ? WHERE at > ?", Timestamp.valueOf(parse(at)), Timestamp.valueOf(parse(at)));
+    }
+
+    private long findMinTransactionId() {
+        return jdbcTemplate.queryForObject("SELECT MIN(id) FROM transaction", Long.class);
+    }
+
+    /**
+     * 與庫存異動相同，新增交易記錄並更新產品庫存，但交易時間由參數指定
+     */
+    private void move(Long productId, String type, int quantity, String timestamp) {
+        jdbcTemplate.update(
+                "INSERT INTO transaction (product_id, type, quantity, timestamp) VALUES (?, ?, ?, ?)",
+                productId,
+                type,
+                quantity,
+                Timestamp.valueOf(parse(timestamp))
+        );
+        jdbcTemplate.update(
+                "UPDATE product SET stock = stock + ? WHERE id = ?",
+                "IN".equals(type) ? quantity : -quantity,
+                productId
+        );
+    }
+
+    private LocalDateTime parse(String dateTime) {
+        return LocalDateTime.parse(dateTime.replace(' ', 'T'));
+    }
+}
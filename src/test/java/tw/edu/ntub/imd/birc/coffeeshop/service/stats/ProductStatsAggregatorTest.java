@@ -0,0 +1,457 @@
+package tw.edu.ntub.imd.birc.coffeeshop.service.stats;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import tw.edu.ntub.imd.birc.coffeeshop.config.TestSecurityConfig;
+import tw.edu.ntub.imd.birc.coffeeshop.config.provider.properties.ProductStatsProperties;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.ProductDailyStatsDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.dto.ProductStatsBucket;
+import tw.edu.ntub.imd.birc.coffeeshop.service.StockMovementService;
+import tw.edu.ntub.imd.birc.coffeeshop.support.TestFixtures;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 產品每日統計測試
+ * 驗證彙總新交易記錄、缺號等待、並行重建與依日/週/月查詢，
+ * 以及1M筆交易記錄並行重建後查詢一年統計只讀取每日統計(標記為benchmark，以gradle benchmark執行)
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "coffee-shop.product-stats.enabled=true",
+        // 背景彙總不會在測試期間執行，由測試直接呼叫tail與rebuild
+        "coffee-shop.product-stats.tail-interval-millis=3600000",
+        "coffee-shop.product-stats.tail-batch-size=" + ProductStatsAggregatorTest.TAIL_BATCH_SIZE,
+        "coffee-shop.product-stats.gap-timeout-millis=" + ProductStatsAggregatorTest.GAP_TIMEOUT_MILLIS,
+        "coffee-shop.product-stats.rebuild-chunk-size=" + ProductStatsAggregatorTest.REBUILD_CHUNK_SIZE,
+        "coffee-shop.product-stats.rebuild-parallelism=4"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import({TestSecurityConfig.class, TestFixtures.class})
+class ProductStatsAggregatorTest {
+    static final int TAIL_BATCH_SIZE = 100;
+    static final long GAP_TIMEOUT_MILLIS = 300;
+    static final int REBUILD_CHUNK_SIZE = 50_000;
+    private static final int BENCHMARK_ROW_COUNT = 1_000_000;
+    private static final int INSERT_CHUNK_SIZE = 100_000;
+
+    @Autowired
+    private ProductStatsAggregator productStatsAggregator;
+
+    @Autowired
+    private StockMovementService stockMovementService;
+
+    @Autowired
+    private ProductStatsProperties productStatsProperties;
+
+    @Autowired
+    private ProductDailyStatsDAO productDailyStatsDAO;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private Long productId;
+    private Long otherProductId;
+
+    @BeforeEach
+    void setUp() {
+        fixtures.clear();
+        productId = fixtures.createProduct("耶加雪菲", 100).getId();
+        otherProductId = fixtures.createProduct("曼特寧", 100).getId();
+        productStatsAggregator.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixtures.clear();
+        productStatsAggregator.rebuild();
+    }
+
+    @Test
+    @DisplayName("新交易記錄依產品與日期累加，超過一批時連續處理，同一筆不會重複計入")
+    void testTail() {
+        long watermark = insertTransaction(productId, "IN", 10, "2026-03-02 08:00:00");
+        rebuildAfter(watermark);
+        stockMovementService.updateStockIn(productId, 20);
+        stockMovementService.updateStockOut(productId, 5);
+        stockMovementService.updateStockIn(otherProductId, 7);
+        insertTransaction(productId, "OUT", 3, "2026-03-02 23:59:59");
+        insertTransaction(productId, "OUT", 4, "2026-03-09 00:00:00");
+        insertTransactions(productId, TAIL_BATCH_SIZE * 2 + 10, "2026-03-03 00:00:00");
+
+        assertEquals(TAIL_BATCH_SIZE * 2 + 15, productStatsAggregator.tail());
+        assertEquals(0, productStatsAggregator.tail());
+        LocalDate today = LocalDate.now();
+        ProductStatsBucket todayBucket = productStatsAggregator.getStats(productId, today, today, StatsGranularity.DAY).get(0);
+        assertEquals(20, todayBucket.getInQuantity());
+        assertEquals(5, todayBucket.getOutQuantity());
+        assertEquals(15, todayBucket.getNetQuantity());
+        assertEquals(7, productStatsAggregator.getStats(otherProductId, today, today, StatsGranularity.DAY).get(0).getInQuantity());
+
+        List<ProductStatsBucket> dayList = productStatsAggregator.getStats(
+                productId,
+                LocalDate.of(2026, 3, 1),
+                LocalDate.of(2026, 3, 9),
+                StatsGranularity.DAY
+        );
+        assertEquals(9, dayList.size());
+        assertEquals(LocalDate.of(2026, 3, 1), dayList.get(0).getPeriodStart());
+        assertEquals(0, dayList.get(0).getInCount() + dayList.get(0).getOutCount());
+        // 重建時計入的10與之後由tail計入的3
+        assertEquals(10, dayList.get(1).getInQuantity());
+        assertEquals(3, dayList.get(1).getOutQuantity());
+        assertEquals(TAIL_BATCH_SIZE * 2 + 10, dayList.get(2).getInCount());
+        assertEquals(4, dayList.get(8).getOutQuantity());
+    }
+
+    @Test
+    @DisplayName("遇到缺號時停在缺號之前，缺號補上後繼續；逾時仍未出現則略過")
+    void testGap() throws InterruptedException {
+        long watermark = insertTransaction(productId, "IN", 1, "2026-03-02 08:00:00");
+        rebuildAfter(watermark);
+        insertTransactionWithId(watermark + 1, 2);
+        insertTransactionWithId(watermark + 3, 8);
+
+        productStatsAggregator.tail();
+        assertEquals(watermark + 1, productStatsAggregator.getWatermark());
+        insertTransactionWithId(watermark + 2, 4);
+        productStatsAggregator.tail();
+        assertEquals(watermark + 3, productStatsAggregator.getWatermark());
+
+        insertTransactionWithId(watermark + 5, 16);
+        productStatsAggregator.tail();
+        assertEquals(watermark + 3, productStatsAggregator.getWatermark());
+        Thread.sleep(GAP_TIMEOUT_MILLIS + 50);
+        productStatsAggregator.tail();
+        assertEquals(watermark + 5, productStatsAggregator.getWatermark());
+        LocalDate date = LocalDate.of(2026, 3, 2);
+        assertEquals(1 + 2 + 4 + 8 + 16, productStatsAggregator.getStats(productId, date, date, StatsGranularity.DAY)
+                .get(0)
+                .getInQuantity());
+
+        // 逾時後才提交的缺號不計入，記錄為需重建，重建後計入
+        insertTransactionWithId(watermark + 4, 32);
+        productStatsAggregator.tail();
+        assertEquals(1, productStatsAggregator.getLateTransactionCount());
+        assertEquals(1 + 2 + 4 + 8 + 16, productStatsAggregator.getStats(productId, date, date, StatsGranularity.DAY)
+                .get(0)
+                .getInQuantity());
+        productStatsAggregator.rebuild();
+        assertEquals(0, productStatsAggregator.getLateTransactionCount());
+        assertEquals(1 + 2 + 4 + 8 + 16 + 32, productStatsAggregator.getStats(productId, date, date, StatsGranularity.DAY)
+                .get(0)
+                .getInQuantity());
+    }
+
+    @Test
+    @DisplayName("重建中斷後留下部分統計時，下次彙總清除統計並由頭重新計算")
+    void testInterruptedRebuild() {
+        insertTransaction(productId, "IN", 3, "2026-03-02 08:00:00");
+        insertTransaction(productId, "OUT", 1, "2026-03-02 09:00:00");
+        productStatsAggregator.rebuild();
+        // 模擬重建中途程序終止：處理進度停在重建中，統計只有部分的段
+        jdbcTemplate.update(
+                "UPDATE stats_watermark SET last_transaction_id = ? WHERE name = ?",
+                ProductStatsAggregator.REBUILDING_WATERMARK,
+                ProductStatsAggregator.WATERMARK_NAME
+        );
+        jdbcTemplate.update("UPDATE product_daily_stats SET out_quantity = 0");
+        ProductStatsAggregator restartedAggregator = new ProductStatsAggregator(
+                productStatsProperties,
+                productDailyStatsDAO,
+                transactionManager
+        );
+
+        assertEquals(2, restartedAggregator.tail());
+        LocalDate date = LocalDate.of(2026, 3, 2);
+        ProductStatsBucket bucket = restartedAggregator.getStats(productId, date, date, StatsGranularity.DAY).get(0);
+        assertEquals(3, bucket.getInQuantity());
+        assertEquals(1, bucket.getOutQuantity());
+    }
+
+    @Test
+    @DisplayName("重建時各段並行彙總，同一天跨多段的合計與直接掃描交易記錄相同")
+    void testRebuild() {
+        int count = REBUILD_CHUNK_SIZE * 2 + 500;
+        insertTransactions(productId, count, "2026-01-01 00:00:00");
+        productStatsAggregator.rebuild();
+        jdbcTemplate.update("UPDATE product_daily_stats SET in_quantity = 0");
+
+        ProductStatsAggregator.RebuildResult result = productStatsAggregator.rebuild();
+        assertNull(result.getError());
+        assertEquals(3, result.getChunkCount());
+        assertEquals(jdbcTemplate.queryForObject("SELECT MAX(id) FROM transaction", Long.class), result.getMaxTransactionId());
+        assertEquals(result.getMaxTransactionId(), productStatsAggregator.getWatermark());
+        assertEquals(0, productStatsAggregator.tail());
+        assertEquals(
+                queryRawDailyStats(productId, LocalDate.of(2026, 1, 1), LocalDate.of(2026, 1, 31)),
+                toMap(productStatsAggregator.getStats(productId, LocalDate.of(2026, 1, 1), LocalDate.of(2026, 1, 31), StatsGranularity.DAY))
+        );
+    }
+
+    @Test
+    @DisplayName("依週(週一起算)與月合計，第一個區間只計入查詢範圍內的日期")
+    void testGranularity() {
+        insertTransaction(productId, "IN", 1, "2026-03-01 10:00:00");
+        insertTransaction(productId, "IN", 2, "2026-03-02 10:00:00");
+        insertTransaction(productId, "OUT", 4, "2026-03-08 10:00:00");
+        insertTransaction(productId, "IN", 8, "2026-03-09 10:00:00");
+        insertTransaction(productId, "IN", 16, "2026-04-30 10:00:00");
+        productStatsAggregator.rebuild();
+
+        List<ProductStatsBucket> weekList = productStatsAggregator.getStats(
+                productId,
+                LocalDate.of(2026, 3, 2),
+                LocalDate.of(2026, 3, 15),
+                StatsGranularity.WEEK
+        );
+        assertEquals(List.of(LocalDate.of(2026, 3, 2), LocalDate.of(2026, 3, 9)),
+                weekList.stream().map(ProductStatsBucket::getPeriodStart).collect(Collectors.toList()));
+        assertEquals(2, weekList.get(0).getInQuantity());
+        assertEquals(4, weekList.get(0).getOutQuantity());
+        assertEquals(8, weekList.get(1).getInQuantity());
+
+        List<ProductStatsBucket> monthList = productStatsAggregator.getStats(
+                productId,
+                LocalDate.of(2026, 2, 15),
+                LocalDate.of(2026, 4, 29),
+                StatsGranularity.MONTH
+        );
+        assertEquals(List.of(LocalDate.of(2026, 2, 1), LocalDate.of(2026, 3, 1), LocalDate.of(2026, 4, 1)),
+                monthList.stream().map(ProductStatsBucket::getPeriodStart).collect(Collectors.toList()));
+        assertEquals(11, monthList.get(1).getInQuantity());
+        assertEquals(4, monthList.get(1).getOutQuantity());
+        assertEquals(0, monthList.get(2).getInQuantity());
+    }
+
+    @Test
+    @DisplayName("統計API依參數合計，參數錯誤回傳400、產品不存在回傳404、停用時回傳409；重建API在背景執行")
+    void testApi() throws Exception {
+        insertTransaction(productId, "IN", 5, "2026-03-02 10:00:00");
+        insertTransaction(productId, "OUT", 2, "2026-03-20 10:00:00");
+        productStatsAggregator.rebuild();
+
+        mockMvc.perform(get("/api/v1/products/" + productId + "/stats")
+                        .param("from", "2026-03-01")
+                        .param("to", "2026-03-31")
+                        .param("granularity", "week"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", hasSize(6)))
+                .andExpect(jsonPath("$.data[0].periodStart", is("2026/02/23")))
+                .andExpect(jsonPath("$.data[1].inQuantity", is(5)))
+                .andExpect(jsonPath("$.data[3].outQuantity", is(2)))
+                .andExpect(jsonPath("$.data[3].netQuantity", is(-2)));
+        mockMvc.perform(get("/api/v1/products/" + productId + "/stats")
+                        .param("from", "2026-03-01")
+                        .param("to", "2026-03-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", hasSize(31)));
+        mockMvc.perform(get("/api/v1/products/" + productId + "/stats")
+                        .param("from", "2026-03-31")
+                        .param("to", "2026-03-01"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is("from - 不可晚於to")));
+        mockMvc.perform(get("/api/v1/products/" + productId + "/stats")
+                        .param("from", "2016-01-01")
+                        .param("to", "2026-03-01"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/products/" + productId + "/stats")
+                        .param("from", "yesterday")
+                        .param("to", "2026-03-01"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/products/" + productId + "/stats")
+                        .param("from", "2026-03-01")
+                        .param("to", "2026-03-31")
+                        .param("granularity", "hour"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is("granularity - 只能是day、week或month")));
+        mockMvc.perform(get("/api/v1/products/9999/stats")
+                        .param("from", "2026-03-01")
+                        .param("to", "2026-03-31"))
+                .andExpect(status().isNotFound());
+        productStatsProperties.setEnabled(false);
+        try {
+            mockMvc.perform(get("/api/v1/products/" + productId + "/stats")
+                            .param("from", "2026-03-01")
+                            .param("to", "2026-03-31"))
+                    .andExpect(status().isConflict())
+                    .andExpect(jsonPath("$.errorCode", is("ProductStats - Disabled")));
+            mockMvc.perform(get("/api/v1/admin/product-stats"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.data.enabled", is(false)));
+        } finally {
+            productStatsProperties.setEnabled(true);
+        }
+
+        mockMvc.perform(post("/api/v1/admin/product-stats/rebuild"))
+                .andExpect(status().isAccepted());
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (productStatsAggregator.isRebuilding() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM transaction", Long.class);
+        mockMvc.perform(get("/api/v1/admin/product-stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.enabled", is(true)))
+                .andExpect(jsonPath("$.data.watermark", is((int) maxId)))
+                .andExpect(jsonPath("$.data.lag", is(0)))
+                .andExpect(jsonPath("$.data.rebuilding", is(false)))
+                .andExpect(jsonPath("$.data.lastRebuild.chunkCount", is(1)));
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("1M筆交易記錄並行重建，查詢一年的每日統計與交易記錄筆數無關")
+    void testMillionRows() {
+        for (int inserted = 0; inserted < BENCHMARK_ROW_COUNT; inserted += INSERT_CHUNK_SIZE) {
+            // 兩個產品交錯，每31秒一筆，約橫跨一年
+            jdbcTemplate.update(
+                    "INSERT INTO transaction (product_id, type, quantity, timestamp) " +
+                            "SELECT CASE WHEN MOD(X, 2) = 0 THEN ? ELSE ? END, " +
+                            "CASE WHEN MOD(X, 3) = 0 THEN 'OUT' ELSE 'IN' END, MOD(X, 20) + 1, " +
+                            "DATEADD('SECOND', X * 31, TIMESTAMP '2025-01-01 00:00:00') " +
+                            "FROM SYSTEM_RANGE(?, ?)",
+                    productId,
+                    otherProductId,
+                    inserted + 1,
+                    Math.min(BENCHMARK_ROW_COUNT, inserted + INSERT_CHUNK_SIZE)
+            );
+        }
+        ProductStatsAggregator.RebuildResult result = productStatsAggregator.rebuild();
+        assertNull(result.getError());
+        assertTrue(result.getChunkCount() >= BENCHMARK_ROW_COUNT / REBUILD_CHUNK_SIZE);
+
+        LocalDate from = LocalDate.of(2025, 1, 1);
+        LocalDate to = LocalDate.of(2025, 12, 31);
+        List<ProductStatsBucket> bucketList = productStatsAggregator.getStats(productId, from, to, StatsGranularity.DAY);
+        assertEquals(365, bucketList.size());
+        assertEquals(queryRawDailyStats(productId, from, to), toMap(bucketList));
+        // 查詢只讀取每日一列的統計，與交易記錄筆數無關
+        int statsRowCount = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM product_daily_stats WHERE product_id = ? AND stats_date BETWEEN ? AND ?",
+                Integer.class,
+                productId,
+                Date.valueOf(from),
+                Date.valueOf(to)
+        );
+        assertTrue(statsRowCount <= 365);
+    }
+
+    /**
+     * 以目前的最大ID為起點重建，之後的交易記錄由tail計入
+     */
+    private void rebuildAfter(long watermark) {
+        productStatsAggregator.rebuild();
+        assertEquals(watermark, productStatsAggregator.getWatermark());
+    }
+
+    /**
+     * 直接掃描交易記錄彙總，沒有異動的日期不會出現
+     *
+     * @return value依序為進貨數量、出貨數量、進貨筆數、出貨筆數
+     */
+    private Map<LocalDate, List<Long>> queryRawDailyStats(Long productId, LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(
+                "SELECT CAST(timestamp AS DATE) AS stats_date, " +
+                        "SUM(CASE WHEN type = 'IN' THEN quantity ELSE 0 END) AS in_quantity, " +
+                        "SUM(CASE WHEN type = 'OUT' THEN quantity ELSE 0 END) AS out_quantity, " +
+                        "SUM(CASE WHEN type = 'IN' THEN 1 ELSE 0 END) AS in_count, " +
+                        "SUM(CASE WHEN type = 'OUT' THEN 1 ELSE 0 END) AS out_count " +
+                        "FROM transaction WHERE product_id = ? AND timestamp >= ? AND timestamp < ? " +
+                        "GROUP BY CAST(timestamp AS DATE)",
+                (resultSet, rowNum) -> Map.entry(
+                        resultSet.getDate("stats_date").toLocalDate(),
+                        List.of(
+                                resultSet.getLong("in_quantity"),
+                                resultSet.getLong("out_quantity"),
+                                resultSet.getLong("in_count"),
+                                resultSet.getLong("out_count")
+                        )
+                ),
+                productId,
+                Timestamp.valueOf(from.atStartOfDay()),
+                Timestamp.valueOf(to.plusDays(1).atStartOfDay())
+        ).stream().collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    private Map<LocalDate, List<Long>> toMap(List<ProductStatsBucket> bucketList) {
+        return bucketList.stream()
+                .filter(bucket -> bucket.getInCount() + bucket.getOutCount() > 0)
+                .collect(Collectors.toMap(
+                        ProductStatsBucket::getPeriodStart,
+                        bucket -> List.of(bucket.getInQuantity(), bucket.getOutQuantity(), bucket.getInCount(), bucket.getOutCount())
+                ));
+    }
+
+    /**
+     * @return 新增的交易記錄ID
+     */
+    private long insertTransaction(Long productId, String type, int quantity, String timestamp) {
+        jdbcTemplate.update(
+                "INSERT INTO transaction (product_id, type, quantity, timestamp) VALUES (?, ?, ?, ?)",
+                productId,
+                type,
+                quantity,
+                Timestamp.valueOf(LocalDateTime.parse(timestamp.replace(' ', 'T')))
+        );
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM transaction", Long.class);
+    }
+
+    private void insertTransactionWithId(long id, int quantity) {
+        jdbcTemplate.update(
+                "INSERT INTO transaction (id, product_id, type, quantity, timestamp) " +
+                        "VALUES (?, ?, 'IN', ?, TIMESTAMP '2026-03-02 12:00:00')",
+                id,
+                productId,
+                quantity
+        );
+    }
+
+    /**
+     * 從start開始每秒一筆進貨，數量皆為1
+     */
+    private void insertTransactions(Long productId, int count, String start) {
+        jdbcTemplate.update(
+                "INSERT INTO transaction (product_id, type, quantity, timestamp) " +
+                        "SELECT ?, 'IN', 1, DATEADD('SECOND', X - 1, CAST(? AS TIMESTAMP)) FROM SYSTEM_RANGE(1, ?)",
+                productId,
+                start,
+                count
+        );
+    }
+}
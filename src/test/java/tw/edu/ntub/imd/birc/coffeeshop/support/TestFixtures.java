@@ -0,0 +1,124 @@
+package tw.edu.ntub.imd.birc.coffeeshop.support;
+
+import org.springframework.boot.test.context.TestComponent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import tw.edu.ntub.imd.birc.coffeeshop.bean.ProductBean;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.dao.ProductDAO;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.entity.Product;
+import tw.edu.ntub.imd.birc.coffeeshop.databaseconfig.enumerate.ProductType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * 測試共用的資料準備與並行執行
+ * 測試類別以@Import(TestFixtures.class)注入
+ */
+@TestComponent
+public class TestFixtures {
+    /**
+     * H2一次新增大量資料時會越來越慢，分段新增
+     */
+    private static final int INSERT_CHUNK_SIZE = 100_000;
+    private final ProductDAO productDAO;
+    private final JdbcTemplate jdbcTemplate;
+
+    public TestFixtures(ProductDAO productDAO, JdbcTemplate jdbcTemplate) {
+        this.productDAO = productDAO;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 清除所有交易記錄與產品，大量資料時deleteAll會逐筆載入再刪除，因此以TRUNCATE清除
+     */
+    public void clear() {
+        jdbcTemplate.execute("TRUNCATE TABLE transaction");
+        jdbcTemplate.execute("TRUNCATE TABLE product");
+    }
+
+    /**
+     * 不經過服務直接新增產品
+     */
+    public Product createProduct(int stock) {
+        return createProduct("衣索比亞耶加雪菲", stock);
+    }
+
+    public Product createProduct(String name, int stock) {
+        Product product = new Product();
+        product.setName(name);
+        product.setType(ProductType.BEAN);
+        product.setPrice(400);
+        product.setStock(stock);
+        return productDAO.save(product);
+    }
+
+    /**
+     * 尚未新增的產品，交給ProductService新增
+     */
+    public static ProductBean newProductBean(String name, ProductType type, int stock) {
+        ProductBean productBean = new ProductBean();
+        productBean.setName(name);
+        productBean.setType(type);
+        productBean.setPrice(400);
+        productBean.setStock(stock);
+        return productBean;
+    }
+
+    /**
+     * 從2026-01-01 00:00:00開始每秒一筆，每3筆有1筆出貨，數量1~20
+     */
+    public void insertTransactions(Long productId, int count) {
+        insertTransactions(productId, count, 1);
+    }
+
+    /**
+     * @param rowsPerSecond 每個時間點的筆數
+     */
+    public void insertTransactions(Long productId, int count, int rowsPerSecond) {
+        for (int inserted = 0; inserted < count; inserted += INSERT_CHUNK_SIZE) {
+            jdbcTemplate.update(
+                    "INSERT INTO transaction (product_id, type, quantity, timestamp) " +
+                            "SELECT ?, CASE WHEN MOD(X, 3) = 0 THEN 'OUT' ELSE 'IN' END, MOD(X, 20) + 1, " +
+                            "DATEADD('SECOND', X / ?, TIMESTAMP '2026-01-01 00:00:00') " +
+                            "FROM SYSTEM_RANGE(?, ?)",
+                    productId,
+                    rowsPerSecond,
+                    inserted + 1,
+                    Math.min(count, inserted + INSERT_CHUNK_SIZE)
+            );
+        }
+    }
+
+    /**
+     * 以threadCount個執行緒執行taskCount個工作，所有工作同時開始，任一工作拋出例外時由此拋出
+     *
+     * @param task 參數為工作的序號，從0開始
+     */
+    public static void runConcurrently(int threadCount, int taskCount, IntConsumer task) throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        try {
+            List<Future<?>> futureList = new ArrayList<>(taskCount);
+            for (int i = 0; i < taskCount; i++) {
+                int index = i;
+                futureList.add(executorService.submit(() -> {
+                    startLatch.await();
+                    task.accept(index);
+                    return null;
+                }));
+            }
+            startLatch.countDown();
+            for (Future<?> future : futureList) {
+                future.get(120, TimeUnit.SECONDS);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+}
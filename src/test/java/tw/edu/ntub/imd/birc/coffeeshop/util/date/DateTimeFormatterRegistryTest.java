@@ -0,0 +1,56 @@
+package tw.edu.ntub.imd.birc.coffeeshop.util.date;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tw.edu.ntub.imd.birc.coffeeshop.util.http.ResponseUtils;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DateTimeFormatter快取測試
+ * 驗證同一組pattern只編譯一次，格式化與序列化結果不變
+ */
+class DateTimeFormatterRegistryTest {
+    @Test
+    @DisplayName("相同pattern與語系回傳同一個實例")
+    void testSameInstance() {
+        DateTimeFormatter formatter = DateTimeFormatterRegistry.get("yyyy/MM/dd HH:mm:ss");
+        assertSame(formatter, DateTimeFormatterRegistry.get("yyyy/MM/dd HH:mm:ss"));
+        assertSame(formatter, DatePatternBuilder.DEFAULT_DATE_TIME.buildFormatter());
+        assertNotSame(
+                DateTimeFormatterRegistry.get("yyyy/MM/dd aKK:mm", Locale.TAIWAN),
+                DateTimeFormatterRegistry.get("yyyy/MM/dd aKK:mm", Locale.US)
+        );
+    }
+
+    @Test
+    @DisplayName("格式化結果與DateTimeFormatter.ofPattern相同")
+    void testFormatEquivalence() {
+        LocalDateTime dateTime = LocalDateTime.of(2024, 3, 5, 14, 7, 9, 123_000_000);
+        for (DatePatternBuilder builder : DatePatternBuilder.DEFAULT_BUILDER_ARRAY) {
+            assertEquals(
+                    dateTime.format(DateTimeFormatter.ofPattern(builder.build())),
+                    LocalDateTimeUtils.format(dateTime, builder)
+            );
+        }
+        assertEquals("民國113年03月05日", ChYearUtil.transferADDateToMinguoDate(dateTime));
+        assertEquals(dateTime.toLocalDate().atStartOfDay(), ChYearUtil.transferMinguoDateToADDate("民國113年03月05日"));
+    }
+
+    @Test
+    @DisplayName("回應的ObjectMapper以快取的formatter序列化時間戳記")
+    void testMapperFormat() throws Exception {
+        ObjectMapper mapper = ResponseUtils.createMapper();
+        LocalDateTime dateTime = LocalDateTime.of(2024, 3, 5, 14, 7, 9);
+        assertEquals("\"2024/03/05 14:07:09\"", mapper.writeValueAsString(dateTime));
+        assertEquals(
+                mapper.writeValueAsString(dateTime.format(DateTimeFormatterRegistry.get("yyyy/MM/dd HH:mm:ss"))),
+                mapper.writeValueAsString(dateTime)
+        );
+    }
+}
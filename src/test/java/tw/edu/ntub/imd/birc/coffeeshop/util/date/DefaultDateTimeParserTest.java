@@ -0,0 +1,182 @@
+package tw.edu.ntub.imd.birc.coffeeshop.util.date;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tw.edu.ntub.imd.birc.coffeeshop.exception.DateParseException;
+
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 單次掃描日期解析測試
+ * 以隨機產生(含各種不合法變形)的字串比對新舊解析結果
+ */
+class DefaultDateTimeParserTest {
+    private static final int FUZZ_COUNT = 5_000;
+    private final Locale defaultLocale = Locale.getDefault();
+
+    @AfterEach
+    void tearDown() {
+        Locale.setDefault(defaultLocale);
+    }
+
+    @Test
+    @DisplayName("所有支援的格式都能在快速路徑解析")
+    void testSupportedShape() {
+        Locale.setDefault(Locale.TAIWAN);
+        LocalDateTime expected = LocalDateTime.of(2024, 3, 5, 14, 7, 9, 123_000_000);
+        for (DatePatternBuilder builder : DatePatternBuilder.DEFAULT_BUILDER_ARRAY) {
+            String text = expected.format(DateTimeFormatter.ofPattern(builder.build()));
+            DefaultDateTimeParser.Result result = DefaultDateTimeParser.parse(text);
+            assertNotNull(result, text);
+            if (result.hasTime()) {
+                assertEquals(
+                        LocalDateTime.parse(text, DateTimeFormatter.ofPattern(builder.build())),
+                        LocalDateTimeUtils.parseIgnoreException(text)
+                );
+            }
+            assertEquals(expected.toLocalDate(), LocalDateUtils.parseIgnoreException(text));
+        }
+        assertEquals(LocalDateTime.of(2024, 3, 5, 14, 7), LocalDateTimeUtils.parseIgnoreException("2024/03/05 下午02:07"));
+        assertNull(DefaultDateTimeParser.parse("2024/02/30"));
+        assertNull(DefaultDateTimeParser.parse("2024/03/05 24:00"));
+        assertNull(DefaultDateTimeParser.parse("2024/03-05"));
+    }
+
+    @Test
+    @DisplayName("隨機字串的解析結果與原本逐一嘗試的方式相同")
+    void testFuzzEquivalence() {
+        for (Locale locale : new Locale[]{Locale.TAIWAN, Locale.US}) {
+            Locale.setDefault(locale);
+            Random random = new Random(20240305L);
+            for (int i = 0; i < FUZZ_COUNT; i++) {
+                String text = randomDateString(random);
+                assertEquals(
+                        outcome(() -> legacyParseLocalDateTime(text)),
+                        outcome(() -> LocalDateTimeUtils.parse(text)),
+                        () -> "LocalDateTime: " + text
+                );
+                assertEquals(
+                        outcome(() -> legacyParseLocalDate(text)),
+                        outcome(() -> LocalDateUtils.parse(text)),
+                        () -> "LocalDate: " + text
+                );
+                assertEquals(
+                        outcome(() -> legacyParseDate(text)),
+                        outcome(() -> DateUtils.parse(text)),
+                        () -> "Date: " + text
+                );
+            }
+        }
+    }
+
+    private String randomDateString(Random random) {
+        StringBuilder builder = new StringBuilder();
+        boolean hasDate = random.nextInt(10) != 0;
+        if (hasDate) {
+            char separator = pickChar(random, '/', '/', '-', '-', '.');
+            builder.append(pick(random, "2024", "2023", "2000", "1900", "0000", "0001", "9999", "202", "20245"))
+                    .append(separator)
+                    .append(pick(random, "01", "02", "03", "12", "00", "13", "1", "09"))
+                    .append(random.nextInt(10) == 0 ? pickChar(random, '/', '-') : separator)
+                    .append(pick(random, "01", "05", "28", "29", "30", "31", "00", "32", "5"));
+        }
+        if (!hasDate || random.nextInt(5) != 0) {
+            if (hasDate) {
+                builder.append(pick(random, " ", " ", " ", "  ", "T"));
+            }
+            boolean hasAmPm = hasDate && random.nextInt(3) == 0;
+            if (hasAmPm) {
+                builder.append(pick(random, "上午", "下午", "AM", "PM", "am", "pm"));
+                builder.append(pick(random, "00", "01", "09", "11", "12", "13", "9"));
+            } else {
+                builder.append(pick(random, "00", "01", "09", "12", "13", "23", "24", "25", "9"));
+            }
+            builder.append(':').append(pick(random, "00", "07", "59", "60", "5"));
+            if (random.nextBoolean()) {
+                builder.append(':').append(pick(random, "00", "09", "59", "60", "5"));
+                if (random.nextBoolean()) {
+                    builder.append('.').append(pick(random, "000", "123", "999", "12", "1234"));
+                }
+            }
+        }
+        return mutate(random, builder.toString());
+    }
+
+    private String mutate(Random random, String text) {
+        if (text.isEmpty() || random.nextInt(4) != 0) {
+            return text;
+        }
+        StringBuilder builder = new StringBuilder(text);
+        int index = random.nextInt(builder.length());
+        switch (random.nextInt(4)) {
+            case 0:
+                builder.deleteCharAt(index);
+                break;
+            case 1:
+                builder.insert(index, pickChar(random, ' ', '0', '9', '/', ':', 'x', '１'));
+                break;
+            case 2:
+                builder.setCharAt(index, pickChar(random, ' ', '0', '9', '/', '-', ':', '.', '１'));
+                break;
+            default:
+                return random.nextBoolean() ? " " + text : text + " ";
+        }
+        return builder.toString();
+    }
+
+    @SafeVarargs
+    private static <T> T pick(Random random, T... valueArray) {
+        return valueArray[random.nextInt(valueArray.length)];
+    }
+
+    private static char pickChar(Random random, char... valueArray) {
+        return valueArray[random.nextInt(valueArray.length)];
+    }
+
+    private static Object outcome(Callable<Object> callable) {
+        try {
+            return callable.call();
+        } catch (Exception e) {
+            return e.getClass();
+        }
+    }
+
+    private LocalDateTime legacyParseLocalDateTime(String dateString) throws DateParseException {
+        for (DatePatternBuilder builder : DatePatternBuilder.DEFAULT_BUILDER_ARRAY) {
+            try {
+                return LocalDateTime.parse(dateString, DateTimeFormatter.ofPattern(builder.build()));
+            } catch (DateTimeParseException ignored) {
+
+            }
+        }
+        throw new DateParseException(dateString);
+    }
+
+    private LocalDate legacyParseLocalDate(String dateString) throws DateParseException {
+        for (DatePatternBuilder builder : DatePatternBuilder.DEFAULT_BUILDER_ARRAY) {
+            try {
+                return LocalDate.parse(dateString, DateTimeFormatter.ofPattern(builder.build()));
+            } catch (DateTimeParseException ignored) {
+
+            }
+        }
+        throw new DateParseException(dateString);
+    }
+
+    private Date legacyParseDate(String dateString) throws DateParseException {
+        try {
+            return org.apache.commons.lang3.time.DateUtils.parseDate(dateString, DatePatternBuilder.DEFAULT_PATTERN_ARRAY);
+        } catch (ParseException ignore) {
+            throw new DateParseException(dateString);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package tw.edu.ntub.imd.birc.coffeeshop.util.http;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tw.edu.ntub.imd.birc.coffeeshop.util.json.object.ObjectData;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 回應記錄測試
+ * 驗證抽樣開關與大小計算，抽樣記錄不影響回應內容
+ */
+class ResponseLoggerTest {
+    @AfterEach
+    void tearDown() {
+        ResponseLogger.configure(false, 0, 0);
+    }
+
+    @Test
+    @DisplayName("關閉或抽樣比例為0時不記錄")
+    void testSampling() {
+        ResponseLogger.configure(false, 1, 0);
+        assertFalse(ResponseLogger.isSampled());
+        ResponseLogger.configure(true, 0, 0);
+        assertFalse(ResponseLogger.isSampled());
+        ResponseLogger.configure(true, 1, 0);
+        assertTrue(ResponseLogger.isSampled());
+    }
+
+    @Test
+    @DisplayName("UTF-8長度計算與位元組陣列長度相同")
+    void testUtf8Length() {
+        String body = "{\"message\":\"庫存不足，目前庫存: 10\",\"emoji\":\"☕🍰\"}";
+        assertEquals(body.getBytes(StandardCharsets.UTF_8).length, ResponseLogger.utf8Length(body));
+    }
+
+    @Test
+    @DisplayName("全數抽樣時建立的回應與記錄關閉時相同")
+    void testSampledResponseUnchanged() {
+        List<Integer> resource = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            resource.add(i);
+        }
+        ResponseLogger.configure(false, 0, 0);
+        String disabledBody = build(resource);
+
+        ResponseLogger.configure(true, 1, 256);
+        assertTrue(ResponseLogger.isSampled());
+        assertEquals(disabledBody, build(resource));
+    }
+
+    private String build(List<Integer> resource) {
+        return ResponseEntityBuilder.success()
+                .message("查詢成功")
+                .data(resource, this::addElement)
+                .build()
+                .getBody();
+    }
+
+    private void addElement(ObjectData objectData, Integer index) {
+        objectData.add("id", index);
+        objectData.add("name", "瓜地馬拉安提瓜");
+        objectData.add("stock", index * 3);
+    }
+}
@@ -0,0 +1,126 @@
+package tw.edu.ntub.imd.birc.coffeeshop.util.http;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tw.edu.ntub.imd.birc.coffeeshop.util.json.object.ObjectData;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 串流回應測試
+ * 驗證輸出與ResponseEntityBuilder相同，且10k筆資料時單次請求的配置量少於字串版本
+ */
+class StreamingResponseEntityBuilderTest {
+    private static final int ELEMENT_COUNT = 10_000;
+
+    @Test
+    @DisplayName("串流輸出與原本的回應內容相同")
+    void testSameEnvelope() throws IOException {
+        List<Integer> resource = createResource(3);
+        String expected = ResponseEntityBuilder.success()
+                .message("查詢成功")
+                .data(resource, this::addElement)
+                .buildJSONString();
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        StreamingResponseEntityBuilder.success()
+                .message("查詢成功")
+                .data(resource, this::addElement)
+                .writeTo(outputStream);
+
+        assertEquals(
+                ResponseUtils.createJsonNode(expected),
+                ResponseUtils.createJsonNode(outputStream.toString(StandardCharsets.UTF_8))
+        );
+    }
+
+    @Test
+    @DisplayName("逐筆推送的資料來源依序寫出")
+    void testPushSource() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        StreamingResponseEntityBuilder.success()
+                .data(consumer -> createResource(5).forEach(consumer), this::addElement)
+                .writeTo(outputStream);
+
+        JsonNode data = ResponseUtils.createJsonNode(outputStream.toString(StandardCharsets.UTF_8)).get("data");
+        assertEquals(5, data.size());
+        assertEquals(4, data.get(4).get("id").asInt());
+    }
+
+    @Test
+    @DisplayName("10k筆資料的單次請求配置量：字串版本與串流版本")
+    void testAllocationComparison() throws IOException {
+        List<Integer> resource = createResource(ELEMENT_COUNT);
+        // 先各執行一次，排除類別載入等一次性的配置
+        writeAsString(resource);
+        writeAsStream(resource);
+
+        long stringBytes = measureAllocation(() -> writeAsString(resource));
+        long streamBytes = measureAllocation(() -> writeAsStream(resource));
+
+        assertTrue(streamBytes < stringBytes, () -> String.format(
+                "%d筆資料單次請求配置量：字串版本 %.1f MB，串流版本 %.1f MB",
+                ELEMENT_COUNT,
+                stringBytes / 1024.0 / 1024.0,
+                streamBytes / 1024.0 / 1024.0
+        ));
+    }
+
+    private void writeAsString(List<Integer> resource) throws IOException {
+        String body = ResponseEntityBuilder.success()
+                .message("查詢成功")
+                .data(resource, this::addElement)
+                .build()
+                .getBody();
+        // StringHttpMessageConverter寫入回應時會再轉成一次位元組
+        OutputStream.nullOutputStream().write(Objects.requireNonNull(body).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeAsStream(List<Integer> resource) throws IOException {
+        StreamingResponseEntityBuilder.success()
+                .message("查詢成功")
+                .data(resource, this::addElement)
+                .writeTo(OutputStream.nullOutputStream());
+    }
+
+    private long measureAllocation(IORunnable runnable) throws IOException {
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        runnable.run();
+        return threadMXBean.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    private List<Integer> createResource(int size) {
+        List<Integer> resource = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            resource.add(i);
+        }
+        return resource;
+    }
+
+    private void addElement(ObjectData objectData, Integer index) {
+        objectData.add("id", index);
+        objectData.add("name", "衣索比亞耶加雪菲" + index);
+        objectData.add("type", "BEAN");
+        objectData.add("quantity", index % 50);
+        objectData.add("timestamp", LocalDateTime.of(2026, 1, 11, 23, 30, 37));
+    }
+
+    @FunctionalInterface
+    private interface IORunnable {
+        void run() throws IOException;
+    }
+}